@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.trace.propagation;
+
+import io.opentelemetry.context.propagation.HttpTextFormat.Getter;
+import io.opentelemetry.context.propagation.HttpTextFormat.Setter;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.Tracestate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the injection and extraction of a {@link SpanContext} by {@link HttpTraceContext}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HttpTraceContextBenchmark {
+  private static final Setter<Map<String, String>> SETTER =
+      new Setter<Map<String, String>>() {
+        @Override
+        public void put(Map<String, String> carrier, String key, String value) {
+          carrier.put(key, value);
+        }
+      };
+  private static final Getter<Map<String, String>> GETTER =
+      new Getter<Map<String, String>>() {
+        @Override
+        public String get(Map<String, String> carrier, String key) {
+          return carrier.get(key);
+        }
+      };
+
+  // The number of tracestate entries.
+  @Param({"0", "4"})
+  public int tracestateEntries;
+
+  private final HttpTraceContext httpTraceContext = new HttpTraceContext();
+  private final Map<String, String> injectCarrier = new HashMap<>();
+  private final Map<String, String> extractCarrier = new HashMap<>();
+  private SpanContext spanContext;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    Tracestate.Builder tracestate = Tracestate.builder();
+    for (int i = 0; i < tracestateEntries; i++) {
+      tracestate.set("vendor" + i, "value" + i);
+    }
+    spanContext =
+        SpanContext.create(
+            TraceId.fromLowerBase16("0af7651916cd43dd8448eb211c80319c", 0),
+            SpanId.fromLowerBase16("b7ad6b7169203331", 0),
+            TraceFlags.fromByte((byte) 1),
+            tracestate.build());
+    httpTraceContext.inject(spanContext, extractCarrier, SETTER);
+  }
+
+  /** Injects the traceparent and tracestate headers into a carrier. */
+  @Benchmark
+  public Map<String, String> inject() {
+    httpTraceContext.inject(spanContext, injectCarrier, SETTER);
+    return injectCarrier;
+  }
+
+  /** Extracts a {@link SpanContext} from the traceparent and tracestate headers. */
+  @Benchmark
+  public SpanContext extract() {
+    return httpTraceContext.extract(extractCarrier, GETTER);
+  }
+
+  /** Injects then extracts, like a request going through two services. */
+  @Benchmark
+  public SpanContext injectAndExtract() {
+    httpTraceContext.inject(spanContext, injectCarrier, SETTER);
+    return httpTraceContext.extract(injectCarrier, GETTER);
+  }
+}
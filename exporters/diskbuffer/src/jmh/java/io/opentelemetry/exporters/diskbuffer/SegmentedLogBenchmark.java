@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.diskbuffer;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.opentelemetry.exporters.jaeger.JaegerGrpcSpanExporter;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast encoded span batches are appended to and replayed from the {@link
+ * SegmentedLog}. Every record is a {@code Model.Batch} of {@code spansPerBatch} Jaeger spans, as
+ * written by the {@link DiskBufferSpanExporter}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class SegmentedLogBenchmark {
+  private static final int SEGMENT_SIZE_BYTES = 16 * 1024 * 1024;
+  private static final long MAX_SIZE_BYTES = 256 * 1024 * 1024;
+  private static final int REPLAYS_PER_ITERATION = 1000;
+
+  @Param({"1", "64", "512"})
+  public int spansPerBatch;
+
+  private File directory;
+  private SegmentedLog log;
+  private byte[] record;
+
+  @Setup(Level.Iteration)
+  public final void setup() throws IOException {
+    directory = File.createTempFile("SegmentedLogBenchmark", "");
+    if (!directory.delete() || !directory.mkdir()) {
+      throw new IOException("Failed to create the directory " + directory);
+    }
+    log = SegmentedLog.open(directory, SEGMENT_SIZE_BYTES, MAX_SIZE_BYTES);
+    List<SpanData> spans = new ArrayList<>(spansPerBatch);
+    for (int i = 0; i < spansPerBatch; i++) {
+      spans.add(newSpan(i));
+    }
+    record =
+        Model.Batch.newBuilder()
+            .addAllSpans(JaegerGrpcSpanExporter.toJaegerSpans(spans))
+            .build()
+            .toByteArray();
+    // Replayed by the replay benchmark.
+    for (int i = 0; i < REPLAYS_PER_ITERATION; i++) {
+      log.append(record);
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public final void tearDown() {
+    log.close();
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  /**
+   * Appends an encoded batch. Once the log is full every new segment drops the oldest one, like
+   * during a long outage.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 5, time = 1)
+  @Measurement(iterations = 10, time = 1)
+  public boolean append() throws IOException {
+    return log.append(record);
+  }
+
+  /**
+   * Reads, decodes and removes an encoded batch, the work done by the drain thread for every
+   * replayed batch. Every iteration replays the batches appended by the setup.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 5, batchSize = REPLAYS_PER_ITERATION)
+  @Measurement(iterations = 10, batchSize = REPLAYS_PER_ITERATION)
+  public Model.Batch replay() throws InvalidProtocolBufferException {
+    SegmentedLog.Record next = log.peek();
+    if (next == null) {
+      throw new IllegalStateException("The log is empty.");
+    }
+    Model.Batch batch = Model.Batch.parseFrom(next.getData());
+    log.remove(next);
+    return batch;
+  }
+
+  private static SpanData newSpan(int index) {
+    Map<String, AttributeValue> attributes = new HashMap<>();
+    for (int i = 0; i < 10; i++) {
+      attributes.put("attribute_" + i, AttributeValue.stringAttributeValue("value_" + i));
+    }
+    return SpanData.newBuilder()
+        .setTraceId(TraceId.fromLowerBase16("00000000000000000000000000abc123", 0))
+        .setSpanId(SpanId.fromLowerBase16("0000000000def456", 0))
+        .setName("span_" + index)
+        .setStartEpochNanos(1000)
+        .setEndEpochNanos(2000)
+        .setStatus(Status.OK)
+        .setKind(Kind.SERVER)
+        .setAttributes(attributes)
+        .setLinks(Collections.<Link>emptyList())
+        .build();
+  }
+}
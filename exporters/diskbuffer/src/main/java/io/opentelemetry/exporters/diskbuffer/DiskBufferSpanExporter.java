@@ -0,0 +1,372 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.diskbuffer;
+
+import com.google.auto.value.AutoValue;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.opentelemetry.exporters.jaeger.JaegerGrpcSpanExporter;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Implementation of the {@code SpanExporter} that spills the batches to disk while the Jaeger
+ * collector is unavailable, and replays them once it recovers.
+ *
+ * <p>Spans are converted once to Jaeger's protobuf model. When the collector fails with {@link
+ * ResultCode#FAILED_RETRYABLE} the batch is serialized as a {@code Model.Batch} and appended to a
+ * log of memory-mapped segment files, and {@link #export(List)} returns {@link ResultCode#SUCCESS}.
+ * A background thread replays the logged batches in order, without converting them again, and
+ * waits for the retry interval every time the collector fails. While batches are logged new
+ * batches are appended to the log, so they are exported in order.
+ *
+ * <p>The log is bounded by a maximum size on disk, the oldest segment is dropped when a new segment
+ * does not fit. Records are checksummed and the log survives restarts: batches logged and not
+ * replayed before a shutdown or a crash are replayed by the next exporter that uses the same
+ * directory. A crash may cause the last replayed batch to be exported twice.
+ */
+@ThreadSafe
+public final class DiskBufferSpanExporter implements SpanExporter {
+  private static final Logger logger = Logger.getLogger(DiskBufferSpanExporter.class.getName());
+  private static final String DRAIN_THREAD_NAME =
+      DiskBufferSpanExporter.class.getSimpleName() + "_DrainThread";
+
+  private final JaegerGrpcSpanExporter jaegerExporter;
+  private final SegmentedLog log;
+  private final long retryIntervalMillis;
+  private final Thread drainThread;
+  // Signals the drain thread that batches were logged or that the exporter is shutdown.
+  private final Object monitor = new Object();
+  private volatile boolean isShutdown;
+  private final AtomicLong spilledBatches = new AtomicLong();
+  private final AtomicLong replayedBatches = new AtomicLong();
+  private final AtomicLong droppedBatches = new AtomicLong();
+
+  private DiskBufferSpanExporter(
+      JaegerGrpcSpanExporter jaegerExporter, SegmentedLog log, long retryIntervalMillis) {
+    this.jaegerExporter = jaegerExporter;
+    this.log = log;
+    this.retryIntervalMillis = retryIntervalMillis;
+    this.drainThread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                drain();
+              }
+            });
+    try {
+      drainThread.setName(DRAIN_THREAD_NAME);
+      drainThread.setDaemon(true);
+    } catch (SecurityException e) {
+      // OK if we can't set the name in this environment.
+    }
+    // Batches left by a previous exporter are replayed right away.
+    drainThread.start();
+  }
+
+  @Override
+  public ResultCode export(List<SpanData> spans) {
+    if (isShutdown) {
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+    Collection<Model.Span> jaegerSpans = JaegerGrpcSpanExporter.toJaegerSpans(spans);
+    // Keep the order of the batches, and don't call a collector that is known to be failing.
+    if (log.isEmpty()) {
+      ResultCode resultCode = jaegerExporter.exportJaegerSpans(jaegerSpans);
+      if (resultCode != ResultCode.FAILED_RETRYABLE) {
+        return resultCode;
+      }
+    }
+    return spill(jaegerSpans);
+  }
+
+  /**
+   * Stops the replay and shuts down the Jaeger exporter. The batches not yet replayed stay on disk
+   * and are replayed by the next exporter that uses the same directory.
+   */
+  @Override
+  public void shutdown() {
+    isShutdown = true;
+    synchronized (monitor) {
+      monitor.notifyAll();
+    }
+    try {
+      drainThread.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      // Preserve the interruption status as per guidance.
+      Thread.currentThread().interrupt();
+    }
+    log.close();
+    jaegerExporter.shutdown();
+  }
+
+  /**
+   * Returns a snapshot of the statistics of this {@code DiskBufferSpanExporter}.
+   *
+   * @return a snapshot of the statistics of this {@code DiskBufferSpanExporter}.
+   */
+  public Statistics getStatistics() {
+    return Statistics.create(
+        spilledBatches.get(),
+        replayedBatches.get(),
+        droppedBatches.get() + log.getDroppedRecords(),
+        log.getRecordCount(),
+        log.getSizeBytes());
+  }
+
+  /**
+   * A snapshot of the statistics of a {@link DiskBufferSpanExporter}. All the counts are
+   * cumulative since the exporter was created.
+   */
+  @Immutable
+  @AutoValue
+  public abstract static class Statistics {
+    Statistics() {}
+
+    /**
+     * Returns the number of batches written to disk.
+     *
+     * @return the number of batches written to disk.
+     */
+    public abstract long getSpilledBatches();
+
+    /**
+     * Returns the number of batches read from disk and successfully exported.
+     *
+     * @return the number of batches read from disk and successfully exported.
+     */
+    public abstract long getReplayedBatches();
+
+    /**
+     * Returns the number of batches dropped because the log was full, a batch was larger than a
+     * segment, or a replayed batch failed with {@link ResultCode#FAILED_NOT_RETRYABLE}.
+     *
+     * @return the number of dropped batches.
+     */
+    public abstract long getDroppedBatches();
+
+    /**
+     * Returns the number of batches on disk waiting to be replayed.
+     *
+     * @return the number of batches on disk waiting to be replayed.
+     */
+    public abstract long getPendingBatches();
+
+    /**
+     * Returns the total size of the segment files.
+     *
+     * @return the total size of the segment files.
+     */
+    public abstract long getSizeBytes();
+
+    static Statistics create(
+        long spilledBatches,
+        long replayedBatches,
+        long droppedBatches,
+        long pendingBatches,
+        long sizeBytes) {
+      return new AutoValue_DiskBufferSpanExporter_Statistics(
+          spilledBatches, replayedBatches, droppedBatches, pendingBatches, sizeBytes);
+    }
+  }
+
+  /**
+   * Returns a new Builder for {@link DiskBufferSpanExporter}.
+   *
+   * @param jaegerExporter the exporter to which the spans are exported and replayed.
+   * @param directory the directory where the segment files are stored, owned by the exporter.
+   * @return a new Builder for {@link DiskBufferSpanExporter}.
+   * @throws NullPointerException if {@code jaegerExporter} or {@code directory} is {@code null}.
+   */
+  public static Builder newBuilder(JaegerGrpcSpanExporter jaegerExporter, File directory) {
+    return new Builder(jaegerExporter, directory);
+  }
+
+  /** Builder class for {@link DiskBufferSpanExporter}. */
+  public static final class Builder {
+    private static final int SEGMENT_SIZE_BYTES = 8 * 1024 * 1024;
+    private static final long MAX_SIZE_BYTES = 256 * 1024 * 1024;
+    private static final long RETRY_INTERVAL_MILLIS = 5000;
+    private final JaegerGrpcSpanExporter jaegerExporter;
+    private final File directory;
+    private int segmentSizeBytes = SEGMENT_SIZE_BYTES;
+    private long maxSizeBytes = MAX_SIZE_BYTES;
+    private long retryIntervalMillis = RETRY_INTERVAL_MILLIS;
+
+    private Builder(JaegerGrpcSpanExporter jaegerExporter, File directory) {
+      this.jaegerExporter = Utils.checkNotNull(jaegerExporter, "jaegerExporter");
+      this.directory = Utils.checkNotNull(directory, "directory");
+    }
+
+    /**
+     * Sets the size of every segment file. A batch larger than a segment is dropped.
+     *
+     * <p>Default value is {@code 8} MiB.
+     *
+     * @param segmentSizeBytes the size of every segment file.
+     * @return this.
+     */
+    public Builder setSegmentSizeBytes(int segmentSizeBytes) {
+      this.segmentSizeBytes = segmentSizeBytes;
+      return this;
+    }
+
+    /**
+     * Sets the maximum total size of the segment files, it must fit at least two segments. When a
+     * new segment does not fit the oldest segment is dropped.
+     *
+     * <p>Default value is {@code 256} MiB.
+     *
+     * @param maxSizeBytes the maximum total size of the segment files.
+     * @return this.
+     */
+    public Builder setMaxSizeBytes(long maxSizeBytes) {
+      this.maxSizeBytes = maxSizeBytes;
+      return this;
+    }
+
+    /**
+     * Sets the delay before the next replay after the collector failed.
+     *
+     * <p>Default value is {@code 5000}ms.
+     *
+     * @param retryIntervalMillis the delay before the next replay after the collector failed.
+     * @return this.
+     * @throws IllegalArgumentException if {@code retryIntervalMillis} is not positive.
+     */
+    public Builder setRetryIntervalMillis(long retryIntervalMillis) {
+      Utils.checkArgument(retryIntervalMillis > 0, "retryIntervalMillis must be positive.");
+      this.retryIntervalMillis = retryIntervalMillis;
+      return this;
+    }
+
+    /**
+     * Opens the log in the directory and returns a new {@link DiskBufferSpanExporter}.
+     *
+     * @return a new {@link DiskBufferSpanExporter}.
+     * @throws IllegalArgumentException if the maximum size does not fit two segments.
+     * @throws IOException if the log cannot be opened.
+     */
+    public DiskBufferSpanExporter build() throws IOException {
+      return new DiskBufferSpanExporter(
+          jaegerExporter,
+          SegmentedLog.open(directory, segmentSizeBytes, maxSizeBytes),
+          retryIntervalMillis);
+    }
+  }
+
+  private ResultCode spill(Collection<Model.Span> jaegerSpans) {
+    if (jaegerSpans.isEmpty()) {
+      return ResultCode.SUCCESS;
+    }
+    byte[] data = Model.Batch.newBuilder().addAllSpans(jaegerSpans).build().toByteArray();
+    try {
+      if (!log.append(data)) {
+        droppedBatches.incrementAndGet();
+        return ResultCode.FAILED_NOT_RETRYABLE;
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Failed to write the batch to disk.", e);
+      return ResultCode.FAILED_RETRYABLE;
+    } catch (IllegalStateException e) {
+      // Closed by a concurrent shutdown.
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+    spilledBatches.incrementAndGet();
+    synchronized (monitor) {
+      monitor.notifyAll();
+    }
+    return ResultCode.SUCCESS;
+  }
+
+  // Runs in the drain thread until the exporter is shutdown.
+  private void drain() {
+    while (!isShutdown) {
+      SegmentedLog.Record record = log.peek();
+      if (record == null) {
+        waitForBatches();
+        continue;
+      }
+      ResultCode resultCode = replay(record.getData());
+      if (resultCode == ResultCode.FAILED_RETRYABLE) {
+        waitForRetry();
+        continue;
+      }
+      if (resultCode == ResultCode.SUCCESS) {
+        replayedBatches.incrementAndGet();
+      } else {
+        droppedBatches.incrementAndGet();
+      }
+      log.remove(record);
+    }
+  }
+
+  private ResultCode replay(byte[] data) {
+    Model.Batch batch;
+    try {
+      batch = Model.Batch.parseFrom(data);
+    } catch (InvalidProtocolBufferException e) {
+      logger.log(Level.WARNING, "Dropping a batch that cannot be read.", e);
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+    return jaegerExporter.exportJaegerSpans(batch.getSpansList());
+  }
+
+  private void waitForBatches() {
+    synchronized (monitor) {
+      // The batches are logged before the monitor is notified, so checking under the monitor
+      // doesn't miss a notification.
+      while (!isShutdown && log.isEmpty()) {
+        try {
+          monitor.wait();
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void waitForRetry() {
+    long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryIntervalMillis);
+    synchronized (monitor) {
+      // Newly logged batches notify the monitor, keep waiting to not call the failing collector.
+      while (!isShutdown) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+          return;
+        }
+        try {
+          TimeUnit.NANOSECONDS.timedWait(monitor, remainingNanos);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.diskbuffer;
+
+import io.opentelemetry.internal.Utils;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A first-in first-out log of records stored in memory-mapped segment files.
+ *
+ * <p>Records are appended to the newest segment, a new segment file is created when a record does
+ * not fit. When the total size of the segments would exceed the maximum size the oldest segment is
+ * deleted, with all its records. Segments are deleted as well once all their records are removed.
+ *
+ * <p>Every record is stored with its length and its CRC32, the length being written last. The
+ * position of the oldest record not yet removed is stored in the header of its segment. When the
+ * log is opened the existing segments are scanned and the scan of a segment stops at the first
+ * record with an invalid length or checksum, so a record torn by a crash is never returned. The
+ * data is synced to the storage when a segment is full and when the log is closed, records
+ * appended after the last sync survive a crash of the process but not of the operating system.
+ *
+ * <p>Segment file layout, all integers big-endian:
+ *
+ * <pre>
+ *   segment := magic:int version:int readPosition:int reserved:int record*
+ *   record  := length:int crc32:int data:byte[length]
+ * </pre>
+ */
+@ThreadSafe
+final class SegmentedLog implements Closeable {
+  private static final Logger logger = Logger.getLogger(SegmentedLog.class.getName());
+  private static final String SEGMENT_FILE_SUFFIX = ".segment";
+  private static final int MAGIC = 0x4f54424c;
+  private static final int VERSION = 1;
+  private static final int READ_POSITION_OFFSET = 8;
+  static final int SEGMENT_HEADER_BYTES = 16;
+  static final int RECORD_HEADER_BYTES = 8;
+  // Written in chunks to clear the tail of a segment, never modified.
+  private static final byte[] ZEROS = new byte[4096];
+
+  private final File directory;
+  private final int segmentSizeBytes;
+  private final int maxSegments;
+
+  @GuardedBy("this")
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+  @GuardedBy("this")
+  private final CRC32 crc32 = new CRC32();
+
+  @GuardedBy("this")
+  private long nextSequence;
+
+  @GuardedBy("this")
+  private long droppedRecords;
+
+  @GuardedBy("this")
+  private boolean closed;
+
+  private SegmentedLog(File directory, int segmentSizeBytes, int maxSegments) {
+    this.directory = directory;
+    this.segmentSizeBytes = segmentSizeBytes;
+    this.maxSegments = maxSegments;
+  }
+
+  /**
+   * Opens the log stored in the given directory, creating the directory if needed. The records of
+   * the existing segments are available in the order they were appended.
+   *
+   * @param directory the directory where the segment files are stored.
+   * @param segmentSizeBytes the size of every segment file.
+   * @param maxSizeBytes the maximum total size of the segment files, at least two segments.
+   * @return the opened log.
+   * @throws IOException if the directory or the first segment file cannot be created.
+   */
+  static SegmentedLog open(File directory, int segmentSizeBytes, long maxSizeBytes)
+      throws IOException {
+    Utils.checkArgument(
+        segmentSizeBytes > SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES,
+        "segmentSizeBytes is too small.");
+    Utils.checkArgument(
+        maxSizeBytes >= 2L * segmentSizeBytes, "maxSizeBytes must fit at least two segments.");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Failed to create the directory " + directory);
+    }
+    SegmentedLog log =
+        new SegmentedLog(
+            directory,
+            segmentSizeBytes,
+            (int) Math.min(maxSizeBytes / segmentSizeBytes, Integer.MAX_VALUE));
+    synchronized (log) {
+      log.recover();
+    }
+    return log;
+  }
+
+  /**
+   * Appends a record to the log, dropping the oldest segment if the log is full.
+   *
+   * @param data the record, must not be empty.
+   * @return {@code false} if the record is larger than a segment and was not appended.
+   * @throws IOException if a new segment file cannot be created.
+   */
+  synchronized boolean append(byte[] data) throws IOException {
+    Utils.checkArgument(data.length > 0, "data must not be empty.");
+    Utils.checkState(!closed, "The log is closed.");
+    int recordBytes = RECORD_HEADER_BYTES + data.length;
+    if (recordBytes > segmentSizeBytes - SEGMENT_HEADER_BYTES) {
+      return false;
+    }
+    Segment segment = segments.getLast();
+    if (segment.size - segment.writePosition < recordBytes) {
+      segment.buffer.force();
+      segment = addSegment();
+    }
+    crc32.reset();
+    crc32.update(data, 0, data.length);
+    segment.write(data, (int) crc32.getValue());
+    return true;
+  }
+
+  /**
+   * Returns the oldest record, without removing it.
+   *
+   * @return the oldest record, or {@code null} if the log is empty.
+   */
+  @Nullable
+  synchronized Record peek() {
+    if (closed) {
+      return null;
+    }
+    while (true) {
+      Segment first = segments.getFirst();
+      if (first.readPosition < first.writePosition) {
+        return new Record(first, first.readPosition, first.read());
+      }
+      if (first == segments.getLast()) {
+        return null;
+      }
+      // Fully read, and records are only appended to the last segment.
+      segments.removeFirst();
+      first.delete();
+    }
+  }
+
+  /**
+   * Removes the given record, previously returned by {@link #peek()}. Does nothing if the record
+   * was already removed, or dropped because the log was full.
+   *
+   * @param record the record to remove.
+   */
+  synchronized void remove(Record record) {
+    Segment segment = record.segment;
+    if (closed || segment.deleted || segment.readPosition != record.position) {
+      return;
+    }
+    segment.advance();
+  }
+
+  /**
+   * Returns {@code true} if the log has no records.
+   *
+   * @return {@code true} if the log has no records.
+   */
+  synchronized boolean isEmpty() {
+    return getRecordCount() == 0;
+  }
+
+  /**
+   * Returns the number of records in the log.
+   *
+   * @return the number of records in the log.
+   */
+  synchronized long getRecordCount() {
+    long records = 0;
+    for (Segment segment : segments) {
+      records += segment.records;
+    }
+    return records;
+  }
+
+  /**
+   * Returns the total size of the segment files.
+   *
+   * @return the total size of the segment files.
+   */
+  synchronized long getSizeBytes() {
+    long sizeBytes = 0;
+    for (Segment segment : segments) {
+      sizeBytes += segment.size;
+    }
+    return sizeBytes;
+  }
+
+  /**
+   * Returns the number of records dropped because the log was full.
+   *
+   * @return the number of records dropped because the log was full.
+   */
+  synchronized long getDroppedRecords() {
+    return droppedRecords;
+  }
+
+  /** Syncs the segments to the storage. The segment files are kept, to be opened again later. */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Segment segment : segments) {
+      segment.buffer.force();
+    }
+  }
+
+  @GuardedBy("this")
+  private void recover() throws IOException {
+    File[] files =
+        directory.listFiles(
+            new FilenameFilter() {
+              @Override
+              public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_FILE_SUFFIX);
+              }
+            });
+    if (files != null) {
+      // The names are zero padded sequence numbers, so the lexicographic order is the append order.
+      Arrays.sort(files);
+      for (File file : files) {
+        Segment segment = Segment.open(file);
+        if (segment == null || !segment.recover(crc32)) {
+          logger.log(Level.WARNING, "Deleting the invalid segment file " + file);
+          if (!file.delete()) {
+            logger.log(Level.WARNING, "Failed to delete the segment file " + file);
+          }
+          continue;
+        }
+        segments.addLast(segment);
+        nextSequence = Math.max(nextSequence, parseSequence(file) + 1);
+      }
+    }
+    while (segments.size() > maxSegments) {
+      dropOldestSegment();
+    }
+    if (segments.isEmpty()) {
+      addSegment();
+    } else {
+      // Appends continue after the last valid record, clear what follows so that the remains of a
+      // torn record are never read after the new records.
+      segments.getLast().clearTail();
+    }
+  }
+
+  @GuardedBy("this")
+  private Segment addSegment() throws IOException {
+    if (segments.size() >= maxSegments) {
+      dropOldestSegment();
+    }
+    File file =
+        new File(
+            directory, String.format(Locale.ROOT, "%020d%s", nextSequence, SEGMENT_FILE_SUFFIX));
+    nextSequence++;
+    Segment segment = Segment.create(file, segmentSizeBytes);
+    segments.addLast(segment);
+    return segment;
+  }
+
+  @GuardedBy("this")
+  private void dropOldestSegment() {
+    Segment oldest = segments.removeFirst();
+    droppedRecords += oldest.records;
+    oldest.delete();
+  }
+
+  private static long parseSequence(File file) {
+    String name = file.getName();
+    try {
+      return Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** A record returned by {@link #peek()}. */
+  static final class Record {
+    private final Segment segment;
+    private final int position;
+    private final byte[] data;
+
+    private Record(Segment segment, int position, byte[] data) {
+      this.segment = segment;
+      this.position = position;
+      this.data = data;
+    }
+
+    /**
+     * Returns the data of the record.
+     *
+     * @return the data of the record.
+     */
+    byte[] getData() {
+      return data;
+    }
+  }
+
+  // All the accesses are guarded by the SegmentedLog monitor.
+  private static final class Segment {
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private int readPosition = SEGMENT_HEADER_BYTES;
+    private int writePosition = SEGMENT_HEADER_BYTES;
+    // Number of records not yet removed.
+    private int records;
+    private boolean deleted;
+
+    private Segment(File file, MappedByteBuffer buffer) {
+      this.file = file;
+      this.buffer = buffer;
+      this.size = buffer.capacity();
+    }
+
+    private static Segment create(File file, int sizeBytes) throws IOException {
+      Segment segment = new Segment(file, map(file, sizeBytes));
+      segment.buffer.putInt(0, MAGIC);
+      segment.buffer.putInt(4, VERSION);
+      segment.buffer.putInt(READ_POSITION_OFFSET, SEGMENT_HEADER_BYTES);
+      return segment;
+    }
+
+    @Nullable
+    private static Segment open(File file) {
+      long length = file.length();
+      if (length < SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES || length > Integer.MAX_VALUE) {
+        return null;
+      }
+      try {
+        return new Segment(file, map(file, (int) length));
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Failed to map the segment file " + file, e);
+        return null;
+      }
+    }
+
+    private static MappedByteBuffer map(File file, int sizeBytes) throws IOException {
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+      try {
+        randomAccessFile.setLength(sizeBytes);
+        // The mapping stays valid after the file is closed.
+        return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+      } finally {
+        randomAccessFile.close();
+      }
+    }
+
+    // Scans the records and returns false if the segment is not a valid segment.
+    private boolean recover(CRC32 crc32) {
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+        return false;
+      }
+      int storedReadPosition = buffer.getInt(READ_POSITION_OFFSET);
+      boolean readPositionFound = false;
+      int totalRecords = 0;
+      int position = SEGMENT_HEADER_BYTES;
+      byte[] data = new byte[0];
+      while (position <= size - RECORD_HEADER_BYTES) {
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > size - position - RECORD_HEADER_BYTES) {
+          break;
+        }
+        if (data.length < length) {
+          data = new byte[length];
+        }
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position + RECORD_HEADER_BYTES);
+        duplicate.get(data, 0, length);
+        crc32.reset();
+        crc32.update(data, 0, length);
+        if ((int) crc32.getValue() != buffer.getInt(position + 4)) {
+          break;
+        }
+        if (position == storedReadPosition) {
+          readPositionFound = true;
+        }
+        if (readPositionFound) {
+          records++;
+        }
+        totalRecords++;
+        position += RECORD_HEADER_BYTES + length;
+      }
+      writePosition = position;
+      if (readPositionFound || storedReadPosition == position) {
+        readPosition = storedReadPosition;
+      } else {
+        // Not the start of a valid record, read the segment again from the start.
+        readPosition = SEGMENT_HEADER_BYTES;
+        records = totalRecords;
+      }
+      return true;
+    }
+
+    private void clearTail() {
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(writePosition);
+      duplicate.limit(size);
+      while (duplicate.hasRemaining()) {
+        duplicate.put(ZEROS, 0, Math.min(ZEROS.length, duplicate.remaining()));
+      }
+    }
+
+    private void write(byte[] data, int crc) {
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(writePosition + RECORD_HEADER_BYTES);
+      duplicate.put(data);
+      buffer.putInt(writePosition + 4, crc);
+      // Written last, a record with a valid length is complete.
+      buffer.putInt(writePosition, data.length);
+      writePosition += RECORD_HEADER_BYTES + data.length;
+      records++;
+    }
+
+    private byte[] read() {
+      byte[] data = new byte[buffer.getInt(readPosition)];
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(readPosition + RECORD_HEADER_BYTES);
+      duplicate.get(data);
+      return data;
+    }
+
+    private void advance() {
+      readPosition += RECORD_HEADER_BYTES + buffer.getInt(readPosition);
+      records--;
+      buffer.putInt(READ_POSITION_OFFSET, readPosition);
+    }
+
+    private void delete() {
+      deleted = true;
+      records = 0;
+      if (!file.delete()) {
+        logger.log(Level.WARNING, "Failed to delete the segment file " + file);
+      }
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.diskbuffer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import io.opentelemetry.exporters.jaeger.JaegerGrpcSpanExporter;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Collector;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.CollectorServiceGrpc;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.concurrent.GuardedBy;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link DiskBufferSpanExporter}. */
+@RunWith(JUnit4.class)
+public class DiskBufferSpanExporterTest {
+  @Rule public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private final FakeCollectorService collector = new FakeCollectorService();
+  private String serverName;
+  private File directory;
+
+  @Before
+  public void setup() throws IOException {
+    serverName = InProcessServerBuilder.generateName();
+    grpcCleanup.register(
+        InProcessServerBuilder.forName(serverName)
+            .directExecutor()
+            .addService(collector)
+            .build()
+            .start());
+    directory = temporaryFolder.newFolder();
+  }
+
+  private DiskBufferSpanExporter newExporter() throws IOException {
+    ManagedChannel channel =
+        grpcCleanup.register(InProcessChannelBuilder.forName(serverName).directExecutor().build());
+    JaegerGrpcSpanExporter jaegerExporter =
+        JaegerGrpcSpanExporter.newBuilder().setServiceName("test").setChannel(channel).build();
+    return DiskBufferSpanExporter.newBuilder(jaegerExporter, directory)
+        .setSegmentSizeBytes(64 * 1024)
+        .setMaxSizeBytes(256 * 1024)
+        .setRetryIntervalMillis(10)
+        .build();
+  }
+
+  private static List<SpanData> newBatch(String name) {
+    return Collections.singletonList(
+        SpanData.newBuilder()
+            .setTraceId(TraceId.fromLowerBase16("00000000000000000000000000abc123", 0))
+            .setSpanId(SpanId.fromLowerBase16("0000000000def456", 0))
+            .setName(name)
+            .setStartEpochNanos(1000)
+            .setEndEpochNanos(2000)
+            .setStatus(io.opentelemetry.trace.Status.OK)
+            .setKind(Kind.SERVER)
+            .setLinks(Collections.<Link>emptyList())
+            .build());
+  }
+
+  @Test
+  public void export_CollectorAvailable() throws IOException {
+    DiskBufferSpanExporter exporter = newExporter();
+
+    assertThat(exporter.export(newBatch("span1"))).isEqualTo(ResultCode.SUCCESS);
+    assertThat(collector.waitForSpans(1)).containsExactly("span1");
+    assertThat(exporter.getStatistics().getSpilledBatches()).isEqualTo(0L);
+    exporter.shutdown();
+  }
+
+  @Test(timeout = 10000L)
+  public void export_ReplaysAfterOutage() throws IOException {
+    collector.setStatus(Status.UNAVAILABLE);
+    DiskBufferSpanExporter exporter = newExporter();
+
+    assertThat(exporter.export(newBatch("span1"))).isEqualTo(ResultCode.SUCCESS);
+    assertThat(exporter.export(newBatch("span2"))).isEqualTo(ResultCode.SUCCESS);
+    assertThat(exporter.getStatistics().getSpilledBatches()).isEqualTo(2L);
+    assertThat(collector.getSpans()).isEmpty();
+
+    collector.setStatus(Status.OK);
+    assertThat(collector.waitForSpans(2)).containsExactly("span1", "span2").inOrder();
+    exporter.shutdown();
+    DiskBufferSpanExporter.Statistics statistics = exporter.getStatistics();
+    assertThat(statistics.getReplayedBatches()).isEqualTo(2L);
+    assertThat(statistics.getPendingBatches()).isEqualTo(0L);
+    assertThat(statistics.getDroppedBatches()).isEqualTo(0L);
+  }
+
+  @Test(timeout = 10000L)
+  public void export_ReplaysAfterRestart() throws IOException {
+    collector.setStatus(Status.UNAVAILABLE);
+    DiskBufferSpanExporter exporter = newExporter();
+    exporter.export(newBatch("span1"));
+    exporter.shutdown();
+    assertThat(exporter.getStatistics().getPendingBatches()).isEqualTo(1L);
+
+    collector.setStatus(Status.OK);
+    DiskBufferSpanExporter restarted = newExporter();
+    assertThat(collector.waitForSpans(1)).containsExactly("span1");
+    restarted.shutdown();
+  }
+
+  @Test
+  public void export_NotRetryable() throws IOException {
+    collector.setStatus(Status.INVALID_ARGUMENT);
+    DiskBufferSpanExporter exporter = newExporter();
+
+    assertThat(exporter.export(newBatch("span1"))).isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+    assertThat(exporter.getStatistics().getSpilledBatches()).isEqualTo(0L);
+    exporter.shutdown();
+  }
+
+  @Test
+  public void export_AfterShutdown() throws IOException {
+    DiskBufferSpanExporter exporter = newExporter();
+    exporter.shutdown();
+
+    assertThat(exporter.export(newBatch("span1"))).isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+  }
+
+  // Fails with the configured status, or records the names of the received spans.
+  private static final class FakeCollectorService
+      extends CollectorServiceGrpc.CollectorServiceImplBase {
+    private final Object monitor = new Object();
+
+    @GuardedBy("monitor")
+    private final List<String> spans = new ArrayList<>();
+
+    @GuardedBy("monitor")
+    private Status status = Status.OK;
+
+    @Override
+    public void postSpans(
+        Collector.PostSpansRequest request,
+        StreamObserver<Collector.PostSpansResponse> responseObserver) {
+      synchronized (monitor) {
+        if (!status.isOk()) {
+          responseObserver.onError(status.asRuntimeException());
+          return;
+        }
+        for (Model.Span span : request.getBatch().getSpansList()) {
+          spans.add(span.getOperationName());
+        }
+        monitor.notifyAll();
+      }
+      responseObserver.onNext(Collector.PostSpansResponse.newBuilder().build());
+      responseObserver.onCompleted();
+    }
+
+    private void setStatus(Status status) {
+      synchronized (monitor) {
+        this.status = status;
+      }
+    }
+
+    private List<String> getSpans() {
+      synchronized (monitor) {
+        return new ArrayList<>(spans);
+      }
+    }
+
+    private List<String> waitForSpans(int numberOfSpans) {
+      synchronized (monitor) {
+        while (spans.size() < numberOfSpans) {
+          try {
+            monitor.wait();
+          } catch (InterruptedException e) {
+            // Do nothing
+          }
+        }
+        return new ArrayList<>(spans);
+      }
+    }
+  }
+}
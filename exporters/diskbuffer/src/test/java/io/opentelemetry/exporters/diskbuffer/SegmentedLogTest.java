@@ -0,0 +1,267 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.diskbuffer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link SegmentedLog}. */
+@RunWith(JUnit4.class)
+public class SegmentedLogTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  // Room for 4 records of 10 bytes per segment.
+  private static final int SEGMENT_SIZE_BYTES =
+      SegmentedLog.SEGMENT_HEADER_BYTES + 4 * (SegmentedLog.RECORD_HEADER_BYTES + 10);
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+  private File directory;
+
+  @Before
+  public void setup() throws IOException {
+    directory = temporaryFolder.newFolder();
+  }
+
+  private SegmentedLog open(long maxSizeBytes) throws IOException {
+    return SegmentedLog.open(directory, SEGMENT_SIZE_BYTES, maxSizeBytes);
+  }
+
+  // Returns a record of 10 bytes.
+  private static byte[] record(int index) {
+    return String.format(Locale.ROOT, "record%04d", index).getBytes(UTF_8);
+  }
+
+  @Nullable
+  private static byte[] poll(SegmentedLog log) {
+    SegmentedLog.Record record = log.peek();
+    if (record == null) {
+      return null;
+    }
+    log.remove(record);
+    return record.getData();
+  }
+
+  private static List<String> pollAll(SegmentedLog log) {
+    List<String> records = new ArrayList<>();
+    byte[] data;
+    while ((data = poll(log)) != null) {
+      records.add(new String(data, UTF_8));
+    }
+    return records;
+  }
+
+  @Test
+  public void appendAndPoll() throws IOException {
+    SegmentedLog log = open(10 * SEGMENT_SIZE_BYTES);
+    assertThat(log.isEmpty()).isTrue();
+    assertThat(log.peek()).isNull();
+    log.append(record(0));
+    log.append(record(1));
+    assertThat(log.getRecordCount()).isEqualTo(2L);
+
+    SegmentedLog.Record record = log.peek();
+    assertThat(record.getData()).isEqualTo(record(0));
+    // Peek doesn't remove.
+    assertThat(log.peek().getData()).isEqualTo(record(0));
+    log.remove(record);
+    // Removing twice is a no-op.
+    log.remove(record);
+    assertThat(poll(log)).isEqualTo(record(1));
+    assertThat(log.isEmpty()).isTrue();
+    assertThat(log.peek()).isNull();
+    log.close();
+  }
+
+  @Test
+  public void rotatesSegments() throws IOException {
+    SegmentedLog log = open(10 * SEGMENT_SIZE_BYTES);
+    for (int i = 0; i < 10; i++) {
+      assertThat(log.append(record(i))).isTrue();
+    }
+    assertThat(log.getSizeBytes()).isEqualTo(3L * SEGMENT_SIZE_BYTES);
+    assertThat(directory.listFiles()).hasLength(3);
+    assertThat(pollAll(log)).hasSize(10);
+    // The fully read segments are deleted, the last one is kept for the next appends.
+    assertThat(directory.listFiles()).hasLength(1);
+    log.close();
+  }
+
+  @Test
+  public void dropsOldestSegmentWhenFull() throws IOException {
+    SegmentedLog log = open(2 * SEGMENT_SIZE_BYTES);
+    for (int i = 0; i < 9; i++) {
+      log.append(record(i));
+    }
+    // The third segment replaced the first one and its 4 records.
+    assertThat(log.getDroppedRecords()).isEqualTo(4L);
+    assertThat(log.getSizeBytes()).isEqualTo(2L * SEGMENT_SIZE_BYTES);
+    assertThat(pollAll(log))
+        .containsExactly("record0004", "record0005", "record0006", "record0007", "record0008")
+        .inOrder();
+    log.close();
+  }
+
+  @Test
+  public void removeDroppedRecord() throws IOException {
+    SegmentedLog log = open(2 * SEGMENT_SIZE_BYTES);
+    log.append(record(0));
+    SegmentedLog.Record record = log.peek();
+    for (int i = 1; i < 9; i++) {
+      log.append(record(i));
+    }
+    // The segment of the record was dropped, removing it must not remove another record.
+    log.remove(record);
+    assertThat(poll(log)).isEqualTo(record(4));
+    log.close();
+  }
+
+  @Test
+  public void append_RecordLargerThanSegment() throws IOException {
+    SegmentedLog log = open(2 * SEGMENT_SIZE_BYTES);
+    assertThat(log.append(new byte[SEGMENT_SIZE_BYTES])).isFalse();
+    assertThat(log.isEmpty()).isTrue();
+    log.close();
+  }
+
+  @Test
+  public void append_EmptyRecord() throws IOException {
+    SegmentedLog log = open(2 * SEGMENT_SIZE_BYTES);
+    thrown.expect(IllegalArgumentException.class);
+    log.append(new byte[0]);
+  }
+
+  @Test
+  public void open_TooSmall() throws IOException {
+    thrown.expect(IllegalArgumentException.class);
+    open(SEGMENT_SIZE_BYTES);
+  }
+
+  @Test
+  public void reopen_ContinuesFromReadPosition() throws IOException {
+    SegmentedLog log = open(10 * SEGMENT_SIZE_BYTES);
+    for (int i = 0; i < 6; i++) {
+      log.append(record(i));
+    }
+    poll(log);
+    poll(log);
+    log.close();
+
+    log = open(10 * SEGMENT_SIZE_BYTES);
+    assertThat(log.getRecordCount()).isEqualTo(4L);
+    log.append(record(6));
+    assertThat(pollAll(log))
+        .containsExactly("record0002", "record0003", "record0004", "record0005", "record0006")
+        .inOrder();
+    log.close();
+  }
+
+  @Test
+  public void reopen_IgnoresCorruptedRecord() throws IOException {
+    SegmentedLog log = open(10 * SEGMENT_SIZE_BYTES);
+    for (int i = 0; i < 3; i++) {
+      log.append(record(i));
+    }
+    log.close();
+    // Corrupt the data of the last record, like a write torn by a crash.
+    File[] files = directory.listFiles();
+    assertThat(files).hasLength(1);
+    RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+    try {
+      long lastRecordData =
+          SegmentedLog.SEGMENT_HEADER_BYTES
+              + 2 * (SegmentedLog.RECORD_HEADER_BYTES + 10)
+              + SegmentedLog.RECORD_HEADER_BYTES;
+      file.seek(lastRecordData);
+      file.write('X');
+    } finally {
+      file.close();
+    }
+
+    log = open(10 * SEGMENT_SIZE_BYTES);
+    assertThat(log.getRecordCount()).isEqualTo(2L);
+    // The corrupted record is overwritten by the next append.
+    log.append(record(3));
+    assertThat(pollAll(log)).containsExactly("record0000", "record0001", "record0003").inOrder();
+    log.close();
+  }
+
+  @Test
+  public void reopen_ClearsTail() throws IOException {
+    SegmentedLog log = open(10 * SEGMENT_SIZE_BYTES);
+    for (int i = 0; i < 3; i++) {
+      log.append(record(i));
+    }
+    log.close();
+    File[] files = directory.listFiles();
+    assertThat(files).hasLength(1);
+    int lastRecord =
+        SegmentedLog.SEGMENT_HEADER_BYTES + 2 * (SegmentedLog.RECORD_HEADER_BYTES + 10);
+    RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+    try {
+      file.seek(lastRecord + SegmentedLog.RECORD_HEADER_BYTES);
+      file.write('X');
+    } finally {
+      file.close();
+    }
+
+    open(10 * SEGMENT_SIZE_BYTES).close();
+    byte[] tail = new byte[SEGMENT_SIZE_BYTES - lastRecord];
+    file = new RandomAccessFile(files[0], "r");
+    try {
+      file.seek(lastRecord);
+      file.readFully(tail);
+    } finally {
+      file.close();
+    }
+    assertThat(tail).isEqualTo(new byte[tail.length]);
+  }
+
+  @Test
+  public void reopen_DeletesInvalidSegment() throws IOException {
+    File invalid = new File(directory, "00000000000000000000.segment");
+    RandomAccessFile file = new RandomAccessFile(invalid, "rw");
+    try {
+      byte[] garbage = new byte[SEGMENT_SIZE_BYTES];
+      Arrays.fill(garbage, (byte) 7);
+      file.write(garbage);
+    } finally {
+      file.close();
+    }
+
+    SegmentedLog log = open(10 * SEGMENT_SIZE_BYTES);
+    assertThat(log.isEmpty()).isTrue();
+    assertThat(invalid.exists()).isFalse();
+    log.append(record(0));
+    assertThat(poll(log)).isEqualTo(record(0));
+    log.close();
+  }
+}
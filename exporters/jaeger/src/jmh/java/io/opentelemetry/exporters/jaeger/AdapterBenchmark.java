@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link Adapter} converting a batch of 512 spans, sharing the converted ids within
+ * the batch or converting them for every span. The batch holds {@code spansPerTrace} spans of every
+ * trace, each one the parent of the previous one, in the order the spans end. Run with {@code
+ * -PjmhProfilers=gc} to compare the bytes allocated per batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AdapterBenchmark {
+  private static final int SPANS_PER_BATCH = 512;
+
+  @Param({"1", "8", "64"})
+  public int spansPerTrace;
+
+  private List<SpanData> spans;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    Random random = new Random(1234);
+    spans = new ArrayList<>(SPANS_PER_BATCH);
+    TraceId traceId = TraceId.getInvalid();
+    SpanId spanId = SpanId.getInvalid();
+    for (int i = 0; i < SPANS_PER_BATCH; i++) {
+      if (i % spansPerTrace == 0) {
+        traceId = new TraceId(random.nextLong(), random.nextLong());
+        spanId = new SpanId(random.nextLong());
+      }
+      // The last span of a trace is its root.
+      SpanId parentSpanId =
+          i % spansPerTrace == spansPerTrace - 1
+              ? SpanId.getInvalid()
+              : new SpanId(random.nextLong());
+      spans.add(
+          SpanData.newBuilder()
+              .setTraceId(traceId)
+              .setSpanId(spanId)
+              .setParentSpanId(parentSpanId)
+              .setName("span_" + i)
+              .setStartEpochNanos(1_000_000_000L)
+              .setEndEpochNanos(2_000_000_000L)
+              .setStatus(Status.OK)
+              .setKind(Kind.INTERNAL)
+              .setLinks(Collections.<Link>emptyList())
+              .build());
+      spanId = parentSpanId;
+    }
+  }
+
+  /** Converts the ids once per batch, the spans share their trace ids and referenced span ids. */
+  @Benchmark
+  public Collection<Model.Span> toJaeger_BatchIdCache() {
+    return Adapter.toJaeger(spans);
+  }
+
+  /** Converts the ids of every span separately. */
+  @Benchmark
+  public Collection<Model.Span> toJaeger_NoIdCache() {
+    List<Model.Span> jaegerSpans = new ArrayList<>(spans.size());
+    for (SpanData span : spans) {
+      jaegerSpans.add(Adapter.toJaeger(span));
+    }
+    return jaegerSpans;
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerStreamTracer;
+import io.grpc.stub.StreamObserver;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Collector;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.CollectorServiceGrpc;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.SpanData.TimedEvent;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the batches exported per second by the {@link JaegerGrpcSpanExporter} to a collector
+ * stub listening on the loopback interface, with and without compression and over one or several
+ * channels. The {@code wireBytes} counter is the rate of the bytes received by the collector, the
+ * bytes per batch are this rate divided by the batches per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JaegerGrpcSpanExporterBenchmark {
+  @Param({"identity", "gzip"})
+  public String compression;
+
+  @Param({"1", "4"})
+  public int channelCount;
+
+  @Param({"512"})
+  public int spansPerBatch;
+
+  // The compressed size of the messages received by the collector, not counted yet.
+  private final AtomicLong receivedBytes = new AtomicLong();
+  private Server server;
+  private JaegerGrpcSpanExporter exporter;
+  private List<SpanData> spans;
+
+  @Setup(Level.Trial)
+  public final void setup() throws IOException {
+    server =
+        ServerBuilder.forPort(0)
+            .addService(new CollectorStub())
+            .addStreamTracerFactory(
+                new ServerStreamTracer.Factory() {
+                  @Override
+                  public ServerStreamTracer newServerStreamTracer(
+                      String fullMethodName, Metadata headers) {
+                    return new ServerStreamTracer() {
+                      @Override
+                      public void inboundWireSize(long bytes) {
+                        receivedBytes.addAndGet(bytes);
+                      }
+                    };
+                  }
+                })
+            .build()
+            .start();
+    List<ManagedChannel> channels = new ArrayList<>(channelCount);
+    for (int i = 0; i < channelCount; i++) {
+      channels.add(
+          ManagedChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext().build());
+    }
+    exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("JaegerGrpcSpanExporterBenchmark")
+            .setChannels(channels)
+            .setCompression(compression)
+            .setDeadline(0)
+            .build();
+    spans = new ArrayList<>(spansPerBatch);
+    for (int i = 0; i < spansPerBatch; i++) {
+      spans.add(newSpan(i));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() throws InterruptedException {
+    exporter.shutdown();
+    server.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public ResultCode export_01Thread(WireBytes wireBytes) {
+    return export(wireBytes);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public ResultCode export_04Threads(WireBytes wireBytes) {
+    return export(wireBytes);
+  }
+
+  private ResultCode export(WireBytes wireBytes) {
+    ResultCode resultCode = exporter.export(spans);
+    // The collector read the request before responding.
+    wireBytes.wireBytes += receivedBytes.getAndSet(0);
+    return resultCode;
+  }
+
+  /** The bytes received by the collector, reported by JMH as a rate. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class WireBytes {
+    public long wireBytes;
+
+    @Setup(Level.Iteration)
+    public final void reset() {
+      wireBytes = 0;
+    }
+  }
+
+  private static final class CollectorStub extends CollectorServiceGrpc.CollectorServiceImplBase {
+    @Override
+    public void postSpans(
+        Collector.PostSpansRequest request,
+        StreamObserver<Collector.PostSpansResponse> responseObserver) {
+      responseObserver.onNext(Collector.PostSpansResponse.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+  }
+
+  private static SpanData newSpan(int index) {
+    Map<String, AttributeValue> attributes = new HashMap<>();
+    for (int i = 0; i < 5; i++) {
+      attributes.put("string_" + i, AttributeValue.stringAttributeValue("value_" + index % 16));
+      attributes.put("long_" + i, AttributeValue.longAttributeValue(index));
+    }
+    return SpanData.newBuilder()
+        .setTraceId(new TraceId(0, index / 8 + 1))
+        .setSpanId(new SpanId(index + 1))
+        .setParentSpanId(new SpanId(index / 8 + 1))
+        .setName("span_" + index % 32)
+        .setStartEpochNanos(1_000_000_000L + index)
+        .setEndEpochNanos(2_000_000_000L + 1_000L * index)
+        .setStatus(Status.OK)
+        .setKind(Kind.SERVER)
+        .setAttributes(attributes)
+        .setTimedEvents(
+            Collections.singletonList(
+                TimedEvent.create(
+                    1_500_000_000L, "event", Collections.<String, AttributeValue>emptyMap())))
+        .setLinks(Collections.<Link>emptyList())
+        .build();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Collector;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.SpanData.TimedEvent;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding a batch of spans with the {@link PostSpansRequestEncoder} and with the {@link
+ * Adapter}, building Jaeger's protobuf model then serializing it. Run with {@code
+ * -PjmhProfilers=gc} to compare the bytes allocated per batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PostSpansRequestEncoderBenchmark {
+  @Param({"512"})
+  public int spansPerBatch;
+
+  private final Model.Process process =
+      Model.Process.newBuilder().setServiceName("PostSpansRequestEncoderBenchmark").build();
+  private final PostSpansRequestEncoder encoder = new PostSpansRequestEncoder();
+  private List<SpanData> spans;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    spans = new ArrayList<>(spansPerBatch);
+    for (int i = 0; i < spansPerBatch; i++) {
+      spans.add(newSpan(i));
+    }
+  }
+
+  @Benchmark
+  public int encoder() throws IOException {
+    encoder.encode(spans, process);
+    return encoder.getLength();
+  }
+
+  @Benchmark
+  public byte[] adapter() {
+    return Collector.PostSpansRequest.newBuilder()
+        .setBatch(
+            Model.Batch.newBuilder().addAllSpans(Adapter.toJaeger(spans)).setProcess(process))
+        .build()
+        .toByteArray();
+  }
+
+  private static SpanData newSpan(int index) {
+    Map<String, AttributeValue> attributes = new HashMap<>();
+    for (int i = 0; i < 5; i++) {
+      attributes.put("string_" + i, AttributeValue.stringAttributeValue("value_" + i));
+      attributes.put("long_" + i, AttributeValue.longAttributeValue(i));
+    }
+    return SpanData.newBuilder()
+        .setTraceId(TraceId.fromLowerBase16("00000000000000000000000000abc123", 0))
+        .setSpanId(SpanId.fromLowerBase16("0000000000def456", 0))
+        .setParentSpanId(SpanId.fromLowerBase16("0000000000aef789", 0))
+        .setName("span_" + index)
+        .setStartEpochNanos(1_000_000_000L + index)
+        .setEndEpochNanos(2_000_000_000L + index)
+        .setStatus(Status.OK)
+        .setKind(Kind.SERVER)
+        .setAttributes(attributes)
+        .setTimedEvents(
+            Collections.singletonList(
+                TimedEvent.create(
+                    1_500_000_000L, "event", Collections.<String, AttributeValue>emptyMap())))
+        .setLinks(Collections.<Link>emptyList())
+        .build();
+  }
+}
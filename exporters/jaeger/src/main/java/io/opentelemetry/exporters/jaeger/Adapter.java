@@ -17,28 +17,33 @@
 package io.opentelemetry.exporters.jaeger;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Timestamp;
 import com.google.protobuf.util.Timestamps;
 import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
 import io.opentelemetry.exporters.otprotocol.TraceProtoUtils;
+import io.opentelemetry.exporters.otprotocol.TraceProtoUtils.IdCache;
 import io.opentelemetry.sdk.trace.SpanData;
 import io.opentelemetry.sdk.trace.SpanData.TimedEvent;
 import io.opentelemetry.trace.AttributeValue;
 import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 /** Adapts OpenTelemetry objects to Jaeger objects. */
 @ThreadSafe
 final class Adapter {
-  private static final String KEY_LOG_MESSAGE = "message";
-  private static final String KEY_SPAN_KIND = "span.kind";
-  private static final String KEY_SPAN_STATUS_MESSAGE = "span.status.message";
-  private static final String KEY_SPAN_STATUS_CODE = "span.status.code";
+  static final String KEY_LOG_MESSAGE = "message";
+  static final String KEY_SPAN_KIND = "span.kind";
+  static final String KEY_SPAN_STATUS_MESSAGE = "span.status.message";
+  static final String KEY_SPAN_STATUS_CODE = "span.status.code";
 
   private Adapter() {}
 
@@ -50,9 +55,11 @@ final class Adapter {
    * @see #toJaeger(SpanData)
    */
   static Collection<Model.Span> toJaeger(List<SpanData> spans) {
+    // The spans of a batch usually share their trace ids and reference the same parents.
+    IdCache idCache = TraceProtoUtils.newIdCache();
     List<Model.Span> convertedList = new ArrayList<>(spans.size());
     for (SpanData span : spans) {
-      convertedList.add(toJaeger(span));
+      convertedList.add(toJaeger(span, idCache));
     }
     return convertedList;
   }
@@ -64,10 +71,19 @@ final class Adapter {
    * @return the Jaeger span
    */
   static Model.Span toJaeger(SpanData span) {
+    return toJaeger(span, null);
+  }
+
+  // Without an IdCache, converts every id, a single span rarely repeats them.
+  private static Model.Span toJaeger(SpanData span, @Nullable IdCache idCache) {
     Model.Span.Builder target = Model.Span.newBuilder();
 
-    target.setTraceId(TraceProtoUtils.toProtoTraceId(span.getTraceId()));
-    target.setSpanId(TraceProtoUtils.toProtoSpanId(span.getSpanId()));
+    ByteString traceId = toProtoTraceId(span.getTraceId(), idCache);
+    target.setTraceId(traceId);
+    target.setSpanId(
+        idCache != null
+            ? idCache.toProtoSpanId(span.getSpanId())
+            : TraceProtoUtils.toProtoSpanId(span.getSpanId()));
     target.setOperationName(span.getName());
     Timestamp startTimestamp = Timestamps.fromNanos(span.getStartEpochNanos());
     target.setStartTime(startTimestamp);
@@ -76,14 +92,14 @@ final class Adapter {
 
     target.addAllTags(toKeyValues(span.getAttributes()));
     target.addAllLogs(toJaegerLogs(span.getTimedEvents()));
-    target.addAllReferences(toSpanRefs(span.getLinks()));
+    target.addAllReferences(toSpanRefs(span.getLinks(), idCache));
 
     // add the parent span
     if (span.getParentSpanId().isValid()) {
       target.addReferences(
           Model.SpanRef.newBuilder()
-              .setTraceId(TraceProtoUtils.toProtoTraceId(span.getTraceId()))
-              .setSpanId(TraceProtoUtils.toProtoSpanId(span.getParentSpanId()))
+              .setTraceId(traceId)
+              .setSpanId(toProtoReferencedSpanId(span.getParentSpanId(), idCache))
               .setRefType(Model.SpanRefType.CHILD_OF));
     }
 
@@ -102,6 +118,7 @@ final class Adapter {
     target.addTags(
         Model.KeyValue.newBuilder()
             .setKey(KEY_SPAN_STATUS_CODE)
+            .setVType(Model.ValueType.INT64)
             .setVInt64(span.getStatus().getCanonicalCode().value())
             .build());
 
@@ -176,12 +193,15 @@ final class Adapter {
         builder.setVStr(value.getStringValue());
         break;
       case LONG:
+        builder.setVType(Model.ValueType.INT64);
         builder.setVInt64(value.getLongValue());
         break;
       case BOOLEAN:
+        builder.setVType(Model.ValueType.BOOL);
         builder.setVBool(value.getBooleanValue());
         break;
       case DOUBLE:
+        builder.setVType(Model.ValueType.FLOAT64);
         builder.setVFloat64(value.getDoubleValue());
         break;
     }
@@ -197,9 +217,14 @@ final class Adapter {
    */
   @VisibleForTesting
   static Collection<Model.SpanRef> toSpanRefs(List<Link> links) {
+    return toSpanRefs(links, null);
+  }
+
+  private static Collection<Model.SpanRef> toSpanRefs(
+      List<Link> links, @Nullable IdCache idCache) {
     List<Model.SpanRef> spanRefs = new ArrayList<>(links.size());
     for (Link link : links) {
-      spanRefs.add(toSpanRef(link));
+      spanRefs.add(toSpanRef(link, idCache));
     }
     return spanRefs;
   }
@@ -212,9 +237,13 @@ final class Adapter {
    */
   @VisibleForTesting
   static Model.SpanRef toSpanRef(Link link) {
+    return toSpanRef(link, null);
+  }
+
+  private static Model.SpanRef toSpanRef(Link link, @Nullable IdCache idCache) {
     Model.SpanRef.Builder builder = Model.SpanRef.newBuilder();
-    builder.setTraceId(TraceProtoUtils.toProtoTraceId(link.getContext().getTraceId()));
-    builder.setSpanId(TraceProtoUtils.toProtoSpanId(link.getContext().getSpanId()));
+    builder.setTraceId(toProtoTraceId(link.getContext().getTraceId(), idCache));
+    builder.setSpanId(toProtoReferencedSpanId(link.getContext().getSpanId(), idCache));
 
     // we can assume that all links are *follows from*
     // https://github.com/open-telemetry/opentelemetry-java/issues/475
@@ -223,4 +252,16 @@ final class Adapter {
 
     return builder.build();
   }
+
+  private static ByteString toProtoTraceId(TraceId traceId, @Nullable IdCache idCache) {
+    return idCache != null
+        ? idCache.toProtoTraceId(traceId)
+        : TraceProtoUtils.toProtoTraceId(traceId);
+  }
+
+  private static ByteString toProtoReferencedSpanId(SpanId spanId, @Nullable IdCache idCache) {
+    return idCache != null
+        ? idCache.toProtoReferencedSpanId(spanId)
+        : TraceProtoUtils.toProtoSpanId(spanId);
+  }
 }
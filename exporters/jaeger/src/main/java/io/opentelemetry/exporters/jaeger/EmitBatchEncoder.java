@@ -0,0 +1,481 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Duration;
+import com.google.protobuf.Timestamp;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Encodes Jaeger spans as the {@code emitBatch} call of the Thrift {@code Agent} service, with the
+ * Thrift compact protocol, in a datagram buffer that is reused by the following packets. The spans
+ * are added one by one until the packet is full.
+ *
+ * <p>The spans are the ones converted by the {@link Adapter}, so the tags, logs and references are
+ * the same as the ones sent via gRPC. The fields of {@code jaeger.thrift} are mapped from the
+ * protobuf model.
+ */
+@NotThreadSafe
+final class EmitBatchEncoder {
+  private static final String EMIT_BATCH_METHOD = "emitBatch";
+  private static final long NANOS_PER_MICRO = 1_000L;
+  private static final long MICROS_PER_SECOND = 1_000_000L;
+
+  // The compact protocol.
+  private static final int PROTOCOL_ID = 0x82;
+  private static final int VERSION = 1;
+  private static final int MESSAGE_TYPE_ONEWAY = 4;
+  private static final int MESSAGE_TYPE_SHIFT = 5;
+  private static final int TYPE_STOP = 0;
+  private static final int TYPE_BOOLEAN_TRUE = 1;
+  private static final int TYPE_BOOLEAN_FALSE = 2;
+  private static final int TYPE_I32 = 5;
+  private static final int TYPE_I64 = 6;
+  private static final int TYPE_DOUBLE = 7;
+  private static final int TYPE_BINARY = 8;
+  private static final int TYPE_LIST = 9;
+  private static final int TYPE_STRUCT = 12;
+  private static final int MAX_SHORT_LIST_SIZE = 14;
+  // The byte of the type and the varint of the size.
+  private static final int MAX_LIST_HEADER_SIZE = 6;
+
+  // The field ids of jaeger.thrift and agent.thrift.
+  private static final int EMIT_BATCH_ARGS_BATCH = 1;
+  private static final int BATCH_PROCESS = 1;
+  private static final int BATCH_SPANS = 2;
+  private static final int PROCESS_SERVICE_NAME = 1;
+  private static final int PROCESS_TAGS = 2;
+  private static final int SPAN_TRACE_ID_LOW = 1;
+  private static final int SPAN_TRACE_ID_HIGH = 2;
+  private static final int SPAN_SPAN_ID = 3;
+  private static final int SPAN_PARENT_SPAN_ID = 4;
+  private static final int SPAN_OPERATION_NAME = 5;
+  private static final int SPAN_REFERENCES = 6;
+  private static final int SPAN_FLAGS = 7;
+  private static final int SPAN_START_TIME = 8;
+  private static final int SPAN_DURATION = 9;
+  private static final int SPAN_TAGS = 10;
+  private static final int SPAN_LOGS = 11;
+  private static final int SPAN_REF_REF_TYPE = 1;
+  private static final int SPAN_REF_TRACE_ID_LOW = 2;
+  private static final int SPAN_REF_TRACE_ID_HIGH = 3;
+  private static final int SPAN_REF_SPAN_ID = 4;
+  private static final int LOG_TIMESTAMP = 1;
+  private static final int LOG_FIELDS = 2;
+  private static final int TAG_KEY = 1;
+  private static final int TAG_V_TYPE = 2;
+  private static final int TAG_V_STR = 3;
+  private static final int TAG_V_DOUBLE = 4;
+  private static final int TAG_V_BOOL = 5;
+  private static final int TAG_V_LONG = 6;
+  private static final int TAG_V_BINARY = 7;
+
+  // The values of the TagType enum of jaeger.thrift.
+  private static final int TAG_TYPE_STRING = 0;
+  private static final int TAG_TYPE_DOUBLE = 1;
+  private static final int TAG_TYPE_BOOL = 2;
+  private static final int TAG_TYPE_LONG = 3;
+  private static final int TAG_TYPE_BINARY = 4;
+
+  private final int maxPacketSize;
+  // The message header and the batch up to the header of the list of spans, the same in every
+  // packet.
+  private final byte[] prefix;
+  // The spans are written from this offset, the prefix and the header of the list of spans are
+  // written right before them when the packet is finished.
+  private final int spansOffset;
+  private byte[] buffer;
+  private int position;
+  private int spanCount;
+  private int lastFieldId;
+
+  /**
+   * Creates an encoder of the spans of the given process.
+   *
+   * @param process the process sent with every batch.
+   * @param maxPacketSize the max size of a packet.
+   */
+  EmitBatchEncoder(Model.Process process, int maxPacketSize) {
+    this.maxPacketSize = maxPacketSize;
+    this.buffer = new byte[maxPacketSize];
+    writeByte(PROTOCOL_ID);
+    writeByte(VERSION | (MESSAGE_TYPE_ONEWAY << MESSAGE_TYPE_SHIFT));
+    writeVarint32(0); // The sequence id, not used by oneway calls.
+    writeString(EMIT_BATCH_METHOD);
+    beginStruct();
+    writeFieldHeader(TYPE_STRUCT, EMIT_BATCH_ARGS_BATCH);
+    beginStruct();
+    writeFieldHeader(TYPE_STRUCT, BATCH_PROCESS);
+    writeProcess(process);
+    writeFieldHeader(TYPE_LIST, BATCH_SPANS);
+    this.prefix = Arrays.copyOf(buffer, position);
+    this.spansOffset = prefix.length + MAX_LIST_HEADER_SIZE;
+    reset();
+  }
+
+  /**
+   * Adds the given span to the packet, if it fits.
+   *
+   * @param span the span to add.
+   * @return {@code false} if the packet is full, the span is not added.
+   */
+  boolean add(Model.Span span) {
+    int spanStart = position;
+    writeSpan(span);
+    if (packetSize(spanCount + 1) > maxPacketSize) {
+      position = spanStart;
+      return false;
+    }
+    spanCount++;
+    return true;
+  }
+
+  /**
+   * Returns the number of spans in the packet.
+   *
+   * @return the number of spans in the packet.
+   */
+  int getSpanCount() {
+    return spanCount;
+  }
+
+  /**
+   * Finishes the packet, no span can be added until the encoder is {@link #reset()}.
+   *
+   * @return the packet, valid until the encoder is reset.
+   */
+  ByteBuffer finish() {
+    int listHeaderSize = listHeaderSize(spanCount);
+    int start = spansOffset - listHeaderSize - prefix.length;
+    System.arraycopy(prefix, 0, buffer, start, prefix.length);
+    int spansEnd = position;
+    position = start + prefix.length;
+    writeListHeader(TYPE_STRUCT, spanCount);
+    position = spansEnd;
+    writeByte(TYPE_STOP); // The end of the batch.
+    writeByte(TYPE_STOP); // The end of the arguments.
+    return ByteBuffer.wrap(buffer, start, position - start);
+  }
+
+  /** Removes all the spans from the packet. */
+  void reset() {
+    position = spansOffset;
+    spanCount = 0;
+  }
+
+  private int packetSize(int spanCount) {
+    return prefix.length + listHeaderSize(spanCount) + position - spansOffset + 2;
+  }
+
+  private void writeProcess(Model.Process process) {
+    int parentFieldId = beginStruct();
+    writeStringField(PROCESS_SERVICE_NAME, process.getServiceName());
+    writeTags(PROCESS_TAGS, process.getTagsList());
+    endStruct(parentFieldId);
+  }
+
+  private void writeSpan(Model.Span span) {
+    int parentFieldId = beginStruct();
+    ByteString traceId = span.getTraceId();
+    writeI64Field(SPAN_TRACE_ID_LOW, readLong(traceId, 8));
+    writeI64Field(SPAN_TRACE_ID_HIGH, readLong(traceId, 0));
+    writeI64Field(SPAN_SPAN_ID, readLong(span.getSpanId(), 0));
+    // The parent is in the references, like the links.
+    writeI64Field(SPAN_PARENT_SPAN_ID, 0);
+    writeStringField(SPAN_OPERATION_NAME, span.getOperationName());
+    List<Model.SpanRef> references = span.getReferencesList();
+    if (!references.isEmpty()) {
+      writeFieldHeader(TYPE_LIST, SPAN_REFERENCES);
+      writeListHeader(TYPE_STRUCT, references.size());
+      for (int i = 0; i < references.size(); i++) {
+        writeSpanRef(references.get(i));
+      }
+    }
+    writeI32Field(SPAN_FLAGS, span.getFlags());
+    writeI64Field(SPAN_START_TIME, toMicros(span.getStartTime()));
+    writeI64Field(SPAN_DURATION, toMicros(span.getDuration()));
+    writeTags(SPAN_TAGS, span.getTagsList());
+    List<Model.Log> logs = span.getLogsList();
+    if (!logs.isEmpty()) {
+      writeFieldHeader(TYPE_LIST, SPAN_LOGS);
+      writeListHeader(TYPE_STRUCT, logs.size());
+      for (int i = 0; i < logs.size(); i++) {
+        writeLog(logs.get(i));
+      }
+    }
+    endStruct(parentFieldId);
+  }
+
+  private void writeSpanRef(Model.SpanRef spanRef) {
+    int parentFieldId = beginStruct();
+    writeI32Field(SPAN_REF_REF_TYPE, spanRef.getRefTypeValue());
+    writeI64Field(SPAN_REF_TRACE_ID_LOW, readLong(spanRef.getTraceId(), 8));
+    writeI64Field(SPAN_REF_TRACE_ID_HIGH, readLong(spanRef.getTraceId(), 0));
+    writeI64Field(SPAN_REF_SPAN_ID, readLong(spanRef.getSpanId(), 0));
+    endStruct(parentFieldId);
+  }
+
+  private void writeLog(Model.Log log) {
+    int parentFieldId = beginStruct();
+    writeI64Field(LOG_TIMESTAMP, toMicros(log.getTimestamp()));
+    // Required, written even when empty.
+    List<Model.KeyValue> fields = log.getFieldsList();
+    writeFieldHeader(TYPE_LIST, LOG_FIELDS);
+    writeListHeader(TYPE_STRUCT, fields.size());
+    for (int i = 0; i < fields.size(); i++) {
+      writeTag(fields.get(i));
+    }
+    endStruct(parentFieldId);
+  }
+
+  // Optional, not written when empty.
+  private void writeTags(int fieldId, List<Model.KeyValue> tags) {
+    if (tags.isEmpty()) {
+      return;
+    }
+    writeFieldHeader(TYPE_LIST, fieldId);
+    writeListHeader(TYPE_STRUCT, tags.size());
+    for (int i = 0; i < tags.size(); i++) {
+      writeTag(tags.get(i));
+    }
+  }
+
+  private void writeTag(Model.KeyValue keyValue) {
+    int parentFieldId = beginStruct();
+    writeStringField(TAG_KEY, keyValue.getKey());
+    switch (keyValue.getVType()) {
+      case BOOL:
+        writeI32Field(TAG_V_TYPE, TAG_TYPE_BOOL);
+        writeFieldHeader(keyValue.getVBool() ? TYPE_BOOLEAN_TRUE : TYPE_BOOLEAN_FALSE, TAG_V_BOOL);
+        break;
+      case INT64:
+        writeI32Field(TAG_V_TYPE, TAG_TYPE_LONG);
+        writeI64Field(TAG_V_LONG, keyValue.getVInt64());
+        break;
+      case FLOAT64:
+        writeI32Field(TAG_V_TYPE, TAG_TYPE_DOUBLE);
+        writeFieldHeader(TYPE_DOUBLE, TAG_V_DOUBLE);
+        writeDouble(keyValue.getVFloat64());
+        break;
+      case BINARY:
+        writeI32Field(TAG_V_TYPE, TAG_TYPE_BINARY);
+        writeFieldHeader(TYPE_BINARY, TAG_V_BINARY);
+        writeBinary(keyValue.getVBinary());
+        break;
+      case STRING:
+      default:
+        writeI32Field(TAG_V_TYPE, TAG_TYPE_STRING);
+        writeStringField(TAG_V_STR, keyValue.getVStr());
+        break;
+    }
+    endStruct(parentFieldId);
+  }
+
+  // Like com.google.protobuf.util.Timestamps.toMicros, the nanos are never negative.
+  private static long toMicros(Timestamp timestamp) {
+    return timestamp.getSeconds() * MICROS_PER_SECOND + timestamp.getNanos() / NANOS_PER_MICRO;
+  }
+
+  // Like com.google.protobuf.util.Durations.toMicros, rounding towards zero.
+  private static long toMicros(Duration duration) {
+    return duration.getSeconds() * MICROS_PER_SECOND + duration.getNanos() / NANOS_PER_MICRO;
+  }
+
+  // The ids are big-endian.
+  private static long readLong(ByteString bytes, int offset) {
+    long value = 0;
+    for (int i = offset; i < offset + 8 && i < bytes.size(); i++) {
+      value = (value << 8) | (bytes.byteAt(i) & 0xFF);
+    }
+    return value;
+  }
+
+  private int beginStruct() {
+    int parentFieldId = lastFieldId;
+    lastFieldId = 0;
+    return parentFieldId;
+  }
+
+  private void endStruct(int parentFieldId) {
+    writeByte(TYPE_STOP);
+    lastFieldId = parentFieldId;
+  }
+
+  // The id is written as a delta from the previous field of the struct when it is small.
+  private void writeFieldHeader(int type, int fieldId) {
+    int delta = fieldId - lastFieldId;
+    if (delta > 0 && delta <= 15) {
+      writeByte((delta << 4) | type);
+    } else {
+      writeByte(type);
+      writeVarint32(zigZag32(fieldId));
+    }
+    lastFieldId = fieldId;
+  }
+
+  private void writeListHeader(int elementType, int size) {
+    if (size <= MAX_SHORT_LIST_SIZE) {
+      writeByte((size << 4) | elementType);
+    } else {
+      writeByte(0xF0 | elementType);
+      writeVarint32(size);
+    }
+  }
+
+  private static int listHeaderSize(int size) {
+    if (size <= MAX_SHORT_LIST_SIZE) {
+      return 1;
+    }
+    int varintSize = 1;
+    while ((size & ~0x7F) != 0) {
+      size >>>= 7;
+      varintSize++;
+    }
+    return 1 + varintSize;
+  }
+
+  private void writeI32Field(int fieldId, int value) {
+    writeFieldHeader(TYPE_I32, fieldId);
+    writeVarint32(zigZag32(value));
+  }
+
+  private void writeI64Field(int fieldId, long value) {
+    writeFieldHeader(TYPE_I64, fieldId);
+    writeVarint64(zigZag64(value));
+  }
+
+  private void writeStringField(int fieldId, String value) {
+    writeFieldHeader(TYPE_BINARY, fieldId);
+    writeString(value);
+  }
+
+  private void writeString(String value) {
+    int length = utf8Length(value);
+    writeVarint32(length);
+    ensureCapacity(length);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer[position++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[position++] = (byte) (0xC0 | (c >>> 6));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[position++] = (byte) (0xF0 | (codePoint >>> 18));
+        buffer[position++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+        buffer[position++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (isSurrogate(c)) {
+        // An unpaired surrogate, replaced like String.getBytes does.
+        buffer[position++] = (byte) '?';
+      } else {
+        buffer[position++] = (byte) (0xE0 | (c >>> 12));
+        buffer[position++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (isSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  // Character.isSurrogate is not available on Android API level 14.
+  private static boolean isSurrogate(char c) {
+    return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+  }
+
+  private void writeBinary(ByteString value) {
+    writeVarint32(value.size());
+    ensureCapacity(value.size());
+    value.copyTo(buffer, position);
+    position += value.size();
+  }
+
+  // Unlike the other types, little-endian.
+  private void writeDouble(double value) {
+    long bits = Double.doubleToLongBits(value);
+    ensureCapacity(8);
+    for (int i = 0; i < 8; i++) {
+      buffer[position++] = (byte) (bits >>> (8 * i));
+    }
+  }
+
+  private void writeVarint32(int value) {
+    ensureCapacity(5);
+    while ((value & ~0x7F) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeVarint64(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  private static int zigZag32(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static long zigZag64(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private void writeByte(int value) {
+    ensureCapacity(1);
+    buffer[position++] = (byte) value;
+  }
+
+  // The last span may not fit in the packet, it is removed once written.
+  private void ensureCapacity(int length) {
+    if (position + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(position + length, 2 * buffer.length));
+    }
+  }
+}
@@ -16,25 +16,58 @@
 
 package io.opentelemetry.exporters.jaeger;
 
+import com.google.protobuf.CodedOutputStream;
+import io.grpc.CallOptions;
+import io.grpc.CompressorRegistry;
 import io.grpc.Deadline;
 import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
 import io.opentelemetry.exporters.jaeger.proto.api_v2.Collector;
 import io.opentelemetry.exporters.jaeger.proto.api_v2.CollectorServiceGrpc;
 import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.internal.Utils;
 import io.opentelemetry.sdk.trace.SpanData;
-import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.export.AsyncSpanExporter;
+import io.opentelemetry.sdk.trace.export.CompletableResultCode;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
-/** Exports spans to Jaeger via gRPC, using Jaeger's protobuf model. */
+/**
+ * Exports spans to Jaeger via gRPC, using Jaeger's protobuf model.
+ *
+ * <p>Implements {@link AsyncSpanExporter}, so the {@code BatchSpansProcessor} can keep multiple
+ * batches in flight on the channel instead of blocking its worker thread on every call.
+ *
+ * <p>The spans are encoded straight into the wire format, without building Jaeger's protobuf model,
+ * by a pool of encoders with one per batch in flight. The encoders reuse their buffers.
+ *
+ * <p>The batches larger than the max request size are split in several requests, the requests can
+ * be compressed and spread in turn over several channels, see {@link Builder}. When some requests
+ * of a split batch fail after others were accepted, the export fails with {@link
+ * ResultCode#FAILED_NOT_RETRYABLE}: retrying the whole batch would export the accepted spans twice.
+ */
 @ThreadSafe
-public final class JaegerGrpcSpanExporter implements SpanExporter {
+public final class JaegerGrpcSpanExporter implements AsyncSpanExporter {
   private static final Logger logger = Logger.getLogger(JaegerGrpcSpanExporter.class.getName());
   private static final String CLIENT_VERSION_KEY = "jaeger.version";
   private static final String CLIENT_VERSION_VALUE = "opentelemetry-java";
@@ -42,21 +75,68 @@ public final class JaegerGrpcSpanExporter implements SpanExporter {
   private static final String HOSTNAME_DEFAULT = "(unknown)";
   private static final String IP_KEY = "ip";
   private static final String IP_DEFAULT = "0.0.0.0";
+  // Enough for the batches usually in flight, more encoders are created when needed.
+  private static final int MAX_POOLED_ENCODERS = 4;
+  // The default max size of the messages received by a gRPC server.
+  private static final int DEFAULT_MAX_REQUEST_BYTES = 4 * 1024 * 1024;
+  private static final String IDENTITY_COMPRESSION = "identity";
+
+  // The PostSpans method, but sending the requests encoded by a PostSpansRequestEncoder.
+  static final MethodDescriptor<PostSpansRequestEncoder, Collector.PostSpansResponse>
+      POST_SPANS_METHOD =
+          MethodDescriptor.<PostSpansRequestEncoder, Collector.PostSpansResponse>newBuilder()
+              .setType(MethodDescriptor.MethodType.UNARY)
+              .setFullMethodName(CollectorServiceGrpc.getPostSpansMethod().getFullMethodName())
+              .setRequestMarshaller(new EncoderMarshaller())
+              .setResponseMarshaller(
+                  ProtoUtils.marshaller(Collector.PostSpansResponse.getDefaultInstance()))
+              .build();
 
-  private final CollectorServiceGrpc.CollectorServiceBlockingStub blockingStub;
   private final Model.Process process;
-  private final ManagedChannel managedChannel;
+  private final int processSize;
+  private final List<ManagedChannel> managedChannels;
+  private final AtomicInteger nextChannel = new AtomicInteger();
   private final long deadline;
+  @Nullable private final String compression;
+  private final int maxRequestBytes;
+
+  @GuardedBy("encoders")
+  private final Deque<PostSpansRequestEncoder> encoders = new ArrayDeque<>();
 
   /**
-   * Creates a new Jaeger gRPC Span Reporter with the given name, using the given channel.
+   * Creates a new Jaeger gRPC Span Reporter with the given name, using the given channels.
    *
    * @param serviceName this service's name.
-   * @param channel the channel to use when communicating with the Jaeger Collector.
+   * @param channels the channels to use in turn when communicating with the Jaeger Collector.
    * @param deadline max waiting time for the collector to process each span batch. When set to 0 or
    *     to a negative value, the exporter will wait indefinitely.
+   * @param compression the compression of the requests, or {@code null} to not compress them.
+   * @param maxRequestBytes the max size of a request, larger batches are split.
+   */
+  private JaegerGrpcSpanExporter(
+      String serviceName,
+      List<ManagedChannel> channels,
+      long deadline,
+      @Nullable String compression,
+      int maxRequestBytes) {
+    this.process = newProcess(serviceName);
+    this.processSize =
+        CodedOutputStream.computeMessageSize(Model.Batch.PROCESS_FIELD_NUMBER, this.process);
+    this.managedChannels = channels;
+    this.deadline = deadline;
+    this.compression = compression;
+    this.maxRequestBytes = maxRequestBytes;
+  }
+
+  /**
+   * Returns the Jaeger process of the spans exported for the given service, tagged with the
+   * version of the client and with the hostname and the ip of this host.
+   *
+   * @param serviceName this service's name.
+   * @return the Jaeger process.
+   * @throws IllegalArgumentException if {@code serviceName} is {@code null} or empty.
    */
-  private JaegerGrpcSpanExporter(String serviceName, ManagedChannel channel, long deadline) {
+  static Model.Process newProcess(String serviceName) {
     String hostname;
     String ipv4;
 
@@ -83,58 +163,236 @@ public final class JaegerGrpcSpanExporter implements SpanExporter {
     Model.KeyValue hostnameTag =
         Model.KeyValue.newBuilder().setKey(HOSTNAME_KEY).setVStr(hostname).build();
 
-    this.process =
-        Model.Process.newBuilder()
-            .setServiceName(serviceName)
-            .addTags(clientTag)
-            .addTags(ipv4Tag)
-            .addTags(hostnameTag)
-            .build();
-
-    this.managedChannel = channel;
-    this.blockingStub = CollectorServiceGrpc.newBlockingStub(channel);
-    this.deadline = deadline;
+    return Model.Process.newBuilder()
+        .setServiceName(serviceName)
+        .addTags(clientTag)
+        .addTags(ipv4Tag)
+        .addTags(hostnameTag)
+        .build();
   }
 
   /**
-   * Submits all the given spans in a single batch to the Jaeger collector.
+   * Submits all the given spans in a single batch to the Jaeger collector. A batch larger than the
+   * max request size is sent in several requests, one after the other, stopping at the first
+   * failed one.
    *
    * @param spans the list of sampled Spans to be exported.
-   * @return the result of the operation
+   * @return the result of the operation, {@link ResultCode#FAILED_NOT_RETRYABLE} if a request
+   *     failed after others were accepted.
    */
   @Override
   public ResultCode export(List<SpanData> spans) {
+    PostSpansRequestEncoder encoder = acquireEncoder();
+    boolean accepted = false;
+    try {
+      int fromIndex = 0;
+      do {
+        fromIndex = encoder.encode(spans, fromIndex, process, maxRequestBytes);
+        // for now, there's nothing to check in the response object
+        //noinspection ResultOfMethodCallIgnored
+        ClientCalls.blockingUnaryCall(nextChannel(), POST_SPANS_METHOD, callOptions(), encoder);
+        accepted = true;
+      } while (fromIndex < spans.size());
+      return ResultCode.SUCCESS;
+    } catch (StatusRuntimeException e) {
+      return toResultCode(e.getStatus(), accepted);
+    } catch (Throwable t) {
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    } finally {
+      releaseEncoder(encoder);
+    }
+  }
+
+  /**
+   * Submits all the given spans, already converted to Jaeger's protobuf model with {@link
+   * #toJaegerSpans(List)}, in a single batch to the Jaeger collector. Like {@link #export(List)}, a
+   * batch larger than the max request size is sent in several requests.
+   *
+   * @param jaegerSpans the Jaeger spans to be exported.
+   * @return the result of the operation, {@link ResultCode#FAILED_NOT_RETRYABLE} if a request
+   *     failed after others were accepted.
+   */
+  public ResultCode exportJaegerSpans(Collection<Model.Span> jaegerSpans) {
+    boolean accepted = false;
+    try {
+      List<Model.Span> requestSpans = new ArrayList<>();
+      int batchSize = processSize;
+      for (Model.Span span : jaegerSpans) {
+        int spanSize = CodedOutputStream.computeMessageSize(Model.Batch.SPANS_FIELD_NUMBER, span);
+        if (!requestSpans.isEmpty()
+            && PostSpansRequestEncoder.requestSize(batchSize + spanSize) > maxRequestBytes) {
+          postSpans(requestSpans);
+          accepted = true;
+          requestSpans.clear();
+          batchSize = processSize;
+        }
+        requestSpans.add(span);
+        batchSize += spanSize;
+      }
+      postSpans(requestSpans);
+      return ResultCode.SUCCESS;
+    } catch (StatusRuntimeException e) {
+      return toResultCode(e.getStatus(), accepted);
+    } catch (Throwable t) {
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+  }
+
+  private void postSpans(List<Model.Span> jaegerSpans) {
+    CollectorServiceGrpc.CollectorServiceBlockingStub stub =
+        CollectorServiceGrpc.newBlockingStub(nextChannel());
+    if (deadline > 0) {
+      stub = stub.withDeadline(Deadline.after(deadline, TimeUnit.MILLISECONDS));
+    }
+    if (compression != null) {
+      stub = stub.withCompression(compression);
+    }
+    // for now, there's nothing to check in the response object
+    //noinspection ResultOfMethodCallIgnored
+    stub.postSpans(toRequest(jaegerSpans));
+  }
+
+  /**
+   * Submits all the given spans in a single batch to the Jaeger collector, without waiting for the
+   * collector to respond. A batch larger than the max request size is sent in several requests, all
+   * in flight at the same time.
+   *
+   * @param spans the list of sampled Spans to be exported.
+   * @return the result of the operation, completed when the collector responds, the call fails or
+   *     the deadline expires. When the batch is sent in several requests, the result is the one of
+   *     the first failed request, {@link ResultCode#FAILED_NOT_RETRYABLE} if another request was
+   *     accepted, or {@link ResultCode#SUCCESS}.
+   */
+  @Override
+  public CompletableResultCode exportAsync(List<SpanData> spans) {
+    BatchResult batchResult = new BatchResult();
+    int fromIndex = 0;
+    do {
+      CompletableResultCode requestResult = batchResult.newRequest();
+      PostSpansRequestEncoder encoder = acquireEncoder();
+      try {
+        fromIndex = encoder.encode(spans, fromIndex, process, maxRequestBytes);
+      } catch (Throwable t) {
+        releaseEncoder(encoder);
+        requestResult.complete(ResultCode.FAILED_NOT_RETRYABLE);
+        break;
+      }
+      if (!postSpansAsync(encoder, requestResult)) {
+        break;
+      }
+    } while (fromIndex < spans.size());
+    return batchResult.allRequestsSent();
+  }
+
+  // Returns false if the call could not be started.
+  private boolean postSpansAsync(
+      final PostSpansRequestEncoder encoder, final CompletableResultCode requestResult) {
+    try {
+      ClientCalls.asyncUnaryCall(
+          nextChannel().newCall(POST_SPANS_METHOD, callOptions()),
+          encoder,
+          new StreamObserver<Collector.PostSpansResponse>() {
+            @Override
+            public void onNext(Collector.PostSpansResponse response) {
+              // for now, there's nothing to check in the response object
+            }
+
+            @Override
+            public void onError(Throwable t) {
+              releaseEncoder(encoder);
+              requestResult.complete(toResultCode(Status.fromThrowable(t)));
+            }
+
+            @Override
+            public void onCompleted() {
+              releaseEncoder(encoder);
+              requestResult.complete(ResultCode.SUCCESS);
+            }
+          });
+      return true;
+    } catch (Throwable t) {
+      // The call may still use the encoder, it is not released.
+      requestResult.complete(ResultCode.FAILED_NOT_RETRYABLE);
+      return false;
+    }
+  }
+
+  /**
+   * Converts the given spans to Jaeger's protobuf model, for example to store them and export them
+   * later with {@link #exportJaegerSpans(Collection)}.
+   *
+   * @param spans the list of spans to be converted.
+   * @return the Jaeger spans, in the same order.
+   */
+  public static Collection<Model.Span> toJaegerSpans(List<SpanData> spans) {
+    return Adapter.toJaeger(spans);
+  }
+
+  private Collector.PostSpansRequest toRequest(Collection<Model.Span> jaegerSpans) {
     Model.Batch.Builder builder = Model.Batch.newBuilder();
-    builder.addAllSpans(Adapter.toJaeger(spans));
+    builder.addAllSpans(jaegerSpans);
     builder.setProcess(this.process);
 
     Collector.PostSpansRequest.Builder requestBuilder = Collector.PostSpansRequest.newBuilder();
     requestBuilder.setBatch(builder.build());
-    Collector.PostSpansRequest request = requestBuilder.build();
+    return requestBuilder.build();
+  }
 
-    try {
-      CollectorServiceGrpc.CollectorServiceBlockingStub stub = this.blockingStub;
-      if (deadline > 0) {
-        stub = stub.withDeadline(Deadline.after(deadline, TimeUnit.MILLISECONDS));
+  private CallOptions callOptions() {
+    CallOptions callOptions = CallOptions.DEFAULT;
+    if (deadline > 0) {
+      callOptions = callOptions.withDeadlineAfter(deadline, TimeUnit.MILLISECONDS);
+    }
+    if (compression != null) {
+      callOptions = callOptions.withCompression(compression);
+    }
+    return callOptions;
+  }
+
+  // The channels are used in turn, so the requests in flight are spread over their connections.
+  private ManagedChannel nextChannel() {
+    if (managedChannels.size() == 1) {
+      return managedChannels.get(0);
+    }
+    int index = (nextChannel.getAndIncrement() & Integer.MAX_VALUE) % managedChannels.size();
+    return managedChannels.get(index);
+  }
+
+  private PostSpansRequestEncoder acquireEncoder() {
+    synchronized (encoders) {
+      PostSpansRequestEncoder encoder = encoders.poll();
+      if (encoder != null) {
+        return encoder;
       }
+    }
+    return new PostSpansRequestEncoder();
+  }
 
-      // for now, there's nothing to check in the response object
-      //noinspection ResultOfMethodCallIgnored
-      stub.postSpans(request);
-      return ResultCode.SUCCESS;
-    } catch (StatusRuntimeException e) {
-      switch (e.getStatus().getCode()) {
-        case DEADLINE_EXCEEDED:
-        case UNAVAILABLE:
-          return ResultCode.FAILED_RETRYABLE;
-        default:
-          return ResultCode.FAILED_NOT_RETRYABLE;
+  // The encoder must not be used by a call anymore.
+  private void releaseEncoder(PostSpansRequestEncoder encoder) {
+    synchronized (encoders) {
+      if (encoders.size() < MAX_POOLED_ENCODERS) {
+        encoders.push(encoder);
       }
-    } catch (Throwable t) {
-      return ResultCode.FAILED_NOT_RETRYABLE;
     }
   }
 
+  private static ResultCode toResultCode(Status status) {
+    switch (status.getCode()) {
+      case DEADLINE_EXCEEDED:
+      case UNAVAILABLE:
+        return ResultCode.FAILED_RETRYABLE;
+      default:
+        return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+  }
+
+  // A failed request of a split batch is not retryable once another request of the batch was
+  // accepted, retrying the batch would export the accepted spans again.
+  private static ResultCode toResultCode(Status status, boolean accepted) {
+    return accepted ? ResultCode.FAILED_NOT_RETRYABLE : toResultCode(status);
+  }
+
   /**
    * Creates a new builder instance.
    *
@@ -146,22 +404,90 @@ public final class JaegerGrpcSpanExporter implements SpanExporter {
 
   /**
    * Initiates an orderly shutdown in which preexisting calls continue but new calls are immediately
-   * cancelled. The channel is forcefully closed after a timeout.
+   * cancelled. The channels are forcefully closed after a timeout.
    */
   @Override
   public void shutdown() {
+    for (ManagedChannel managedChannel : managedChannels) {
+      managedChannel.shutdown();
+    }
     try {
-      managedChannel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+      for (ManagedChannel managedChannel : managedChannels) {
+        managedChannel.awaitTermination(5, TimeUnit.SECONDS);
+      }
     } catch (InterruptedException e) {
       logger.log(Level.WARNING, "Failed to shutdown the gRPC channel", e);
     }
   }
 
+  // Completes the result of a batch when all its requests completed, with the result of the first
+  // failed request if any, not retryable if another request was accepted.
+  private static final class BatchResult {
+    private final CompletableResultCode result = new CompletableResultCode();
+    // The requests not completed, plus one until all the requests are sent.
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final AtomicReference<ResultCode> failure = new AtomicReference<>();
+    private volatile boolean accepted;
+
+    private CompletableResultCode newRequest() {
+      pending.incrementAndGet();
+      final CompletableResultCode requestResult = new CompletableResultCode();
+      requestResult.whenComplete(
+          new Runnable() {
+            @Override
+            public void run() {
+              requestCompleted(requestResult.getResultCode());
+            }
+          });
+      return requestResult;
+    }
+
+    private CompletableResultCode allRequestsSent() {
+      countDown();
+      return result;
+    }
+
+    private void requestCompleted(@Nullable ResultCode resultCode) {
+      if (resultCode == ResultCode.SUCCESS) {
+        accepted = true;
+      } else {
+        failure.compareAndSet(null, resultCode);
+      }
+      countDown();
+    }
+
+    private void countDown() {
+      if (pending.decrementAndGet() == 0) {
+        ResultCode firstFailure = failure.get();
+        if (firstFailure == null) {
+          result.complete(ResultCode.SUCCESS);
+        } else {
+          result.complete(accepted ? ResultCode.FAILED_NOT_RETRYABLE : firstFailure);
+        }
+      }
+    }
+  }
+
+  private static final class EncoderMarshaller
+      implements MethodDescriptor.Marshaller<PostSpansRequestEncoder> {
+    @Override
+    public InputStream stream(PostSpansRequestEncoder encoder) {
+      return encoder.newInputStream();
+    }
+
+    @Override
+    public PostSpansRequestEncoder parse(InputStream stream) {
+      throw new UnsupportedOperationException("Only used to send requests");
+    }
+  }
+
   /** Builder utility for this exporter. */
   public static class Builder {
     private String serviceName;
-    private ManagedChannel channel;
+    private List<ManagedChannel> channels;
     private long deadline = 1_000; // ms
+    private String compression = IDENTITY_COMPRESSION;
+    private int maxRequestBytes = DEFAULT_MAX_REQUEST_BYTES;
 
     /**
      * Sets the service name to be used by this exporter. Required.
@@ -175,13 +501,33 @@ public final class JaegerGrpcSpanExporter implements SpanExporter {
     }
 
     /**
-     * Sets the managed chanel to use when communicating with the backend. Required.
+     * Sets the managed chanel to use when communicating with the backend. Required, unless the
+     * channels are set with {@link #setChannels(List)}.
      *
      * @param channel the channel to use
      * @return this builder's instance
      */
     public Builder setChannel(ManagedChannel channel) {
-      this.channel = channel;
+      return setChannels(Collections.singletonList(channel));
+    }
+
+    /**
+     * Sets several managed channels to use in turn when communicating with the backend, each
+     * request going to the next channel, so that the requests in flight are spread over several
+     * connections. A single channel can also balance its calls over several connections with the
+     * {@code round_robin} load balancing policy.
+     *
+     * @param channels the channels to use
+     * @return this builder's instance
+     * @throws IllegalArgumentException if {@code channels} is empty.
+     */
+    public Builder setChannels(List<ManagedChannel> channels) {
+      Utils.checkNotNull(channels, "channels");
+      Utils.checkArgument(!channels.isEmpty(), "channels must not be empty.");
+      for (ManagedChannel channel : channels) {
+        Utils.checkNotNull(channel, "channel");
+      }
+      this.channels = Collections.unmodifiableList(new ArrayList<>(channels));
       return this;
     }
 
@@ -196,13 +542,57 @@ public final class JaegerGrpcSpanExporter implements SpanExporter {
       return this;
     }
 
+    /**
+     * Sets the compression of the requests, {@code "gzip"} or {@code "identity"} for no
+     * compression. Compressing the requests trades CPU time for less bytes on the wire, it is worth
+     * it when the network to the collector is slow or metered. Optional.
+     *
+     * <p>The default value is {@code "identity"}.
+     *
+     * @param compression the name of the compressor, registered in the default {@link
+     *     CompressorRegistry}
+     * @return this builder's instance
+     * @throws IllegalArgumentException if the compressor is not registered.
+     */
+    public Builder setCompression(String compression) {
+      Utils.checkNotNull(compression, "compression");
+      Utils.checkArgument(
+          CompressorRegistry.getDefaultInstance().lookupCompressor(compression) != null,
+          "Unsupported compression: " + compression);
+      this.compression = compression;
+      return this;
+    }
+
+    /**
+     * Sets the max size in bytes of a request, the batches of spans that don't fit are split in
+     * several requests. A single span larger than this is still sent in its own request. Optional.
+     *
+     * <p>The default value is {@code 4 MiB}, the max size of the messages received by default by a
+     * gRPC server.
+     *
+     * @param maxRequestBytes the max size of a request
+     * @return this builder's instance
+     * @throws IllegalArgumentException if {@code maxRequestBytes} is not positive.
+     */
+    public Builder setMaxRequestBytes(int maxRequestBytes) {
+      Utils.checkArgument(maxRequestBytes > 0, "maxRequestBytes must be positive.");
+      this.maxRequestBytes = maxRequestBytes;
+      return this;
+    }
+
     /**
      * Constructs a new instance of the exporter based on the builder's values.
      *
      * @return a new exporter's instance
      */
     public JaegerGrpcSpanExporter build() {
-      return new JaegerGrpcSpanExporter(serviceName, channel, deadline);
+      Utils.checkNotNull(channels, "channel");
+      return new JaegerGrpcSpanExporter(
+          serviceName,
+          channels,
+          deadline,
+          IDENTITY_COMPRESSION.equals(compression) ? null : compression,
+          maxRequestBytes);
     }
   }
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Exports spans to a Jaeger agent, usually running on the same host, via UDP. The spans are sent
+ * as {@code emitBatch} calls encoded with the Thrift compact protocol, the agent's {@code
+ * jaeger.thrift} compact endpoint listens on the port {@code 6831} by default.
+ *
+ * <p>The spans are converted by the same {@link Adapter} as the {@link JaegerGrpcSpanExporter},
+ * then packed in datagrams of up to the max packet size accepted by the agent. The datagram buffer
+ * is reused by the following packets. The datagrams are sent with a non-blocking {@link
+ * DatagramChannel}: when the send buffer of the socket is full, the datagram is dropped instead of
+ * blocking the export.
+ */
+@ThreadSafe
+public final class JaegerThriftUdpSpanExporter implements SpanExporter {
+  private static final Logger logger =
+      Logger.getLogger(JaegerThriftUdpSpanExporter.class.getName());
+
+  private final DatagramChannel channel;
+
+  @GuardedBy("this")
+  private final EmitBatchEncoder encoder;
+
+  private JaegerThriftUdpSpanExporter(
+      String serviceName, InetSocketAddress agentAddress, int maxPacketSize) throws IOException {
+    Model.Process process = JaegerGrpcSpanExporter.newProcess(serviceName);
+    this.encoder = new EmitBatchEncoder(process, maxPacketSize);
+    this.channel = DatagramChannel.open();
+    try {
+      channel.configureBlocking(false);
+      channel.connect(agentAddress);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Sends all the given spans to the Jaeger agent, in as many datagrams as needed. A span larger
+   * than a datagram is dropped.
+   *
+   * @param spans the list of sampled Spans to be exported.
+   * @return {@link ResultCode#SUCCESS} if all the spans were sent, {@link
+   *     ResultCode#FAILED_NOT_RETRYABLE} if some spans were too large to be sent, else {@link
+   *     ResultCode#FAILED_RETRYABLE} if some datagrams could not be sent.
+   */
+  @Override
+  public synchronized ResultCode export(List<SpanData> spans) {
+    ExportResult result = new ExportResult();
+    encoder.reset();
+    for (Model.Span span : Adapter.toJaeger(spans)) {
+      if (!encoder.add(span)) {
+        sendPacket(result);
+        if (!encoder.add(span)) {
+          result.tooLargeSpans++;
+        }
+      }
+    }
+    sendPacket(result);
+    if (result.tooLargeSpans > 0) {
+      logger.log(
+          Level.WARNING, "Dropped {0} spans larger than the max packet size", result.tooLargeSpans);
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+    return result.sendFailed ? ResultCode.FAILED_RETRYABLE : ResultCode.SUCCESS;
+  }
+
+  @GuardedBy("this")
+  private void sendPacket(ExportResult result) {
+    if (encoder.getSpanCount() == 0) {
+      return;
+    }
+    ByteBuffer packet = encoder.finish();
+    try {
+      // Returns 0 without sending the datagram if the send buffer of the socket is full.
+      if (channel.write(packet) == 0) {
+        result.sendFailed = true;
+      }
+    } catch (IOException e) {
+      // For example the agent is not listening, reported for a previous datagram.
+      logger.log(Level.FINE, "Failed to send the spans to the Jaeger agent", e);
+      result.sendFailed = true;
+    }
+    encoder.reset();
+  }
+
+  /**
+   * Creates a new builder instance.
+   *
+   * @return a new instance builder for this exporter
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** Closes the datagram channel. */
+  @Override
+  public void shutdown() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Failed to close the datagram channel", e);
+    }
+  }
+
+  private static final class ExportResult {
+    private int tooLargeSpans;
+    private boolean sendFailed;
+  }
+
+  /** Builder utility for this exporter. */
+  public static final class Builder {
+    private static final String DEFAULT_AGENT_HOST = "localhost";
+    private static final int DEFAULT_AGENT_PORT = 6831;
+    // The default max packet size of the agent.
+    private static final int DEFAULT_MAX_PACKET_SIZE = 65_000;
+    // The max payload of a UDP datagram over IPv4.
+    private static final int MAX_UDP_PAYLOAD_SIZE = 65_507;
+
+    private String serviceName;
+    private String agentHost = DEFAULT_AGENT_HOST;
+    private int agentPort = DEFAULT_AGENT_PORT;
+    private int maxPacketSize = DEFAULT_MAX_PACKET_SIZE;
+
+    /**
+     * Sets the service name to be used by this exporter. Required.
+     *
+     * @param serviceName the service name
+     * @return this builder's instance
+     */
+    public Builder setServiceName(String serviceName) {
+      this.serviceName = serviceName;
+      return this;
+    }
+
+    /**
+     * Sets the host or the address of the Jaeger agent. Optional.
+     *
+     * <p>The default value is {@code "localhost"}.
+     *
+     * @param agentHost the host or the address of the agent
+     * @return this builder's instance
+     * @throws NullPointerException if {@code agentHost} is {@code null}.
+     */
+    public Builder setAgentHost(String agentHost) {
+      this.agentHost = Utils.checkNotNull(agentHost, "agentHost");
+      return this;
+    }
+
+    /**
+     * Sets the port of the {@code jaeger.thrift} compact endpoint of the Jaeger agent. Optional.
+     *
+     * <p>The default value is {@code 6831}.
+     *
+     * @param agentPort the port of the agent
+     * @return this builder's instance
+     * @throws IllegalArgumentException if {@code agentPort} is not a valid port.
+     */
+    public Builder setAgentPort(int agentPort) {
+      Utils.checkArgument(
+          agentPort > 0 && agentPort <= 65535, "agentPort must be between 1 and 65535.");
+      this.agentPort = agentPort;
+      return this;
+    }
+
+    /**
+     * Sets the max size of the datagrams, it must not be larger than the max packet size of the
+     * agent. Optional.
+     *
+     * <p>The default value is {@code 65000}, the default max packet size of the agent.
+     *
+     * @param maxPacketSize the max size of the datagrams
+     * @return this builder's instance
+     * @throws IllegalArgumentException if {@code maxPacketSize} is not positive or larger than the
+     *     max payload of a UDP datagram.
+     */
+    public Builder setMaxPacketSize(int maxPacketSize) {
+      Utils.checkArgument(
+          maxPacketSize > 0 && maxPacketSize <= MAX_UDP_PAYLOAD_SIZE,
+          "maxPacketSize must be between 1 and 65507.");
+      this.maxPacketSize = maxPacketSize;
+      return this;
+    }
+
+    /**
+     * Constructs a new instance of the exporter based on the builder's values.
+     *
+     * @return a new exporter's instance
+     * @throws IOException if the datagram channel can't be opened.
+     */
+    public JaegerThriftUdpSpanExporter build() throws IOException {
+      return new JaegerThriftUdpSpanExporter(
+          serviceName, new InetSocketAddress(agentHost, agentPort), maxPacketSize);
+    }
+
+    private Builder() {}
+  }
+}
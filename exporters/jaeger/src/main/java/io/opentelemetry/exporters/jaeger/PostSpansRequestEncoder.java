@@ -0,0 +1,513 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.SpanData.TimedEvent;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Encodes {@link SpanData} as a Jaeger {@code PostSpansRequest}, straight into a buffer that is
+ * reused by the following requests, without building the {@link Model.Span}s of the {@link
+ * Adapter}. The encoded request is the one the {@link Adapter} would build, field by field.
+ *
+ * <p>The encoding takes two passes: the first one computes the size of every nested message, the
+ * second one writes the messages with a {@link CodedOutputStream} over the buffer.
+ */
+@NotThreadSafe
+final class PostSpansRequestEncoder {
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+  private static final int INITIAL_SIZES = 1024;
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  // The field numbers of jaeger/api_v2/collector.proto and jaeger/api_v2/model.proto.
+  private static final int REQUEST_BATCH = 1;
+  private static final int BATCH_SPANS = 1;
+  private static final int BATCH_PROCESS = 2;
+  private static final int SPAN_TRACE_ID = 1;
+  private static final int SPAN_SPAN_ID = 2;
+  private static final int SPAN_OPERATION_NAME = 3;
+  private static final int SPAN_REFERENCES = 4;
+  private static final int SPAN_START_TIME = 6;
+  private static final int SPAN_DURATION = 7;
+  private static final int SPAN_TAGS = 8;
+  private static final int SPAN_LOGS = 9;
+  private static final int SPAN_REF_TRACE_ID = 1;
+  private static final int SPAN_REF_SPAN_ID = 2;
+  private static final int SPAN_REF_REF_TYPE = 3;
+  private static final int LOG_TIMESTAMP = 1;
+  private static final int LOG_FIELDS = 2;
+  private static final int KEY_VALUE_KEY = 1;
+  private static final int KEY_VALUE_V_TYPE = 2;
+  private static final int KEY_VALUE_V_STR = 3;
+  private static final int KEY_VALUE_V_BOOL = 4;
+  private static final int KEY_VALUE_V_INT64 = 5;
+  private static final int KEY_VALUE_V_FLOAT64 = 6;
+  // google.protobuf.Timestamp and google.protobuf.Duration.
+  private static final int TIME_SECONDS = 1;
+  private static final int TIME_NANOS = 2;
+
+  private final byte[] idBytes = new byte[TraceId.getSize()];
+  private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+  private int length;
+  // The sizes of the spans, of their logs and of their key values computed by the first pass, in
+  // the order they are written by the second one.
+  private int[] sizes = new int[INITIAL_SIZES];
+  private int sizeCount;
+  private int sizeIndex;
+
+  /**
+   * Encodes the given spans, replacing the previous request.
+   *
+   * @param spans the spans to encode.
+   * @param process the process of the spans, or {@code null} to leave it unset.
+   * @throws IOException if the computed sizes don't match the encoded messages.
+   */
+  void encode(List<SpanData> spans, @Nullable Model.Process process) throws IOException {
+    encode(spans, 0, process, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Encodes as many of the given spans as fit in a request of {@code maxRequestBytes}, starting at
+   * {@code fromIndex}, replacing the previous request. The first span is always encoded, even if
+   * the request is larger.
+   *
+   * @param spans the spans to encode.
+   * @param fromIndex the index of the first span to encode.
+   * @param process the process of the spans, or {@code null} to leave it unset.
+   * @param maxRequestBytes the max length of the encoded request.
+   * @return the index of the first span not encoded, {@code spans.size()} if all of them are.
+   * @throws IOException if the computed sizes don't match the encoded messages.
+   */
+  int encode(
+      List<SpanData> spans, int fromIndex, @Nullable Model.Process process, int maxRequestBytes)
+      throws IOException {
+    sizeCount = 0;
+    int batchSize = 0;
+    if (process != null) {
+      batchSize += CodedOutputStream.computeMessageSize(BATCH_PROCESS, process);
+    }
+    int toIndex = fromIndex;
+    while (toIndex < spans.size()) {
+      int spanSlot = sizeCount;
+      int size = lengthDelimitedSize(BATCH_SPANS, spanSize(spans.get(toIndex)));
+      if (toIndex > fromIndex && requestSize(batchSize + size) > maxRequestBytes) {
+        // Drops the memoized sizes of the span, it goes in the next request.
+        sizeCount = spanSlot;
+        break;
+      }
+      batchSize += size;
+      toIndex++;
+    }
+    length = requestSize(batchSize);
+    if (buffer.length < length) {
+      buffer = new byte[Math.max(length, 2 * buffer.length)];
+    }
+    CodedOutputStream output = CodedOutputStream.newInstance(buffer, 0, length);
+    sizeIndex = 0;
+    writeLengthDelimitedTag(output, REQUEST_BATCH, batchSize);
+    for (int i = fromIndex; i < toIndex; i++) {
+      writeSpan(output, spans.get(i));
+    }
+    if (process != null) {
+      output.writeMessage(BATCH_PROCESS, process);
+    }
+    output.checkNoSpaceLeft();
+    return toIndex;
+  }
+
+  /**
+   * Returns the length of a {@code PostSpansRequest} with a batch of the given size.
+   *
+   * @param batchSize the size of the encoded batch.
+   * @return the length of the request.
+   */
+  static int requestSize(int batchSize) {
+    return lengthDelimitedSize(REQUEST_BATCH, batchSize);
+  }
+
+  /**
+   * Returns the length of the encoded request.
+   *
+   * @return the length of the encoded request.
+   */
+  int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns a stream of the encoded request, valid until the next call to {@link #encode(List,
+   * int, Model.Process, int)}.
+   *
+   * @return a stream of the encoded request.
+   */
+  InputStream newInputStream() {
+    return new EncodedInputStream(buffer, length);
+  }
+
+  private int spanSize(SpanData span) {
+    int slot = reserveSize();
+    int size =
+        bytesSize(SPAN_TRACE_ID, TraceId.getSize())
+            + bytesSize(SPAN_SPAN_ID, SpanId.getSize())
+            + stringSize(SPAN_OPERATION_NAME, span.getName());
+    List<Link> links = span.getLinks();
+    for (int i = 0; i < links.size(); i++) {
+      size += lengthDelimitedSize(SPAN_REFERENCES, spanRefSize(Model.SpanRefType.FOLLOWS_FROM));
+    }
+    if (span.getParentSpanId().isValid()) {
+      size += lengthDelimitedSize(SPAN_REFERENCES, spanRefSize(Model.SpanRefType.CHILD_OF));
+    }
+    long startEpochNanos = span.getStartEpochNanos();
+    size +=
+        lengthDelimitedSize(
+            SPAN_START_TIME,
+            timeSize(timestampSeconds(startEpochNanos), timestampNanos(startEpochNanos)));
+    long durationNanos = span.getEndEpochNanos() - startEpochNanos;
+    size +=
+        lengthDelimitedSize(
+            SPAN_DURATION,
+            timeSize(durationNanos / NANOS_PER_SECOND, (int) (durationNanos % NANOS_PER_SECOND)));
+    size += attributesSize(SPAN_TAGS, span.getAttributes());
+    if (span.getKind() != null) {
+      size += stringTagSize(SPAN_TAGS, Adapter.KEY_SPAN_KIND, span.getKind().name());
+    }
+    size += stringTagSize(SPAN_TAGS, Adapter.KEY_SPAN_STATUS_MESSAGE, statusMessage(span));
+    size +=
+        longTagSize(
+            SPAN_TAGS, Adapter.KEY_SPAN_STATUS_CODE, span.getStatus().getCanonicalCode().value());
+    List<TimedEvent> timedEvents = span.getTimedEvents();
+    for (int i = 0; i < timedEvents.size(); i++) {
+      size += lengthDelimitedSize(SPAN_LOGS, logSize(timedEvents.get(i)));
+    }
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeSpan(CodedOutputStream output, SpanData span) throws IOException {
+    writeLengthDelimitedTag(output, BATCH_SPANS, sizes[sizeIndex++]);
+    span.getTraceId().copyBytesTo(idBytes, 0);
+    writeBytes(output, SPAN_TRACE_ID, idBytes, TraceId.getSize());
+    span.getSpanId().copyBytesTo(idBytes, 0);
+    writeBytes(output, SPAN_SPAN_ID, idBytes, SpanId.getSize());
+    writeString(output, SPAN_OPERATION_NAME, span.getName());
+    List<Link> links = span.getLinks();
+    for (int i = 0; i < links.size(); i++) {
+      Link link = links.get(i);
+      writeSpanRef(
+          output,
+          link.getContext().getTraceId(),
+          link.getContext().getSpanId(),
+          Model.SpanRefType.FOLLOWS_FROM);
+    }
+    if (span.getParentSpanId().isValid()) {
+      writeSpanRef(output, span.getTraceId(), span.getParentSpanId(), Model.SpanRefType.CHILD_OF);
+    }
+    long startEpochNanos = span.getStartEpochNanos();
+    writeTime(
+        output,
+        SPAN_START_TIME,
+        timestampSeconds(startEpochNanos),
+        timestampNanos(startEpochNanos));
+    long durationNanos = span.getEndEpochNanos() - startEpochNanos;
+    writeTime(
+        output,
+        SPAN_DURATION,
+        durationNanos / NANOS_PER_SECOND,
+        (int) (durationNanos % NANOS_PER_SECOND));
+    writeAttributes(output, SPAN_TAGS, span.getAttributes());
+    if (span.getKind() != null) {
+      writeStringTag(output, SPAN_TAGS, Adapter.KEY_SPAN_KIND, span.getKind().name());
+    }
+    writeStringTag(output, SPAN_TAGS, Adapter.KEY_SPAN_STATUS_MESSAGE, statusMessage(span));
+    writeLongTag(
+        output,
+        SPAN_TAGS,
+        Adapter.KEY_SPAN_STATUS_CODE,
+        span.getStatus().getCanonicalCode().value());
+    List<TimedEvent> timedEvents = span.getTimedEvents();
+    for (int i = 0; i < timedEvents.size(); i++) {
+      writeLog(output, timedEvents.get(i));
+    }
+  }
+
+  private static int spanRefSize(Model.SpanRefType refType) {
+    return bytesSize(SPAN_REF_TRACE_ID, TraceId.getSize())
+        + bytesSize(SPAN_REF_SPAN_ID, SpanId.getSize())
+        + enumSize(SPAN_REF_REF_TYPE, refType.getNumber());
+  }
+
+  private void writeSpanRef(
+      CodedOutputStream output, TraceId traceId, SpanId spanId, Model.SpanRefType refType)
+      throws IOException {
+    writeLengthDelimitedTag(output, SPAN_REFERENCES, spanRefSize(refType));
+    traceId.copyBytesTo(idBytes, 0);
+    writeBytes(output, SPAN_REF_TRACE_ID, idBytes, TraceId.getSize());
+    spanId.copyBytesTo(idBytes, 0);
+    writeBytes(output, SPAN_REF_SPAN_ID, idBytes, SpanId.getSize());
+    writeEnum(output, SPAN_REF_REF_TYPE, refType.getNumber());
+  }
+
+  private int logSize(TimedEvent timedEvent) {
+    int slot = reserveSize();
+    long epochNanos = timedEvent.getEpochNanos();
+    int size =
+        lengthDelimitedSize(
+                LOG_TIMESTAMP, timeSize(timestampSeconds(epochNanos), timestampNanos(epochNanos)))
+            + stringTagSize(LOG_FIELDS, Adapter.KEY_LOG_MESSAGE, timedEvent.getName())
+            + attributesSize(LOG_FIELDS, timedEvent.getAttributes());
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeLog(CodedOutputStream output, TimedEvent timedEvent) throws IOException {
+    writeLengthDelimitedTag(output, SPAN_LOGS, sizes[sizeIndex++]);
+    long epochNanos = timedEvent.getEpochNanos();
+    writeTime(output, LOG_TIMESTAMP, timestampSeconds(epochNanos), timestampNanos(epochNanos));
+    writeStringTag(output, LOG_FIELDS, Adapter.KEY_LOG_MESSAGE, timedEvent.getName());
+    writeAttributes(output, LOG_FIELDS, timedEvent.getAttributes());
+  }
+
+  private int attributesSize(int fieldNumber, Map<String, AttributeValue> attributes) {
+    int size = 0;
+    for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+      size +=
+          lengthDelimitedSize(fieldNumber, keyValueSize(attribute.getKey(), attribute.getValue()));
+    }
+    return size;
+  }
+
+  private void writeAttributes(
+      CodedOutputStream output, int fieldNumber, Map<String, AttributeValue> attributes)
+      throws IOException {
+    for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+      writeLengthDelimitedTag(output, fieldNumber, sizes[sizeIndex++]);
+      String key = attribute.getKey();
+      AttributeValue value = attribute.getValue();
+      writeString(output, KEY_VALUE_KEY, key);
+      switch (value.getType()) {
+        case STRING:
+          writeString(output, KEY_VALUE_V_STR, value.getStringValue());
+          break;
+        case BOOLEAN:
+          writeEnum(output, KEY_VALUE_V_TYPE, Model.ValueType.BOOL_VALUE);
+          if (value.getBooleanValue()) {
+            output.writeBool(KEY_VALUE_V_BOOL, true);
+          }
+          break;
+        case LONG:
+          writeEnum(output, KEY_VALUE_V_TYPE, Model.ValueType.INT64_VALUE);
+          writeInt64(output, KEY_VALUE_V_INT64, value.getLongValue());
+          break;
+        case DOUBLE:
+          writeEnum(output, KEY_VALUE_V_TYPE, Model.ValueType.FLOAT64_VALUE);
+          if (Double.doubleToRawLongBits(value.getDoubleValue()) != 0) {
+            output.writeDouble(KEY_VALUE_V_FLOAT64, value.getDoubleValue());
+          }
+          break;
+      }
+    }
+  }
+
+  private int keyValueSize(String key, AttributeValue value) {
+    int slot = reserveSize();
+    int size = stringSize(KEY_VALUE_KEY, key);
+    switch (value.getType()) {
+      case STRING:
+        size += stringSize(KEY_VALUE_V_STR, value.getStringValue());
+        break;
+      case BOOLEAN:
+        size += enumSize(KEY_VALUE_V_TYPE, Model.ValueType.BOOL_VALUE);
+        if (value.getBooleanValue()) {
+          size += CodedOutputStream.computeBoolSize(KEY_VALUE_V_BOOL, true);
+        }
+        break;
+      case LONG:
+        size +=
+            enumSize(KEY_VALUE_V_TYPE, Model.ValueType.INT64_VALUE)
+                + int64Size(KEY_VALUE_V_INT64, value.getLongValue());
+        break;
+      case DOUBLE:
+        size += enumSize(KEY_VALUE_V_TYPE, Model.ValueType.FLOAT64_VALUE);
+        if (Double.doubleToRawLongBits(value.getDoubleValue()) != 0) {
+          size += CodedOutputStream.computeDoubleSize(KEY_VALUE_V_FLOAT64, value.getDoubleValue());
+        }
+        break;
+    }
+    sizes[slot] = size;
+    return size;
+  }
+
+  // The tags added by the exporter are not memoized, their sizes are cheap to compute again.
+  private static int stringTagSize(int fieldNumber, String key, String value) {
+    return lengthDelimitedSize(
+        fieldNumber, stringSize(KEY_VALUE_KEY, key) + stringSize(KEY_VALUE_V_STR, value));
+  }
+
+  private static void writeStringTag(
+      CodedOutputStream output, int fieldNumber, String key, String value) throws IOException {
+    writeLengthDelimitedTag(
+        output, fieldNumber, stringSize(KEY_VALUE_KEY, key) + stringSize(KEY_VALUE_V_STR, value));
+    writeString(output, KEY_VALUE_KEY, key);
+    writeString(output, KEY_VALUE_V_STR, value);
+  }
+
+  private static int longTagValueSize(String key, long value) {
+    return stringSize(KEY_VALUE_KEY, key)
+        + enumSize(KEY_VALUE_V_TYPE, Model.ValueType.INT64_VALUE)
+        + int64Size(KEY_VALUE_V_INT64, value);
+  }
+
+  private static int longTagSize(int fieldNumber, String key, long value) {
+    return lengthDelimitedSize(fieldNumber, longTagValueSize(key, value));
+  }
+
+  private static void writeLongTag(
+      CodedOutputStream output, int fieldNumber, String key, long value) throws IOException {
+    writeLengthDelimitedTag(output, fieldNumber, longTagValueSize(key, value));
+    writeString(output, KEY_VALUE_KEY, key);
+    writeEnum(output, KEY_VALUE_V_TYPE, Model.ValueType.INT64_VALUE);
+    writeInt64(output, KEY_VALUE_V_INT64, value);
+  }
+
+  private static String statusMessage(SpanData span) {
+    String description = span.getStatus().getDescription();
+    return description == null ? "" : description;
+  }
+
+  // Like com.google.protobuf.util.Timestamps.fromNanos, the nanos are never negative.
+  private static long timestampSeconds(long epochNanos) {
+    long seconds = epochNanos / NANOS_PER_SECOND;
+    return epochNanos % NANOS_PER_SECOND < 0 ? seconds - 1 : seconds;
+  }
+
+  private static int timestampNanos(long epochNanos) {
+    int nanos = (int) (epochNanos % NANOS_PER_SECOND);
+    return nanos < 0 ? nanos + (int) NANOS_PER_SECOND : nanos;
+  }
+
+  private static int timeSize(long seconds, int nanos) {
+    return int64Size(TIME_SECONDS, seconds)
+        + (nanos == 0 ? 0 : CodedOutputStream.computeInt32Size(TIME_NANOS, nanos));
+  }
+
+  private static void writeTime(CodedOutputStream output, int fieldNumber, long seconds, int nanos)
+      throws IOException {
+    writeLengthDelimitedTag(output, fieldNumber, timeSize(seconds, nanos));
+    writeInt64(output, TIME_SECONDS, seconds);
+    if (nanos != 0) {
+      output.writeInt32(TIME_NANOS, nanos);
+    }
+  }
+
+  private int reserveSize() {
+    if (sizeCount == sizes.length) {
+      sizes = Arrays.copyOf(sizes, 2 * sizes.length);
+    }
+    return sizeCount++;
+  }
+
+  // Like the generated messages, the fields with the default value of proto3 are not written.
+
+  private static int stringSize(int fieldNumber, String value) {
+    return value.isEmpty() ? 0 : CodedOutputStream.computeStringSize(fieldNumber, value);
+  }
+
+  private static void writeString(CodedOutputStream output, int fieldNumber, String value)
+      throws IOException {
+    if (!value.isEmpty()) {
+      output.writeString(fieldNumber, value);
+    }
+  }
+
+  private static int int64Size(int fieldNumber, long value) {
+    return value == 0 ? 0 : CodedOutputStream.computeInt64Size(fieldNumber, value);
+  }
+
+  private static void writeInt64(CodedOutputStream output, int fieldNumber, long value)
+      throws IOException {
+    if (value != 0) {
+      output.writeInt64(fieldNumber, value);
+    }
+  }
+
+  private static int enumSize(int fieldNumber, int value) {
+    return value == 0 ? 0 : CodedOutputStream.computeEnumSize(fieldNumber, value);
+  }
+
+  private static void writeEnum(CodedOutputStream output, int fieldNumber, int value)
+      throws IOException {
+    if (value != 0) {
+      output.writeEnum(fieldNumber, value);
+    }
+  }
+
+  private static int bytesSize(int fieldNumber, int length) {
+    return lengthDelimitedSize(fieldNumber, length);
+  }
+
+  private static void writeBytes(
+      CodedOutputStream output, int fieldNumber, byte[] bytes, int length) throws IOException {
+    writeLengthDelimitedTag(output, fieldNumber, length);
+    output.writeRawBytes(bytes, 0, length);
+  }
+
+  private static int lengthDelimitedSize(int fieldNumber, int size) {
+    return CodedOutputStream.computeTagSize(fieldNumber)
+        + CodedOutputStream.computeUInt32SizeNoTag(size)
+        + size;
+  }
+
+  private static void writeLengthDelimitedTag(CodedOutputStream output, int fieldNumber, int size)
+      throws IOException {
+    output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(size);
+  }
+
+  // Written by gRPC straight from the buffer.
+  private static final class EncodedInputStream extends ByteArrayInputStream
+      implements KnownLength, Drainable {
+    private EncodedInputStream(byte[] buffer, int length) {
+      super(buffer, 0, length);
+    }
+
+    @Override
+    public int drainTo(OutputStream target) throws IOException {
+      int drained = count - pos;
+      target.write(buf, pos, drained);
+      pos = count;
+      return drained;
+    }
+  }
+}
@@ -18,6 +18,7 @@ package io.opentelemetry.exporters.jaeger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.ImmutableMap;
@@ -37,6 +38,8 @@ import io.opentelemetry.trace.Status;
 import io.opentelemetry.trace.TraceFlags;
 import io.opentelemetry.trace.TraceId;
 import io.opentelemetry.trace.Tracestate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -68,6 +71,33 @@ public class AdapterTest {
     assertEquals(1, jaegerSpans.size());
   }
 
+  @Test
+  public void testProtoSpans_ShareIds() {
+    long startMs = System.currentTimeMillis();
+    SpanData parent = getSpanData(startMs, startMs + 900);
+    SpanData child =
+        SpanData.newBuilder()
+            .setTraceId(TraceId.fromLowerBase16(TRACE_ID, 0))
+            .setSpanId(SpanId.fromLowerBase16(LINK_SPAN_ID, 0))
+            .setParentSpanId(SpanId.fromLowerBase16(SPAN_ID, 0))
+            .setName("child")
+            .setStartEpochNanos(TimeUnit.MILLISECONDS.toNanos(startMs))
+            .setEndEpochNanos(TimeUnit.MILLISECONDS.toNanos(startMs + 100))
+            .setKind(Span.Kind.INTERNAL)
+            .setStatus(Status.OK)
+            .build();
+
+    // The child ends first, like in the batches of the BatchSpansProcessor.
+    List<Model.Span> jaegerSpans = new ArrayList<>(Adapter.toJaeger(Arrays.asList(child, parent)));
+
+    // The spans of a batch share the ByteStrings of their trace ids and of the referenced span ids.
+    assertSame(jaegerSpans.get(0).getTraceId(), jaegerSpans.get(1).getTraceId());
+    Model.SpanRef parentRef = jaegerSpans.get(0).getReferences(0);
+    assertEquals(Model.SpanRefType.CHILD_OF, parentRef.getRefType());
+    assertSame(parentRef.getSpanId(), jaegerSpans.get(1).getSpanId());
+    assertSame(jaegerSpans.get(0).getTraceId(), parentRef.getTraceId());
+  }
+
   @Test
   public void testProtoSpan() {
     long duration = 900; // ms
@@ -171,9 +201,13 @@ public class AdapterTest {
 
     // verify
     assertTrue(kvB.getVBool());
+    assertEquals(Model.ValueType.BOOL, kvB.getVType());
     assertEquals(1., kvD.getVFloat64(), 0);
+    assertEquals(Model.ValueType.FLOAT64, kvD.getVType());
     assertEquals(2, kvI.getVInt64());
+    assertEquals(Model.ValueType.INT64, kvI.getVType());
     assertEquals("foobar", kvS.getVStr());
+    assertEquals(Model.ValueType.STRING, kvS.getVType());
     assertEquals("foobar", kvS.getVStrBytes().toStringUtf8());
   }
 
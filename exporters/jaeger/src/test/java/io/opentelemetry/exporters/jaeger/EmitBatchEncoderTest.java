@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.SpanData.TimedEvent;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.Tracestate;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link EmitBatchEncoder}. */
+@RunWith(JUnit4.class)
+public class EmitBatchEncoderTest {
+  private static final TraceId TRACE_ID =
+      TraceId.fromLowerBase16("0102030405060708f90a0b0c0d0e0f10", 0);
+  private static final SpanId SPAN_ID = SpanId.fromLowerBase16("0102030405060708", 0);
+  private static final SpanId PARENT_SPAN_ID = SpanId.fromLowerBase16("f807060504030201", 0);
+  private static final Model.Process PROCESS =
+      Model.Process.newBuilder()
+          .setServiceName("test")
+          .addTags(Model.KeyValue.newBuilder().setKey("hostname").setVStr("localhost"))
+          .build();
+
+  @Test
+  public void finish_EmitBatchMessage() {
+    EmitBatchEncoder encoder = new EmitBatchEncoder(PROCESS, 65_000);
+    assertThat(encoder.add(toJaeger(newSpanBuilder().build()))).isTrue();
+
+    ThriftCompactReader.Message message = read(encoder.finish());
+
+    assertThat(message.name).isEqualTo("emitBatch");
+    assertThat(message.type).isEqualTo(4); // oneway
+    Map<Integer, Object> process = struct(batch(message).get(1));
+    assertThat(process.get(1)).isEqualTo("test");
+    assertThat(list(process.get(2))).hasSize(1);
+    assertTag(list(process.get(2)).get(0), "hostname", 0, 3, "localhost");
+    assertThat(list(batch(message).get(2))).hasSize(1);
+  }
+
+  @Test
+  public void add_SpanFields() {
+    Map<String, AttributeValue> attributes = new LinkedHashMap<>();
+    attributes.put("string", AttributeValue.stringAttributeValue("val\u00fce"));
+    attributes.put("true", AttributeValue.booleanAttributeValue(true));
+    attributes.put("false", AttributeValue.booleanAttributeValue(false));
+    attributes.put("long", AttributeValue.longAttributeValue(-42));
+    attributes.put("double", AttributeValue.doubleAttributeValue(1.5));
+    SpanData span =
+        newSpanBuilder()
+            .setParentSpanId(PARENT_SPAN_ID)
+            .setAttributes(attributes)
+            .setTimedEvents(
+                Collections.singletonList(
+                    TimedEvent.create(
+                        1_500_001_999L,
+                        "event",
+                        Collections.singletonMap(
+                            "key", AttributeValue.stringAttributeValue("value")))))
+            .setLinks(
+                Collections.<Link>singletonList(
+                    SpanData.Link.create(
+                        SpanContext.create(
+                            TRACE_ID,
+                            PARENT_SPAN_ID,
+                            TraceFlags.getDefault(),
+                            Tracestate.getDefault()))))
+            .setStatus(Status.NOT_FOUND.withDescription("not found"))
+            .build();
+    EmitBatchEncoder encoder = new EmitBatchEncoder(PROCESS, 65_000);
+    assertThat(encoder.add(toJaeger(span))).isTrue();
+
+    Map<Integer, Object> encoded = struct(list(batch(read(encoder.finish())).get(2)).get(0));
+
+    assertThat(encoded.get(1)).isEqualTo(0xf90a0b0c0d0e0f10L);
+    assertThat(encoded.get(2)).isEqualTo(0x0102030405060708L);
+    assertThat(encoded.get(3)).isEqualTo(0x0102030405060708L);
+    assertThat(encoded.get(4)).isEqualTo(0L);
+    assertThat(encoded.get(5)).isEqualTo("GET /api/endpoint");
+    List<Object> references = list(encoded.get(6));
+    assertThat(references).hasSize(2);
+    assertSpanRef(references.get(0), 1, 0xf807060504030201L); // FOLLOWS_FROM
+    assertSpanRef(references.get(1), 0, 0xf807060504030201L); // CHILD_OF
+    assertThat(encoded.get(7)).isEqualTo(0);
+    assertThat(encoded.get(8)).isEqualTo(1_000_000L);
+    assertThat(encoded.get(9)).isEqualTo(2_499_999L);
+    List<Object> tags = list(encoded.get(10));
+    assertThat(tags).hasSize(8);
+    assertTag(tags.get(0), "string", 0, 3, "val\u00fce");
+    assertTag(tags.get(1), "true", 2, 5, true);
+    assertTag(tags.get(2), "false", 2, 5, false);
+    assertTag(tags.get(3), "long", 3, 6, -42L);
+    assertTag(tags.get(4), "double", 1, 4, 1.5);
+    assertTag(tags.get(5), Adapter.KEY_SPAN_KIND, 0, 3, "SERVER");
+    assertTag(tags.get(6), Adapter.KEY_SPAN_STATUS_MESSAGE, 0, 3, "not found");
+    assertTag(
+        tags.get(7),
+        Adapter.KEY_SPAN_STATUS_CODE,
+        3,
+        6,
+        (long) Status.NOT_FOUND.getCanonicalCode().value());
+    List<Object> logs = list(encoded.get(11));
+    assertThat(logs).hasSize(1);
+    Map<Integer, Object> log = struct(logs.get(0));
+    assertThat(log.get(1)).isEqualTo(1_500_001L);
+    List<Object> fields = list(log.get(2));
+    assertThat(fields).hasSize(2);
+    assertTag(fields.get(0), Adapter.KEY_LOG_MESSAGE, 0, 3, "event");
+    assertTag(fields.get(1), "key", 0, 3, "value");
+  }
+
+  @Test
+  public void add_PacketFull() {
+    List<Model.Span> spans = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      spans.add(toJaeger(newSpanBuilder().setName("span_" + i).build()));
+    }
+    EmitBatchEncoder encoder = new EmitBatchEncoder(PROCESS, 1_000);
+
+    List<String> names = new ArrayList<>();
+    for (Model.Span span : spans) {
+      if (!encoder.add(span)) {
+        names.addAll(finish(encoder, 1_000));
+        encoder.reset();
+        assertThat(encoder.add(span)).isTrue();
+      }
+    }
+    names.addAll(finish(encoder, 1_000));
+
+    assertThat(names).hasSize(100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(names.get(i)).isEqualTo("span_" + i);
+    }
+  }
+
+  @Test
+  public void add_SpanLargerThanPacket() {
+    EmitBatchEncoder encoder = new EmitBatchEncoder(PROCESS, 100);
+    assertThat(encoder.add(toJaeger(newSpanBuilder().build()))).isFalse();
+    assertThat(encoder.getSpanCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void finish_LongListOfSpans() {
+    EmitBatchEncoder encoder = new EmitBatchEncoder(PROCESS, 65_000);
+    for (int i = 0; i < 20; i++) {
+      assertThat(encoder.add(toJaeger(newSpanBuilder().setName("span_" + i).build()))).isTrue();
+    }
+    assertThat(encoder.getSpanCount()).isEqualTo(20);
+    assertThat(list(batch(read(encoder.finish())).get(2))).hasSize(20);
+  }
+
+  @Test
+  public void reset_ReusesBuffer() {
+    EmitBatchEncoder encoder = new EmitBatchEncoder(PROCESS, 65_000);
+    assertThat(encoder.add(toJaeger(newSpanBuilder().setName("first").build()))).isTrue();
+    ByteBuffer first = encoder.finish();
+    encoder.reset();
+    assertThat(encoder.add(toJaeger(newSpanBuilder().setName("second").build()))).isTrue();
+    ByteBuffer second = encoder.finish();
+
+    assertThat(second.array()).isSameInstanceAs(first.array());
+    Map<Integer, Object> span = struct(list(batch(read(second)).get(2)).get(0));
+    assertThat(span.get(5)).isEqualTo("second");
+  }
+
+  private static List<String> finish(EmitBatchEncoder encoder, int maxPacketSize) {
+    ByteBuffer packet = encoder.finish();
+    assertThat(packet.remaining()).isAtMost(maxPacketSize);
+    List<String> names = new ArrayList<>();
+    for (Object span : list(batch(read(packet)).get(2))) {
+      names.add((String) struct(span).get(5));
+    }
+    return names;
+  }
+
+  private static void assertSpanRef(Object encoded, int refType, long spanId) {
+    Map<Integer, Object> spanRef = struct(encoded);
+    assertThat(spanRef.get(1)).isEqualTo(refType);
+    assertThat(spanRef.get(2)).isEqualTo(0xf90a0b0c0d0e0f10L);
+    assertThat(spanRef.get(3)).isEqualTo(0x0102030405060708L);
+    assertThat(spanRef.get(4)).isEqualTo(spanId);
+  }
+
+  private static void assertTag(
+      Object encoded, String key, int tagType, int valueFieldId, Object value) {
+    Map<Integer, Object> tag = struct(encoded);
+    assertThat(tag.keySet()).containsExactly(1, 2, valueFieldId).inOrder();
+    assertThat(tag.get(1)).isEqualTo(key);
+    assertThat(tag.get(2)).isEqualTo(tagType);
+    assertThat(tag.get(valueFieldId)).isEqualTo(value);
+  }
+
+  static ThriftCompactReader.Message read(ByteBuffer packet) {
+    return new ThriftCompactReader(packet.array(), packet.position(), packet.remaining())
+        .readMessage();
+  }
+
+  static Map<Integer, Object> batch(ThriftCompactReader.Message message) {
+    return struct(message.arguments.get(1));
+  }
+
+  @SuppressWarnings("unchecked")
+  static Map<Integer, Object> struct(Object value) {
+    return (Map<Integer, Object>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  static List<Object> list(Object value) {
+    return (List<Object>) value;
+  }
+
+  private static Model.Span toJaeger(SpanData span) {
+    return Adapter.toJaeger(span);
+  }
+
+  private static SpanData.Builder newSpanBuilder() {
+    return SpanData.newBuilder()
+        .setTraceId(TRACE_ID)
+        .setSpanId(SPAN_ID)
+        .setName("GET /api/endpoint")
+        .setStartEpochNanos(1_000_000_001L)
+        .setEndEpochNanos(3_500_000_000L)
+        .setKind(Kind.SERVER)
+        .setStatus(Status.OK)
+        .setLinks(Collections.<Link>emptyList());
+  }
+}
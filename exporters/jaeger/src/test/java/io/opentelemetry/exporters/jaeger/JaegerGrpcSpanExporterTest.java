@@ -21,9 +21,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.AdditionalAnswers.delegatesTo;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
@@ -34,16 +41,24 @@ import io.opentelemetry.exporters.jaeger.proto.api_v2.CollectorServiceGrpc;
 import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
 import io.opentelemetry.exporters.otprotocol.TraceProtoUtils;
 import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.export.CompletableResultCode;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
 import io.opentelemetry.trace.Link;
 import io.opentelemetry.trace.Span.Kind;
 import io.opentelemetry.trace.SpanId;
 import io.opentelemetry.trace.Status;
 import io.opentelemetry.trace.TraceId;
+import java.io.IOException;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 
@@ -52,6 +67,7 @@ public class JaegerGrpcSpanExporterTest {
   private static final String SPAN_ID = "0000000000def456";
 
   @Rule public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+  @Rule public final ExpectedException thrown = ExpectedException.none();
 
   private final CollectorServiceGrpc.CollectorServiceImplBase service =
       mock(
@@ -135,6 +151,343 @@ public class JaegerGrpcSpanExporterTest {
     assertTrue("a hostname tag should have been present", foundHostname);
   }
 
+  @Test
+  public void testExportAsync() {
+    String serverName = InProcessServerBuilder.generateName();
+    ArgumentCaptor<PostSpansRequest> requestCaptor =
+        ArgumentCaptor.forClass(Collector.PostSpansRequest.class);
+    JaegerGrpcSpanExporter exporter = newExporter(serverName, service);
+
+    CompletableResultCode result = exporter.exportAsync(Collections.singletonList(newSpanData()));
+
+    assertEquals(ResultCode.SUCCESS, result.join());
+    verify(service)
+        .postSpans(
+            requestCaptor.capture(),
+            ArgumentMatchers.<StreamObserver<Collector.PostSpansResponse>>any());
+    Model.Batch batch = requestCaptor.getValue().getBatch();
+    assertEquals(1, batch.getSpansCount());
+    assertEquals("GET /api/endpoint", batch.getSpans(0).getOperationName());
+    assertEquals("test", batch.getProcess().getServiceName());
+  }
+
+  @Test
+  public void testExportAsync_Unavailable() {
+    String serverName = InProcessServerBuilder.generateName();
+    JaegerGrpcSpanExporter exporter =
+        newExporter(serverName, new FailingCollectorService(io.grpc.Status.UNAVAILABLE));
+
+    CompletableResultCode result = exporter.exportAsync(Collections.singletonList(newSpanData()));
+
+    assertEquals(ResultCode.FAILED_RETRYABLE, result.join());
+  }
+
+  @Test
+  public void testExportAsync_InvalidArgument() {
+    String serverName = InProcessServerBuilder.generateName();
+    JaegerGrpcSpanExporter exporter =
+        newExporter(serverName, new FailingCollectorService(io.grpc.Status.INVALID_ARGUMENT));
+
+    CompletableResultCode result = exporter.exportAsync(Collections.singletonList(newSpanData()));
+
+    assertEquals(ResultCode.FAILED_NOT_RETRYABLE, result.join());
+  }
+
+  @Test
+  public void testExport_SplitsLargeBatches() {
+    ArgumentCaptor<PostSpansRequest> requestCaptor =
+        ArgumentCaptor.forClass(Collector.PostSpansRequest.class);
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannel(newChannel(InProcessServerBuilder.generateName(), service))
+            .setMaxRequestBytes(1)
+            .build();
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(newSpans(3)));
+
+    verify(service, times(3))
+        .postSpans(
+            requestCaptor.capture(),
+            ArgumentMatchers.<StreamObserver<Collector.PostSpansResponse>>any());
+    assertSpansSplit(requestCaptor.getAllValues());
+  }
+
+  @Test
+  public void testExportAsync_SplitsLargeBatches() {
+    ArgumentCaptor<PostSpansRequest> requestCaptor =
+        ArgumentCaptor.forClass(Collector.PostSpansRequest.class);
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannel(newChannel(InProcessServerBuilder.generateName(), service))
+            .setMaxRequestBytes(1)
+            .build();
+
+    assertEquals(ResultCode.SUCCESS, exporter.exportAsync(newSpans(3)).join());
+
+    verify(service, times(3))
+        .postSpans(
+            requestCaptor.capture(),
+            ArgumentMatchers.<StreamObserver<Collector.PostSpansResponse>>any());
+    assertSpansSplit(requestCaptor.getAllValues());
+  }
+
+  @Test
+  public void testExportAsync_SplitBatchFails() {
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannel(
+                newChannel(
+                    InProcessServerBuilder.generateName(),
+                    new FailingCollectorService(io.grpc.Status.UNAVAILABLE)))
+            .setMaxRequestBytes(1)
+            .build();
+
+    assertEquals(ResultCode.FAILED_RETRYABLE, exporter.exportAsync(newSpans(3)).join());
+  }
+
+  @Test
+  public void testExport_SplitBatchFailsAfterAcceptedRequest() {
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannel(
+                newChannel(
+                    InProcessServerBuilder.generateName(),
+                    new FailingCollectorService(io.grpc.Status.UNAVAILABLE, 1)))
+            .setMaxRequestBytes(1)
+            .build();
+
+    // Retrying would export the first span again.
+    assertEquals(ResultCode.FAILED_NOT_RETRYABLE, exporter.export(newSpans(3)));
+  }
+
+  @Test
+  public void testExportAsync_SplitBatchFailsAfterAcceptedRequest() {
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannel(
+                newChannel(
+                    InProcessServerBuilder.generateName(),
+                    new FailingCollectorService(io.grpc.Status.UNAVAILABLE, 1)))
+            .setMaxRequestBytes(1)
+            .build();
+
+    assertEquals(ResultCode.FAILED_NOT_RETRYABLE, exporter.exportAsync(newSpans(3)).join());
+  }
+
+  @Test
+  public void testExportJaegerSpans_SplitBatchFailsAfterAcceptedRequest() {
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannel(
+                newChannel(
+                    InProcessServerBuilder.generateName(),
+                    new FailingCollectorService(io.grpc.Status.UNAVAILABLE, 1)))
+            .setMaxRequestBytes(1)
+            .build();
+
+    assertEquals(
+        ResultCode.FAILED_NOT_RETRYABLE,
+        exporter.exportJaegerSpans(JaegerGrpcSpanExporter.toJaegerSpans(newSpans(3))));
+  }
+
+  @Test
+  public void testExportJaegerSpans_SplitsLargeBatches() {
+    ArgumentCaptor<PostSpansRequest> requestCaptor =
+        ArgumentCaptor.forClass(Collector.PostSpansRequest.class);
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannel(newChannel(InProcessServerBuilder.generateName(), service))
+            .setMaxRequestBytes(1)
+            .build();
+
+    assertEquals(
+        ResultCode.SUCCESS,
+        exporter.exportJaegerSpans(JaegerGrpcSpanExporter.toJaegerSpans(newSpans(3))));
+
+    verify(service, times(3))
+        .postSpans(
+            requestCaptor.capture(),
+            ArgumentMatchers.<StreamObserver<Collector.PostSpansResponse>>any());
+    assertSpansSplit(requestCaptor.getAllValues());
+  }
+
+  @Test
+  public void testExport_Compression() {
+    final List<String> encodings = new ArrayList<>();
+    ServerInterceptor encodingInterceptor =
+        new ServerInterceptor() {
+          @Override
+          public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+              ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+            encodings.add(
+                headers.get(Metadata.Key.of("grpc-encoding", Metadata.ASCII_STRING_MARSHALLER)));
+            return next.startCall(call, headers);
+          }
+        };
+    ManagedChannel channel =
+        newChannel(
+            InProcessServerBuilder.generateName(),
+            ServerInterceptors.intercept(service, encodingInterceptor));
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannel(channel)
+            .setCompression("gzip")
+            .build();
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(newSpans(1)));
+    assertEquals(ResultCode.SUCCESS, exporter.exportAsync(newSpans(1)).join());
+    assertEquals(
+        ResultCode.SUCCESS,
+        exporter.exportJaegerSpans(JaegerGrpcSpanExporter.toJaegerSpans(newSpans(1))));
+
+    assertEquals(Arrays.asList("gzip", "gzip", "gzip"), encodings);
+  }
+
+  @Test
+  public void testExport_RoundRobinChannels() {
+    CollectorServiceGrpc.CollectorServiceImplBase otherService =
+        mock(
+            CollectorServiceGrpc.CollectorServiceImplBase.class,
+            delegatesTo(new MockCollectorService()));
+    JaegerGrpcSpanExporter exporter =
+        JaegerGrpcSpanExporter.newBuilder()
+            .setServiceName("test")
+            .setChannels(
+                Arrays.asList(
+                    newChannel(InProcessServerBuilder.generateName(), service),
+                    newChannel(InProcessServerBuilder.generateName(), otherService)))
+            .build();
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals(ResultCode.SUCCESS, exporter.export(newSpans(1)));
+      assertEquals(ResultCode.SUCCESS, exporter.exportAsync(newSpans(1)).join());
+    }
+
+    verify(service, times(2))
+        .postSpans(
+            ArgumentMatchers.<PostSpansRequest>any(),
+            ArgumentMatchers.<StreamObserver<Collector.PostSpansResponse>>any());
+    verify(otherService, times(2))
+        .postSpans(
+            ArgumentMatchers.<PostSpansRequest>any(),
+            ArgumentMatchers.<StreamObserver<Collector.PostSpansResponse>>any());
+  }
+
+  @Test
+  public void builder_UnsupportedCompression() {
+    thrown.expect(IllegalArgumentException.class);
+    JaegerGrpcSpanExporter.newBuilder().setCompression("zstd");
+  }
+
+  @Test
+  public void builder_MaxRequestBytesNotPositive() {
+    thrown.expect(IllegalArgumentException.class);
+    JaegerGrpcSpanExporter.newBuilder().setMaxRequestBytes(0);
+  }
+
+  @Test
+  public void builder_EmptyChannels() {
+    thrown.expect(IllegalArgumentException.class);
+    JaegerGrpcSpanExporter.newBuilder().setChannels(Collections.<ManagedChannel>emptyList());
+  }
+
+  private JaegerGrpcSpanExporter newExporter(
+      String serverName, CollectorServiceGrpc.CollectorServiceImplBase collectorService) {
+    ManagedChannel channel = newChannel(serverName, collectorService);
+    return JaegerGrpcSpanExporter.newBuilder().setServiceName("test").setChannel(channel).build();
+  }
+
+  private ManagedChannel newChannel(
+      String serverName, CollectorServiceGrpc.CollectorServiceImplBase collectorService) {
+    return newChannel(serverName, collectorService.bindService());
+  }
+
+  private ManagedChannel newChannel(String serverName, ServerServiceDefinition serviceDefinition) {
+    try {
+      grpcCleanup.register(
+          InProcessServerBuilder.forName(serverName)
+              .directExecutor()
+              .addService(serviceDefinition)
+              .build()
+              .start());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return grpcCleanup.register(
+        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+  }
+
+  // Each request holds one of the spans, with the process.
+  private static void assertSpansSplit(List<PostSpansRequest> requests) {
+    for (int i = 0; i < requests.size(); i++) {
+      Model.Batch batch = requests.get(i).getBatch();
+      assertEquals(1, batch.getSpansCount());
+      assertEquals("span_" + i, batch.getSpans(0).getOperationName());
+      assertEquals("test", batch.getProcess().getServiceName());
+    }
+  }
+
+  private static List<SpanData> newSpans(int count) {
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      spans.add(newSpanData("span_" + i));
+    }
+    return spans;
+  }
+
+  private static SpanData newSpanData() {
+    return newSpanData("GET /api/endpoint");
+  }
+
+  private static SpanData newSpanData(String name) {
+    long startMs = System.currentTimeMillis();
+    return SpanData.newBuilder()
+        .setTraceId(TraceId.fromLowerBase16(TRACE_ID, 0))
+        .setSpanId(SpanId.fromLowerBase16(SPAN_ID, 0))
+        .setName(name)
+        .setStartEpochNanos(TimeUnit.MILLISECONDS.toNanos(startMs))
+        .setEndEpochNanos(TimeUnit.MILLISECONDS.toNanos(startMs + 900))
+        .setStatus(Status.OK)
+        .setKind(Kind.CONSUMER)
+        .setLinks(Collections.<Link>emptyList())
+        .build();
+  }
+
+  static class FailingCollectorService extends CollectorServiceGrpc.CollectorServiceImplBase {
+    private final io.grpc.Status status;
+    // The requests accepted before failing.
+    private final AtomicInteger acceptedRequests;
+
+    FailingCollectorService(io.grpc.Status status) {
+      this(status, 0);
+    }
+
+    FailingCollectorService(io.grpc.Status status, int acceptedRequests) {
+      this.status = status;
+      this.acceptedRequests = new AtomicInteger(acceptedRequests);
+    }
+
+    @Override
+    public void postSpans(
+        Collector.PostSpansRequest request,
+        StreamObserver<Collector.PostSpansResponse> responseObserver) {
+      if (acceptedRequests.getAndDecrement() > 0) {
+        responseObserver.onNext(Collector.PostSpansResponse.newBuilder().build());
+        responseObserver.onCompleted();
+        return;
+      }
+      responseObserver.onError(status.asRuntimeException());
+    }
+  }
+
   static class MockCollectorService extends CollectorServiceGrpc.CollectorServiceImplBase {
     @Override
     public void postSpans(
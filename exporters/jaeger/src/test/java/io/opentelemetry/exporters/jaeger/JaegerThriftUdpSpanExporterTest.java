@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.opentelemetry.exporters.jaeger.EmitBatchEncoderTest.batch;
+import static io.opentelemetry.exporters.jaeger.EmitBatchEncoderTest.list;
+import static io.opentelemetry.exporters.jaeger.EmitBatchEncoderTest.struct;
+
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link JaegerThriftUdpSpanExporter}. */
+@RunWith(JUnit4.class)
+public class JaegerThriftUdpSpanExporterTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  // Stands for the Jaeger agent.
+  private DatagramSocket agentSocket;
+  private JaegerThriftUdpSpanExporter exporter;
+
+  @Before
+  public void setUp() throws IOException {
+    agentSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+    agentSocket.setSoTimeout(5_000);
+  }
+
+  @After
+  public void tearDown() {
+    if (exporter != null) {
+      exporter.shutdown();
+    }
+    agentSocket.close();
+  }
+
+  @Test(timeout = 10000L)
+  public void export() throws IOException {
+    exporter = newExporterBuilder().build();
+
+    assertThat(exporter.export(newSpans(3))).isEqualTo(ResultCode.SUCCESS);
+
+    Map<Integer, Object> batch = batch(receive());
+    Map<Integer, Object> process = struct(batch.get(1));
+    assertThat(process.get(1)).isEqualTo("test");
+    assertThat(list(process.get(2))).hasSize(3);
+    List<Object> spans = list(batch.get(2));
+    assertThat(spans).hasSize(3);
+    for (int i = 0; i < 3; i++) {
+      assertThat(struct(spans.get(i)).get(5)).isEqualTo("span_" + i);
+    }
+  }
+
+  @Test(timeout = 10000L)
+  public void export_SeveralPackets() throws IOException {
+    exporter = newExporterBuilder().setMaxPacketSize(1_000).build();
+
+    assertThat(exporter.export(newSpans(50))).isEqualTo(ResultCode.SUCCESS);
+
+    List<String> names = new ArrayList<>();
+    int packets = 0;
+    while (names.size() < 50) {
+      for (Object span : list(batch(receive()).get(2))) {
+        names.add((String) struct(span).get(5));
+      }
+      packets++;
+    }
+    assertThat(packets).isGreaterThan(1);
+    for (int i = 0; i < 50; i++) {
+      assertThat(names.get(i)).isEqualTo("span_" + i);
+    }
+  }
+
+  @Test(timeout = 10000L)
+  public void export_SpanLargerThanPacket() throws IOException {
+    exporter = newExporterBuilder().setMaxPacketSize(1_000).build();
+    List<SpanData> spans = newSpans(2);
+    StringBuilder largeValue = new StringBuilder();
+    for (int i = 0; i < 1_000; i++) {
+      largeValue.append('x');
+    }
+    spans.add(1, newSpanData("large", AttributeValue.stringAttributeValue(largeValue.toString())));
+
+    assertThat(exporter.export(spans)).isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+
+    List<Object> received = list(batch(receive()).get(2));
+    assertThat(received).hasSize(2);
+    assertThat(struct(received.get(0)).get(5)).isEqualTo("span_0");
+    assertThat(struct(received.get(1)).get(5)).isEqualTo("span_1");
+  }
+
+  @Test
+  public void export_NoSpans() throws IOException {
+    exporter = newExporterBuilder().build();
+    assertThat(exporter.export(Collections.<SpanData>emptyList())).isEqualTo(ResultCode.SUCCESS);
+  }
+
+  @Test
+  public void builder_InvalidAgentPort() {
+    thrown.expect(IllegalArgumentException.class);
+    JaegerThriftUdpSpanExporter.newBuilder().setAgentPort(0);
+  }
+
+  @Test
+  public void builder_InvalidMaxPacketSize() {
+    thrown.expect(IllegalArgumentException.class);
+    JaegerThriftUdpSpanExporter.newBuilder().setMaxPacketSize(65_508);
+  }
+
+  @Test
+  public void builder_EmptyServiceName() throws IOException {
+    thrown.expect(IllegalArgumentException.class);
+    JaegerThriftUdpSpanExporter.newBuilder().setServiceName("").build();
+  }
+
+  private JaegerThriftUdpSpanExporter.Builder newExporterBuilder() {
+    return JaegerThriftUdpSpanExporter.newBuilder()
+        .setServiceName("test")
+        .setAgentHost(InetAddress.getLoopbackAddress().getHostAddress())
+        .setAgentPort(agentSocket.getLocalPort());
+  }
+
+  private ThriftCompactReader.Message receive() throws IOException {
+    DatagramPacket packet = new DatagramPacket(new byte[65_536], 65_536);
+    agentSocket.receive(packet);
+    return EmitBatchEncoderTest.read(
+        ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength()));
+  }
+
+  private static List<SpanData> newSpans(int count) {
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      spans.add(newSpanData("span_" + i, AttributeValue.longAttributeValue(i)));
+    }
+    return spans;
+  }
+
+  private static SpanData newSpanData(String name, AttributeValue attribute) {
+    return SpanData.newBuilder()
+        .setTraceId(TraceId.fromLowerBase16("00000000000000000000000000abc123", 0))
+        .setSpanId(SpanId.fromLowerBase16("0000000000def456", 0))
+        .setName(name)
+        .setStartEpochNanos(1_000_000_000L)
+        .setEndEpochNanos(2_000_000_000L)
+        .setStatus(Status.OK)
+        .setKind(Kind.CLIENT)
+        .setAttributes(Collections.singletonMap("attribute", attribute))
+        .setLinks(Collections.<Link>emptyList())
+        .build();
+  }
+}
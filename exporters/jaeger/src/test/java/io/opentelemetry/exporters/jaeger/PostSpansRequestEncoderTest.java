@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Collector;
+import io.opentelemetry.exporters.jaeger.proto.api_v2.Model;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.SpanData.TimedEvent;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.Tracestate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PostSpansRequestEncoder}. */
+@RunWith(JUnit4.class)
+public class PostSpansRequestEncoderTest {
+  private static final TraceId TRACE_ID =
+      TraceId.fromLowerBase16("0102030405060708090a0b0c0d0e0f10", 0);
+  private static final SpanId SPAN_ID = SpanId.fromLowerBase16("0102030405060708", 0);
+  private static final SpanId PARENT_SPAN_ID = SpanId.fromLowerBase16("0807060504030201", 0);
+  private static final Model.Process PROCESS =
+      Model.Process.newBuilder()
+          .setServiceName("test")
+          .addTags(Model.KeyValue.newBuilder().setKey("hostname").setVStr("localhost"))
+          .build();
+
+  private final PostSpansRequestEncoder encoder = new PostSpansRequestEncoder();
+
+  @Test
+  public void encode_SameAsAdapter() throws IOException {
+    Map<String, AttributeValue> attributes = new LinkedHashMap<>();
+    attributes.put("string", AttributeValue.stringAttributeValue("val\u00fce"));
+    attributes.put("empty", AttributeValue.stringAttributeValue(""));
+    attributes.put("true", AttributeValue.booleanAttributeValue(true));
+    attributes.put("false", AttributeValue.booleanAttributeValue(false));
+    attributes.put("long", AttributeValue.longAttributeValue(-42));
+    attributes.put("zero", AttributeValue.longAttributeValue(0));
+    attributes.put("double", AttributeValue.doubleAttributeValue(1.5));
+    attributes.put("negativeZero", AttributeValue.doubleAttributeValue(-0.0));
+    SpanData span =
+        newSpanBuilder()
+            .setParentSpanId(PARENT_SPAN_ID)
+            .setAttributes(attributes)
+            .setTimedEvents(
+                Arrays.asList(
+                    TimedEvent.create(1_500_000_123L, "event", attributes),
+                    TimedEvent.create(
+                        2_000_000_000L, "", Collections.<String, AttributeValue>emptyMap())))
+            .setLinks(
+                Collections.<Link>singletonList(
+                    SpanData.Link.create(
+                        SpanContext.create(
+                            TRACE_ID,
+                            PARENT_SPAN_ID,
+                            TraceFlags.getDefault(),
+                            Tracestate.getDefault()))))
+            .setStatus(Status.NOT_FOUND.withDescription("not found"))
+            .build();
+
+    assertEncodedAsAdapter(Collections.singletonList(span), PROCESS);
+  }
+
+  @Test
+  public void encode_DefaultValues() throws IOException {
+    SpanData span =
+        newSpanBuilder().setName("").setStartEpochNanos(0).setEndEpochNanos(0).build();
+    assertEncodedAsAdapter(Collections.singletonList(span), null);
+  }
+
+  @Test
+  public void encode_NegativeTimes() throws IOException {
+    SpanData span =
+        newSpanBuilder()
+            .setStartEpochNanos(-1_500_000_000L)
+            .setEndEpochNanos(-2_700_000_000L)
+            .build();
+    assertEncodedAsAdapter(Collections.singletonList(span), PROCESS);
+  }
+
+  @Test
+  public void encode_NoSpans() throws IOException {
+    assertEncodedAsAdapter(Collections.<SpanData>emptyList(), PROCESS);
+  }
+
+  @Test
+  public void encode_GrowsBufferAndShrinksRequest() throws IOException {
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      spans.add(
+          newSpanBuilder()
+              .setName("span_" + i)
+              .setAttributes(
+                  Collections.singletonMap(
+                      "attribute", AttributeValue.stringAttributeValue("value_" + i)))
+              .build());
+    }
+    assertEncodedAsAdapter(spans, PROCESS);
+    assertEncodedAsAdapter(spans.subList(0, 1), PROCESS);
+  }
+
+  @Test
+  public void encode_SplitsAtMaxRequestBytes() throws IOException {
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      spans.add(newSpanBuilder().setName("span_" + i).build());
+    }
+    int maxRequestBytes = adapterRequest(spans.subList(0, 4), PROCESS).length;
+
+    assertThat(encoder.encode(spans, 0, PROCESS, maxRequestBytes)).isEqualTo(4);
+    assertEncoded(spans.subList(0, 4), PROCESS);
+    assertThat(encoder.encode(spans, 4, PROCESS, maxRequestBytes)).isEqualTo(8);
+    assertEncoded(spans.subList(4, 8), PROCESS);
+    assertThat(encoder.encode(spans, 8, PROCESS, maxRequestBytes)).isEqualTo(10);
+    assertEncoded(spans.subList(8, 10), PROCESS);
+  }
+
+  @Test
+  public void encode_SpanLargerThanMaxRequestBytes() throws IOException {
+    List<SpanData> spans =
+        Arrays.asList(
+            newSpanBuilder().setName("first").build(), newSpanBuilder().setName("second").build());
+
+    assertThat(encoder.encode(spans, 1, PROCESS, 1)).isEqualTo(2);
+    assertEncoded(spans.subList(1, 2), PROCESS);
+    assertThat(PostSpansRequestEncoder.requestSize(0)).isEqualTo(2);
+  }
+
+  private void assertEncodedAsAdapter(List<SpanData> spans, @Nullable Model.Process process)
+      throws IOException {
+    encoder.encode(spans, process);
+    assertEncoded(spans, process);
+  }
+
+  private void assertEncoded(List<SpanData> spans, @Nullable Model.Process process)
+      throws IOException {
+    byte[] expected = adapterRequest(spans, process);
+    assertThat(encoder.getLength()).isEqualTo(expected.length);
+    InputStream stream = encoder.newInputStream();
+    assertThat(stream.available()).isEqualTo(expected.length);
+    byte[] encoded = new byte[expected.length];
+    assertThat(stream.read(encoded)).isEqualTo(expected.length);
+    assertThat(stream.read()).isEqualTo(-1);
+    assertThat(encoded).isEqualTo(expected);
+  }
+
+  private static byte[] adapterRequest(List<SpanData> spans, @Nullable Model.Process process) {
+    Model.Batch.Builder batch = Model.Batch.newBuilder().addAllSpans(Adapter.toJaeger(spans));
+    if (process != null) {
+      batch.setProcess(process);
+    }
+    return Collector.PostSpansRequest.newBuilder().setBatch(batch).build().toByteArray();
+  }
+
+  private static SpanData.Builder newSpanBuilder() {
+    return SpanData.newBuilder()
+        .setTraceId(TRACE_ID)
+        .setSpanId(SPAN_ID)
+        .setName("GET /api/endpoint")
+        .setStartEpochNanos(1_000_000_001L)
+        .setEndEpochNanos(3_500_000_000L)
+        .setKind(Kind.SERVER)
+        .setStatus(Status.OK)
+        .setLinks(Collections.<Link>emptyList());
+  }
+}
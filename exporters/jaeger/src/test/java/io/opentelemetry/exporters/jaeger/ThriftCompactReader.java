@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.jaeger;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the messages of the Thrift compact protocol, to check the packets encoded by the {@link
+ * EmitBatchEncoder}. The structs are read as maps from the field ids to the values, the lists as
+ * lists and the binary values as UTF-8 strings.
+ */
+final class ThriftCompactReader {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final byte[] bytes;
+  private final int end;
+  private int position;
+
+  ThriftCompactReader(byte[] bytes, int offset, int length) {
+    this.bytes = bytes;
+    this.position = offset;
+    this.end = offset + length;
+  }
+
+  /** A message, with the fields of its arguments. */
+  static final class Message {
+    final String name;
+    final int type;
+    final int sequenceId;
+    final Map<Integer, Object> arguments;
+
+    private Message(String name, int type, int sequenceId, Map<Integer, Object> arguments) {
+      this.name = name;
+      this.type = type;
+      this.sequenceId = sequenceId;
+      this.arguments = arguments;
+    }
+  }
+
+  Message readMessage() {
+    if ((readByte() & 0xFF) != 0x82) {
+      throw new IllegalStateException("Not the compact protocol");
+    }
+    int versionAndType = readByte() & 0xFF;
+    if ((versionAndType & 0x1F) != 1) {
+      throw new IllegalStateException("Unknown version");
+    }
+    int sequenceId = (int) readVarint();
+    String name = readString();
+    Map<Integer, Object> arguments = readStruct();
+    if (position != end) {
+      throw new IllegalStateException((end - position) + " bytes after the message");
+    }
+    return new Message(name, versionAndType >>> 5, sequenceId, arguments);
+  }
+
+  private Map<Integer, Object> readStruct() {
+    Map<Integer, Object> fields = new LinkedHashMap<>();
+    int lastFieldId = 0;
+    while (true) {
+      int header = readByte() & 0xFF;
+      if (header == 0) {
+        return fields;
+      }
+      int type = header & 0x0F;
+      int delta = header >>> 4;
+      int fieldId = delta == 0 ? (int) zigZagDecode(readVarint()) : lastFieldId + delta;
+      Object value;
+      if (type == 1 || type == 2) {
+        // The value of a boolean field is its type.
+        value = type == 1;
+      } else {
+        value = readValue(type);
+      }
+      if (fields.put(fieldId, value) != null) {
+        throw new IllegalStateException("Duplicate field " + fieldId);
+      }
+      lastFieldId = fieldId;
+    }
+  }
+
+  private Object readValue(int type) {
+    switch (type) {
+      case 1:
+      case 2:
+        return readByte() == 1;
+      case 3:
+        return readByte();
+      case 4:
+        return (short) zigZagDecode(readVarint());
+      case 5:
+        return (int) zigZagDecode(readVarint());
+      case 6:
+        return zigZagDecode(readVarint());
+      case 7:
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+          bits |= (readByte() & 0xFFL) << (8 * i);
+        }
+        return Double.longBitsToDouble(bits);
+      case 8:
+        return readString();
+      case 9:
+        return readList();
+      case 12:
+        return readStruct();
+      default:
+        throw new IllegalStateException("Unsupported type " + type);
+    }
+  }
+
+  private List<Object> readList() {
+    int header = readByte() & 0xFF;
+    int size = header >>> 4;
+    if (size == 15) {
+      size = (int) readVarint();
+    } else if (size > 14) {
+      throw new IllegalStateException("Invalid list size");
+    }
+    int elementType = header & 0x0F;
+    List<Object> elements = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      elements.add(readValue(elementType));
+    }
+    return elements;
+  }
+
+  private String readString() {
+    int length = (int) readVarint();
+    if (position + length > end) {
+      throw new IllegalStateException("Truncated string");
+    }
+    String value = new String(bytes, position, length, UTF_8);
+    position += length;
+    return value;
+  }
+
+  private long readVarint() {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed varint");
+  }
+
+  private static long zigZagDecode(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private byte readByte() {
+    if (position >= end) {
+      throw new IllegalStateException("Truncated message");
+    }
+    return bytes[position++];
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.opentelemetry.exporters.otprotocol;
+
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A stream of an encoded request, which gRPC writes to the transport straight from the buffer of
+ * the encoder.
+ */
+final class DrainableBufferInputStream extends ByteArrayInputStream
+    implements KnownLength, Drainable {
+
+  /**
+   * Creates a stream of the first {@code length} bytes of the given buffer, without copying them.
+   *
+   * @param buffer the buffer of the encoded request.
+   * @param length the length of the encoded request.
+   */
+  DrainableBufferInputStream(byte[] buffer, int length) {
+    super(buffer, 0, length);
+  }
+
+  @Override
+  public int drainTo(OutputStream target) throws IOException {
+    int drained = count - pos;
+    target.write(buf, pos, drained);
+    pos = count;
+    return drained;
+  }
+}
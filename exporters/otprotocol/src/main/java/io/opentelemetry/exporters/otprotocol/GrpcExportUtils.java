@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.opentelemetry.exporters.otprotocol;
+
+import com.google.protobuf.Empty;
+import io.grpc.CallOptions;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoUtils;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/** Utilities shared by the gRPC exporters of this package. */
+final class GrpcExportUtils {
+  private GrpcExportUtils() {}
+
+  /**
+   * Returns the unary {@code Export} method of the given collector service. The request is
+   * streamed from the buffer of the encoder, the response has no fields.
+   *
+   * @param serviceName the full name of the collector service.
+   * @param <T> the type of the encoder of the requests.
+   * @return the {@code Export} method.
+   */
+  static <T extends RequestEncoder> MethodDescriptor<T, Empty> newExportMethod(
+      String serviceName) {
+    return MethodDescriptor.<T, Empty>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(MethodDescriptor.generateFullMethodName(serviceName, "Export"))
+        .setRequestMarshaller(new RequestMarshaller<T>())
+        .setResponseMarshaller(ProtoUtils.marshaller(Empty.getDefaultInstance()))
+        .build();
+  }
+
+  /**
+   * Returns the options of an export call with the given deadline.
+   *
+   * @param deadline the max waiting time in milliseconds, no deadline if 0 or negative.
+   * @return the options of the call.
+   */
+  static CallOptions callOptions(long deadline) {
+    CallOptions callOptions = CallOptions.DEFAULT;
+    if (deadline > 0) {
+      callOptions = callOptions.withDeadlineAfter(deadline, TimeUnit.MILLISECONDS);
+    }
+    return callOptions;
+  }
+
+  /**
+   * Returns whether an export that failed with the given status can be retried.
+   *
+   * @param status the status of the failed call.
+   * @return whether the export can be retried.
+   */
+  static boolean isRetryable(Status status) {
+    switch (status.getCode()) {
+      case DEADLINE_EXCEEDED:
+      case UNAVAILABLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static final class RequestMarshaller<T extends RequestEncoder>
+      implements MethodDescriptor.Marshaller<T> {
+    @Override
+    public InputStream stream(T encoder) {
+      return encoder.newInputStream();
+    }
+
+    @Override
+    public T parse(InputStream stream) {
+      throw new UnsupportedOperationException("Only used to send requests");
+    }
+  }
+}
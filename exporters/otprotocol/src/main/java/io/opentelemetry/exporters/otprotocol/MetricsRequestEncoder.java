@@ -0,0 +1,308 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.otprotocol;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import io.opentelemetry.sdk.metrics.MetricData;
+import io.opentelemetry.sdk.metrics.MetricDescriptor;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Encodes {@link MetricData} as an OTLP {@code ExportMetricsServiceRequest}, straight into a
+ * buffer that is reused by the following requests.
+ *
+ * <p>The encoding takes two passes: the first one computes the size of every nested message, the
+ * second one writes the messages with a {@link CodedOutputStream} over the buffer. Nothing is
+ * allocated per point, so an export only allocates for the buffer when it grows.
+ */
+@NotThreadSafe
+final class MetricsRequestEncoder extends RequestEncoder {
+  private static final int INITIAL_SIZES = 64;
+
+  // The field numbers of opentelemetry/proto/collector/metrics/v1/metrics_service.proto and
+  // opentelemetry/proto/metrics/v1/metrics.proto in opentelemetry-proto v0.3.0, the version of the
+  // TraceRequestEncoder too. The metrics are nested in a single InstrumentationLibraryMetrics of a
+  // single ResourceMetrics, MetricData has neither a resource nor an instrumentation library.
+  private static final int REQUEST_RESOURCE_METRICS = 1;
+  private static final int RESOURCE_METRICS_INSTRUMENTATION_LIBRARY_METRICS = 2;
+  private static final int LIBRARY_METRICS_METRICS = 2;
+  private static final int METRIC_METRIC_DESCRIPTOR = 1;
+  private static final int METRIC_INT64_DATA_POINTS = 2;
+  private static final int METRIC_DOUBLE_DATA_POINTS = 3;
+  private static final int METRIC_HISTOGRAM_DATA_POINTS = 4;
+  private static final int DESCRIPTOR_NAME = 1;
+  private static final int DESCRIPTOR_DESCRIPTION = 2;
+  private static final int DESCRIPTOR_UNIT = 3;
+  private static final int DESCRIPTOR_TYPE = 4;
+  private static final int DESCRIPTOR_LABELS = 5;
+  private static final int KEY_VALUE_KEY = 1;
+  private static final int KEY_VALUE_VALUE = 2;
+  private static final int POINT_LABELS = 1;
+  private static final int POINT_START_TIME_UNIX_NANO = 2;
+  private static final int POINT_TIME_UNIX_NANO = 3;
+  private static final int POINT_VALUE = 4;
+  private static final int HISTOGRAM_COUNT = 4;
+  private static final int HISTOGRAM_SUM = 5;
+  private static final int HISTOGRAM_BUCKETS = 6;
+  private static final int HISTOGRAM_EXPLICIT_BOUNDS = 7;
+  private static final int BUCKET_COUNT = 1;
+
+  // The values of MetricDescriptor.Type.
+  private static final int TYPE_GAUGE_INT64 = 1;
+  private static final int TYPE_GAUGE_DOUBLE = 2;
+  private static final int TYPE_COUNTER_INT64 = 4;
+  private static final int TYPE_COUNTER_DOUBLE = 5;
+  private static final int TYPE_CUMULATIVE_HISTOGRAM = 6;
+
+  // The sizes of the metrics and of their points computed by the first pass, in the order they are
+  // written by the second one.
+  private int[] sizes = new int[INITIAL_SIZES];
+  private int sizeCount;
+  private int sizeIndex;
+
+  /**
+   * Encodes the given metrics, replacing the previous request.
+   *
+   * @param metrics the metrics to encode.
+   * @throws IOException if the computed sizes don't match the encoded messages.
+   */
+  void encode(Collection<MetricData> metrics) throws IOException {
+    sizeCount = 0;
+    int libraryMetricsSize = 0;
+    for (MetricData metric : metrics) {
+      libraryMetricsSize += lengthDelimitedSize(LIBRARY_METRICS_METRICS, metricSize(metric));
+    }
+    int resourceMetricsSize =
+        lengthDelimitedSize(RESOURCE_METRICS_INSTRUMENTATION_LIBRARY_METRICS, libraryMetricsSize);
+    CodedOutputStream output =
+        newOutput(lengthDelimitedSize(REQUEST_RESOURCE_METRICS, resourceMetricsSize));
+    sizeIndex = 0;
+    writeLengthDelimitedTag(output, REQUEST_RESOURCE_METRICS, resourceMetricsSize);
+    writeLengthDelimitedTag(
+        output, RESOURCE_METRICS_INSTRUMENTATION_LIBRARY_METRICS, libraryMetricsSize);
+    for (MetricData metric : metrics) {
+      writeMetric(output, metric);
+    }
+    output.checkNoSpaceLeft();
+  }
+
+  private int metricSize(MetricData metric) {
+    int slot = reserveSize();
+    MetricDescriptor descriptor = metric.getMetricDescriptor();
+    int size = lengthDelimitedSize(METRIC_METRIC_DESCRIPTOR, descriptorSize(descriptor));
+    int pointsField = pointsField(descriptor.getType());
+    List<String> labelKeys = descriptor.getLabelKeys();
+    for (MetricData.Point point : metric.getPoints()) {
+      size += lengthDelimitedSize(pointsField, pointSize(metric, labelKeys, point));
+    }
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeMetric(CodedOutputStream output, MetricData metric) throws IOException {
+    writeLengthDelimitedTag(output, LIBRARY_METRICS_METRICS, sizes[sizeIndex++]);
+    MetricDescriptor descriptor = metric.getMetricDescriptor();
+    writeDescriptor(output, descriptor);
+    int pointsField = pointsField(descriptor.getType());
+    List<String> labelKeys = descriptor.getLabelKeys();
+    for (MetricData.Point point : metric.getPoints()) {
+      writePoint(output, pointsField, metric, labelKeys, point);
+    }
+  }
+
+  private int descriptorSize(MetricDescriptor descriptor) {
+    int slot = reserveSize();
+    int size =
+        CodedOutputStream.computeStringSize(DESCRIPTOR_NAME, descriptor.getName())
+            + CodedOutputStream.computeStringSize(
+                DESCRIPTOR_DESCRIPTION, descriptor.getDescription())
+            + CodedOutputStream.computeStringSize(DESCRIPTOR_UNIT, descriptor.getUnit())
+            + CodedOutputStream.computeEnumSize(DESCRIPTOR_TYPE, type(descriptor.getType()));
+    for (Map.Entry<String, String> label : descriptor.getConstantLabels().entrySet()) {
+      size +=
+          lengthDelimitedSize(DESCRIPTOR_LABELS, keyValueSize(label.getKey(), label.getValue()));
+    }
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeDescriptor(CodedOutputStream output, MetricDescriptor descriptor)
+      throws IOException {
+    writeLengthDelimitedTag(output, METRIC_METRIC_DESCRIPTOR, sizes[sizeIndex++]);
+    output.writeString(DESCRIPTOR_NAME, descriptor.getName());
+    output.writeString(DESCRIPTOR_DESCRIPTION, descriptor.getDescription());
+    output.writeString(DESCRIPTOR_UNIT, descriptor.getUnit());
+    output.writeEnum(DESCRIPTOR_TYPE, type(descriptor.getType()));
+    for (Map.Entry<String, String> label : descriptor.getConstantLabels().entrySet()) {
+      writeKeyValue(output, DESCRIPTOR_LABELS, label.getKey(), label.getValue());
+    }
+  }
+
+  private int pointSize(MetricData metric, List<String> labelKeys, MetricData.Point point) {
+    int slot = reserveSize();
+    // The points of the default handle have no label values.
+    List<String> labelValues = point.getLabelValues();
+    int size = 0;
+    for (int i = 0; i < labelValues.size(); i++) {
+      size += lengthDelimitedSize(POINT_LABELS, keyValueSize(labelKeys.get(i), labelValues.get(i)));
+    }
+    size +=
+        CodedOutputStream.computeFixed64Size(
+                POINT_START_TIME_UNIX_NANO, metric.getStartEpochNanos())
+            + CodedOutputStream.computeFixed64Size(POINT_TIME_UNIX_NANO, metric.getEpochNanos());
+    if (point instanceof MetricData.LongPoint) {
+      size +=
+          CodedOutputStream.computeInt64Size(
+              POINT_VALUE, ((MetricData.LongPoint) point).getValue());
+    } else if (point instanceof MetricData.DoublePoint) {
+      size +=
+          CodedOutputStream.computeDoubleSize(
+              POINT_VALUE, ((MetricData.DoublePoint) point).getValue());
+    } else {
+      MetricData.DistributionPoint distribution = (MetricData.DistributionPoint) point;
+      size +=
+          CodedOutputStream.computeUInt64Size(HISTOGRAM_COUNT, distribution.getCount())
+              + CodedOutputStream.computeDoubleSize(HISTOGRAM_SUM, distribution.getSum());
+      List<Long> bucketCounts = distribution.getBucketCounts();
+      for (int i = 0; i < bucketCounts.size(); i++) {
+        size +=
+            lengthDelimitedSize(
+                HISTOGRAM_BUCKETS,
+                CodedOutputStream.computeUInt64Size(BUCKET_COUNT, bucketCounts.get(i)));
+      }
+      int boundsSize = boundsSize(distribution.getBucketBoundaries());
+      if (boundsSize > 0) {
+        size += lengthDelimitedSize(HISTOGRAM_EXPLICIT_BOUNDS, boundsSize);
+      }
+    }
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writePoint(
+      CodedOutputStream output,
+      int pointsField,
+      MetricData metric,
+      List<String> labelKeys,
+      MetricData.Point point)
+      throws IOException {
+    writeLengthDelimitedTag(output, pointsField, sizes[sizeIndex++]);
+    List<String> labelValues = point.getLabelValues();
+    for (int i = 0; i < labelValues.size(); i++) {
+      writeKeyValue(output, POINT_LABELS, labelKeys.get(i), labelValues.get(i));
+    }
+    output.writeFixed64(POINT_START_TIME_UNIX_NANO, metric.getStartEpochNanos());
+    output.writeFixed64(POINT_TIME_UNIX_NANO, metric.getEpochNanos());
+    if (point instanceof MetricData.LongPoint) {
+      output.writeInt64(POINT_VALUE, ((MetricData.LongPoint) point).getValue());
+    } else if (point instanceof MetricData.DoublePoint) {
+      output.writeDouble(POINT_VALUE, ((MetricData.DoublePoint) point).getValue());
+    } else {
+      MetricData.DistributionPoint distribution = (MetricData.DistributionPoint) point;
+      output.writeUInt64(HISTOGRAM_COUNT, distribution.getCount());
+      output.writeDouble(HISTOGRAM_SUM, distribution.getSum());
+      List<Long> bucketCounts = distribution.getBucketCounts();
+      for (int i = 0; i < bucketCounts.size(); i++) {
+        long count = bucketCounts.get(i);
+        writeLengthDelimitedTag(
+            output, HISTOGRAM_BUCKETS, CodedOutputStream.computeUInt64Size(BUCKET_COUNT, count));
+        output.writeUInt64(BUCKET_COUNT, count);
+      }
+      List<Double> bounds = distribution.getBucketBoundaries();
+      if (!bounds.isEmpty()) {
+        // Packed, like all the repeated scalars of proto3.
+        writeLengthDelimitedTag(output, HISTOGRAM_EXPLICIT_BOUNDS, boundsSize(bounds));
+        for (int i = 0; i < bounds.size(); i++) {
+          output.writeDoubleNoTag(bounds.get(i));
+        }
+      }
+    }
+  }
+
+  private int reserveSize() {
+    if (sizeCount == sizes.length) {
+      sizes = Arrays.copyOf(sizes, 2 * sizes.length);
+    }
+    return sizeCount++;
+  }
+
+  private static int keyValueSize(String key, String value) {
+    return CodedOutputStream.computeStringSize(KEY_VALUE_KEY, key)
+        + CodedOutputStream.computeStringSize(KEY_VALUE_VALUE, value);
+  }
+
+  private static void writeKeyValue(
+      CodedOutputStream output, int fieldNumber, String key, String value) throws IOException {
+    writeLengthDelimitedTag(output, fieldNumber, keyValueSize(key, value));
+    output.writeString(KEY_VALUE_KEY, key);
+    output.writeString(KEY_VALUE_VALUE, value);
+  }
+
+  private static int boundsSize(List<Double> bounds) {
+    return bounds.size() * CodedOutputStream.computeDoubleSizeNoTag(0);
+  }
+
+  private static int lengthDelimitedSize(int fieldNumber, int size) {
+    return CodedOutputStream.computeTagSize(fieldNumber)
+        + CodedOutputStream.computeUInt32SizeNoTag(size)
+        + size;
+  }
+
+  private static void writeLengthDelimitedTag(CodedOutputStream output, int fieldNumber, int size)
+      throws IOException {
+    output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(size);
+  }
+
+  private static int pointsField(MetricDescriptor.Type type) {
+    switch (type) {
+      case NON_MONOTONIC_INT64:
+      case MONOTONIC_INT64:
+        return METRIC_INT64_DATA_POINTS;
+      case NON_MONOTONIC_DOUBLE:
+      case MONOTONIC_DOUBLE:
+        return METRIC_DOUBLE_DATA_POINTS;
+      case DISTRIBUTION:
+        return METRIC_HISTOGRAM_DATA_POINTS;
+    }
+    throw new IllegalArgumentException("Unknown metric type " + type);
+  }
+
+  // The monotonic metrics are exported as counters, which OTLP v0.3.0 defines as cumulative since
+  // the start time: the exporter only supports a MeterSdk with the cumulative temporality.
+  private static int type(MetricDescriptor.Type type) {
+    switch (type) {
+      case NON_MONOTONIC_INT64:
+        return TYPE_GAUGE_INT64;
+      case NON_MONOTONIC_DOUBLE:
+        return TYPE_GAUGE_DOUBLE;
+      case MONOTONIC_INT64:
+        return TYPE_COUNTER_INT64;
+      case MONOTONIC_DOUBLE:
+        return TYPE_COUNTER_DOUBLE;
+      case DISTRIBUTION:
+        return TYPE_CUMULATIVE_HISTOGRAM;
+    }
+    throw new IllegalArgumentException("Unknown metric type " + type);
+  }
+}
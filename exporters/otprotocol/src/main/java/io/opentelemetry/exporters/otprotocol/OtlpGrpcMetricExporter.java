@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.otprotocol;
+
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.metrics.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Exports metrics to the OpenTelemetry collector via gRPC, using the OpenTelemetry protocol.
+ *
+ * <p>Every export is encoded into a buffer that is reused by the following exports, so exporting
+ * only allocates in proportion to the exported points when the buffer grows.
+ *
+ * <p>Only the cumulative temporality is supported: the {@code MeterSdk} must be built with {@code
+ * Temporality.CUMULATIVE}. OTLP v0.3.0 has no delta types, and a {@link MetricData} doesn't say
+ * whether its monotonic points are deltas (counters) or totals (gauges and observers), so the
+ * delta points can't be encoded with the right type. As a consequence every export carries all the
+ * series that ever recorded a value, not only the ones that changed since the previous export.
+ */
+@ThreadSafe
+public final class OtlpGrpcMetricExporter implements MetricExporter {
+  private static final Logger logger = Logger.getLogger(OtlpGrpcMetricExporter.class.getName());
+  static final String SERVICE_NAME = "opentelemetry.proto.collector.metrics.v1.MetricsService";
+
+  static final MethodDescriptor<MetricsRequestEncoder, Empty> EXPORT_METHOD =
+      GrpcExportUtils.newExportMethod(SERVICE_NAME);
+
+  private final ManagedChannel managedChannel;
+  private final long deadline;
+
+  @GuardedBy("this")
+  private final MetricsRequestEncoder encoder = new MetricsRequestEncoder();
+
+  private OtlpGrpcMetricExporter(ManagedChannel channel, long deadline) {
+    this.managedChannel = channel;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Submits all the given metrics in a single request to the OpenTelemetry collector.
+   *
+   * @param metrics the collection of metrics to be exported.
+   * @return the result of the operation.
+   */
+  @Override
+  public synchronized ResultCode export(Collection<MetricData> metrics) {
+    if (metrics.isEmpty()) {
+      return ResultCode.SUCCESS;
+    }
+    try {
+      encoder.encode(metrics);
+    } catch (Throwable t) {
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+    try {
+      // for now, there's nothing to check in the response object
+      ClientCalls.blockingUnaryCall(
+          managedChannel, EXPORT_METHOD, GrpcExportUtils.callOptions(deadline), encoder);
+      return ResultCode.SUCCESS;
+    } catch (StatusRuntimeException e) {
+      return toResultCode(e.getStatus());
+    } catch (Throwable t) {
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+  }
+
+  private static ResultCode toResultCode(Status status) {
+    return GrpcExportUtils.isRetryable(status)
+        ? ResultCode.FAILED_RETRYABLE
+        : ResultCode.FAILED_NOT_RETRYABLE;
+  }
+
+  /**
+   * Creates a new builder instance.
+   *
+   * @return a new instance builder for this exporter
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Initiates an orderly shutdown in which preexisting calls continue but new calls are immediately
+   * cancelled. The channel is forcefully closed after a timeout.
+   */
+  @Override
+  public void shutdown() {
+    try {
+      managedChannel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      logger.log(Level.WARNING, "Failed to shutdown the gRPC channel", e);
+    }
+  }
+
+  /** Builder utility for this exporter. */
+  public static final class Builder {
+    private ManagedChannel channel;
+    private long deadline = 1_000; // ms
+
+    /**
+     * Sets the managed chanel to use when communicating with the collector. Required.
+     *
+     * @param channel the channel to use
+     * @return this builder's instance
+     */
+    public Builder setChannel(ManagedChannel channel) {
+      this.channel = Utils.checkNotNull(channel, "channel");
+      return this;
+    }
+
+    /**
+     * Sets the max waiting time in milliseconds for the collector to process each request. When
+     * set to 0 or to a negative value, the exporter will wait indefinitely. Optional.
+     *
+     * @param deadline the max waiting time
+     * @return this builder's instance
+     */
+    public Builder setDeadline(long deadline) {
+      this.deadline = deadline;
+      return this;
+    }
+
+    /**
+     * Constructs a new instance of the exporter based on the builder's values.
+     *
+     * @return a new exporter's instance
+     */
+    public OtlpGrpcMetricExporter build() {
+      Utils.checkNotNull(channel, "channel");
+      return new OtlpGrpcMetricExporter(channel, deadline);
+    }
+
+    private Builder() {}
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.otprotocol;
+
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.export.AsyncSpanExporter;
+import io.opentelemetry.sdk.trace.export.CompletableResultCode;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Exports spans to the OpenTelemetry collector via gRPC, using the OpenTelemetry protocol.
+ *
+ * <p>The spans are grouped by resource and by instrumentation library, so each resource is encoded
+ * once per request. The requests are encoded straight into the wire format by a pool of encoders,
+ * with one per export in flight, which reuse their buffers and their groups.
+ *
+ * <p>Implements {@link AsyncSpanExporter}, so the {@code BatchSpansProcessor} can keep multiple
+ * exports in flight on the channel instead of blocking its worker thread on every call.
+ */
+@ThreadSafe
+public final class OtlpGrpcSpanExporter implements AsyncSpanExporter {
+  private static final Logger logger = Logger.getLogger(OtlpGrpcSpanExporter.class.getName());
+  static final String SERVICE_NAME = "opentelemetry.proto.collector.trace.v1.TraceService";
+  // Enough for the exports usually in flight, more encoders are created when needed.
+  private static final int MAX_POOLED_ENCODERS = 4;
+
+  static final MethodDescriptor<TraceRequestEncoder, Empty> EXPORT_METHOD =
+      GrpcExportUtils.newExportMethod(SERVICE_NAME);
+
+  private final ManagedChannel managedChannel;
+  private final long deadline;
+
+  @GuardedBy("encoders")
+  private final Deque<TraceRequestEncoder> encoders = new ArrayDeque<>();
+
+  private OtlpGrpcSpanExporter(ManagedChannel channel, long deadline) {
+    this.managedChannel = channel;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Submits all the given spans in a single request to the OpenTelemetry collector.
+   *
+   * @param spans the list of sampled Spans to be exported.
+   * @return the result of the operation.
+   */
+  @Override
+  public ResultCode export(List<SpanData> spans) {
+    if (spans.isEmpty()) {
+      return ResultCode.SUCCESS;
+    }
+    TraceRequestEncoder encoder = acquireEncoder();
+    try {
+      encoder.encode(spans);
+      // for now, there's nothing to check in the response object
+      ClientCalls.blockingUnaryCall(
+          managedChannel, EXPORT_METHOD, GrpcExportUtils.callOptions(deadline), encoder);
+      return ResultCode.SUCCESS;
+    } catch (StatusRuntimeException e) {
+      return toResultCode(e.getStatus());
+    } catch (Throwable t) {
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    } finally {
+      releaseEncoder(encoder);
+    }
+  }
+
+  /**
+   * Submits all the given spans in a single request to the OpenTelemetry collector, without
+   * waiting for the collector to respond.
+   *
+   * @param spans the list of sampled Spans to be exported.
+   * @return the result of the operation, completed when the collector responds, the call fails or
+   *     the deadline expires.
+   */
+  @Override
+  public CompletableResultCode exportAsync(List<SpanData> spans) {
+    if (spans.isEmpty()) {
+      return CompletableResultCode.ofResultCode(ResultCode.SUCCESS);
+    }
+    final TraceRequestEncoder encoder = acquireEncoder();
+    try {
+      encoder.encode(spans);
+    } catch (Throwable t) {
+      releaseEncoder(encoder);
+      return CompletableResultCode.ofResultCode(ResultCode.FAILED_NOT_RETRYABLE);
+    }
+    final CompletableResultCode result = new CompletableResultCode();
+    try {
+      ClientCalls.asyncUnaryCall(
+          managedChannel.newCall(EXPORT_METHOD, GrpcExportUtils.callOptions(deadline)),
+          encoder,
+          new StreamObserver<Empty>() {
+            @Override
+            public void onNext(Empty response) {
+              // for now, there's nothing to check in the response object
+            }
+
+            @Override
+            public void onError(Throwable t) {
+              releaseEncoder(encoder);
+              result.complete(toResultCode(Status.fromThrowable(t)));
+            }
+
+            @Override
+            public void onCompleted() {
+              releaseEncoder(encoder);
+              result.complete(ResultCode.SUCCESS);
+            }
+          });
+    } catch (Throwable t) {
+      // The call may still use the encoder, it is not released.
+      result.complete(ResultCode.FAILED_NOT_RETRYABLE);
+    }
+    return result;
+  }
+
+  private TraceRequestEncoder acquireEncoder() {
+    synchronized (encoders) {
+      TraceRequestEncoder encoder = encoders.poll();
+      if (encoder != null) {
+        return encoder;
+      }
+    }
+    return new TraceRequestEncoder();
+  }
+
+  // The encoder must not be used by a call anymore.
+  private void releaseEncoder(TraceRequestEncoder encoder) {
+    synchronized (encoders) {
+      if (encoders.size() < MAX_POOLED_ENCODERS) {
+        encoders.push(encoder);
+      }
+    }
+  }
+
+  private static ResultCode toResultCode(Status status) {
+    return GrpcExportUtils.isRetryable(status)
+        ? ResultCode.FAILED_RETRYABLE
+        : ResultCode.FAILED_NOT_RETRYABLE;
+  }
+
+  /**
+   * Creates a new builder instance.
+   *
+   * @return a new instance builder for this exporter
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Initiates an orderly shutdown in which preexisting calls continue but new calls are immediately
+   * cancelled. The channel is forcefully closed after a timeout.
+   */
+  @Override
+  public void shutdown() {
+    try {
+      managedChannel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      logger.log(Level.WARNING, "Failed to shutdown the gRPC channel", e);
+    }
+  }
+
+  /** Builder utility for this exporter. */
+  public static final class Builder {
+    private ManagedChannel channel;
+    private long deadline = 1_000; // ms
+
+    /**
+     * Sets the managed chanel to use when communicating with the collector. Required.
+     *
+     * @param channel the channel to use
+     * @return this builder's instance
+     */
+    public Builder setChannel(ManagedChannel channel) {
+      this.channel = Utils.checkNotNull(channel, "channel");
+      return this;
+    }
+
+    /**
+     * Sets the max waiting time in milliseconds for the collector to process each request. When
+     * set to 0 or to a negative value, the exporter will wait indefinitely. Optional.
+     *
+     * @param deadline the max waiting time
+     * @return this builder's instance
+     */
+    public Builder setDeadline(long deadline) {
+      this.deadline = deadline;
+      return this;
+    }
+
+    /**
+     * Constructs a new instance of the exporter based on the builder's values.
+     *
+     * @return a new exporter's instance
+     */
+    public OtlpGrpcSpanExporter build() {
+      Utils.checkNotNull(channel, "channel");
+      return new OtlpGrpcSpanExporter(channel, deadline);
+    }
+
+    private Builder() {}
+  }
+}
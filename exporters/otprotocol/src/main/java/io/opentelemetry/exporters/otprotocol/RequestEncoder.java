@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.opentelemetry.exporters.otprotocol;
+
+import com.google.protobuf.CodedOutputStream;
+import java.io.InputStream;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Base class of the encoders of the OTLP requests, which encode each request into a buffer that is
+ * reused by the following requests.
+ */
+@NotThreadSafe
+abstract class RequestEncoder {
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+
+  private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+  private int length;
+
+  /**
+   * Returns an output that writes a request of the given length into the buffer, replacing the
+   * previous request. The buffer only grows when it is too small for the request.
+   *
+   * @param length the length of the request.
+   * @return an output over the buffer, with exactly {@code length} bytes of space.
+   */
+  final CodedOutputStream newOutput(int length) {
+    if (buffer.length < length) {
+      buffer = new byte[Math.max(length, 2 * buffer.length)];
+    }
+    this.length = length;
+    return CodedOutputStream.newInstance(buffer, 0, length);
+  }
+
+  /**
+   * Returns the length of the encoded request.
+   *
+   * @return the length of the encoded request.
+   */
+  final int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns a stream of the encoded request, valid until the next request is encoded.
+   *
+   * @return a stream of the encoded request.
+   */
+  final InputStream newInputStream() {
+    return new DrainableBufferInputStream(buffer, length);
+  }
+}
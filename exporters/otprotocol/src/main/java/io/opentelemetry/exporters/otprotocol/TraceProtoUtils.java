@@ -17,12 +17,16 @@
 package io.opentelemetry.exporters.otprotocol;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.opentelemetry.proto.trace.v1.ConstantSampler;
 import io.opentelemetry.sdk.trace.Sampler;
 import io.opentelemetry.sdk.trace.Samplers;
 import io.opentelemetry.sdk.trace.config.TraceConfig;
 import io.opentelemetry.trace.SpanId;
 import io.opentelemetry.trace.TraceId;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
 
 /** Utilities for converting various objects to protobuf representations. */
 public class TraceProtoUtils {
@@ -37,7 +41,8 @@ public class TraceProtoUtils {
   public static ByteString toProtoSpanId(SpanId spanId) {
     byte[] spanIdBytes = new byte[SpanId.getSize()];
     spanId.copyBytesTo(spanIdBytes, 0);
-    return ByteString.copyFrom(spanIdBytes);
+    // The array is not shared, so it doesn't need to be copied.
+    return UnsafeByteOperations.unsafeWrap(spanIdBytes);
   }
 
   /**
@@ -49,7 +54,75 @@ public class TraceProtoUtils {
   public static ByteString toProtoTraceId(TraceId traceId) {
     byte[] traceIdBytes = new byte[TraceId.getSize()];
     traceId.copyBytesTo(traceIdBytes, 0);
-    return ByteString.copyFrom(traceIdBytes);
+    // The array is not shared, so it doesn't need to be copied.
+    return UnsafeByteOperations.unsafeWrap(traceIdBytes);
+  }
+
+  /**
+   * Returns a new {@link IdCache}, to convert the ids of a batch of spans.
+   *
+   * @return a new {@code IdCache}.
+   */
+  public static IdCache newIdCache() {
+    return new IdCache();
+  }
+
+  /**
+   * Converts the ids of a batch of spans into protobuf ByteStrings, converting each trace id and
+   * each referenced span id only once. The spans of a batch usually share a few trace ids, and
+   * several spans reference the same parent. The span ids of the spans themselves are only looked
+   * up, most of them are never referenced: caching them would cost a map entry per span. A span
+   * usually ends after its children, so its id is already cached when it is converted.
+   */
+  @NotThreadSafe
+  public static final class IdCache {
+    private final Map<TraceId, ByteString> traceIds = new HashMap<>();
+    private final Map<SpanId, ByteString> spanIds = new HashMap<>();
+
+    private IdCache() {}
+
+    /**
+     * Converts a TraceId into a protobuf ByteString, or returns the one already converted.
+     *
+     * @param traceId the traceId to convert.
+     * @return a ByteString representation.
+     */
+    public ByteString toProtoTraceId(TraceId traceId) {
+      ByteString protoTraceId = traceIds.get(traceId);
+      if (protoTraceId == null) {
+        protoTraceId = TraceProtoUtils.toProtoTraceId(traceId);
+        traceIds.put(traceId, protoTraceId);
+      }
+      return protoTraceId;
+    }
+
+    /**
+     * Converts a SpanId into a protobuf ByteString, or returns the one already converted by {@link
+     * #toProtoReferencedSpanId(SpanId)}. The converted id is not cached.
+     *
+     * @param spanId the spanId to convert.
+     * @return a ByteString representation.
+     */
+    public ByteString toProtoSpanId(SpanId spanId) {
+      ByteString protoSpanId = spanIds.get(spanId);
+      return protoSpanId != null ? protoSpanId : TraceProtoUtils.toProtoSpanId(spanId);
+    }
+
+    /**
+     * Converts the SpanId of a parent or of a linked span into a protobuf ByteString, or returns
+     * the one already converted.
+     *
+     * @param spanId the spanId to convert.
+     * @return a ByteString representation.
+     */
+    public ByteString toProtoReferencedSpanId(SpanId spanId) {
+      ByteString protoSpanId = spanIds.get(spanId);
+      if (protoSpanId == null) {
+        protoSpanId = TraceProtoUtils.toProtoSpanId(spanId);
+        spanIds.put(spanId, protoSpanId);
+      }
+      return protoSpanId;
+    }
   }
 
   /**
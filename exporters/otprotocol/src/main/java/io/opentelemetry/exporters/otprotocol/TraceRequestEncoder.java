@@ -0,0 +1,560 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.otprotocol;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.InstrumentationLibraryInfo;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.Tracestate;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Encodes {@link SpanData} as an OTLP {@code ExportTraceServiceRequest}, straight into a buffer
+ * that is reused by the following requests.
+ *
+ * <p>The spans are grouped by {@link Resource} and then by {@link InstrumentationLibraryInfo}, so
+ * each resource and each library is encoded once per request instead of once per span. The groups
+ * are kept for the following requests, which usually export spans of the same groups.
+ *
+ * <p>Like the {@link MetricsRequestEncoder}, the encoding takes two passes: the first one computes
+ * the size of every nested message, the second one writes the messages with a {@link
+ * CodedOutputStream} over the buffer.
+ */
+@NotThreadSafe
+final class TraceRequestEncoder extends RequestEncoder {
+  private static final int INITIAL_SIZES = 64;
+
+  // The field numbers of opentelemetry/proto/collector/trace/v1/trace_service.proto,
+  // opentelemetry/proto/trace/v1/trace.proto, opentelemetry/proto/resource/v1/resource.proto and
+  // opentelemetry/proto/common/v1/common.proto in opentelemetry-proto v0.3.0.
+  private static final int REQUEST_RESOURCE_SPANS = 1;
+  private static final int RESOURCE_SPANS_RESOURCE = 1;
+  private static final int RESOURCE_SPANS_INSTRUMENTATION_LIBRARY_SPANS = 2;
+  private static final int RESOURCE_ATTRIBUTES = 1;
+  private static final int LIBRARY_SPANS_INSTRUMENTATION_LIBRARY = 1;
+  private static final int LIBRARY_SPANS_SPANS = 2;
+  private static final int LIBRARY_NAME = 1;
+  private static final int LIBRARY_VERSION = 2;
+  private static final int SPAN_TRACE_ID = 1;
+  private static final int SPAN_SPAN_ID = 2;
+  private static final int SPAN_TRACESTATE = 3;
+  private static final int SPAN_PARENT_SPAN_ID = 4;
+  private static final int SPAN_NAME = 5;
+  private static final int SPAN_KIND = 6;
+  private static final int SPAN_START_TIME_UNIX_NANO = 7;
+  private static final int SPAN_END_TIME_UNIX_NANO = 8;
+  private static final int SPAN_ATTRIBUTES = 9;
+  private static final int SPAN_EVENTS = 11;
+  private static final int SPAN_LINKS = 13;
+  private static final int SPAN_STATUS = 15;
+  private static final int EVENT_TIME_UNIX_NANO = 1;
+  private static final int EVENT_NAME = 2;
+  private static final int EVENT_ATTRIBUTES = 3;
+  private static final int LINK_TRACE_ID = 1;
+  private static final int LINK_SPAN_ID = 2;
+  private static final int LINK_TRACESTATE = 3;
+  private static final int LINK_ATTRIBUTES = 4;
+  private static final int STATUS_CODE = 1;
+  private static final int STATUS_MESSAGE = 2;
+  private static final int ATTRIBUTE_KEY = 1;
+  private static final int ATTRIBUTE_TYPE = 2;
+  private static final int ATTRIBUTE_STRING_VALUE = 3;
+  private static final int ATTRIBUTE_INT_VALUE = 4;
+  private static final int ATTRIBUTE_DOUBLE_VALUE = 5;
+  private static final int ATTRIBUTE_BOOL_VALUE = 6;
+
+  // The values of AttributeKeyValue.ValueType, STRING is the default one.
+  private static final int TYPE_INT = 1;
+  private static final int TYPE_DOUBLE = 2;
+  private static final int TYPE_BOOL = 3;
+
+  // The values of Span.SpanKind.
+  private static final int KIND_INTERNAL = 1;
+  private static final int KIND_SERVER = 2;
+  private static final int KIND_CLIENT = 3;
+  private static final int KIND_PRODUCER = 4;
+  private static final int KIND_CONSUMER = 5;
+
+  // The spans of the current request, by resource and library, in the order they first appear.
+  private final Map<Resource, Map<InstrumentationLibraryInfo, List<SpanData>>> groups =
+      new LinkedHashMap<>();
+  private final byte[] traceIdBytes = new byte[TraceId.getSize()];
+  private final byte[] spanIdBytes = new byte[SpanId.getSize()];
+  // The sizes of the nested messages computed by the first pass, in the order they are written by
+  // the second one.
+  private int[] sizes = new int[INITIAL_SIZES];
+  private int sizeCount;
+  private int sizeIndex;
+
+  /**
+   * Encodes the given spans, replacing the previous request.
+   *
+   * @param spans the spans to encode.
+   * @throws IOException if the computed sizes don't match the encoded messages.
+   */
+  void encode(List<SpanData> spans) throws IOException {
+    try {
+      group(spans);
+      sizeCount = 0;
+      int requestSize = 0;
+      for (Map.Entry<Resource, Map<InstrumentationLibraryInfo, List<SpanData>>> resourceGroup :
+          groups.entrySet()) {
+        requestSize +=
+            lengthDelimitedSize(
+                REQUEST_RESOURCE_SPANS,
+                resourceSpansSize(resourceGroup.getKey(), resourceGroup.getValue()));
+      }
+      CodedOutputStream output = newOutput(requestSize);
+      sizeIndex = 0;
+      for (Map.Entry<Resource, Map<InstrumentationLibraryInfo, List<SpanData>>> resourceGroup :
+          groups.entrySet()) {
+        writeResourceSpans(output, resourceGroup.getKey(), resourceGroup.getValue());
+      }
+      output.checkNoSpaceLeft();
+    } finally {
+      // Keeps the groups, but not the spans.
+      for (Map<InstrumentationLibraryInfo, List<SpanData>> libraryGroups : groups.values()) {
+        for (List<SpanData> librarySpans : libraryGroups.values()) {
+          librarySpans.clear();
+        }
+      }
+    }
+  }
+
+  private void group(List<SpanData> spans) {
+    // The spans of a tracer share the same Resource and InstrumentationLibraryInfo instances, so
+    // consecutive spans usually skip the lookups, which hash all the labels of the resource.
+    Resource lastResource = null;
+    InstrumentationLibraryInfo lastLibrary = null;
+    List<SpanData> lastSpans = null;
+    for (int i = 0; i < spans.size(); i++) {
+      SpanData span = spans.get(i);
+      Resource resource = span.getResource();
+      InstrumentationLibraryInfo library = span.getInstrumentationLibraryInfo();
+      if (resource != lastResource || library != lastLibrary) {
+        Map<InstrumentationLibraryInfo, List<SpanData>> libraryGroups = groups.get(resource);
+        if (libraryGroups == null) {
+          libraryGroups = new LinkedHashMap<>();
+          groups.put(resource, libraryGroups);
+        }
+        lastSpans = libraryGroups.get(library);
+        if (lastSpans == null) {
+          lastSpans = new ArrayList<>();
+          libraryGroups.put(library, lastSpans);
+        }
+        lastResource = resource;
+        lastLibrary = library;
+      }
+      lastSpans.add(span);
+    }
+    // Drops the groups without spans in this request, so the groups don't accumulate.
+    Iterator<Map<InstrumentationLibraryInfo, List<SpanData>>> resourceGroups =
+        groups.values().iterator();
+    while (resourceGroups.hasNext()) {
+      Map<InstrumentationLibraryInfo, List<SpanData>> libraryGroups = resourceGroups.next();
+      Iterator<List<SpanData>> librarySpans = libraryGroups.values().iterator();
+      while (librarySpans.hasNext()) {
+        if (librarySpans.next().isEmpty()) {
+          librarySpans.remove();
+        }
+      }
+      if (libraryGroups.isEmpty()) {
+        resourceGroups.remove();
+      }
+    }
+  }
+
+  private int resourceSpansSize(
+      Resource resource, Map<InstrumentationLibraryInfo, List<SpanData>> libraryGroups) {
+    int slot = reserveSize();
+    int size = lengthDelimitedSize(RESOURCE_SPANS_RESOURCE, resourceSize(resource));
+    for (Map.Entry<InstrumentationLibraryInfo, List<SpanData>> libraryGroup :
+        libraryGroups.entrySet()) {
+      size +=
+          lengthDelimitedSize(
+              RESOURCE_SPANS_INSTRUMENTATION_LIBRARY_SPANS,
+              librarySpansSize(libraryGroup.getKey(), libraryGroup.getValue()));
+    }
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeResourceSpans(
+      CodedOutputStream output,
+      Resource resource,
+      Map<InstrumentationLibraryInfo, List<SpanData>> libraryGroups)
+      throws IOException {
+    writeLengthDelimitedTag(output, REQUEST_RESOURCE_SPANS, sizes[sizeIndex++]);
+    writeResource(output, resource);
+    for (Map.Entry<InstrumentationLibraryInfo, List<SpanData>> libraryGroup :
+        libraryGroups.entrySet()) {
+      writeLibrarySpans(output, libraryGroup.getKey(), libraryGroup.getValue());
+    }
+  }
+
+  private static int resourceSize(Resource resource) {
+    int size = 0;
+    for (Map.Entry<String, String> label : resource.getLabels().entrySet()) {
+      size +=
+          lengthDelimitedSize(
+              RESOURCE_ATTRIBUTES, stringAttributeSize(label.getKey(), label.getValue()));
+    }
+    return size;
+  }
+
+  private static void writeResource(CodedOutputStream output, Resource resource)
+      throws IOException {
+    writeLengthDelimitedTag(output, RESOURCE_SPANS_RESOURCE, resourceSize(resource));
+    for (Map.Entry<String, String> label : resource.getLabels().entrySet()) {
+      String key = label.getKey();
+      String value = label.getValue();
+      writeLengthDelimitedTag(output, RESOURCE_ATTRIBUTES, stringAttributeSize(key, value));
+      output.writeString(ATTRIBUTE_KEY, key);
+      writeNonEmptyString(output, ATTRIBUTE_STRING_VALUE, value);
+    }
+  }
+
+  private int librarySpansSize(InstrumentationLibraryInfo library, List<SpanData> spans) {
+    int slot = reserveSize();
+    int size = lengthDelimitedSize(LIBRARY_SPANS_INSTRUMENTATION_LIBRARY, librarySize(library));
+    for (int i = 0; i < spans.size(); i++) {
+      size += lengthDelimitedSize(LIBRARY_SPANS_SPANS, spanSize(spans.get(i)));
+    }
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeLibrarySpans(
+      CodedOutputStream output, InstrumentationLibraryInfo library, List<SpanData> spans)
+      throws IOException {
+    writeLengthDelimitedTag(
+        output, RESOURCE_SPANS_INSTRUMENTATION_LIBRARY_SPANS, sizes[sizeIndex++]);
+    writeLengthDelimitedTag(output, LIBRARY_SPANS_INSTRUMENTATION_LIBRARY, librarySize(library));
+    writeNonEmptyString(output, LIBRARY_NAME, library.name());
+    writeNonEmptyString(output, LIBRARY_VERSION, library.version());
+    for (int i = 0; i < spans.size(); i++) {
+      writeSpan(output, spans.get(i));
+    }
+  }
+
+  private static int librarySize(InstrumentationLibraryInfo library) {
+    return nonEmptyStringSize(LIBRARY_NAME, library.name())
+        + nonEmptyStringSize(LIBRARY_VERSION, library.version());
+  }
+
+  private int spanSize(SpanData span) {
+    int slot = reserveSize();
+    int size =
+        CodedOutputStream.computeTagSize(SPAN_TRACE_ID)
+            + CodedOutputStream.computeUInt32SizeNoTag(TraceId.getSize())
+            + TraceId.getSize()
+            + spanIdSize(SPAN_SPAN_ID)
+            + tracestateSize(SPAN_TRACESTATE, span.getTracestate())
+            + (span.getParentSpanId().isValid() ? spanIdSize(SPAN_PARENT_SPAN_ID) : 0)
+            + nonEmptyStringSize(SPAN_NAME, span.getName())
+            + CodedOutputStream.computeEnumSize(SPAN_KIND, kind(span.getKind()))
+            + CodedOutputStream.computeFixed64Size(
+                SPAN_START_TIME_UNIX_NANO, span.getStartEpochNanos())
+            + CodedOutputStream.computeFixed64Size(
+                SPAN_END_TIME_UNIX_NANO, span.getEndEpochNanos())
+            + attributesSize(SPAN_ATTRIBUTES, span.getAttributes());
+    List<SpanData.TimedEvent> events = span.getTimedEvents();
+    for (int i = 0; i < events.size(); i++) {
+      size += lengthDelimitedSize(SPAN_EVENTS, eventSize(events.get(i)));
+    }
+    List<Link> links = span.getLinks();
+    for (int i = 0; i < links.size(); i++) {
+      size += lengthDelimitedSize(SPAN_LINKS, linkSize(links.get(i)));
+    }
+    int statusSize = statusSize(span.getStatus());
+    if (statusSize > 0) {
+      size += lengthDelimitedSize(SPAN_STATUS, statusSize);
+    }
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeSpan(CodedOutputStream output, SpanData span) throws IOException {
+    writeLengthDelimitedTag(output, LIBRARY_SPANS_SPANS, sizes[sizeIndex++]);
+    writeTraceId(output, SPAN_TRACE_ID, span.getTraceId());
+    writeSpanId(output, SPAN_SPAN_ID, span.getSpanId());
+    writeTracestate(output, SPAN_TRACESTATE, span.getTracestate());
+    if (span.getParentSpanId().isValid()) {
+      writeSpanId(output, SPAN_PARENT_SPAN_ID, span.getParentSpanId());
+    }
+    writeNonEmptyString(output, SPAN_NAME, span.getName());
+    output.writeEnum(SPAN_KIND, kind(span.getKind()));
+    output.writeFixed64(SPAN_START_TIME_UNIX_NANO, span.getStartEpochNanos());
+    output.writeFixed64(SPAN_END_TIME_UNIX_NANO, span.getEndEpochNanos());
+    writeAttributes(output, SPAN_ATTRIBUTES, span.getAttributes());
+    List<SpanData.TimedEvent> events = span.getTimedEvents();
+    for (int i = 0; i < events.size(); i++) {
+      writeEvent(output, events.get(i));
+    }
+    List<Link> links = span.getLinks();
+    for (int i = 0; i < links.size(); i++) {
+      writeLink(output, links.get(i));
+    }
+    Status status = span.getStatus();
+    int statusSize = statusSize(status);
+    if (statusSize > 0) {
+      writeLengthDelimitedTag(output, SPAN_STATUS, statusSize);
+      int code = status.getCanonicalCode().value();
+      if (code != 0) {
+        output.writeEnum(STATUS_CODE, code);
+      }
+      writeNonEmptyString(output, STATUS_MESSAGE, status.getDescription());
+    }
+  }
+
+  private int eventSize(SpanData.TimedEvent event) {
+    int slot = reserveSize();
+    int size =
+        CodedOutputStream.computeFixed64Size(EVENT_TIME_UNIX_NANO, event.getEpochNanos())
+            + nonEmptyStringSize(EVENT_NAME, event.getName())
+            + attributesSize(EVENT_ATTRIBUTES, event.getAttributes());
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeEvent(CodedOutputStream output, SpanData.TimedEvent event)
+      throws IOException {
+    writeLengthDelimitedTag(output, SPAN_EVENTS, sizes[sizeIndex++]);
+    output.writeFixed64(EVENT_TIME_UNIX_NANO, event.getEpochNanos());
+    writeNonEmptyString(output, EVENT_NAME, event.getName());
+    writeAttributes(output, EVENT_ATTRIBUTES, event.getAttributes());
+  }
+
+  private int linkSize(Link link) {
+    int slot = reserveSize();
+    int size =
+        CodedOutputStream.computeTagSize(LINK_TRACE_ID)
+            + CodedOutputStream.computeUInt32SizeNoTag(TraceId.getSize())
+            + TraceId.getSize()
+            + spanIdSize(LINK_SPAN_ID)
+            + tracestateSize(LINK_TRACESTATE, link.getContext().getTracestate())
+            + attributesSize(LINK_ATTRIBUTES, link.getAttributes());
+    sizes[slot] = size;
+    return size;
+  }
+
+  private void writeLink(CodedOutputStream output, Link link) throws IOException {
+    writeLengthDelimitedTag(output, SPAN_LINKS, sizes[sizeIndex++]);
+    writeTraceId(output, LINK_TRACE_ID, link.getContext().getTraceId());
+    writeSpanId(output, LINK_SPAN_ID, link.getContext().getSpanId());
+    writeTracestate(output, LINK_TRACESTATE, link.getContext().getTracestate());
+    writeAttributes(output, LINK_ATTRIBUTES, link.getAttributes());
+  }
+
+  private void writeTraceId(CodedOutputStream output, int fieldNumber, TraceId traceId)
+      throws IOException {
+    traceId.copyBytesTo(traceIdBytes, 0);
+    output.writeByteArray(fieldNumber, traceIdBytes, 0, traceIdBytes.length);
+  }
+
+  private void writeSpanId(CodedOutputStream output, int fieldNumber, SpanId spanId)
+      throws IOException {
+    spanId.copyBytesTo(spanIdBytes, 0);
+    output.writeByteArray(fieldNumber, spanIdBytes, 0, spanIdBytes.length);
+  }
+
+  private int reserveSize() {
+    if (sizeCount == sizes.length) {
+      sizes = Arrays.copyOf(sizes, 2 * sizes.length);
+    }
+    return sizeCount++;
+  }
+
+  private static int spanIdSize(int fieldNumber) {
+    return CodedOutputStream.computeTagSize(fieldNumber)
+        + CodedOutputStream.computeUInt32SizeNoTag(SpanId.getSize())
+        + SpanId.getSize();
+  }
+
+  // The tracestate is sent in its W3C header format, "key1=value1,key2=value2". The keys and the
+  // values are validated as ASCII, so the string is written one char per byte without building it.
+  private static int tracestateSize(int fieldNumber, Tracestate tracestate) {
+    int headerSize = tracestateHeaderSize(tracestate);
+    return headerSize == 0 ? 0 : lengthDelimitedSize(fieldNumber, headerSize);
+  }
+
+  private static int tracestateHeaderSize(Tracestate tracestate) {
+    List<Tracestate.Entry> entries = tracestate.getEntries();
+    if (entries.isEmpty()) {
+      return 0;
+    }
+    int size = entries.size() - 1;
+    for (int i = 0; i < entries.size(); i++) {
+      Tracestate.Entry entry = entries.get(i);
+      size += entry.getKey().length() + 1 + entry.getValue().length();
+    }
+    return size;
+  }
+
+  private static void writeTracestate(
+      CodedOutputStream output, int fieldNumber, Tracestate tracestate) throws IOException {
+    int headerSize = tracestateHeaderSize(tracestate);
+    if (headerSize == 0) {
+      return;
+    }
+    writeLengthDelimitedTag(output, fieldNumber, headerSize);
+    List<Tracestate.Entry> entries = tracestate.getEntries();
+    for (int i = 0; i < entries.size(); i++) {
+      if (i > 0) {
+        output.writeRawByte((byte) ',');
+      }
+      Tracestate.Entry entry = entries.get(i);
+      writeAscii(output, entry.getKey());
+      output.writeRawByte((byte) '=');
+      writeAscii(output, entry.getValue());
+    }
+  }
+
+  private static void writeAscii(CodedOutputStream output, String value) throws IOException {
+    for (int i = 0; i < value.length(); i++) {
+      output.writeRawByte((byte) value.charAt(i));
+    }
+  }
+
+  // The OK status without description has only default values, it is not written.
+  private static int statusSize(Status status) {
+    int code = status.getCanonicalCode().value();
+    return (code == 0 ? 0 : CodedOutputStream.computeEnumSize(STATUS_CODE, code))
+        + nonEmptyStringSize(STATUS_MESSAGE, status.getDescription());
+  }
+
+  private static int attributesSize(int fieldNumber, Map<String, AttributeValue> attributes) {
+    int size = 0;
+    for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+      size +=
+          lengthDelimitedSize(fieldNumber, attributeSize(attribute.getKey(), attribute.getValue()));
+    }
+    return size;
+  }
+
+  private static void writeAttributes(
+      CodedOutputStream output, int fieldNumber, Map<String, AttributeValue> attributes)
+      throws IOException {
+    for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+      String key = attribute.getKey();
+      AttributeValue value = attribute.getValue();
+      writeLengthDelimitedTag(output, fieldNumber, attributeSize(key, value));
+      output.writeString(ATTRIBUTE_KEY, key);
+      switch (value.getType()) {
+        case STRING:
+          writeNonEmptyString(output, ATTRIBUTE_STRING_VALUE, value.getStringValue());
+          break;
+        case LONG:
+          output.writeEnum(ATTRIBUTE_TYPE, TYPE_INT);
+          output.writeInt64(ATTRIBUTE_INT_VALUE, value.getLongValue());
+          break;
+        case DOUBLE:
+          output.writeEnum(ATTRIBUTE_TYPE, TYPE_DOUBLE);
+          output.writeDouble(ATTRIBUTE_DOUBLE_VALUE, value.getDoubleValue());
+          break;
+        case BOOLEAN:
+          output.writeEnum(ATTRIBUTE_TYPE, TYPE_BOOL);
+          output.writeBool(ATTRIBUTE_BOOL_VALUE, value.getBooleanValue());
+          break;
+      }
+    }
+  }
+
+  private static int attributeSize(String key, AttributeValue value) {
+    int size = CodedOutputStream.computeStringSize(ATTRIBUTE_KEY, key);
+    switch (value.getType()) {
+      case STRING:
+        return size + nonEmptyStringSize(ATTRIBUTE_STRING_VALUE, value.getStringValue());
+      case LONG:
+        return size
+            + CodedOutputStream.computeEnumSize(ATTRIBUTE_TYPE, TYPE_INT)
+            + CodedOutputStream.computeInt64Size(ATTRIBUTE_INT_VALUE, value.getLongValue());
+      case DOUBLE:
+        return size
+            + CodedOutputStream.computeEnumSize(ATTRIBUTE_TYPE, TYPE_DOUBLE)
+            + CodedOutputStream.computeDoubleSize(ATTRIBUTE_DOUBLE_VALUE, value.getDoubleValue());
+      case BOOLEAN:
+        return size
+            + CodedOutputStream.computeEnumSize(ATTRIBUTE_TYPE, TYPE_BOOL)
+            + CodedOutputStream.computeBoolSize(ATTRIBUTE_BOOL_VALUE, value.getBooleanValue());
+    }
+    throw new IllegalArgumentException("Unknown attribute type " + value.getType());
+  }
+
+  private static int stringAttributeSize(String key, String value) {
+    return CodedOutputStream.computeStringSize(ATTRIBUTE_KEY, key)
+        + nonEmptyStringSize(ATTRIBUTE_STRING_VALUE, value);
+  }
+
+  // The empty strings are the default value of proto3, they are not written.
+  private static int nonEmptyStringSize(int fieldNumber, @Nullable String value) {
+    return value == null || value.isEmpty()
+        ? 0
+        : CodedOutputStream.computeStringSize(fieldNumber, value);
+  }
+
+  private static void writeNonEmptyString(
+      CodedOutputStream output, int fieldNumber, @Nullable String value) throws IOException {
+    if (value != null && !value.isEmpty()) {
+      output.writeString(fieldNumber, value);
+    }
+  }
+
+  private static int lengthDelimitedSize(int fieldNumber, int size) {
+    return CodedOutputStream.computeTagSize(fieldNumber)
+        + CodedOutputStream.computeUInt32SizeNoTag(size)
+        + size;
+  }
+
+  private static void writeLengthDelimitedTag(CodedOutputStream output, int fieldNumber, int size)
+      throws IOException {
+    output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(size);
+  }
+
+  private static int kind(Span.Kind kind) {
+    switch (kind) {
+      case INTERNAL:
+        return KIND_INTERNAL;
+      case SERVER:
+        return KIND_SERVER;
+      case CLIENT:
+        return KIND_CLIENT;
+      case PRODUCER:
+        return KIND_PRODUCER;
+      case CONSUMER:
+        return KIND_CONSUMER;
+    }
+    throw new IllegalArgumentException("Unknown span kind " + kind);
+  }
+}
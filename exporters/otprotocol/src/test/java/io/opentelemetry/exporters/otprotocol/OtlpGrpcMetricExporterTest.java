@@ -0,0 +1,312 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.otprotocol;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import io.opentelemetry.metrics.CounterLong;
+import io.opentelemetry.metrics.GaugeDouble;
+import io.opentelemetry.metrics.MeasureDouble;
+import io.opentelemetry.sdk.metrics.MeterSdk;
+import io.opentelemetry.sdk.metrics.MetricData;
+import io.opentelemetry.sdk.metrics.Temporality;
+import io.opentelemetry.sdk.metrics.export.MetricExporter.ResultCode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link OtlpGrpcMetricExporter}. */
+@RunWith(JUnit4.class)
+public class OtlpGrpcMetricExporterTest {
+  // A method with the same name as OtlpGrpcMetricExporter.EXPORT_METHOD, but that keeps the
+  // requests encoded so the tests can check the wire format.
+  private static final MethodDescriptor<byte[], byte[]> RAW_EXPORT_METHOD =
+      OtlpGrpcMetricExporter.EXPORT_METHOD
+          .toBuilder(new BytesMarshaller(), new BytesMarshaller())
+          .build();
+
+  @Rule public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+  private final List<byte[]> requests = Collections.synchronizedList(new ArrayList<byte[]>());
+  private final MeterSdk meter =
+      MeterSdk.newBuilder().setTemporality(Temporality.CUMULATIVE).build();
+  private Status responseStatus = Status.OK;
+  private OtlpGrpcMetricExporter exporter;
+
+  @Before
+  public void setUp() throws IOException {
+    String serverName = InProcessServerBuilder.generateName();
+    ServerServiceDefinition service =
+        ServerServiceDefinition.builder(OtlpGrpcMetricExporter.SERVICE_NAME)
+            .addMethod(
+                RAW_EXPORT_METHOD,
+                ServerCalls.asyncUnaryCall(
+                    new ServerCalls.UnaryMethod<byte[], byte[]>() {
+                      @Override
+                      public void invoke(byte[] request, StreamObserver<byte[]> responseObserver) {
+                        requests.add(request);
+                        if (responseStatus.isOk()) {
+                          responseObserver.onNext(new byte[0]);
+                          responseObserver.onCompleted();
+                        } else {
+                          responseObserver.onError(responseStatus.asRuntimeException());
+                        }
+                      }
+                    }))
+            .build();
+    grpcCleanup.register(
+        InProcessServerBuilder.forName(serverName)
+            .directExecutor()
+            .addService(service)
+            .build()
+            .start());
+    ManagedChannel channel =
+        grpcCleanup.register(InProcessChannelBuilder.forName(serverName).directExecutor().build());
+    exporter = OtlpGrpcMetricExporter.newBuilder().setChannel(channel).build();
+  }
+
+  @Test
+  public void export_Empty() {
+    assertThat(exporter.export(Collections.<MetricData>emptyList())).isEqualTo(ResultCode.SUCCESS);
+    assertThat(requests).isEmpty();
+  }
+
+  @Test
+  public void export_CounterLong() throws InvalidProtocolBufferException {
+    CounterLong counter =
+        meter
+            .counterLongBuilder("requests")
+            .setDescription("The requests")
+            .setUnit("1")
+            .setLabelKeys(Collections.singletonList("method"))
+            .setConstantLabels(Collections.singletonMap("service", "test"))
+            .build();
+    counter.getHandle(Collections.singletonList("GET")).add(12);
+    counter.getHandle(Collections.singletonList("POST")).add(3);
+    Collection<MetricData> metrics = meter.getMetricProducer().getAllMetrics();
+    MetricData metricData = metrics.iterator().next();
+
+    assertThat(exporter.export(metrics)).isEqualTo(ResultCode.SUCCESS);
+
+    UnknownFieldSet metric = onlyMetric(onlyRequest());
+    UnknownFieldSet descriptor = message(metric, 1);
+    assertThat(string(descriptor, 1)).isEqualTo("requests");
+    assertThat(string(descriptor, 2)).isEqualTo("The requests");
+    assertThat(string(descriptor, 3)).isEqualTo("1");
+    // COUNTER_INT64
+    assertThat(descriptor.getField(4).getVarintList()).containsExactly(4L);
+    UnknownFieldSet constantLabel = message(descriptor, 5);
+    assertThat(string(constantLabel, 1)).isEqualTo("service");
+    assertThat(string(constantLabel, 2)).isEqualTo("test");
+
+    List<UnknownFieldSet> points = messages(metric, 2);
+    assertThat(points).hasSize(2);
+    List<String> labelValues = new ArrayList<>();
+    List<Long> values = new ArrayList<>();
+    for (UnknownFieldSet point : points) {
+      UnknownFieldSet label = message(point, 1);
+      assertThat(string(label, 1)).isEqualTo("method");
+      labelValues.add(string(label, 2));
+      assertThat(point.getField(2).getFixed64List())
+          .containsExactly(metricData.getStartEpochNanos());
+      assertThat(point.getField(3).getFixed64List()).containsExactly(metricData.getEpochNanos());
+      values.add(point.getField(4).getVarintList().get(0));
+    }
+    assertThat(labelValues).containsExactly("GET", "POST");
+    assertThat(values).containsExactly(12L, 3L);
+  }
+
+  @Test
+  public void export_GaugeDouble() throws InvalidProtocolBufferException {
+    GaugeDouble gauge = meter.gaugeDoubleBuilder("temperature").build();
+    gauge.getDefaultHandle().set(21.5);
+
+    assertThat(exporter.export(meter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(ResultCode.SUCCESS);
+
+    UnknownFieldSet metric = onlyMetric(onlyRequest());
+    // GAUGE_DOUBLE
+    assertThat(message(metric, 1).getField(4).getVarintList()).containsExactly(2L);
+    UnknownFieldSet point = message(metric, 3);
+    // The default handle has no labels.
+    assertThat(point.hasField(1)).isFalse();
+    assertThat(Double.longBitsToDouble(point.getField(4).getFixed64List().get(0)))
+        .isEqualTo(21.5);
+  }
+
+  @Test
+  public void export_MeasureDouble() throws InvalidProtocolBufferException {
+    MeasureDouble measure = meter.measureDoubleBuilder("latency").build();
+    measure.getDefaultHandle().record(1);
+    measure.getDefaultHandle().record(7);
+    measure.getDefaultHandle().record(9);
+
+    assertThat(exporter.export(meter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(ResultCode.SUCCESS);
+
+    UnknownFieldSet metric = onlyMetric(onlyRequest());
+    // CUMULATIVE_HISTOGRAM
+    assertThat(message(metric, 1).getField(4).getVarintList()).containsExactly(6L);
+    UnknownFieldSet point = message(metric, 4);
+    assertThat(point.getField(4).getVarintList()).containsExactly(3L);
+    assertThat(Double.longBitsToDouble(point.getField(5).getFixed64List().get(0)))
+        .isEqualTo(17.0);
+    List<ByteString> buckets = point.getField(6).getLengthDelimitedList();
+    assertThat(buckets).hasSize(15);
+    assertThat(UnknownFieldSet.parseFrom(buckets.get(0)).getField(1).getVarintList())
+        .containsExactly(1L);
+    assertThat(UnknownFieldSet.parseFrom(buckets.get(1)).getField(1).getVarintList())
+        .containsExactly(2L);
+    // The packed bounds, 8 bytes each.
+    ByteString bounds = point.getField(7).getLengthDelimitedList().get(0);
+    assertThat(bounds.size()).isEqualTo(14 * 8);
+    assertThat(bounds.asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN).getDouble())
+        .isEqualTo(5.0);
+  }
+
+  @Test
+  public void export_NestsMetricsInInstrumentationLibraryMetrics()
+      throws InvalidProtocolBufferException {
+    meter.counterLongBuilder("first").build().getDefaultHandle().add(1);
+    meter.gaugeLongBuilder("second").build().getDefaultHandle().set(2);
+
+    assertThat(exporter.export(meter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(ResultCode.SUCCESS);
+
+    UnknownFieldSet request = onlyRequest();
+    assertThat(request.asMap().keySet()).containsExactly(1);
+    UnknownFieldSet resourceMetrics = message(request, 1);
+    // No resource, a single InstrumentationLibraryMetrics.
+    assertThat(resourceMetrics.asMap().keySet()).containsExactly(2);
+    UnknownFieldSet libraryMetrics = message(resourceMetrics, 2);
+    // No instrumentation library, the metrics.
+    assertThat(libraryMetrics.asMap().keySet()).containsExactly(2);
+    List<String> names = new ArrayList<>();
+    for (UnknownFieldSet metric : messages(libraryMetrics, 2)) {
+      names.add(string(message(metric, 1), 1));
+    }
+    assertThat(names).containsExactly("first", "second");
+  }
+
+  @Test
+  public void export_ReusesBufferForSmallerRequests() throws InvalidProtocolBufferException {
+    CounterLong counter =
+        meter.counterLongBuilder("counter").setLabelKeys(Collections.singletonList("k")).build();
+    for (int i = 0; i < 100; i++) {
+      counter.getHandle(Collections.singletonList("value_" + i)).add(i);
+    }
+    assertThat(exporter.export(meter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(ResultCode.SUCCESS);
+    MeterSdk otherMeter = MeterSdk.newBuilder().setTemporality(Temporality.CUMULATIVE).build();
+    otherMeter.counterLongBuilder("other").build().getDefaultHandle().add(1);
+
+    assertThat(exporter.export(otherMeter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(ResultCode.SUCCESS);
+
+    assertThat(requests).hasSize(2);
+    assertThat(requests.get(1).length).isLessThan(requests.get(0).length);
+    UnknownFieldSet metric = onlyMetric(UnknownFieldSet.parseFrom(requests.get(1)));
+    assertThat(string(message(metric, 1), 1)).isEqualTo("other");
+    assertThat(messages(metric, 2)).hasSize(1);
+  }
+
+  @Test
+  public void export_Unavailable() {
+    meter.counterLongBuilder("counter").build().getDefaultHandle().add(1);
+    responseStatus = Status.UNAVAILABLE;
+    assertThat(exporter.export(meter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(ResultCode.FAILED_RETRYABLE);
+  }
+
+  @Test
+  public void export_InvalidArgument() {
+    meter.counterLongBuilder("counter").build().getDefaultHandle().add(1);
+    responseStatus = Status.INVALID_ARGUMENT;
+    assertThat(exporter.export(meter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+  }
+
+  private UnknownFieldSet onlyRequest() throws InvalidProtocolBufferException {
+    assertThat(requests).hasSize(1);
+    return UnknownFieldSet.parseFrom(requests.get(0));
+  }
+
+  private static UnknownFieldSet onlyMetric(UnknownFieldSet request)
+      throws InvalidProtocolBufferException {
+    List<UnknownFieldSet> metrics = messages(message(message(request, 1), 2), 2);
+    assertThat(metrics).hasSize(1);
+    return metrics.get(0);
+  }
+
+  private static UnknownFieldSet message(UnknownFieldSet parent, int fieldNumber)
+      throws InvalidProtocolBufferException {
+    List<UnknownFieldSet> messages = messages(parent, fieldNumber);
+    assertThat(messages).hasSize(1);
+    return messages.get(0);
+  }
+
+  private static List<UnknownFieldSet> messages(UnknownFieldSet parent, int fieldNumber)
+      throws InvalidProtocolBufferException {
+    List<UnknownFieldSet> messages = new ArrayList<>();
+    for (ByteString bytes : parent.getField(fieldNumber).getLengthDelimitedList()) {
+      messages.add(UnknownFieldSet.parseFrom(bytes));
+    }
+    return messages;
+  }
+
+  private static String string(UnknownFieldSet parent, int fieldNumber) {
+    return parent.getField(fieldNumber).getLengthDelimitedList().get(0).toStringUtf8();
+  }
+
+  private static final class BytesMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+    @Override
+    public InputStream stream(byte[] value) {
+      return new ByteArrayInputStream(value);
+    }
+
+    @Override
+    public byte[] parse(InputStream stream) {
+      try {
+        return ByteString.readFrom(stream).toByteArray();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
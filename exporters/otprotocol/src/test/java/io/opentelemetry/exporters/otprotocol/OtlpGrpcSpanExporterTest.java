@@ -0,0 +1,408 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.otprotocol;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.InstrumentationLibraryInfo;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.TracerSdkFactory;
+import io.opentelemetry.sdk.trace.export.CompletableResultCode;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.Tracestate;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link OtlpGrpcSpanExporter}. */
+@RunWith(JUnit4.class)
+public class OtlpGrpcSpanExporterTest {
+  // A method with the same name as OtlpGrpcSpanExporter.EXPORT_METHOD, but that keeps the
+  // requests encoded so the tests can check the wire format.
+  private static final MethodDescriptor<byte[], byte[]> RAW_EXPORT_METHOD =
+      OtlpGrpcSpanExporter.EXPORT_METHOD
+          .toBuilder(new BytesMarshaller(), new BytesMarshaller())
+          .build();
+  private static final TraceId TRACE_ID = new TraceId(1234, 5678);
+  private static final Resource RESOURCE_A =
+      Resource.create(Collections.singletonMap("service.name", "a"));
+  private static final Resource RESOURCE_B =
+      Resource.create(Collections.singletonMap("service.name", "b"));
+
+  @Rule public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+  private final List<byte[]> requests = Collections.synchronizedList(new ArrayList<byte[]>());
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private final InstrumentationLibraryInfo library1 =
+      tracerSdkFactory.get("library1", "1.0").getInstrumentationLibraryInfo();
+  private final InstrumentationLibraryInfo library2 =
+      tracerSdkFactory.get("library2").getInstrumentationLibraryInfo();
+  private Status responseStatus = Status.OK;
+  private OtlpGrpcSpanExporter exporter;
+
+  @Before
+  public void setUp() throws IOException {
+    String serverName = InProcessServerBuilder.generateName();
+    ServerServiceDefinition service =
+        ServerServiceDefinition.builder(OtlpGrpcSpanExporter.SERVICE_NAME)
+            .addMethod(
+                RAW_EXPORT_METHOD,
+                ServerCalls.asyncUnaryCall(
+                    new ServerCalls.UnaryMethod<byte[], byte[]>() {
+                      @Override
+                      public void invoke(byte[] request, StreamObserver<byte[]> responseObserver) {
+                        requests.add(request);
+                        if (responseStatus.isOk()) {
+                          responseObserver.onNext(new byte[0]);
+                          responseObserver.onCompleted();
+                        } else {
+                          responseObserver.onError(responseStatus.asRuntimeException());
+                        }
+                      }
+                    }))
+            .build();
+    grpcCleanup.register(
+        InProcessServerBuilder.forName(serverName)
+            .directExecutor()
+            .addService(service)
+            .build()
+            .start());
+    ManagedChannel channel =
+        grpcCleanup.register(InProcessChannelBuilder.forName(serverName).directExecutor().build());
+    exporter = OtlpGrpcSpanExporter.newBuilder().setChannel(channel).build();
+  }
+
+  @Test
+  public void export_Empty() {
+    assertThat(exporter.export(Collections.<SpanData>emptyList())).isEqualTo(ResultCode.SUCCESS);
+    assertThat(requests).isEmpty();
+  }
+
+  @Test
+  public void export_GroupsByResourceAndLibrary() throws InvalidProtocolBufferException {
+    List<SpanData> spans =
+        Arrays.asList(
+            newSpan(1, RESOURCE_A, library1),
+            newSpan(2, RESOURCE_B, library1),
+            newSpan(3, RESOURCE_A, library2),
+            newSpan(4, RESOURCE_A, library1));
+
+    assertThat(exporter.export(spans)).isEqualTo(ResultCode.SUCCESS);
+
+    List<UnknownFieldSet> resourceSpans = messages(onlyRequest(), 1);
+    assertThat(resourceSpans).hasSize(2);
+    // Each resource is encoded once, with its spans grouped by library.
+    UnknownFieldSet resourceAttribute = message(message(resourceSpans.get(0), 1), 1);
+    assertThat(string(resourceAttribute, 1)).isEqualTo("service.name");
+    assertThat(string(resourceAttribute, 3)).isEqualTo("a");
+    List<UnknownFieldSet> librarySpans = messages(resourceSpans.get(0), 2);
+    assertThat(librarySpans).hasSize(2);
+    UnknownFieldSet library = message(librarySpans.get(0), 1);
+    assertThat(string(library, 1)).isEqualTo("library1");
+    assertThat(string(library, 2)).isEqualTo("1.0");
+    assertThat(spanIds(librarySpans.get(0)))
+        .containsExactly(new SpanId(1), new SpanId(4))
+        .inOrder();
+    library = message(librarySpans.get(1), 1);
+    assertThat(string(library, 1)).isEqualTo("library2");
+    // No version.
+    assertThat(library.hasField(2)).isFalse();
+    assertThat(spanIds(librarySpans.get(1))).containsExactly(new SpanId(3));
+
+    assertThat(string(message(message(resourceSpans.get(1), 1), 1), 3)).isEqualTo("b");
+    librarySpans = messages(resourceSpans.get(1), 2);
+    assertThat(librarySpans).hasSize(1);
+    assertThat(spanIds(librarySpans.get(0))).containsExactly(new SpanId(2));
+  }
+
+  @Test
+  public void export_SpanFields() throws InvalidProtocolBufferException {
+    Map<String, AttributeValue> attributes = new LinkedHashMap<>();
+    attributes.put("string", AttributeValue.stringAttributeValue("value"));
+    attributes.put("long", AttributeValue.longAttributeValue(42));
+    attributes.put("double", AttributeValue.doubleAttributeValue(1.5));
+    attributes.put("boolean", AttributeValue.booleanAttributeValue(true));
+    Tracestate tracestate = Tracestate.builder().set("foo", "bar").set("baz", "qux").build();
+    SpanContext linkedContext =
+        SpanContext.create(
+            new TraceId(11, 12), new SpanId(13), TraceFlags.getDefault(), tracestate);
+    SpanData span =
+        newSpanBuilder(7, RESOURCE_A, library1)
+            .setParentSpanId(new SpanId(6))
+            .setTracestate(tracestate)
+            .setKind(Kind.CLIENT)
+            .setAttributes(attributes)
+            .setTimedEvents(
+                Collections.singletonList(
+                    SpanData.TimedEvent.create(
+                        150,
+                        "event",
+                        Collections.singletonMap(
+                            "count", AttributeValue.longAttributeValue(3)))))
+            .setLinks(
+                Collections.<io.opentelemetry.trace.Link>singletonList(
+                    SpanData.Link.create(linkedContext)))
+            .setStatus(io.opentelemetry.trace.Status.NOT_FOUND.withDescription("missing"))
+            .build();
+
+    assertThat(exporter.export(Collections.singletonList(span))).isEqualTo(ResultCode.SUCCESS);
+
+    UnknownFieldSet protoSpan = onlySpan(onlyRequest());
+    assertThat(bytes(protoSpan, 1)).isEqualTo(traceIdBytes(TRACE_ID));
+    assertThat(bytes(protoSpan, 2)).isEqualTo(spanIdBytes(new SpanId(7)));
+    assertThat(string(protoSpan, 3)).isEqualTo("baz=qux,foo=bar");
+    assertThat(bytes(protoSpan, 4)).isEqualTo(spanIdBytes(new SpanId(6)));
+    assertThat(string(protoSpan, 5)).isEqualTo("span");
+    // CLIENT
+    assertThat(protoSpan.getField(6).getVarintList()).containsExactly(3L);
+    assertThat(protoSpan.getField(7).getFixed64List()).containsExactly(100L);
+    assertThat(protoSpan.getField(8).getFixed64List()).containsExactly(200L);
+
+    List<UnknownFieldSet> protoAttributes = messages(protoSpan, 9);
+    assertThat(protoAttributes).hasSize(4);
+    assertThat(string(protoAttributes.get(0), 1)).isEqualTo("string");
+    // The STRING type is the default value.
+    assertThat(protoAttributes.get(0).hasField(2)).isFalse();
+    assertThat(string(protoAttributes.get(0), 3)).isEqualTo("value");
+    assertThat(protoAttributes.get(1).getField(2).getVarintList()).containsExactly(1L);
+    assertThat(protoAttributes.get(1).getField(4).getVarintList()).containsExactly(42L);
+    assertThat(protoAttributes.get(2).getField(2).getVarintList()).containsExactly(2L);
+    assertThat(Double.longBitsToDouble(protoAttributes.get(2).getField(5).getFixed64List().get(0)))
+        .isEqualTo(1.5);
+    assertThat(protoAttributes.get(3).getField(2).getVarintList()).containsExactly(3L);
+    assertThat(protoAttributes.get(3).getField(6).getVarintList()).containsExactly(1L);
+
+    UnknownFieldSet event = message(protoSpan, 11);
+    assertThat(event.getField(1).getFixed64List()).containsExactly(150L);
+    assertThat(string(event, 2)).isEqualTo("event");
+    assertThat(string(message(event, 3), 1)).isEqualTo("count");
+
+    UnknownFieldSet link = message(protoSpan, 13);
+    assertThat(bytes(link, 1)).isEqualTo(traceIdBytes(new TraceId(11, 12)));
+    assertThat(bytes(link, 2)).isEqualTo(spanIdBytes(new SpanId(13)));
+    assertThat(string(link, 3)).isEqualTo("baz=qux,foo=bar");
+
+    UnknownFieldSet status = message(protoSpan, 15);
+    assertThat(status.getField(1).getVarintList())
+        .containsExactly((long) io.opentelemetry.trace.Status.CanonicalCode.NOT_FOUND.value());
+    assertThat(string(status, 2)).isEqualTo("missing");
+  }
+
+  @Test
+  public void export_RootSpanWithDefaults() throws InvalidProtocolBufferException {
+    SpanData span = newSpan(7, RESOURCE_A, library1);
+
+    assertThat(exporter.export(Collections.singletonList(span))).isEqualTo(ResultCode.SUCCESS);
+
+    UnknownFieldSet protoSpan = onlySpan(onlyRequest());
+    // No tracestate, parent span id, attributes, events, links nor status.
+    assertThat(protoSpan.asMap().keySet()).containsExactly(1, 2, 5, 6, 7, 8);
+    // INTERNAL
+    assertThat(protoSpan.getField(6).getVarintList()).containsExactly(1L);
+  }
+
+  @Test
+  public void export_DropsGroupsOfPreviousRequests() throws InvalidProtocolBufferException {
+    assertThat(
+            exporter.export(
+                Arrays.asList(newSpan(1, RESOURCE_A, library1), newSpan(2, RESOURCE_B, library2))))
+        .isEqualTo(ResultCode.SUCCESS);
+
+    assertThat(exporter.export(Collections.singletonList(newSpan(3, RESOURCE_B, library2))))
+        .isEqualTo(ResultCode.SUCCESS);
+
+    assertThat(requests).hasSize(2);
+    List<UnknownFieldSet> resourceSpans = messages(UnknownFieldSet.parseFrom(requests.get(1)), 1);
+    assertThat(resourceSpans).hasSize(1);
+    assertThat(string(message(message(resourceSpans.get(0), 1), 1), 3)).isEqualTo("b");
+    assertThat(spanIds(message(resourceSpans.get(0), 2))).containsExactly(new SpanId(3));
+  }
+
+  @Test
+  public void export_Unavailable() {
+    responseStatus = Status.UNAVAILABLE;
+    assertThat(exporter.export(Collections.singletonList(newSpan(1, RESOURCE_A, library1))))
+        .isEqualTo(ResultCode.FAILED_RETRYABLE);
+  }
+
+  @Test
+  public void export_InvalidArgument() {
+    responseStatus = Status.INVALID_ARGUMENT;
+    assertThat(exporter.export(Collections.singletonList(newSpan(1, RESOURCE_A, library1))))
+        .isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+  }
+
+  @Test(timeout = 10000L)
+  public void exportAsync() throws InvalidProtocolBufferException {
+    CompletableResultCode result =
+        exporter.exportAsync(
+            Arrays.asList(newSpan(1, RESOURCE_A, library1), newSpan(2, RESOURCE_A, library1)));
+
+    assertThat(result.join()).isEqualTo(ResultCode.SUCCESS);
+    UnknownFieldSet resourceSpans = message(onlyRequest(), 1);
+    assertThat(spanIds(message(resourceSpans, 2)))
+        .containsExactly(new SpanId(1), new SpanId(2))
+        .inOrder();
+  }
+
+  @Test(timeout = 10000L)
+  public void exportAsync_Empty() {
+    assertThat(exporter.exportAsync(Collections.<SpanData>emptyList()).join())
+        .isEqualTo(ResultCode.SUCCESS);
+    assertThat(requests).isEmpty();
+  }
+
+  @Test(timeout = 10000L)
+  public void exportAsync_Unavailable() {
+    responseStatus = Status.UNAVAILABLE;
+    assertThat(
+            exporter
+                .exportAsync(Collections.singletonList(newSpan(1, RESOURCE_A, library1)))
+                .join())
+        .isEqualTo(ResultCode.FAILED_RETRYABLE);
+  }
+
+  @Test(timeout = 10000L)
+  public void exportAsync_InvalidArgument() {
+    responseStatus = Status.INVALID_ARGUMENT;
+    assertThat(
+            exporter
+                .exportAsync(Collections.singletonList(newSpan(1, RESOURCE_A, library1)))
+                .join())
+        .isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+  }
+
+  private static SpanData newSpan(
+      long spanId, Resource resource, InstrumentationLibraryInfo library) {
+    return newSpanBuilder(spanId, resource, library).build();
+  }
+
+  private static SpanData.Builder newSpanBuilder(
+      long spanId, Resource resource, InstrumentationLibraryInfo library) {
+    return SpanData.newBuilder()
+        .setTraceId(TRACE_ID)
+        .setSpanId(new SpanId(spanId))
+        .setResource(resource)
+        .setInstrumentationLibraryInfo(library)
+        .setName("span")
+        .setKind(Kind.INTERNAL)
+        .setStartEpochNanos(100)
+        .setEndEpochNanos(200)
+        .setStatus(io.opentelemetry.trace.Status.OK);
+  }
+
+  private UnknownFieldSet onlyRequest() throws InvalidProtocolBufferException {
+    assertThat(requests).hasSize(1);
+    return UnknownFieldSet.parseFrom(requests.get(0));
+  }
+
+  private static UnknownFieldSet onlySpan(UnknownFieldSet request)
+      throws InvalidProtocolBufferException {
+    return message(message(message(request, 1), 2), 2);
+  }
+
+  private static List<SpanId> spanIds(UnknownFieldSet librarySpans)
+      throws InvalidProtocolBufferException {
+    List<SpanId> spanIds = new ArrayList<>();
+    for (UnknownFieldSet span : messages(librarySpans, 2)) {
+      spanIds.add(SpanId.fromBytes(bytes(span, 2).toByteArray(), 0));
+    }
+    return spanIds;
+  }
+
+  private static ByteString traceIdBytes(TraceId traceId) {
+    byte[] bytes = new byte[TraceId.getSize()];
+    traceId.copyBytesTo(bytes, 0);
+    return ByteString.copyFrom(bytes);
+  }
+
+  private static ByteString spanIdBytes(SpanId spanId) {
+    byte[] bytes = new byte[SpanId.getSize()];
+    spanId.copyBytesTo(bytes, 0);
+    return ByteString.copyFrom(bytes);
+  }
+
+  private static UnknownFieldSet message(UnknownFieldSet parent, int fieldNumber)
+      throws InvalidProtocolBufferException {
+    List<UnknownFieldSet> messages = messages(parent, fieldNumber);
+    assertThat(messages).hasSize(1);
+    return messages.get(0);
+  }
+
+  private static List<UnknownFieldSet> messages(UnknownFieldSet parent, int fieldNumber)
+      throws InvalidProtocolBufferException {
+    List<UnknownFieldSet> messages = new ArrayList<>();
+    for (ByteString bytes : parent.getField(fieldNumber).getLengthDelimitedList()) {
+      messages.add(UnknownFieldSet.parseFrom(bytes));
+    }
+    return messages;
+  }
+
+  private static ByteString bytes(UnknownFieldSet parent, int fieldNumber) {
+    return parent.getField(fieldNumber).getLengthDelimitedList().get(0);
+  }
+
+  private static String string(UnknownFieldSet parent, int fieldNumber) {
+    return bytes(parent, fieldNumber).toStringUtf8();
+  }
+
+  private static final class BytesMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+    @Override
+    public InputStream stream(byte[] value) {
+      return new ByteArrayInputStream(value);
+    }
+
+    @Override
+    public byte[] parse(InputStream stream) {
+      try {
+        return ByteString.readFrom(stream).toByteArray();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
@@ -61,6 +61,42 @@ public class TraceProtoUtilsTest {
     assertThat(TraceProtoUtils.toProtoSpanId(SPAN_ID)).isEqualTo(expected);
   }
 
+  @Test
+  public void idCache_ConvertsOnce() {
+    TraceProtoUtils.IdCache idCache = TraceProtoUtils.newIdCache();
+    ByteString traceId = idCache.toProtoTraceId(TRACE_ID);
+    ByteString spanId = idCache.toProtoReferencedSpanId(SPAN_ID);
+    assertThat(traceId).isEqualTo(ByteString.copyFrom(TRACE_ID_BYTES));
+    assertThat(spanId).isEqualTo(ByteString.copyFrom(SPAN_ID_BYTES));
+    assertThat(idCache.toProtoTraceId(TraceId.fromBytes(TRACE_ID_BYTES, 0)))
+        .isSameInstanceAs(traceId);
+    assertThat(idCache.toProtoSpanId(SpanId.fromBytes(SPAN_ID_BYTES, 0)))
+        .isSameInstanceAs(spanId);
+    assertThat(idCache.toProtoReferencedSpanId(SpanId.fromBytes(SPAN_ID_BYTES, 0)))
+        .isSameInstanceAs(spanId);
+  }
+
+  @Test
+  public void idCache_DoesNotCacheSpanIds() {
+    TraceProtoUtils.IdCache idCache = TraceProtoUtils.newIdCache();
+    ByteString spanId = idCache.toProtoSpanId(SPAN_ID);
+    assertThat(spanId).isEqualTo(ByteString.copyFrom(SPAN_ID_BYTES));
+    assertThat(idCache.toProtoReferencedSpanId(SPAN_ID)).isNotSameInstanceAs(spanId);
+  }
+
+  @Test
+  public void idCache_DifferentIds() {
+    TraceProtoUtils.IdCache idCache = TraceProtoUtils.newIdCache();
+    TraceId otherTraceId = TraceId.fromLowerBase16("00000000000000000000000000000062", 0);
+    SpanId otherSpanId = SpanId.fromLowerBase16("0000000000000063", 0);
+    assertThat(idCache.toProtoTraceId(TRACE_ID))
+        .isNotEqualTo(idCache.toProtoTraceId(otherTraceId));
+    assertThat(idCache.toProtoReferencedSpanId(SPAN_ID))
+        .isNotEqualTo(idCache.toProtoReferencedSpanId(otherSpanId));
+    assertThat(idCache.toProtoSpanId(otherSpanId))
+        .isEqualTo(TraceProtoUtils.toProtoSpanId(otherSpanId));
+  }
+
   @Test
   public void traceConfigFromProto() {
     TraceConfig traceConfig = TraceProtoUtils.traceConfigFromProto(TRACE_CONFIG_PROTO);
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.prometheus;
+
+import io.opentelemetry.sdk.metrics.export.MetricProducer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Collects and encodes the metrics for the scrapes. The scrapes that arrive while a collection is
+ * running wait for it and share its result, so concurrent scrapes only collect once.
+ *
+ * <p>The encoded metrics stay valid until the scrape {@link #release(Scrape) releases} them, the
+ * next collections encode into other buffers meanwhile. The buffers are then reused.
+ */
+@ThreadSafe
+final class PrometheusCollector {
+  private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+  private final MetricProducer metricProducer;
+  private final Object lock = new Object();
+
+  // Only used by the thread that is collecting.
+  private final PrometheusTextEncoder encoder = new PrometheusTextEncoder();
+
+  @GuardedBy("lock")
+  private final Deque<Scrape> freeScrapes = new ArrayDeque<>();
+
+  @GuardedBy("lock")
+  @Nullable
+  private Scrape lastScrape;
+
+  @GuardedBy("lock")
+  private boolean collecting;
+
+  @GuardedBy("lock")
+  private long collectionCount;
+
+  PrometheusCollector(MetricProducer metricProducer) {
+    this.metricProducer = metricProducer;
+  }
+
+  /**
+   * Returns the encoded metrics of a collection that started or finished after this call, which
+   * must be {@link #release(Scrape) released} once written.
+   *
+   * @return the encoded metrics.
+   * @throws InterruptedException if interrupted while waiting for a running collection.
+   */
+  Scrape acquire() throws InterruptedException {
+    Scrape scrape;
+    synchronized (lock) {
+      long arrivalCollectionCount = collectionCount;
+      while (collecting) {
+        lock.wait();
+      }
+      // A failed collection doesn't count, this scrape collects instead.
+      if (collectionCount != arrivalCollectionCount && lastScrape != null) {
+        lastScrape.readers++;
+        return lastScrape;
+      }
+      collecting = true;
+      scrape = freeScrapes.isEmpty() ? new Scrape() : freeScrapes.pop();
+    }
+    boolean collected = false;
+    try {
+      scrape.buffer = encoder.encode(metricProducer.getAllMetrics(), scrape.buffer);
+      scrape.length = encoder.getLength();
+      collected = true;
+    } finally {
+      synchronized (lock) {
+        collecting = false;
+        if (collected) {
+          collectionCount++;
+          Scrape previous = lastScrape;
+          lastScrape = scrape;
+          scrape.readers = 1;
+          if (previous != null && previous.readers == 0) {
+            freeScrapes.push(previous);
+          }
+        } else {
+          freeScrapes.push(scrape);
+        }
+        lock.notifyAll();
+      }
+    }
+    return scrape;
+  }
+
+  /**
+   * Releases the encoded metrics returned by {@link #acquire()}.
+   *
+   * @param scrape the encoded metrics.
+   */
+  void release(Scrape scrape) {
+    synchronized (lock) {
+      scrape.readers--;
+      if (scrape.readers == 0 && scrape != lastScrape) {
+        freeScrapes.push(scrape);
+      }
+    }
+  }
+
+  /** The metrics encoded by a collection. */
+  static final class Scrape {
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+
+    // Guarded by the lock of the collector.
+    private int readers;
+
+    /**
+     * Returns the buffer that contains the encoded metrics, from the start.
+     *
+     * @return the buffer that contains the encoded metrics.
+     */
+    byte[] getBuffer() {
+      return buffer;
+    }
+
+    /**
+     * Returns the length of the encoded metrics.
+     *
+     * @return the length of the encoded metrics.
+     */
+    int getLength() {
+      return length;
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.prometheus;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.metrics.export.MetricProducer;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Serves the metrics of a {@link MetricProducer} to Prometheus, in the text exposition format, at
+ * the {@code /metrics} path of an embedded HTTP server.
+ *
+ * <p>Every scrape collects the metrics, the concurrent scrapes share a single collection. The
+ * metrics are encoded into reused buffers, and the escaped name and labels of every series are
+ * only encoded once. Prometheus expects cumulative counters, so the {@code MeterSdk} must use the
+ * default cumulative temporality.
+ */
+@ThreadSafe
+public final class PrometheusExporter {
+  private static final Logger logger = Logger.getLogger(PrometheusExporter.class.getName());
+  private static final String WORKER_THREAD_NAME =
+      PrometheusExporter.class.getSimpleName() + "_WorkerThread";
+  static final String METRICS_PATH = "/metrics";
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  private PrometheusExporter(
+      MetricProducer metricProducer, InetSocketAddress address, int serverThreads)
+      throws IOException {
+    this.server = HttpServer.create(address, /* backlog= */ 0);
+    this.executor = Executors.newFixedThreadPool(serverThreads, new WorkerThreadFactory());
+    server.createContext(METRICS_PATH, new MetricsHandler(new PrometheusCollector(metricProducer)));
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Returns the port the HTTP server listens to, useful when built with the port 0.
+   *
+   * @return the port the HTTP server listens to.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /** Stops the HTTP server, the running scrapes are given one second to finish. */
+  public void shutdown() {
+    server.stop(1);
+    executor.shutdown();
+  }
+
+  /**
+   * Creates a new builder instance.
+   *
+   * @param metricProducer the {@link MetricProducer} of the metrics to serve.
+   * @return a new instance builder for this exporter.
+   */
+  public static Builder newBuilder(MetricProducer metricProducer) {
+    return new Builder(metricProducer);
+  }
+
+  private static final class MetricsHandler implements HttpHandler {
+    private final PrometheusCollector collector;
+
+    private MetricsHandler(PrometheusCollector collector) {
+      this.collector = collector;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        String method = exchange.getRequestMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+          exchange.sendResponseHeaders(405, -1);
+          return;
+        }
+        PrometheusCollector.Scrape scrape;
+        try {
+          scrape = collector.acquire();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        } catch (RuntimeException e) {
+          logger.log(Level.WARNING, "Failed to collect the metrics", e);
+          exchange.sendResponseHeaders(500, -1);
+          return;
+        }
+        try {
+          exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+          if ("HEAD".equals(method)) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+          }
+          exchange.sendResponseHeaders(200, scrape.getLength());
+          OutputStream body = exchange.getResponseBody();
+          body.write(scrape.getBuffer(), 0, scrape.getLength());
+          body.flush();
+        } finally {
+          collector.release(scrape);
+        }
+      } finally {
+        exchange.close();
+      }
+    }
+  }
+
+  private static final class WorkerThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+      try {
+        thread.setName(WORKER_THREAD_NAME);
+        // The server must not keep the JVM alive.
+        thread.setDaemon(true);
+      } catch (SecurityException e) {
+        // OK if we can't set the name in this environment.
+      }
+      return thread;
+    }
+  }
+
+  /** Builder utility for this exporter. */
+  public static final class Builder {
+    private static final int DEFAULT_PORT = 9464;
+    private static final int DEFAULT_SERVER_THREADS = 2;
+
+    private final MetricProducer metricProducer;
+    private String host = "0.0.0.0";
+    private int port = DEFAULT_PORT;
+    private int serverThreads = DEFAULT_SERVER_THREADS;
+
+    private Builder(MetricProducer metricProducer) {
+      this.metricProducer = Utils.checkNotNull(metricProducer, "metricProducer");
+    }
+
+    /**
+     * Sets the host or the address the HTTP server binds to. The default value is {@code
+     * "0.0.0.0"}, all the local addresses.
+     *
+     * @param host the host or the address the HTTP server binds to.
+     * @return this.
+     * @throws NullPointerException if {@code host} is {@code null}.
+     */
+    public Builder setHost(String host) {
+      this.host = Utils.checkNotNull(host, "host");
+      return this;
+    }
+
+    /**
+     * Sets the port the HTTP server listens to, {@code 0} to pick a free one. The default value is
+     * {@code 9464}.
+     *
+     * @param port the port the HTTP server listens to.
+     * @return this.
+     * @throws IllegalArgumentException if {@code port} is not a valid port.
+     */
+    public Builder setPort(int port) {
+      Utils.checkArgument(port >= 0 && port <= 65535, "port must be between 0 and 65535.");
+      this.port = port;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads that serve the scrapes. The default value is {@code 2}.
+     *
+     * @param serverThreads the number of threads that serve the scrapes.
+     * @return this.
+     * @throws IllegalArgumentException if {@code serverThreads} is not positive.
+     */
+    public Builder setServerThreads(int serverThreads) {
+      Utils.checkArgument(serverThreads > 0, "serverThreads must be positive.");
+      this.serverThreads = serverThreads;
+      return this;
+    }
+
+    /**
+     * Starts the HTTP server of a new exporter with the builder's values.
+     *
+     * @return a new exporter's instance.
+     * @throws IOException if the HTTP server can't bind to the address.
+     */
+    public PrometheusExporter build() throws IOException {
+      return new PrometheusExporter(
+          metricProducer, new InetSocketAddress(host, port), serverThreads);
+    }
+  }
+}
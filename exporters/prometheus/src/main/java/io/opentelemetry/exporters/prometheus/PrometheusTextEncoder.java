@@ -0,0 +1,426 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.prometheus;
+
+import io.opentelemetry.sdk.metrics.MetricData;
+import io.opentelemetry.sdk.metrics.MetricDescriptor;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Encodes {@link MetricData} in the Prometheus text exposition format, version 0.0.4.
+ *
+ * <p>The {@code # HELP} and {@code # TYPE} lines of every metric and the escaped name and labels
+ * of every series are encoded once and kept while the series is exported, so encoding a known
+ * series only copies these prefixes and writes the values. The series that are not exported by
+ * a scrape are forgotten.
+ */
+@NotThreadSafe
+final class PrometheusTextEncoder {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final byte[] POSITIVE_INFINITY = utf8("+Inf");
+  private static final byte[] NEGATIVE_INFINITY = utf8("-Inf");
+  private static final byte[] NAN = utf8("NaN");
+  // The doubles that are whole numbers up to this magnitude are written as longs.
+  private static final double MAX_WHOLE_DOUBLE = 1e15;
+  // The longs up to this value are exact as doubles.
+  private static final double MAX_EXACT_LONG = 1L << 53;
+  // Also exact as doubles.
+  private static final long[] POWERS_OF_TEN = {
+    1L,
+    10L,
+    100L,
+    1_000L,
+    10_000L,
+    100_000L,
+    1_000_000L,
+    10_000_000L,
+    100_000_000L,
+    1_000_000_000L,
+    10_000_000_000L,
+    100_000_000_000L,
+    1_000_000_000_000L,
+    10_000_000_000_000L,
+    100_000_000_000_000L,
+    1_000_000_000_000_000L,
+    10_000_000_000_000_000L,
+    100_000_000_000_000_000L
+  };
+
+  private final Map<String, MetricEntry> metricEntries = new HashMap<>();
+  private final byte[] digits = new byte[20];
+  private byte[] buffer;
+  private int length;
+  private long scrapeCount;
+
+  /**
+   * Encodes the given metrics into the given buffer, which is replaced by a larger one when it is
+   * too small.
+   *
+   * @param metrics the metrics to encode.
+   * @param buffer the buffer to encode the metrics into, from the start.
+   * @return the buffer that contains the encoded metrics, either the given one or a larger one.
+   */
+  byte[] encode(Collection<MetricData> metrics, byte[] buffer) {
+    this.buffer = buffer;
+    this.length = 0;
+    scrapeCount++;
+    for (MetricData metric : metrics) {
+      encodeMetric(metric);
+    }
+    removeStaleEntries();
+    byte[] result = this.buffer;
+    this.buffer = null;
+    return result;
+  }
+
+  /**
+   * Returns the length of the last encoded metrics.
+   *
+   * @return the length of the last encoded metrics.
+   */
+  int getLength() {
+    return length;
+  }
+
+  private void encodeMetric(MetricData metric) {
+    MetricDescriptor descriptor = metric.getMetricDescriptor();
+    MetricEntry metricEntry = metricEntries.get(descriptor.getName());
+    if (metricEntry == null || !metricEntry.descriptor.equals(descriptor)) {
+      metricEntry = new MetricEntry(descriptor);
+      metricEntries.put(descriptor.getName(), metricEntry);
+    }
+    metricEntry.lastScrape = scrapeCount;
+    metricEntry.exportedSeries = 0;
+    write(metricEntry.header);
+    for (MetricData.Point point : metric.getPoints()) {
+      SeriesEntry seriesEntry = metricEntry.getSeries(point);
+      seriesEntry.lastScrape = scrapeCount;
+      metricEntry.exportedSeries++;
+      byte[][] prefixes = seriesEntry.prefixes;
+      if (point instanceof MetricData.LongPoint) {
+        write(prefixes[0]);
+        writeLong(((MetricData.LongPoint) point).getValue());
+        writeByte('\n');
+      } else if (point instanceof MetricData.DoublePoint) {
+        write(prefixes[0]);
+        writeDouble(((MetricData.DoublePoint) point).getValue());
+        writeByte('\n');
+      } else {
+        // The bucket counts of the points are not cumulative, unlike the Prometheus ones.
+        MetricData.DistributionPoint distribution = (MetricData.DistributionPoint) point;
+        List<Long> bucketCounts = distribution.getBucketCounts();
+        long cumulativeCount = 0;
+        for (int i = 0; i < bucketCounts.size(); i++) {
+          cumulativeCount += bucketCounts.get(i);
+          write(prefixes[i]);
+          writeLong(cumulativeCount);
+          writeByte('\n');
+        }
+        write(prefixes[prefixes.length - 2]);
+        writeDouble(distribution.getSum());
+        writeByte('\n');
+        write(prefixes[prefixes.length - 1]);
+        writeLong(distribution.getCount());
+        writeByte('\n');
+      }
+    }
+  }
+
+  // Only walks the entries when some of them were not exported by this scrape.
+  private void removeStaleEntries() {
+    Iterator<MetricEntry> metricIterator = null;
+    for (MetricEntry metricEntry : metricEntries.values()) {
+      if (metricEntry.lastScrape != scrapeCount) {
+        metricIterator = metricEntries.values().iterator();
+        break;
+      }
+      if (metricEntry.series.size() > metricEntry.exportedSeries) {
+        metricEntry.removeStaleSeries(scrapeCount);
+      }
+    }
+    if (metricIterator == null) {
+      return;
+    }
+    while (metricIterator.hasNext()) {
+      MetricEntry metricEntry = metricIterator.next();
+      if (metricEntry.lastScrape != scrapeCount) {
+        metricIterator.remove();
+      } else if (metricEntry.series.size() > metricEntry.exportedSeries) {
+        metricEntry.removeStaleSeries(scrapeCount);
+      }
+    }
+  }
+
+  private void write(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  private void writeByte(char c) {
+    ensureCapacity(1);
+    buffer[length++] = (byte) c;
+  }
+
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      write(utf8(Long.toString(value)));
+      return;
+    }
+    if (value < 0) {
+      writeByte('-');
+      value = -value;
+    }
+    int start = digits.length;
+    do {
+      digits[--start] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    int count = digits.length - start;
+    ensureCapacity(count);
+    System.arraycopy(digits, start, buffer, length, count);
+    length += count;
+  }
+
+  private void writeDouble(double value) {
+    if (Double.isNaN(value)) {
+      write(NAN);
+    } else if (value == Double.POSITIVE_INFINITY) {
+      write(POSITIVE_INFINITY);
+    } else if (value == Double.NEGATIVE_INFINITY) {
+      write(NEGATIVE_INFINITY);
+    } else if (value == Math.rint(value) && Math.abs(value) < MAX_WHOLE_DOUBLE) {
+      writeLong((long) value);
+    } else if (!writeDecimal(value)) {
+      // Very small or very large values, or more significant digits than a long holds.
+      write(utf8(Double.toString(value)));
+    }
+  }
+
+  // Writes the value with the fewest fraction digits that parse back to the same double, without
+  // allocating. Returns false if it needs more digits than a double represents exactly.
+  private boolean writeDecimal(double value) {
+    double abs = Math.abs(value);
+    for (int scale = 1; scale < POWERS_OF_TEN.length; scale++) {
+      double scaled = abs * POWERS_OF_TEN[scale];
+      if (scaled >= MAX_EXACT_LONG) {
+        return false;
+      }
+      long mantissa = Math.round(scaled);
+      // Both operands are exact, so the division is rounded like parsing the decimal would be.
+      if (mantissa / (double) POWERS_OF_TEN[scale] != abs) {
+        continue;
+      }
+      if (value < 0) {
+        writeByte('-');
+      }
+      writeLong(mantissa / POWERS_OF_TEN[scale]);
+      writeByte('.');
+      long fraction = mantissa % POWERS_OF_TEN[scale];
+      int start = digits.length;
+      for (int i = 0; i < scale; i++) {
+        digits[--start] = (byte) ('0' + fraction % 10);
+        fraction /= 10;
+      }
+      ensureCapacity(scale);
+      System.arraycopy(digits, start, buffer, length, scale);
+      length += scale;
+      return true;
+    }
+    return false;
+  }
+
+  private void ensureCapacity(int count) {
+    if (length + count > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(length + count, 2 * buffer.length));
+    }
+  }
+
+  private static byte[] utf8(String string) {
+    return string.getBytes(UTF_8);
+  }
+
+  // The names of the metrics may contain any character, Prometheus only accepts
+  // [a-zA-Z_:][a-zA-Z0-9_:]* and no colons in the label names.
+  static String sanitizeName(String name, boolean allowColons) {
+    StringBuilder builder = new StringBuilder(name.length() + 1);
+    if (name.isEmpty() || (name.charAt(0) >= '0' && name.charAt(0) <= '9')) {
+      builder.append('_');
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      boolean valid =
+          (c >= 'a' && c <= 'z')
+              || (c >= 'A' && c <= 'Z')
+              || (c >= '0' && c <= '9')
+              || c == '_'
+              || (allowColons && c == ':');
+      builder.append(valid ? c : '_');
+    }
+    return builder.toString();
+  }
+
+  private static void appendEscaped(StringBuilder builder, String value, boolean escapeQuotes) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\') {
+        builder.append("\\\\");
+      } else if (c == '\n') {
+        builder.append("\\n");
+      } else if (c == '"' && escapeQuotes) {
+        builder.append("\\\"");
+      } else {
+        builder.append(c);
+      }
+    }
+  }
+
+  private static String typeName(MetricDescriptor.Type type) {
+    switch (type) {
+      case MONOTONIC_INT64:
+      case MONOTONIC_DOUBLE:
+        return "counter";
+      case NON_MONOTONIC_INT64:
+      case NON_MONOTONIC_DOUBLE:
+        return "gauge";
+      case DISTRIBUTION:
+        return "histogram";
+    }
+    throw new IllegalArgumentException("Unknown metric type " + type);
+  }
+
+  private static final class MetricEntry {
+    private final MetricDescriptor descriptor;
+    private final String name;
+    private final List<String> labelNames;
+    private final byte[] header;
+    private final Map<List<String>, SeriesEntry> series = new HashMap<>();
+    private long lastScrape;
+    private int exportedSeries;
+
+    private MetricEntry(MetricDescriptor descriptor) {
+      this.descriptor = descriptor;
+      this.name = sanitizeName(descriptor.getName(), /* allowColons= */ true);
+      String[] labelNames = new String[descriptor.getLabelKeys().size()];
+      for (int i = 0; i < labelNames.length; i++) {
+        labelNames[i] = sanitizeName(descriptor.getLabelKeys().get(i), /* allowColons= */ false);
+      }
+      this.labelNames = Arrays.asList(labelNames);
+      StringBuilder builder = new StringBuilder();
+      builder.append("# HELP ").append(name).append(' ');
+      appendEscaped(builder, descriptor.getDescription(), /* escapeQuotes= */ false);
+      builder.append("\n# TYPE ").append(name).append(' ');
+      builder.append(typeName(descriptor.getType())).append('\n');
+      this.header = utf8(builder.toString());
+    }
+
+    private SeriesEntry getSeries(MetricData.Point point) {
+      List<String> labelValues = point.getLabelValues();
+      SeriesEntry seriesEntry = series.get(labelValues);
+      if (seriesEntry == null || !seriesEntry.matches(point)) {
+        seriesEntry = new SeriesEntry(newPrefixes(point));
+        series.put(labelValues, seriesEntry);
+      }
+      return seriesEntry;
+    }
+
+    private byte[][] newPrefixes(MetricData.Point point) {
+      StringBuilder labels = new StringBuilder();
+      for (Map.Entry<String, String> label : descriptor.getConstantLabels().entrySet()) {
+        appendLabel(
+            labels, sanitizeName(label.getKey(), /* allowColons= */ false), label.getValue());
+      }
+      // The points of the default handle have no label values.
+      List<String> labelValues = point.getLabelValues();
+      for (int i = 0; i < labelValues.size(); i++) {
+        appendLabel(labels, labelNames.get(i), labelValues.get(i));
+      }
+      if (!(point instanceof MetricData.DistributionPoint)) {
+        return new byte[][] {prefix(name, labels, null)};
+      }
+      // A prefix per bucket, then the ones of the sum and of the count.
+      List<Double> bounds = ((MetricData.DistributionPoint) point).getBucketBoundaries();
+      byte[][] prefixes = new byte[bounds.size() + 3][];
+      String bucketName = name + "_bucket";
+      for (int i = 0; i < bounds.size(); i++) {
+        prefixes[i] = prefix(bucketName, labels, "le=\"" + bounds.get(i) + "\"");
+      }
+      prefixes[bounds.size()] = prefix(bucketName, labels, "le=\"+Inf\"");
+      prefixes[bounds.size() + 1] = prefix(name + "_sum", labels, null);
+      prefixes[bounds.size() + 2] = prefix(name + "_count", labels, null);
+      return prefixes;
+    }
+
+    private void removeStaleSeries(long scrapeCount) {
+      Iterator<SeriesEntry> iterator = series.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().lastScrape != scrapeCount) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  private static void appendLabel(StringBuilder labels, String name, String value) {
+    if (labels.length() > 0) {
+      labels.append(',');
+    }
+    labels.append(name).append("=\"");
+    appendEscaped(labels, value, /* escapeQuotes= */ true);
+    labels.append('"');
+  }
+
+  private static byte[] prefix(String name, CharSequence labels, @Nullable String extraLabel) {
+    StringBuilder builder = new StringBuilder(name);
+    if (labels.length() > 0 || extraLabel != null) {
+      builder.append('{').append(labels);
+      if (extraLabel != null) {
+        if (labels.length() > 0) {
+          builder.append(',');
+        }
+        builder.append(extraLabel);
+      }
+      builder.append('}');
+    }
+    return utf8(builder.append(' ').toString());
+  }
+
+  private static final class SeriesEntry {
+    private final byte[][] prefixes;
+    private long lastScrape;
+
+    private SeriesEntry(byte[][] prefixes) {
+      this.prefixes = prefixes;
+    }
+
+    // The bucket boundaries of a measure don't change, this only makes sure that the prefixes
+    // can't be indexed out of bounds.
+    private boolean matches(MetricData.Point point) {
+      return !(point instanceof MetricData.DistributionPoint)
+          || ((MetricData.DistributionPoint) point).getBucketBoundaries().size() + 3
+              == prefixes.length;
+    }
+  }
+}
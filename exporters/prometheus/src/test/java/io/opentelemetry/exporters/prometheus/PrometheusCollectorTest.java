@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.prometheus;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.sdk.metrics.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricProducer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PrometheusCollector}. */
+@RunWith(JUnit4.class)
+public class PrometheusCollectorTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  private final BlockingMetricProducer metricProducer = new BlockingMetricProducer();
+  private final PrometheusCollector collector = new PrometheusCollector(metricProducer);
+
+  @Test
+  public void acquire_CollectsEveryScrape() throws InterruptedException {
+    PrometheusCollector.Scrape scrape = collector.acquire();
+    collector.release(scrape);
+    collector.release(collector.acquire());
+    assertThat(metricProducer.collections.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void acquire_ReusesReleasedBuffers() throws InterruptedException {
+    PrometheusCollector.Scrape first = collector.acquire();
+    collector.release(first);
+    PrometheusCollector.Scrape second = collector.acquire();
+    collector.release(second);
+    // The first one is free once the second one replaced it.
+    assertThat(collector.acquire()).isSameInstanceAs(first);
+  }
+
+  @Test
+  public void acquire_DoesNotReuseAcquiredBuffers() throws InterruptedException {
+    PrometheusCollector.Scrape first = collector.acquire();
+    PrometheusCollector.Scrape second = collector.acquire();
+    assertThat(second).isNotSameInstanceAs(first);
+    collector.release(second);
+    assertThat(collector.acquire()).isNotSameInstanceAs(first);
+  }
+
+  @Test(timeout = 10000L)
+  public void acquire_ConcurrentScrapesShareCollection() throws InterruptedException {
+    metricProducer.block();
+    final AtomicReference<PrometheusCollector.Scrape> firstScrape = new AtomicReference<>();
+    Thread first = newScrapeThread(firstScrape);
+    first.start();
+    metricProducer.started.await();
+    final AtomicReference<PrometheusCollector.Scrape> secondScrape = new AtomicReference<>();
+    Thread second = newScrapeThread(secondScrape);
+    second.start();
+    while (second.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+
+    metricProducer.unblock();
+    first.join();
+    second.join();
+
+    assertThat(metricProducer.collections.get()).isEqualTo(1);
+    assertThat(secondScrape.get()).isSameInstanceAs(firstScrape.get());
+  }
+
+  @Test
+  public void acquire_CollectsAgainAfterFailure() throws InterruptedException {
+    metricProducer.failure = new IllegalStateException("collection failed");
+    try {
+      collector.acquire();
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+    metricProducer.failure = null;
+    collector.release(collector.acquire());
+    assertThat(metricProducer.collections.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void acquire_PropagatesFailure() throws InterruptedException {
+    metricProducer.failure = new IllegalStateException("collection failed");
+    thrown.expect(IllegalStateException.class);
+    collector.acquire();
+  }
+
+  private Thread newScrapeThread(final AtomicReference<PrometheusCollector.Scrape> result) {
+    return new Thread(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              result.set(collector.acquire());
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        });
+  }
+
+  private static final class BlockingMetricProducer implements MetricProducer {
+    private final AtomicInteger collections = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile CountDownLatch unblocked = new CountDownLatch(0);
+    private volatile RuntimeException failure;
+
+    private void block() {
+      unblocked = new CountDownLatch(1);
+    }
+
+    private void unblock() {
+      unblocked.countDown();
+    }
+
+    @Override
+    public Collection<MetricData> getAllMetrics() {
+      collections.incrementAndGet();
+      started.countDown();
+      try {
+        unblocked.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return Collections.emptyList();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.prometheus;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.sdk.metrics.MeterSdk;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PrometheusExporter}. */
+@RunWith(JUnit4.class)
+public class PrometheusExporterTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  private final MeterSdk meter = MeterSdk.newBuilder().build();
+  private PrometheusExporter exporter;
+
+  @Before
+  public void setUp() throws IOException {
+    exporter =
+        PrometheusExporter.newBuilder(meter.getMetricProducer())
+            .setHost("localhost")
+            .setPort(0)
+            .build();
+  }
+
+  @After
+  public void tearDown() {
+    exporter.shutdown();
+  }
+
+  @Test
+  public void scrape() throws IOException {
+    meter.counterLongBuilder("requests").build().getDefaultHandle().add(3);
+
+    HttpURLConnection connection = open("GET");
+
+    assertThat(connection.getResponseCode()).isEqualTo(200);
+    assertThat(connection.getContentType()).isEqualTo(PrometheusExporter.CONTENT_TYPE);
+    assertThat(readBody(connection))
+        .isEqualTo("# HELP requests \n# TYPE requests counter\nrequests 3\n");
+  }
+
+  @Test
+  public void scrape_SeesNewValues() throws IOException {
+    meter.counterLongBuilder("requests").build().getDefaultHandle().add(3);
+    assertThat(readBody(open("GET"))).endsWith("requests 3\n");
+    meter.counterLongBuilder("requests").build().getDefaultHandle().add(4);
+    assertThat(readBody(open("GET"))).endsWith("requests 7\n");
+  }
+
+  @Test
+  public void scrape_Head() throws IOException {
+    HttpURLConnection connection = open("HEAD");
+    assertThat(connection.getResponseCode()).isEqualTo(200);
+    assertThat(connection.getContentType()).isEqualTo(PrometheusExporter.CONTENT_TYPE);
+  }
+
+  @Test
+  public void scrape_MethodNotAllowed() throws IOException {
+    assertThat(open("POST").getResponseCode()).isEqualTo(405);
+  }
+
+  @Test
+  public void setPort_Invalid() {
+    thrown.expect(IllegalArgumentException.class);
+    PrometheusExporter.newBuilder(meter.getMetricProducer()).setPort(65536);
+  }
+
+  @Test
+  public void newBuilder_NullMetricProducer() {
+    thrown.expect(NullPointerException.class);
+    PrometheusExporter.newBuilder(null);
+  }
+
+  private HttpURLConnection open(String method) throws IOException {
+    URL url =
+        new URL("http", "localhost", exporter.getPort(), PrometheusExporter.METRICS_PATH);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod(method);
+    return connection;
+  }
+
+  private static String readBody(HttpURLConnection connection) throws IOException {
+    InputStream body = connection.getInputStream();
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = body.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+      return new String(bytes.toByteArray(), Charset.forName("UTF-8"));
+    } finally {
+      body.close();
+    }
+  }
+}
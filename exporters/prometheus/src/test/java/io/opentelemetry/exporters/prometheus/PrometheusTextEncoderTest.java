@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.exporters.prometheus;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.metrics.CounterLong;
+import io.opentelemetry.metrics.GaugeDouble;
+import io.opentelemetry.metrics.MeasureDouble;
+import io.opentelemetry.sdk.metrics.MeterSdk;
+import io.opentelemetry.sdk.metrics.MetricData;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PrometheusTextEncoder}. */
+@RunWith(JUnit4.class)
+public class PrometheusTextEncoderTest {
+  private final MeterSdk meter = MeterSdk.newBuilder().build();
+  private final PrometheusTextEncoder encoder = new PrometheusTextEncoder();
+
+  @Test
+  public void encode_CounterLong() {
+    CounterLong counter =
+        meter
+            .counterLongBuilder("http.requests")
+            .setDescription("The requests")
+            .setLabelKeys(Collections.singletonList("method"))
+            .setConstantLabels(Collections.singletonMap("service", "test"))
+            .build();
+    counter.getHandle(Collections.singletonList("GET")).add(12);
+
+    assertThat(encode(meter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(
+            "# HELP http_requests The requests\n"
+                + "# TYPE http_requests counter\n"
+                + "http_requests{service=\"test\",method=\"GET\"} 12\n");
+  }
+
+  @Test
+  public void encode_GaugeDouble() {
+    meter.gaugeDoubleBuilder("temperature").build().getDefaultHandle().set(21.5);
+    meter.gaugeDoubleBuilder("whole").build().getDefaultHandle().set(-3.0);
+    meter.gaugeDoubleBuilder("infinite").build().getDefaultHandle().set(Double.NEGATIVE_INFINITY);
+
+    String encoded = encode(meter.getMetricProducer().getAllMetrics());
+
+    assertThat(encoded).contains("# TYPE temperature gauge\ntemperature 21.5\n");
+    assertThat(encoded).contains("\nwhole -3\n");
+    assertThat(encoded).contains("\ninfinite -Inf\n");
+  }
+
+  @Test
+  public void encode_GaugeDouble_Decimals() {
+    meter.gaugeDoubleBuilder("tenth").build().getDefaultHandle().set(0.1);
+    meter.gaugeDoubleBuilder("small").build().getDefaultHandle().set(-0.00005);
+    meter.gaugeDoubleBuilder("sum").build().getDefaultHandle().set(0.1 + 0.2);
+    meter.gaugeDoubleBuilder("large").build().getDefaultHandle().set(1.5e20);
+
+    String encoded = encode(meter.getMetricProducer().getAllMetrics());
+
+    assertThat(encoded).contains("\ntenth 0.1\n");
+    assertThat(encoded).contains("\nsmall -0.00005\n");
+    assertThat(encoded).contains("\nsum 0.30000000000000004\n");
+    assertThat(encoded).contains("\nlarge 1.5E20\n");
+  }
+
+  @Test
+  public void encode_GaugeDouble_ParsesBack() {
+    GaugeDouble gauge =
+        meter.gaugeDoubleBuilder("gauge").setLabelKeys(Collections.singletonList("i")).build();
+    Random random = new Random(1234);
+    double[] values = new double[1000];
+    for (int i = 0; i < values.length; i++) {
+      // Both short decimals and values that need all the digits of a double.
+      values[i] =
+          i % 2 == 0
+              ? Math.round(random.nextGaussian() * 1e6) / 1e3
+              : random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10);
+      gauge.getHandle(Collections.singletonList(Integer.toString(i))).set(values[i]);
+    }
+
+    String encoded = encode(meter.getMetricProducer().getAllMetrics());
+
+    for (int i = 0; i < values.length; i++) {
+      String prefix = "gauge{i=\"" + i + "\"} ";
+      int start = encoded.indexOf(prefix) + prefix.length();
+      String value = encoded.substring(start, encoded.indexOf('\n', start));
+      assertThat(Double.parseDouble(value)).isEqualTo(values[i]);
+    }
+  }
+
+  @Test
+  public void encode_MeasureDouble() {
+    MeasureDouble measure = meter.measureDoubleBuilder("latency").build();
+    measure.getDefaultHandle().record(1);
+    measure.getDefaultHandle().record(7);
+    measure.getDefaultHandle().record(20000);
+
+    String encoded = encode(meter.getMetricProducer().getAllMetrics());
+
+    // The Prometheus buckets are cumulative.
+    assertThat(encoded).contains("# TYPE latency histogram\nlatency_bucket{le=\"5.0\"} 1\n");
+    assertThat(encoded).contains("latency_bucket{le=\"10.0\"} 2\n");
+    assertThat(encoded).contains("latency_bucket{le=\"10000.0\"} 2\n");
+    assertThat(encoded).contains("latency_bucket{le=\"+Inf\"} 3\n");
+    assertThat(encoded).contains("latency_sum 20008\nlatency_count 3\n");
+  }
+
+  @Test
+  public void encode_EscapesLabelValuesAndHelp() {
+    CounterLong counter =
+        meter
+            .counterLongBuilder("counter")
+            .setDescription("back\\slash\nnew line")
+            .setLabelKeys(Collections.singletonList("key"))
+            .build();
+    counter.getHandle(Collections.singletonList("a\"b\\c\nd")).add(1);
+
+    assertThat(encode(meter.getMetricProducer().getAllMetrics()))
+        .isEqualTo(
+            "# HELP counter back\\\\slash\\nnew line\n"
+                + "# TYPE counter counter\n"
+                + "counter{key=\"a\\\"b\\\\c\\nd\"} 1\n");
+  }
+
+  @Test
+  public void sanitizeName() {
+    assertThat(PrometheusTextEncoder.sanitizeName("http.server/duration:ms", true))
+        .isEqualTo("http_server_duration:ms");
+    assertThat(PrometheusTextEncoder.sanitizeName("label:key", false)).isEqualTo("label_key");
+    assertThat(PrometheusTextEncoder.sanitizeName("9lives", true)).isEqualTo("_9lives");
+  }
+
+  @Test
+  public void encode_GrowsSmallBuffer() {
+    CounterLong counter =
+        meter.counterLongBuilder("counter").setLabelKeys(Collections.singletonList("key")).build();
+    for (int i = 0; i < 100; i++) {
+      counter.getHandle(Collections.singletonList("value_" + i)).add(i);
+    }
+    byte[] buffer = new byte[16];
+
+    byte[] result = encoder.encode(meter.getMetricProducer().getAllMetrics(), buffer);
+
+    assertThat(result.length).isAtLeast(encoder.getLength());
+    String encoded = new String(result, 0, encoder.getLength(), Charset.forName("UTF-8"));
+    assertThat(encoded).contains("counter{key=\"value_0\"} 0\n");
+    assertThat(encoded).contains("counter{key=\"value_99\"} 99\n");
+  }
+
+  @Test
+  public void encode_ReusesBufferAndForgetsRemovedSeries() {
+    CounterLong counter =
+        meter.counterLongBuilder("counter").setLabelKeys(Collections.singletonList("key")).build();
+    counter.getHandle(Collections.singletonList("a")).add(1);
+    counter.getHandle(Collections.singletonList("b")).add(2);
+    byte[] buffer = new byte[1024];
+    assertThat(encoder.encode(meter.getMetricProducer().getAllMetrics(), buffer))
+        .isSameInstanceAs(buffer);
+
+    counter.removeHandle(Collections.singletonList("a"));
+    byte[] result = encoder.encode(meter.getMetricProducer().getAllMetrics(), buffer);
+
+    assertThat(result).isSameInstanceAs(buffer);
+    assertThat(new String(result, 0, encoder.getLength(), Charset.forName("UTF-8")))
+        .isEqualTo("# HELP counter \n# TYPE counter counter\ncounter{key=\"b\"} 2\n");
+  }
+
+  @Test
+  public void encode_Empty() {
+    assertThat(encode(Collections.<MetricData>emptyList())).isEmpty();
+  }
+
+  private String encode(Collection<MetricData> metrics) {
+    byte[] buffer = encoder.encode(metrics, new byte[64]);
+    return new String(buffer, 0, encoder.getLength(), Charset.forName("UTF-8"));
+  }
+}
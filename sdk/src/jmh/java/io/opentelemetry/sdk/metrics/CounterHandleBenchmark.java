@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.metrics.CounterDouble;
+import io.opentelemetry.metrics.CounterLong;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@code add} on a single bound counter handle scales when all the threads use it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CounterHandleBenchmark {
+  private final MeterSdk meter = new MeterSdk();
+  private final CounterLong.Handle longHandle =
+      meter
+          .counterLongBuilder("long_counter")
+          .setLabelKeys(Collections.singletonList("key"))
+          .build()
+          .getHandle(Collections.singletonList("value"));
+  private final CounterDouble.Handle doubleHandle =
+      meter
+          .counterDoubleBuilder("double_counter")
+          .setLabelKeys(Collections.singletonList("key"))
+          .build()
+          .getHandle(Collections.singletonList("value"));
+
+  @Benchmark
+  @Threads(1)
+  public void addLong_01Thread() {
+    longHandle.add(1);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void addLong_04Threads() {
+    longHandle.add(1);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void addLong_16Threads() {
+    longHandle.add(1);
+  }
+
+  @Benchmark
+  @Threads(64)
+  public void addLong_64Threads() {
+    longHandle.add(1);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void addDouble_01Thread() {
+    doubleHandle.add(1.5);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void addDouble_04Threads() {
+    doubleHandle.add(1.5);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void addDouble_16Threads() {
+    doubleHandle.add(1.5);
+  }
+
+  @Benchmark
+  @Threads(64)
+  public void addDouble_64Threads() {
+    doubleHandle.add(1.5);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.metrics.CounterLong;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code getHandle} for label sets that already have a handle, cycling through the given
+ * number of distinct label sets. Run with {@code -PjmhProfilers=gc} to check that the lookups don't
+ * allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HandleLookupBenchmark {
+  @Param({"10", "1000", "100000"})
+  public int labelSets;
+
+  private CounterLong counter;
+  // Lists equal to the ones used to create the handles, not the same instances.
+  private List<List<String>> labelValues;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    counter =
+        new MeterSdk()
+            .counterLongBuilder("counter")
+            .setLabelKeys(Arrays.asList("method", "status"))
+            .build();
+    labelValues = new ArrayList<>(labelSets);
+    for (int i = 0; i < labelSets; i++) {
+      counter.getHandle(Arrays.asList("method" + i, "200"));
+      labelValues.add(Arrays.asList("method" + i, "200"));
+    }
+  }
+
+  /** The index of the next label set, per thread. */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int index;
+
+    List<String> next(List<List<String>> labelValues) {
+      List<String> next = labelValues.get(index);
+      index = index + 1 == labelValues.size() ? 0 : index + 1;
+      return next;
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public CounterLong.Handle getHandle_01Thread(Cursor cursor) {
+    return counter.getHandle(cursor.next(labelValues));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public CounterLong.Handle getHandle_04Threads(Cursor cursor) {
+    return counter.getHandle(cursor.next(labelValues));
+  }
+
+  @Benchmark
+  @Threads(16)
+  public CounterLong.Handle getHandle_16Threads(Cursor cursor) {
+    return counter.getHandle(cursor.next(labelValues));
+  }
+
+  /** Looks up and records, the way the instrumentation uses the handles. */
+  @Benchmark
+  @Threads(4)
+  public void getHandleAndAdd_04Threads(Cursor cursor) {
+    counter.getHandle(cursor.next(labelValues)).add(1);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.metrics.MeasureBatchRecorder;
+import io.opentelemetry.metrics.MeasureDouble;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares recording a batch of measurements with the {@link MeasureBatchRecorder} to recording
+ * them one by one on the default handles. Run with {@code -PjmhProfilers=gc} to check that a batch
+ * only allocates its recorder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MeasureBatchRecorderBenchmark {
+  @Param({"5", "15"})
+  public int measuresPerBatch;
+
+  private final MeterSdk meter = new MeterSdk();
+  private MeasureDouble[] measures;
+  private MeasureDouble.Handle[] handles;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    measures = new MeasureDouble[measuresPerBatch];
+    handles = new MeasureDouble.Handle[measuresPerBatch];
+    for (int i = 0; i < measuresPerBatch; i++) {
+      measures[i] = meter.measureDoubleBuilder("measure_" + i).build();
+      handles[i] = measures[i].getDefaultHandle();
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void batch_01Thread() {
+    recordBatch();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void batch_04Threads() {
+    recordBatch();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void individual_01Thread() {
+    recordIndividually();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void individual_04Threads() {
+    recordIndividually();
+  }
+
+  private void recordBatch() {
+    MeasureBatchRecorder recorder = meter.newMeasureBatchRecorder();
+    for (int i = 0; i < measures.length; i++) {
+      recorder.put(measures[i], i);
+    }
+    recorder.record();
+  }
+
+  private void recordIndividually() {
+    for (int i = 0; i < handles.length; i++) {
+      handles[i].record(i);
+    }
+  }
+}
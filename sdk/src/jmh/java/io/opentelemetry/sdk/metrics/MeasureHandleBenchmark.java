@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.metrics.MeasureDouble;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@code record} on a single bound measure handle scales when all the threads use it.
+ * Run with {@code -PjmhProfilers=gc} to check that recording doesn't allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MeasureHandleBenchmark {
+  private final MeasureDouble.Handle handle =
+      new MeterSdk()
+          .measureDoubleBuilder("measure")
+          .setLabelKeys(Collections.singletonList("key"))
+          .build()
+          .getHandle(Collections.singletonList("value"));
+
+  @Benchmark
+  @Threads(1)
+  public void record_01Thread() {
+    handle.record(42.0);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void record_04Threads() {
+    handle.record(42.0);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void record_16Threads() {
+    handle.record(42.0);
+  }
+
+  @Benchmark
+  @Threads(64)
+  public void record_64Threads() {
+    handle.record(42.0);
+  }
+}
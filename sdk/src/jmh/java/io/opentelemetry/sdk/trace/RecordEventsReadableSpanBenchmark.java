@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.Tracer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the attribute heavy lifecycle of a {@link RecordEventsReadableSpan}: the span is
+ * started, recorded and ended by one thread, then converted to {@link SpanData} like an exporter
+ * does.
+ *
+ * <p>With {@code access=owner} the recording thread writes without the lock, the default. With
+ * {@code access=lock} the span is shared as soon as it starts, so every write takes the lock like
+ * when another thread touched the span.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RecordEventsReadableSpanBenchmark {
+  private static final String[] ATTRIBUTE_KEYS = new String[16];
+
+  static {
+    for (int i = 0; i < ATTRIBUTE_KEYS.length; i++) {
+      ATTRIBUTE_KEYS[i] = "attribute_" + i;
+    }
+  }
+
+  @Param({"owner", "lock"})
+  public String access;
+
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private Tracer tracer;
+  private boolean shareSpans;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    tracer = tracerSdkFactory.get("RecordEventsReadableSpanBenchmark");
+    shareSpans = "lock".equals(access);
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() {
+    tracerSdkFactory.shutdown();
+  }
+
+  /** One thread records a span with 16 attributes and 2 events, then converts it. */
+  @Benchmark
+  @Threads(1)
+  public SpanData lifecycle_01Thread() {
+    return doLifecycle();
+  }
+
+  /** Like {@link #lifecycle_01Thread()}, with every thread recording its own spans. */
+  @Benchmark
+  @Threads(4)
+  public SpanData lifecycle_04Threads() {
+    return doLifecycle();
+  }
+
+  /** Only records the span, without converting it. */
+  @Benchmark
+  @Threads(1)
+  public Span record_01Thread() {
+    return doRecord();
+  }
+
+  private SpanData doLifecycle() {
+    return ((ReadableSpan) doRecord()).toSpanData();
+  }
+
+  private Span doRecord() {
+    Span span = tracer.spanBuilder("span").startSpan();
+    if (shareSpans) {
+      ((RecordEventsReadableSpan) span).share();
+    }
+    for (int i = 0; i < ATTRIBUTE_KEYS.length; i++) {
+      span.setAttribute(ATTRIBUTE_KEYS[i], i);
+    }
+    span.addEvent("started");
+    span.updateName("renamed");
+    span.addEvent("finished");
+    span.setStatus(Status.OK);
+    span.end();
+    return span;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of recording span attributes. Run it with the GC profiler to get the bytes
+ * allocated per span, reported as {@code gc.alloc.rate.norm}:
+ *
+ * <pre>{@code
+ * ./gradlew :opentelemetry-sdk:jmh -PjmhIncludeSingleClass=SpanAttributesBenchmark \
+ *     -PjmhProfilers=gc
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SpanAttributesBenchmark {
+  private static final String[] KEYS = new String[64];
+
+  static {
+    for (int i = 0; i < KEYS.length; i++) {
+      KEYS[i] = "attribute_" + i;
+    }
+  }
+
+  // The default capacity is 32, so 64 attributes drop half of them.
+  @Param({"10", "30", "64"})
+  public int attributesPerSpan;
+
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private Tracer tracer;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    tracer = tracerSdkFactory.get("SpanAttributesBenchmark");
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() {
+    tracerSdkFactory.shutdown();
+  }
+
+  /** Records long attributes on a span and ends it. */
+  @Benchmark
+  public Span recordLongAttributes() {
+    Span span = tracer.spanBuilder("span").startSpan();
+    for (int i = 0; i < attributesPerSpan; i++) {
+      span.setAttribute(KEYS[i], i);
+    }
+    span.end();
+    return span;
+  }
+
+  /** Records string attributes on a span and ends it. */
+  @Benchmark
+  public Span recordStringAttributes() {
+    Span span = tracer.spanBuilder("span").startSpan();
+    for (int i = 0; i < attributesPerSpan; i++) {
+      span.setAttribute(KEYS[i], KEYS[i]);
+    }
+    span.end();
+    return span;
+  }
+
+  /** Records long attributes on a span, ends it and converts it to {@link SpanData}. */
+  @Benchmark
+  public SpanData recordAndConvert() {
+    Span span = tracer.spanBuilder("span").startSpan();
+    for (int i = 0; i < attributesPerSpan; i++) {
+      span.setAttribute(KEYS[i], i);
+    }
+    span.end();
+    return ((ReadableSpan) span).toSpanData();
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.Tracer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures starting and ending spans through the {@link SpanBuilderSdk}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SpanBuilderSdkBenchmark {
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private Tracer tracer;
+  private Span parentSpan;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    tracer = tracerSdkFactory.get("SpanBuilderSdkBenchmark");
+    parentSpan = tracer.spanBuilder("parent").startSpan();
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() {
+    parentSpan.end();
+    tracerSdkFactory.shutdown();
+  }
+
+  /** Starts and ends a root span. */
+  @Benchmark
+  @Threads(1)
+  public Span startEndRootSpan_01Thread() {
+    return startEndRootSpan();
+  }
+
+  /** Like {@link #startEndRootSpan_01Thread()} with 4 threads. */
+  @Benchmark
+  @Threads(4)
+  public Span startEndRootSpan_04Threads() {
+    return startEndRootSpan();
+  }
+
+  /** Starts and ends a child of an explicit parent span. */
+  @Benchmark
+  @Threads(1)
+  public Span startEndChildSpan_01Thread() {
+    return startEndChildSpan();
+  }
+
+  /**
+   * Like {@link #startEndChildSpan_01Thread()} with 4 threads, all the children sharing the same
+   * parent.
+   */
+  @Benchmark
+  @Threads(4)
+  public Span startEndChildSpan_04Threads() {
+    return startEndChildSpan();
+  }
+
+  private Span startEndRootSpan() {
+    Span span = tracer.spanBuilder("span").setNoParent().setSpanKind(Kind.SERVER).startSpan();
+    span.end();
+    return span;
+  }
+
+  private Span startEndChildSpan() {
+    Span span = tracer.spanBuilder("span").setParent(parentSpan).startSpan();
+    span.end();
+    return span;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures recording events on a {@link RecordEventsReadableSpan}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SpanEventsBenchmark {
+  // The default capacity is 128, so 256 events drop half of them.
+  @Param({"1", "16", "256"})
+  public int eventsPerSpan;
+
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private final Map<String, AttributeValue> eventAttributes = new HashMap<>();
+  private Tracer tracer;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    tracer = tracerSdkFactory.get("SpanEventsBenchmark");
+    eventAttributes.put("key1", AttributeValue.stringAttributeValue("value"));
+    eventAttributes.put("key2", AttributeValue.longAttributeValue(42L));
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() {
+    tracerSdkFactory.shutdown();
+  }
+
+  /** Records events with only a name. */
+  @Benchmark
+  public Span addEvent() {
+    Span span = tracer.spanBuilder("span").startSpan();
+    for (int i = 0; i < eventsPerSpan; i++) {
+      span.addEvent("event");
+    }
+    span.end();
+    return span;
+  }
+
+  /** Records events with two attributes. */
+  @Benchmark
+  public Span addEventWithAttributes() {
+    Span span = tracer.spanBuilder("span").startSpan();
+    for (int i = 0; i < eventsPerSpan; i++) {
+      span.addEvent("event", eventAttributes);
+    }
+    span.end();
+    return span;
+  }
+
+  /** Records events with an explicit timestamp, which doesn't read the clock. */
+  @Benchmark
+  public Span addEventWithTimestamp() {
+    Span span = tracer.spanBuilder("span").startSpan();
+    for (int i = 0; i < eventsPerSpan; i++) {
+      span.addEvent("event", Collections.<String, AttributeValue>emptyMap(), i);
+    }
+    span.end();
+    return span;
+  }
+}
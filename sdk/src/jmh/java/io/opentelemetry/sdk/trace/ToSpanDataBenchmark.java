@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import io.opentelemetry.trace.Span;
+import io.opentelemetry.trace.Tracer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the conversion of a span to {@link SpanData}, as done before every export. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ToSpanDataBenchmark {
+  @Param({"0", "10", "30"})
+  public int attributesPerSpan;
+
+  @Param({"0", "10"})
+  public int eventsPerSpan;
+
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private ReadableSpan endedSpan;
+  private ReadableSpan activeSpan;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    Tracer tracer = tracerSdkFactory.get("ToSpanDataBenchmark");
+    endedSpan = newSpan(tracer);
+    ((Span) endedSpan).end();
+    activeSpan = newSpan(tracer);
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() {
+    ((Span) activeSpan).end();
+    tracerSdkFactory.shutdown();
+  }
+
+  /** Converts an ended span, the common case for exporters. */
+  @Benchmark
+  public SpanData toSpanData_EndedSpan() {
+    return endedSpan.toSpanData();
+  }
+
+  /** Converts a span that is still recording, which copies its mutable state. */
+  @Benchmark
+  public SpanData toSpanData_ActiveSpan() {
+    return activeSpan.toSpanData();
+  }
+
+  private ReadableSpan newSpan(Tracer tracer) {
+    Span span = tracer.spanBuilder("span").startSpan();
+    for (int i = 0; i < attributesPerSpan; i++) {
+      if (i % 2 == 0) {
+        span.setAttribute("attribute_" + i, i);
+      } else {
+        span.setAttribute("attribute_" + i, "value_" + i);
+      }
+    }
+    for (int i = 0; i < eventsPerSpan; i++) {
+      span.addEvent("event_" + i);
+    }
+    return (ReadableSpan) span;
+  }
+}
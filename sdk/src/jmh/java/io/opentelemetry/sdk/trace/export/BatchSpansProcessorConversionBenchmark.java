@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.opentelemetry.sdk.trace.export;
+
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.TracerSdkFactory;
+import io.opentelemetry.trace.Span;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many spans per second go through the {@link BatchSpansProcessor}, from {@link
+ * BatchSpansProcessor#onEnd(ReadableSpan)} to the exporter, depending on where the spans are
+ * converted to {@link SpanData}: by the worker thread alone, helped by {@code conversionThreads}
+ * threads, or by the thread that ends the span with {@code convertOnEnd}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BatchSpansProcessorConversionBenchmark {
+  private static final int BATCH_SIZE = 512;
+
+  @Param({"0", "1", "2", "4"})
+  public int conversionThreads;
+
+  @Param({"false", "true"})
+  public boolean convertOnEnd;
+
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private final CountingSpanExporter exporter = new CountingSpanExporter();
+  private BatchSpansProcessor processor;
+  private ReadableSpan span;
+  private long endedSpans;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    processor =
+        BatchSpansProcessor.newBuilder(exporter)
+            // The worker wakes up as soon as a whole batch is queued.
+            .setMaxQueueSize(2 * BATCH_SIZE)
+            .setMaxExportBatchSize(BATCH_SIZE)
+            .setConversionThreads(conversionThreads)
+            .setConvertOnEnd(convertOnEnd)
+            .build();
+    Span ended =
+        tracerSdkFactory
+            .get("BatchSpansProcessorConversionBenchmark")
+            .spanBuilder("span")
+            .startSpan();
+    for (int i = 0; i < 10; i++) {
+      ended.setAttribute("attribute_" + i, i);
+    }
+    ended.addEvent("event");
+    ended.end();
+    span = (ReadableSpan) ended;
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() {
+    processor.shutdown();
+    tracerSdkFactory.shutdown();
+  }
+
+  /**
+   * Ends a batch of 512 spans and waits until they are exported, the score multiplied by 512 is the
+   * spans per second. Nothing is dropped, the queue holds two batches.
+   */
+  @Benchmark
+  public void endAndExportBatch() throws InterruptedException {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      processor.onEnd(span);
+    }
+    endedSpans += BATCH_SIZE;
+    exporter.awaitExportedSpans(endedSpans);
+  }
+
+  private static final class CountingSpanExporter implements SpanExporter {
+    private final Object monitor = new Object();
+
+    // Guarded by monitor.
+    private long exportedSpans;
+
+    @Override
+    public ResultCode export(List<SpanData> spans) {
+      synchronized (monitor) {
+        exportedSpans += spans.size();
+        monitor.notifyAll();
+      }
+      return ResultCode.SUCCESS;
+    }
+
+    private void awaitExportedSpans(long count) throws InterruptedException {
+      synchronized (monitor) {
+        while (exportedSpans < count) {
+          monitor.wait();
+        }
+      }
+    }
+
+    @Override
+    public void shutdown() {}
+  }
+}
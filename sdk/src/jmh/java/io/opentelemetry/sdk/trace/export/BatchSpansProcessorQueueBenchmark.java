@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the producer side of the {@link BatchSpansProcessor} queue under contention: the
+ * lock-free {@link MpscArrayQueue} with park/unpark against the previous {@code ArrayList} guarded
+ * by a monitor with wait/notify. In both cases a consumer thread drains the queue the same way the
+ * worker thread does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BatchSpansProcessorQueueBenchmark {
+  private static final Object ELEMENT = new Object();
+
+  @Param({"lockFree", "monitor"})
+  public String queueType;
+
+  @Param({"2048"})
+  public int maxQueueSize;
+
+  private SpanQueue queue;
+  private Thread consumerThread;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    queue =
+        "lockFree".equals(queueType)
+            ? new LockFreeSpanQueue(maxQueueSize)
+            : new MonitorSpanQueue(maxQueueSize);
+    consumerThread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                queue.consume();
+              }
+            });
+    consumerThread.start();
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() throws InterruptedException {
+    consumerThread.interrupt();
+    consumerThread.join();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public boolean offer_01Thread() {
+    return queue.offer(ELEMENT);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public boolean offer_08Threads() {
+    return queue.offer(ELEMENT);
+  }
+
+  @Benchmark
+  @Threads(32)
+  public boolean offer_32Threads() {
+    return queue.offer(ELEMENT);
+  }
+
+  @Benchmark
+  @Threads(128)
+  public boolean offer_128Threads() {
+    return queue.offer(ELEMENT);
+  }
+
+  private interface SpanQueue {
+    boolean offer(Object element);
+
+    // Runs the consumer loop until the current thread is interrupted.
+    void consume();
+  }
+
+  // Mirrors the queueing done by the BatchSpansProcessor.Worker.
+  private static final class LockFreeSpanQueue implements SpanQueue {
+    private final MpscArrayQueue<Object> queue;
+    private final int halfMaxQueueSize;
+    private final AtomicBoolean parked = new AtomicBoolean();
+    private volatile Thread consumer;
+
+    private LockFreeSpanQueue(int maxQueueSize) {
+      this.queue = new MpscArrayQueue<>(maxQueueSize);
+      this.halfMaxQueueSize = Math.max(maxQueueSize >> 1, 1);
+    }
+
+    @Override
+    public boolean offer(Object element) {
+      if (!queue.offer(element)) {
+        return false;
+      }
+      if (queue.size() >= halfMaxQueueSize && parked.compareAndSet(true, false)) {
+        LockSupport.unpark(consumer);
+      }
+      return true;
+    }
+
+    @Override
+    public void consume() {
+      consumer = Thread.currentThread();
+      List<Object> sink = new ArrayList<>(queue.capacity());
+      while (!Thread.currentThread().isInterrupted()) {
+        parked.set(true);
+        if (queue.size() < halfMaxQueueSize) {
+          LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        parked.set(false);
+        queue.drain(sink, queue.capacity());
+        sink.clear();
+      }
+    }
+  }
+
+  // The queueing done by the BatchSpansProcessor.Worker before it used a lock-free queue.
+  private static final class MonitorSpanQueue implements SpanQueue {
+    private final Object monitor = new Object();
+    private final List<Object> elements;
+    private final int maxQueueSize;
+    private final int halfMaxQueueSize;
+
+    private MonitorSpanQueue(int maxQueueSize) {
+      this.elements = new ArrayList<>(maxQueueSize);
+      this.maxQueueSize = maxQueueSize;
+      this.halfMaxQueueSize = maxQueueSize >> 1;
+    }
+
+    @Override
+    public boolean offer(Object element) {
+      synchronized (monitor) {
+        if (elements.size() == maxQueueSize) {
+          return false;
+        }
+        elements.add(element);
+        if (elements.size() >= halfMaxQueueSize) {
+          monitor.notifyAll();
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void consume() {
+      while (!Thread.currentThread().isInterrupted()) {
+        List<Object> copy;
+        synchronized (monitor) {
+          try {
+            monitor.wait(5);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+          copy = new ArrayList<>(elements);
+          elements.clear();
+        }
+        copy.clear();
+      }
+    }
+  }
+}
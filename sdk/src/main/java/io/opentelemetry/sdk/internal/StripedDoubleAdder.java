@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.internal;
+
+import static io.opentelemetry.sdk.internal.StripedLongAdder.CELL_STRIDE;
+import static io.opentelemetry.sdk.internal.StripedLongAdder.NUMBER_OF_CELLS;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A sum of {@code double} values that scales with the number of concurrent writers, similar to the
+ * Java 8 {@code java.util.concurrent.atomic.DoubleAdder} which is not available on Java 7 and
+ * Android.
+ *
+ * <p>Works like the {@link StripedLongAdder}, the values are stored as their raw long bits and
+ * added with a compare-and-set loop on the cell of the current thread, so threads only retry when
+ * they share a cell.
+ *
+ * <p>Reading the sum is not an atomic snapshot, concurrent updates may or may not be included. The
+ * order in which the cells are added is not defined, so the rounding of the sum may differ from the
+ * one of a sequential sum of the same values.
+ */
+@ThreadSafe
+public final class StripedDoubleAdder {
+  private final AtomicLong base = new AtomicLong(Double.doubleToRawLongBits(0.0));
+  private final AtomicReference<AtomicLongArray> cells = new AtomicReference<>();
+
+  /**
+   * Adds the given value.
+   *
+   * @param x the value to add.
+   */
+  public void add(double x) {
+    AtomicLongArray currentCells = cells.get();
+    if (currentCells == null) {
+      long current = base.get();
+      if (base.compareAndSet(current, add(current, x))) {
+        return;
+      }
+      currentCells = inflate();
+    }
+    int index = StripedLongAdder.cellIndex();
+    long current;
+    do {
+      current = currentCells.get(index);
+    } while (!currentCells.compareAndSet(index, current, add(current, x)));
+  }
+
+  /**
+   * Returns the current sum.
+   *
+   * @return the current sum.
+   */
+  public double sum() {
+    double sum = Double.longBitsToDouble(base.get());
+    AtomicLongArray currentCells = cells.get();
+    if (currentCells != null) {
+      for (int i = 0; i < currentCells.length(); i += CELL_STRIDE) {
+        sum += Double.longBitsToDouble(currentCells.get(i));
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the current sum and resets the adder to zero. Updates that happen concurrently are
+   * either included in the returned sum or kept for the next call, never lost.
+   *
+   * @return the sum before the reset.
+   */
+  public double sumThenReset() {
+    long zero = Double.doubleToRawLongBits(0.0);
+    double sum = Double.longBitsToDouble(base.getAndSet(zero));
+    AtomicLongArray currentCells = cells.get();
+    if (currentCells != null) {
+      for (int i = 0; i < currentCells.length(); i += CELL_STRIDE) {
+        sum += Double.longBitsToDouble(currentCells.getAndSet(i, zero));
+      }
+    }
+    return sum;
+  }
+
+  private AtomicLongArray inflate() {
+    // The raw bits of 0.0 are all zeros, new cells don't need to be initialized.
+    cells.compareAndSet(null, new AtomicLongArray(NUMBER_OF_CELLS * CELL_STRIDE));
+    return cells.get();
+  }
+
+  private static long add(long bits, double x) {
+    return Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + x);
+  }
+
+  @Override
+  public String toString() {
+    return Double.toString(sum());
+  }
+}
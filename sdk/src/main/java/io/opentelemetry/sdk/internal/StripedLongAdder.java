@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A sum of {@code long} values that scales with the number of concurrent writers, similar to the
+ * Java 8 {@code java.util.concurrent.atomic.LongAdder} which is not available on Java 7 and
+ * Android.
+ *
+ * <p>Updates go to a single base value until a compare-and-set on it fails because of contention,
+ * then the adder inflates to a set of cells, each thread adding to the cell selected by its id.
+ * Cells are padded to a cache line to avoid false sharing between them.
+ *
+ * <p>Reading the sum is not an atomic snapshot, concurrent updates may or may not be included.
+ */
+@ThreadSafe
+public final class StripedLongAdder {
+  // Number of longs between two cells, 8 longs fill a 64 bytes cache line.
+  static final int CELL_STRIDE = 8;
+  static final int NUMBER_OF_CELLS = ThreadStripes.numberOfStripes();
+
+  private final AtomicLong base = new AtomicLong();
+  private final AtomicReference<AtomicLongArray> cells = new AtomicReference<>();
+
+  /**
+   * Adds the given value.
+   *
+   * @param x the value to add.
+   */
+  public void add(long x) {
+    AtomicLongArray currentCells = cells.get();
+    if (currentCells == null) {
+      long current = base.get();
+      if (base.compareAndSet(current, current + x)) {
+        return;
+      }
+      currentCells = inflate();
+    }
+    currentCells.getAndAdd(cellIndex(), x);
+  }
+
+  /** Equivalent to {@code add(1)}. */
+  public void increment() {
+    add(1);
+  }
+
+  /**
+   * Returns the current sum.
+   *
+   * @return the current sum.
+   */
+  public long sum() {
+    long sum = base.get();
+    AtomicLongArray currentCells = cells.get();
+    if (currentCells != null) {
+      for (int i = 0; i < currentCells.length(); i += CELL_STRIDE) {
+        sum += currentCells.get(i);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the current sum and resets the adder to zero. Updates that happen concurrently are
+   * either included in the returned sum or kept for the next call, never lost.
+   *
+   * @return the sum before the reset.
+   */
+  public long sumThenReset() {
+    long sum = base.getAndSet(0);
+    AtomicLongArray currentCells = cells.get();
+    if (currentCells != null) {
+      for (int i = 0; i < currentCells.length(); i += CELL_STRIDE) {
+        sum += currentCells.getAndSet(i, 0);
+      }
+    }
+    return sum;
+  }
+
+  private AtomicLongArray inflate() {
+    cells.compareAndSet(null, new AtomicLongArray(NUMBER_OF_CELLS * CELL_STRIDE));
+    return cells.get();
+  }
+
+  // Shared with the StripedDoubleAdder.
+  static int cellIndex() {
+    return ThreadStripes.currentStripe() * CELL_STRIDE;
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(sum());
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.internal;
+
+/**
+ * Selects the stripe of the current thread for the striped values of the SDK, like the {@link
+ * StripedLongAdder}. Threads keep their stripe, so a thread updating a striped value doesn't
+ * contend with the threads using the other stripes.
+ */
+public final class ThreadStripes {
+  private static final int MAX_STRIPES = 64;
+  private static final int NUMBER_OF_STRIPES = computeNumberOfStripes();
+
+  private ThreadStripes() {}
+
+  /**
+   * Returns the number of stripes, a power of two that is about twice the number of processors.
+   *
+   * @return the number of stripes.
+   */
+  public static int numberOfStripes() {
+    return NUMBER_OF_STRIPES;
+  }
+
+  /**
+   * Returns the stripe of the current thread, between {@code 0} and {@link #numberOfStripes()}
+   * exclusive.
+   *
+   * @return the stripe of the current thread.
+   */
+  public static int currentStripe() {
+    // Spread the thread id bits, consecutive ids would otherwise map to consecutive stripes which
+    // is fine, but ids that differ only in high bits would collide.
+    long id = Thread.currentThread().getId();
+    int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (NUMBER_OF_STRIPES - 1);
+  }
+
+  private static int computeNumberOfStripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    int stripes = Integer.highestOneBit(Math.max(processors, 1)) << 1;
+    return Math.min(stripes, MAX_STRIPES);
+  }
+}
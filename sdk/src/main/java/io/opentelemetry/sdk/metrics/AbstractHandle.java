@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Base class for the handles of the SDK metrics, tracks whether the handle is still in use so that
+ * the idle handles can be removed, see {@link LabelSetTable#collect(LabelSetTable.Visitor, int)}.
+ *
+ * <p>The handles keep the state of the {@link Temporality#CUMULATIVE} collections in fields only
+ * accessed by the collection, recording threads only update the cells that the collection reads
+ * and resets.
+ */
+@ThreadSafe
+abstract class AbstractHandle {
+  // Set when recording, cleared by the collection.
+  private volatile boolean used;
+  // Whether a value was ever recorded, only accessed by the collection.
+  private boolean recorded;
+
+  /** Marks the handle as used, to be called every time a value is recorded. */
+  final void markUsed() {
+    // Only writes once per collection, recording threads don't keep invalidating the cache line.
+    if (!used) {
+      used = true;
+    }
+  }
+
+  /**
+   * Returns whether a value was recorded since the previous call.
+   *
+   * @return whether a value was recorded since the previous call.
+   */
+  final boolean clearUsed() {
+    // A value recorded between the read and the write is only seen at the next call.
+    if (used) {
+      used = false;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether a collection of the given temporality reports a point for this handle.
+   *
+   * @param recordedSinceCollection whether a value was recorded since the previous collection.
+   * @param temporality the temporality of the collection.
+   * @return whether the collection reports a point for this handle.
+   */
+  final boolean hasPoint(boolean recordedSinceCollection, Temporality temporality) {
+    if (recordedSinceCollection) {
+      recorded = true;
+    }
+    return temporality == Temporality.DELTA ? recordedSinceCollection : recorded;
+  }
+
+  /**
+   * Returns the point of this handle and, for the counters and the distributions, resets the
+   * values recorded since the previous collection. Only called by one collection at a time.
+   *
+   * @param labelValues the label values of the point.
+   * @param used the result of {@link #clearUsed()} for this collection.
+   * @param temporality the temporality of the collection.
+   * @return the point of this handle, or {@code null} if it has nothing to report.
+   */
+  @Nullable
+  abstract MetricData.Point collect(
+      List<String> labelValues, boolean used, Temporality temporality);
+}
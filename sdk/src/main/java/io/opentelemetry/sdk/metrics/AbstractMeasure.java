@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.distributedcontext.DistributedContext;
+import io.opentelemetry.distributedcontext.EntryKey;
+import io.opentelemetry.distributedcontext.EntryValue;
+import io.opentelemetry.internal.StringUtils;
+import io.opentelemetry.sdk.metrics.stats.BucketBoundaries;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Base class for the SDK measures. Each handle aggregates its measurements into a distribution, see
+ * {@link DistributionAggregator}.
+ *
+ * <p>The measurements recorded with a {@code MeasureBatchRecorder} are not bound to label values,
+ * the label values are the values of the entries of the current {@link DistributedContext} that
+ * have the label keys as keys, or an empty string if there is no such entry.
+ *
+ * @param <H> the handle.
+ */
+@ThreadSafe
+abstract class AbstractMeasure<H extends AbstractMeasure.MeasureHandle> extends AbstractMetric<H> {
+  // The keys of the entries that give the label values, null if a label key is not a valid key.
+  private final EntryKey[] entryKeys;
+
+  AbstractMeasure(
+      MetricDescriptor descriptor, H defaultHandle, long startEpochNanos, int maxLabelSets) {
+    super(descriptor, defaultHandle, startEpochNanos, maxLabelSets);
+    List<String> labelKeys = descriptor.getLabelKeys();
+    entryKeys = new EntryKey[labelKeys.size()];
+    for (int i = 0; i < entryKeys.length; i++) {
+      entryKeys[i] = toEntryKey(labelKeys.get(i));
+    }
+  }
+
+  /**
+   * Records the given measurement to the handle of the label values taken from the given context.
+   *
+   * @param value the measurement.
+   * @param context the context that gives the label values.
+   * @param labelValues a list to reuse for the label values.
+   */
+  final void record(double value, DistributedContext context, List<String> labelValues) {
+    if (entryKeys.length == 0) {
+      getDefaultHandle().recordValue(value);
+      return;
+    }
+    labelValues.clear();
+    for (EntryKey entryKey : entryKeys) {
+      EntryValue entryValue = entryKey != null ? context.getEntryValue(entryKey) : null;
+      labelValues.add(entryValue != null ? entryValue.asString() : "");
+    }
+    getHandle(labelValues).recordValue(value);
+  }
+
+  @Nullable
+  private static EntryKey toEntryKey(String labelKey) {
+    // Same rules as in EntryKey.create(), which throws for invalid keys.
+    if (labelKey.isEmpty()
+        || labelKey.length() > EntryKey.MAX_LENGTH
+        || !StringUtils.isPrintableString(labelKey)) {
+      return null;
+    }
+    return EntryKey.create(labelKey);
+  }
+
+  /** Base class for the handles of the measures. */
+  @ThreadSafe
+  abstract static class MeasureHandle extends AbstractHandle {
+    private final DistributionAggregator aggregator;
+    // Only accessed by the collection.
+    @Nullable private DistributionAggregator.Snapshot total;
+
+    MeasureHandle(BucketBoundaries bucketBoundaries) {
+      aggregator = new DistributionAggregator(bucketBoundaries);
+    }
+
+    // The value was already checked.
+    final void recordValue(double value) {
+      markUsed();
+      aggregator.record(value);
+    }
+
+    final DistributionAggregator.Snapshot getSnapshot() {
+      return aggregator.getSnapshot();
+    }
+
+    @Nullable
+    @Override
+    final MetricData.Point collect(
+        List<String> labelValues, boolean used, Temporality temporality) {
+      DistributionAggregator.Snapshot delta = aggregator.getSnapshotThenReset();
+      total = total == null ? delta : total.add(delta);
+      // A value recorded after clearUsed() is part of the delta even if the handle looks unused.
+      if (!hasPoint(used || delta.getCount() != 0, temporality)) {
+        return null;
+      }
+      DistributionAggregator.Snapshot snapshot = temporality == Temporality.DELTA ? delta : total;
+      return MetricData.DistributionPoint.createInternal(
+          labelValues,
+          snapshot.getCount(),
+          snapshot.getSum(),
+          snapshot.getMin(),
+          snapshot.getMax(),
+          aggregator.getBucketBoundaries(),
+          snapshot.getBucketCounts(),
+          snapshot.getExemplars());
+    }
+  }
+}
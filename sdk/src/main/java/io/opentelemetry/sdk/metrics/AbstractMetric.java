@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.internal.StripedLongAdder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Base class for the SDK metrics, keeps one handle per list of label values in a {@link
+ * LabelSetTable}.
+ *
+ * <p>Looking up an existing handle doesn't allocate, but the lookup still hashes the label values,
+ * so the application should keep a reference to the handles it uses often. With {@link
+ * Temporality#DELTA}, the handles that record nothing for {@link #MAX_IDLE_COLLECTION_CYCLES}
+ * collections are removed, like with {@link #removeHandle(List)}: looking them up again returns a
+ * new handle, and the values still recorded to the removed handle are not reported. With {@link
+ * Temporality#CUMULATIVE} they are kept, removing them would lose their totals.
+ *
+ * <p>A metric has at most {@code maxLabelSets} handles. Once it has that many, the label values
+ * without a handle are rejected: their values are recorded to a single overflow handle, reported
+ * with {@link #OVERFLOW_LABEL_VALUE} as every label value, and the rejections are counted, see
+ * {@link #getRejectedLabelSets()}. Rejecting label values doesn't allocate, the overflow handle is
+ * only created once.
+ *
+ * @param <H> the handle.
+ */
+abstract class AbstractMetric<H extends AbstractHandle> {
+  static final int MAX_IDLE_COLLECTION_CYCLES = 10;
+  static final String OVERFLOW_LABEL_VALUE = "__overflow__";
+
+  private final MetricDescriptor descriptor;
+  private final H defaultHandle;
+  private final LabelSetTable<H> handles;
+  private final long startEpochNanos;
+  private final List<String> overflowLabelValues;
+  private final AtomicReference<H> overflowHandle = new AtomicReference<>();
+  private final StripedLongAdder rejectedLabelSets = new StripedLongAdder();
+  // Only accessed by the collection.
+  private long lastCollectionEpochNanos;
+
+  AbstractMetric(
+      MetricDescriptor descriptor, H defaultHandle, long startEpochNanos, int maxLabelSets) {
+    this.descriptor = descriptor;
+    this.defaultHandle = defaultHandle;
+    this.startEpochNanos = startEpochNanos;
+    this.lastCollectionEpochNanos = startEpochNanos;
+    this.handles = new LabelSetTable<>(maxLabelSets);
+    this.overflowLabelValues =
+        Collections.nCopies(descriptor.getLabelKeys().size(), OVERFLOW_LABEL_VALUE);
+  }
+
+  public final H getHandle(List<String> labelValues) {
+    Utils.checkListElementNotNull(Utils.checkNotNull(labelValues, "labelValues"), "labelValue");
+    Utils.checkArgument(
+        descriptor.getLabelKeys().size() == labelValues.size(),
+        "Label Keys and Label Values don't have same size.");
+    H handle = handles.get(labelValues);
+    if (handle != null) {
+      return handle;
+    }
+    // Checked before creating the handle, so that rejecting label values doesn't allocate.
+    if (!handles.isFull()) {
+      handle = handles.putIfAbsent(labelValues, newHandle());
+    } else {
+      // The lookup without the lock may have missed a handle moved by a concurrent removal, which
+      // also keeps the table full until it completes.
+      handle = handles.getLocked(labelValues);
+    }
+    if (handle != null) {
+      return handle;
+    }
+    rejectedLabelSets.increment();
+    return getOverflowHandle();
+  }
+
+  public final H getDefaultHandle() {
+    return defaultHandle;
+  }
+
+  public final void removeHandle(List<String> labelValues) {
+    Utils.checkNotNull(labelValues, "labelValues");
+    handles.remove(labelValues);
+  }
+
+  /**
+   * Returns the points of all the handles, see {@link AbstractHandle#collect(List, boolean,
+   * Temporality)}, and removes the idle handles. Only called by one collection at a time.
+   *
+   * @param temporality the temporality of the collection.
+   * @param epochNanos the time of the collection.
+   * @return the data of this metric.
+   */
+  final MetricData collect(final Temporality temporality, long epochNanos) {
+    final List<MetricData.Point> points = new ArrayList<>();
+    MetricData.Point defaultPoint =
+        defaultHandle.collect(
+            Collections.<String>emptyList(), defaultHandle.clearUsed(), temporality);
+    if (defaultPoint != null) {
+      points.add(defaultPoint);
+    }
+    H overflow = overflowHandle.get();
+    if (overflow != null) {
+      MetricData.Point overflowPoint =
+          overflow.collect(overflowLabelValues, overflow.clearUsed(), temporality);
+      if (overflowPoint != null) {
+        points.add(overflowPoint);
+      }
+    }
+    handles.collect(
+        new LabelSetTable.Visitor<H>() {
+          @Override
+          public boolean visit(List<String> labelValues, H handle) {
+            boolean used = handle.clearUsed();
+            MetricData.Point point = handle.collect(labelValues, used, temporality);
+            if (point != null) {
+              points.add(point);
+            }
+            return used;
+          }
+        },
+        temporality == Temporality.DELTA ? MAX_IDLE_COLLECTION_CYCLES : Integer.MAX_VALUE);
+    long start = temporality == Temporality.DELTA ? lastCollectionEpochNanos : startEpochNanos;
+    lastCollectionEpochNanos = epochNanos;
+    return MetricData.createInternal(
+        descriptor, start, epochNanos, Collections.unmodifiableList(points));
+  }
+
+  final MetricDescriptor getMetricDescriptor() {
+    return descriptor;
+  }
+
+  /**
+   * Returns the counter of the label values rejected because this metric already had {@code
+   * maxLabelSets} handles. Each lookup of rejected label values is counted.
+   *
+   * @return the counter of the rejected label values.
+   */
+  final StripedLongAdder getRejectedLabelSets() {
+    return rejectedLabelSets;
+  }
+
+  private H getOverflowHandle() {
+    H handle = overflowHandle.get();
+    if (handle == null) {
+      overflowHandle.compareAndSet(null, newHandle());
+      handle = overflowHandle.get();
+    }
+    return handle;
+  }
+
+  abstract H newHandle();
+}
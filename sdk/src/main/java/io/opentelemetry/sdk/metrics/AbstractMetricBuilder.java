@@ -94,5 +94,10 @@ abstract class AbstractMetricBuilder<B extends Metric.Builder<B, V>, V>
     return constantLabels;
   }
 
+  final MetricDescriptor getMetricDescriptor(MetricDescriptor.Type type) {
+    return MetricDescriptor.createInternal(
+        name, description, unit, type, labelKeys, constantLabels);
+  }
+
   abstract B getThis();
 }
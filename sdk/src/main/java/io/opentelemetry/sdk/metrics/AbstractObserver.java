@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.metrics.Observer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Base class for the SDK observers. The callback is run by the {@link ObserverScheduler} before
+ * each collection, the values it puts are reported like the values of a gauge: the last value put
+ * to a handle wins.
+ *
+ * @param <H> the handle.
+ * @param <R> the result passed to the callback.
+ */
+@ThreadSafe
+abstract class AbstractObserver<H extends AbstractHandle, R> extends AbstractMetric<H> {
+  private final ObserverScheduler observerScheduler;
+  private final R result;
+  @Nullable private volatile Observer.Callback<R> callback;
+  // Set while the callback is scheduled or running, so that a slow callback is not run again
+  // before it finishes.
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  AbstractObserver(
+      MetricDescriptor descriptor,
+      H defaultHandle,
+      long startEpochNanos,
+      int maxLabelSets,
+      ObserverScheduler observerScheduler,
+      R result) {
+    super(descriptor, defaultHandle, startEpochNanos, maxLabelSets);
+    this.observerScheduler = observerScheduler;
+    this.result = result;
+  }
+
+  public final void setCallback(Observer.Callback<R> metricUpdater) {
+    callback = Utils.checkNotNull(metricUpdater, "metricUpdater");
+    observerScheduler.register(this);
+  }
+
+  /**
+   * Marks the callback as running, unless it already is.
+   *
+   * @return whether the callback can be run.
+   */
+  final boolean tryStartCallback() {
+    return running.compareAndSet(false, true);
+  }
+
+  /**
+   * Marks the callback as not running, to be called instead of {@link #runCallback()} when the
+   * callback is not run after {@link #tryStartCallback()} returned {@code true}.
+   */
+  final void abandonCallback() {
+    running.set(false);
+  }
+
+  /** Runs the callback, to be called after {@link #tryStartCallback()} returned {@code true}. */
+  final void runCallback() {
+    try {
+      Observer.Callback<R> currentCallback = callback;
+      if (currentCallback != null) {
+        currentCallback.update(result);
+      }
+    } finally {
+      running.set(false);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.metrics.CounterDouble;
+import io.opentelemetry.sdk.internal.StripedDoubleAdder;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * SDK implementation of the {@link CounterDouble}. The handles add to a {@link
+ * StripedDoubleAdder}, so threads adding to the same handle don't contend.
+ */
+@ThreadSafe
+final class CounterDoubleSdk extends AbstractMetric<CounterDoubleSdk.HandleSdk>
+    implements CounterDouble {
+  private final boolean monotonic;
+
+  private CounterDoubleSdk(
+      MetricDescriptor descriptor, boolean monotonic, long startEpochNanos, int maxLabelSets) {
+    super(descriptor, new HandleSdk(monotonic), startEpochNanos, maxLabelSets);
+    this.monotonic = monotonic;
+  }
+
+  static CounterDouble.Builder newBuilder(String name, MeterSharedState meterSharedState) {
+    return new BuilderSdk(name, meterSharedState);
+  }
+
+  @Override
+  HandleSdk newHandle() {
+    return new HandleSdk(monotonic);
+  }
+
+  @ThreadSafe
+  static final class HandleSdk extends AbstractHandle implements Handle {
+    private final StripedDoubleAdder value = new StripedDoubleAdder();
+    private final boolean monotonic;
+    // Only accessed by the collection.
+    private double total;
+
+    private HandleSdk(boolean monotonic) {
+      this.monotonic = monotonic;
+    }
+
+    // Negative deltas are ignored by monotonic counters.
+    @Override
+    public void add(double delta) {
+      if (monotonic && delta < 0) {
+        return;
+      }
+      markUsed();
+      value.add(delta);
+    }
+
+    double getValue() {
+      return value.sum();
+    }
+
+    @Nullable
+    @Override
+    MetricData.Point collect(List<String> labelValues, boolean used, Temporality temporality) {
+      double delta = value.sumThenReset();
+      total += delta;
+      // A value added after clearUsed() is part of the delta even if the handle looks unused.
+      if (!hasPoint(used || delta != 0, temporality)) {
+        return null;
+      }
+      return MetricData.DoublePoint.createInternal(
+          labelValues, temporality == Temporality.DELTA ? delta : total);
+    }
+  }
+
+  private static final class BuilderSdk
+      extends AbstractCounterBuilder<CounterDouble.Builder, CounterDouble>
+      implements CounterDouble.Builder {
+    private final MeterSharedState meterSharedState;
+
+    private BuilderSdk(String name, MeterSharedState meterSharedState) {
+      super(name);
+      this.meterSharedState = meterSharedState;
+    }
+
+    @Override
+    CounterDouble.Builder getThis() {
+      return this;
+    }
+
+    @Override
+    public CounterDouble build() {
+      return meterSharedState.register(
+          new CounterDoubleSdk(
+              getMetricDescriptor(
+                  getMonotonic() ? Type.MONOTONIC_DOUBLE : Type.NON_MONOTONIC_DOUBLE),
+              getMonotonic(),
+              meterSharedState.getClock().now(),
+              meterSharedState.getMaxLabelSets(getName())));
+    }
+  }
+}
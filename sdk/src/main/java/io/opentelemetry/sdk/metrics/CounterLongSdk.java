@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.metrics.CounterLong;
+import io.opentelemetry.sdk.internal.StripedLongAdder;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * SDK implementation of the {@link CounterLong}. The handles add to a {@link StripedLongAdder},
+ * so threads adding to the same handle don't contend.
+ */
+@ThreadSafe
+final class CounterLongSdk extends AbstractMetric<CounterLongSdk.HandleSdk> implements CounterLong {
+  private final boolean monotonic;
+
+  private CounterLongSdk(
+      MetricDescriptor descriptor, boolean monotonic, long startEpochNanos, int maxLabelSets) {
+    super(descriptor, new HandleSdk(monotonic), startEpochNanos, maxLabelSets);
+    this.monotonic = monotonic;
+  }
+
+  static CounterLong.Builder newBuilder(String name, MeterSharedState meterSharedState) {
+    return new BuilderSdk(name, meterSharedState);
+  }
+
+  @Override
+  HandleSdk newHandle() {
+    return new HandleSdk(monotonic);
+  }
+
+  @ThreadSafe
+  static final class HandleSdk extends AbstractHandle implements Handle {
+    private final StripedLongAdder value = new StripedLongAdder();
+    private final boolean monotonic;
+    // Only accessed by the collection.
+    private long total;
+
+    private HandleSdk(boolean monotonic) {
+      this.monotonic = monotonic;
+    }
+
+    // Negative deltas are ignored by monotonic counters.
+    @Override
+    public void add(long delta) {
+      if (monotonic && delta < 0) {
+        return;
+      }
+      markUsed();
+      value.add(delta);
+    }
+
+    long getValue() {
+      return value.sum();
+    }
+
+    @Nullable
+    @Override
+    MetricData.Point collect(List<String> labelValues, boolean used, Temporality temporality) {
+      long delta = value.sumThenReset();
+      total += delta;
+      // A value added after clearUsed() is part of the delta even if the handle looks unused.
+      if (!hasPoint(used || delta != 0, temporality)) {
+        return null;
+      }
+      return MetricData.LongPoint.createInternal(
+          labelValues, temporality == Temporality.DELTA ? delta : total);
+    }
+  }
+
+  private static final class BuilderSdk
+      extends AbstractCounterBuilder<CounterLong.Builder, CounterLong>
+      implements CounterLong.Builder {
+    private final MeterSharedState meterSharedState;
+
+    private BuilderSdk(String name, MeterSharedState meterSharedState) {
+      super(name);
+      this.meterSharedState = meterSharedState;
+    }
+
+    @Override
+    CounterLong.Builder getThis() {
+      return this;
+    }
+
+    @Override
+    public CounterLong build() {
+      return meterSharedState.register(
+          new CounterLongSdk(
+              getMetricDescriptor(getMonotonic() ? Type.MONOTONIC_INT64 : Type.NON_MONOTONIC_INT64),
+              getMonotonic(),
+              meterSharedState.getClock().now(),
+              meterSharedState.getMaxLabelSets(getName())));
+    }
+  }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import com.google.auto.value.AutoValue;
+import io.opentelemetry.sdk.internal.ThreadStripes;
+import io.opentelemetry.sdk.metrics.stats.BucketBoundaries;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.unsafe.ContextUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Aggregates measurements into a distribution: their count, sum, minimum, maximum and the number of
+ * measurements in each bucket of the {@link BucketBoundaries}.
+ *
+ * <p>Recording doesn't allocate and doesn't lock. Like the {@code StripedLongAdder}, the values go
+ * to a single set of cells until a compare-and-set on the sum fails because of contention, then
+ * each thread records to the cells of its stripe. All the values of a set of cells are in one
+ * {@link AtomicLongArray}, the doubles are stored as their raw long bits. The stripes are merged
+ * when a snapshot is taken.
+ *
+ * <p>The count is not stored, it is the sum of the bucket counts, so that the count and the
+ * buckets of a snapshot always agree even when the cells are reset while measurements are being
+ * recorded.
+ *
+ * <p>Each bucket also keeps an exemplar, the context of the first sampled span in which a
+ * measurement of the bucket was recorded since the previous reset. Once a bucket has its exemplar,
+ * recording only reads it, and setting it stores the span context already referenced by the span,
+ * so the exemplars don't allocate either.
+ */
+@ThreadSafe
+final class DistributionAggregator {
+  private static final int SUM = 0;
+  private static final int MIN = 1;
+  private static final int MAX = 2;
+  private static final int FIRST_BUCKET = 3;
+  private static final long POSITIVE_INFINITY =
+      Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+  private static final long NEGATIVE_INFINITY =
+      Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY);
+  // 8 longs fill a 64 bytes cache line.
+  private static final int LONGS_PER_CACHE_LINE = 8;
+
+  // The boundaries used by the measures, suited to latencies in milliseconds.
+  static final BucketBoundaries DEFAULT_BUCKET_BOUNDARIES =
+      BucketBoundaries.create(
+          Arrays.asList(
+              5.0, 10.0, 25.0, 50.0, 75.0, 100.0, 250.0, 500.0, 750.0, 1000.0, 2500.0, 5000.0,
+              7500.0, 10000.0));
+
+  private final BucketBoundaries bucketBoundaries;
+  private final double[] boundaries;
+  // Number of longs between two stripes.
+  private final int stride;
+  private final AtomicLongArray base;
+  private final AtomicReference<AtomicLongArray> stripes = new AtomicReference<>();
+  // The exemplar of each bucket, not striped: it is only written once per bucket and interval.
+  private final AtomicReferenceArray<SpanContext> exemplars;
+
+  DistributionAggregator(BucketBoundaries bucketBoundaries) {
+    this.bucketBoundaries = bucketBoundaries;
+    List<Double> boundariesList = bucketBoundaries.getBoundaries();
+    boundaries = new double[boundariesList.size()];
+    for (int i = 0; i < boundaries.length; i++) {
+      boundaries[i] = boundariesList.get(i);
+    }
+    // Number of values of a set of cells.
+    int length = FIRST_BUCKET + boundaries.length + 1;
+    // Whole cache lines, plus one so that two stripes never share a line whatever the alignment of
+    // the array.
+    stride =
+        ((length + LONGS_PER_CACHE_LINE - 1) / LONGS_PER_CACHE_LINE + 1) * LONGS_PER_CACHE_LINE;
+    base = newCells(1, length);
+    exemplars = new AtomicReferenceArray<>(boundaries.length + 1);
+  }
+
+  /**
+   * Records the given measurement, in the current span.
+   *
+   * @param value the measurement.
+   */
+  void record(double value) {
+    record(value, ContextUtils.getValue().getContext());
+  }
+
+  /**
+   * Records the given measurement, in the span with the given context.
+   *
+   * @param value the measurement.
+   * @param spanContext the context of the span in which the measurement is recorded.
+   */
+  void record(double value, SpanContext spanContext) {
+    int bucketIndex = bucketIndex(value);
+    recordCells(FIRST_BUCKET + bucketIndex, value);
+    // After the bucket is counted, so that a collection that sees the exemplar sees its count, see
+    // collect().
+    if (spanContext.getTraceFlags().isSampled() && exemplars.get(bucketIndex) == null) {
+      exemplars.compareAndSet(bucketIndex, null, spanContext);
+    }
+  }
+
+  private void recordCells(int bucket, double value) {
+    AtomicLongArray currentStripes = stripes.get();
+    if (currentStripes == null) {
+      long sum = base.get(SUM);
+      if (base.compareAndSet(SUM, sum, addToBits(sum, value))) {
+        recordValue(base, 0, bucket, value);
+        return;
+      }
+      currentStripes = inflate();
+    }
+    int offset = ThreadStripes.currentStripe() * stride;
+    long sum;
+    do {
+      sum = currentStripes.get(offset + SUM);
+    } while (!currentStripes.compareAndSet(offset + SUM, sum, addToBits(sum, value)));
+    recordValue(currentStripes, offset, bucket, value);
+  }
+
+  /**
+   * Returns the distribution of the measurements recorded so far. It is not an atomic snapshot,
+   * measurements recorded concurrently may be partially included.
+   *
+   * @return the distribution of the measurements recorded so far.
+   */
+  Snapshot getSnapshot() {
+    return collect(false);
+  }
+
+  /**
+   * Returns the distribution of the measurements recorded since the previous reset, and resets the
+   * cells. Recording is never blocked: each cell is read and reset with a single atomic exchange,
+   * so a measurement recorded concurrently is counted either in this snapshot or in the next one,
+   * never in both and never lost. Its sum, minimum and maximum are updated before it is counted in
+   * its bucket, they are only in the previous snapshot if it was recorded while that snapshot was
+   * being reset. The exemplars are reset too.
+   *
+   * @return the distribution of the measurements recorded since the previous reset.
+   */
+  Snapshot getSnapshotThenReset() {
+    return collect(true);
+  }
+
+  /**
+   * Returns the bucket boundaries of the distribution.
+   *
+   * @return the bucket boundaries of the distribution.
+   */
+  List<Double> getBucketBoundaries() {
+    return bucketBoundaries.getBoundaries();
+  }
+
+  private Snapshot collect(boolean reset) {
+    // The exemplars are read before the buckets.
+    List<MetricData.Exemplar> exemplarList = new ArrayList<>();
+    for (int i = 0; i < exemplars.length(); i++) {
+      SpanContext spanContext = reset ? exemplars.getAndSet(i, null) : exemplars.get(i);
+      if (spanContext != null) {
+        exemplarList.add(
+            MetricData.Exemplar.createInternal(
+                i, spanContext.getTraceId(), spanContext.getSpanId()));
+      }
+    }
+    List<MetricData.Exemplar> exemplarsSnapshot = Collections.unmodifiableList(exemplarList);
+    Totals totals = new Totals(boundaries.length + 1);
+    totals.add(base, 0, reset);
+    AtomicLongArray currentStripes = stripes.get();
+    if (currentStripes != null) {
+      for (int offset = 0; offset < currentStripes.length(); offset += stride) {
+        totals.add(currentStripes, offset, reset);
+      }
+    }
+    List<Long> bucketCounts = new ArrayList<>(totals.bucketCounts.length);
+    long count = 0;
+    for (long bucketCount : totals.bucketCounts) {
+      bucketCounts.add(bucketCount);
+      count += bucketCount;
+    }
+    if (count == 0) {
+      return Snapshot.create(
+          0, totals.sum, 0, 0, Collections.unmodifiableList(bucketCounts), exemplarsSnapshot);
+    }
+    double min = totals.min;
+    double max = totals.max;
+    if (min > max) {
+      // Only measurements recorded while the previous snapshot was reset, their minimum and maximum
+      // went to the previous snapshot. They are approximated by the bounds of their buckets.
+      int first = 0;
+      while (totals.bucketCounts[first] == 0) {
+        first++;
+      }
+      int last = totals.bucketCounts.length - 1;
+      while (totals.bucketCounts[last] == 0) {
+        last--;
+      }
+      min = lowerBound(first);
+      // The last bucket has no upper bound.
+      max = last < boundaries.length ? boundaries[last] : lowerBound(last);
+    }
+    return Snapshot.create(
+        count, totals.sum, min, max, Collections.unmodifiableList(bucketCounts), exemplarsSnapshot);
+  }
+
+  // Returns the index of the bucket of the value, the bucket i contains the values in
+  // [boundaries[i - 1], boundaries[i]).
+  int bucketIndex(double value) {
+    int index = Arrays.binarySearch(boundaries, value);
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  // The measurements are not negative.
+  private double lowerBound(int bucket) {
+    return bucket == 0 ? 0 : boundaries[bucket - 1];
+  }
+
+  private AtomicLongArray inflate() {
+    stripes.compareAndSet(null, newCells(ThreadStripes.numberOfStripes(), stride));
+    return stripes.get();
+  }
+
+  private static AtomicLongArray newCells(int numberOfSets, int setStride) {
+    AtomicLongArray cells = new AtomicLongArray(numberOfSets * setStride);
+    for (int offset = 0; offset < cells.length(); offset += setStride) {
+      cells.set(offset + MIN, POSITIVE_INFINITY);
+      cells.set(offset + MAX, NEGATIVE_INFINITY);
+    }
+    return cells;
+  }
+
+  private static long addToBits(long bits, double value) {
+    return Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + value);
+  }
+
+  // The sum was already updated. The bucket is counted last, see getSnapshotThenReset().
+  private static void recordValue(AtomicLongArray cells, int offset, int bucket, double value) {
+    // Most of the measurements don't change the minimum or the maximum, these only read.
+    long bits = Double.doubleToRawLongBits(value);
+    long current;
+    do {
+      current = cells.get(offset + MIN);
+    } while (value < Double.longBitsToDouble(current)
+        && !cells.compareAndSet(offset + MIN, current, bits));
+    do {
+      current = cells.get(offset + MAX);
+    } while (value > Double.longBitsToDouble(current)
+        && !cells.compareAndSet(offset + MAX, current, bits));
+    cells.getAndIncrement(offset + bucket);
+  }
+
+  private static final class Totals {
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final long[] bucketCounts;
+
+    private Totals(int numberOfBuckets) {
+      bucketCounts = new long[numberOfBuckets];
+    }
+
+    // The buckets are read first, in the reverse order of recordValue().
+    private void add(AtomicLongArray cells, int offset, boolean reset) {
+      for (int i = 0; i < bucketCounts.length; i++) {
+        bucketCounts[i] += get(cells, offset + FIRST_BUCKET + i, 0, reset);
+      }
+      sum += Double.longBitsToDouble(get(cells, offset + SUM, 0, reset));
+      long minBits = get(cells, offset + MIN, POSITIVE_INFINITY, reset);
+      min = Math.min(min, Double.longBitsToDouble(minBits));
+      long maxBits = get(cells, offset + MAX, NEGATIVE_INFINITY, reset);
+      max = Math.max(max, Double.longBitsToDouble(maxBits));
+    }
+
+    private static long get(AtomicLongArray cells, int index, long initialValue, boolean reset) {
+      return reset ? cells.getAndSet(index, initialValue) : cells.get(index);
+    }
+  }
+
+  /** The distribution of the measurements recorded by a {@link DistributionAggregator}. */
+  @Immutable
+  @AutoValue
+  abstract static class Snapshot {
+    Snapshot() {}
+
+    static Snapshot create(
+        long count, double sum, double min, double max, List<Long> bucketCounts) {
+      return create(
+          count, sum, min, max, bucketCounts, Collections.<MetricData.Exemplar>emptyList());
+    }
+
+    static Snapshot create(
+        long count,
+        double sum,
+        double min,
+        double max,
+        List<Long> bucketCounts,
+        List<MetricData.Exemplar> exemplars) {
+      return new AutoValue_DistributionAggregator_Snapshot(
+          count, sum, min, max, bucketCounts, exemplars);
+    }
+
+    /**
+     * Returns the distribution of the measurements of both snapshots, which must have the same
+     * buckets. The exemplars of the other snapshot replace the exemplars of the same buckets.
+     *
+     * @param other the other snapshot.
+     * @return the distribution of the measurements of both snapshots.
+     */
+    Snapshot add(Snapshot other) {
+      List<Long> bucketCounts = getBucketCounts();
+      List<Long> otherBucketCounts = other.getBucketCounts();
+      List<Long> sums = new ArrayList<>(bucketCounts.size());
+      for (int i = 0; i < bucketCounts.size(); i++) {
+        sums.add(bucketCounts.get(i) + otherBucketCounts.get(i));
+      }
+      // The minimum and the maximum of an empty snapshot are 0, not bounds.
+      boolean empty = getCount() == 0;
+      boolean otherEmpty = other.getCount() == 0;
+      return create(
+          getCount() + other.getCount(),
+          getSum() + other.getSum(),
+          empty ? other.getMin() : otherEmpty ? getMin() : Math.min(getMin(), other.getMin()),
+          empty ? other.getMax() : otherEmpty ? getMax() : Math.max(getMax(), other.getMax()),
+          Collections.unmodifiableList(sums),
+          mergeExemplars(getExemplars(), other.getExemplars()));
+    }
+
+    // Both lists are sorted by bucket index, the later exemplars win.
+    private static List<MetricData.Exemplar> mergeExemplars(
+        List<MetricData.Exemplar> earlier, List<MetricData.Exemplar> later) {
+      if (earlier.isEmpty()) {
+        return later;
+      }
+      List<MetricData.Exemplar> merged = new ArrayList<>(earlier.size() + later.size());
+      int i = 0;
+      int j = 0;
+      while (i < earlier.size() || j < later.size()) {
+        if (j == later.size()) {
+          merged.add(earlier.get(i++));
+        } else if (i == earlier.size()) {
+          merged.add(later.get(j++));
+        } else {
+          int earlierIndex = earlier.get(i).getBucketIndex();
+          int laterIndex = later.get(j).getBucketIndex();
+          if (earlierIndex < laterIndex) {
+            merged.add(earlier.get(i++));
+          } else {
+            if (earlierIndex == laterIndex) {
+              i++;
+            }
+            merged.add(later.get(j++));
+          }
+        }
+      }
+      return Collections.unmodifiableList(merged);
+    }
+
+    /**
+     * Returns the number of measurements.
+     *
+     * @return the number of measurements.
+     */
+    abstract long getCount();
+
+    /**
+     * Returns the sum of the measurements.
+     *
+     * @return the sum of the measurements.
+     */
+    abstract double getSum();
+
+    /**
+     * Returns the smallest measurement, {@code 0} if there are none.
+     *
+     * @return the smallest measurement.
+     */
+    abstract double getMin();
+
+    /**
+     * Returns the largest measurement, {@code 0} if there are none.
+     *
+     * @return the largest measurement.
+     */
+    abstract double getMax();
+
+    /**
+     * Returns the number of measurements in each bucket, one more than the number of bucket
+     * boundaries.
+     *
+     * @return the number of measurements in each bucket.
+     */
+    abstract List<Long> getBucketCounts();
+
+    /**
+     * Returns the exemplars of the buckets, in increasing order of bucket index.
+     *
+     * @return the exemplars of the buckets.
+     */
+    abstract List<MetricData.Exemplar> getExemplars();
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The handles of a metric, by label values. Each set of label values is interned as an array, the
+ * canonical key of the handle.
+ *
+ * <p>The entries are kept in an open addressing table with linear probing. Lookups don't lock and
+ * don't allocate: they hash the elements of the given list and compare them to the keys. Adding and
+ * removing entries takes the lock of the table and publishes the entries with atomic writes, a
+ * lookup that runs concurrently may not see an entry being added or moved, so a missing entry is
+ * looked up again under the lock before being added or rejected.
+ *
+ * @param <H> the handle.
+ */
+@ThreadSafe
+final class LabelSetTable<H extends AbstractHandle> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final int maxSize;
+  private final Object lock = new Object();
+  // Never more than half full, so that probing always reaches an empty slot. Lookups may see the
+  // table being replaced.
+  private volatile AtomicReferenceArray<Entry<H>> table =
+      new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+  // Only written under the lock, read without it by isFull().
+  private volatile int size;
+
+  /**
+   * Creates a table that holds at most the given number of handles.
+   *
+   * @param maxSize the maximum number of handles.
+   */
+  LabelSetTable(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the handle of the given label values, or {@code null} if there is none.
+   *
+   * @param labelValues the label values.
+   * @return the handle of the given label values.
+   */
+  @Nullable
+  H get(List<String> labelValues) {
+    Entry<H> entry = find(table, labelValues, hash(labelValues));
+    return entry != null ? entry.handle : null;
+  }
+
+  /**
+   * Returns the handle of the given label values, or {@code null} if there is none. Unlike {@link
+   * #get(List)} takes the lock, so it never misses an entry being moved by a concurrent removal.
+   *
+   * @param labelValues the label values.
+   * @return the handle of the given label values.
+   */
+  @Nullable
+  H getLocked(List<String> labelValues) {
+    int hash = hash(labelValues);
+    synchronized (lock) {
+      Entry<H> entry = find(table, labelValues, hash);
+      return entry != null ? entry.handle : null;
+    }
+  }
+
+  /**
+   * Adds the handle for the given label values, unless there is already one or the table is full.
+   *
+   * @param labelValues the label values, copied if the handle is added.
+   * @param handle the handle to add.
+   * @return the handle of the label values, either the existing one or {@code handle}, or {@code
+   *     null} if the table is full.
+   */
+  @Nullable
+  H putIfAbsent(List<String> labelValues, H handle) {
+    int hash = hash(labelValues);
+    synchronized (lock) {
+      Entry<H> existing = find(table, labelValues, hash);
+      if (existing != null) {
+        return existing.handle;
+      }
+      if (size >= maxSize) {
+        return null;
+      }
+      if (2 * (size + 1) > table.length()) {
+        table = resize(table);
+      }
+      insert(table, new Entry<>(labelValues.toArray(new String[0]), hash, handle));
+      size++;
+      return handle;
+    }
+  }
+
+  /**
+   * Removes the handle of the given label values, if any.
+   *
+   * @param labelValues the label values.
+   */
+  void remove(List<String> labelValues) {
+    int hash = hash(labelValues);
+    synchronized (lock) {
+      AtomicReferenceArray<Entry<H>> current = table;
+      int index = indexOf(current, labelValues, hash);
+      if (index >= 0) {
+        removeAt(current, index);
+        size--;
+      }
+    }
+  }
+
+  /**
+   * Visits every handle, then removes the handles that recorded no value during the given number
+   * of consecutive calls. To be called once per collection, by one thread at a time.
+   *
+   * <p>The lock is only held to copy the entries and to remove the idle ones, the handles are
+   * visited without holding it so that adding handles doesn't wait for the collection. A handle
+   * added concurrently may only be visited by the next call.
+   *
+   * @param visitor the visitor of the handles.
+   * @param maxIdleCycles the number of calls after which an unused handle is removed.
+   */
+  void collect(Visitor<H> visitor, int maxIdleCycles) {
+    List<Entry<H>> entries = new ArrayList<>();
+    synchronized (lock) {
+      AtomicReferenceArray<Entry<H>> current = table;
+      for (int i = 0; i < current.length(); i++) {
+        Entry<H> entry = current.get(i);
+        if (entry != null) {
+          entries.add(entry);
+        }
+      }
+    }
+    List<Entry<H>> idle = new ArrayList<>();
+    for (Entry<H> entry : entries) {
+      if (visitor.visit(entry.labelValuesList, entry.handle)) {
+        entry.idleCycles = 0;
+      } else if (++entry.idleCycles >= maxIdleCycles) {
+        idle.add(entry);
+      }
+    }
+    if (idle.isEmpty()) {
+      return;
+    }
+    synchronized (lock) {
+      AtomicReferenceArray<Entry<H>> current = table;
+      for (Entry<H> entry : idle) {
+        int index = indexOf(current, entry.labelValuesList, entry.hash);
+        // The handle may have been removed, or removed and added again, since it was visited.
+        if (index >= 0 && current.get(index) == entry) {
+          removeAt(current, index);
+          size--;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of handles.
+   *
+   * @return the number of handles.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether the table has the maximum number of handles. Doesn't lock, the table may be
+   * changed concurrently.
+   *
+   * @return whether the table has the maximum number of handles.
+   */
+  boolean isFull() {
+    return size >= maxSize;
+  }
+
+  @Nullable
+  private Entry<H> find(AtomicReferenceArray<Entry<H>> slots, List<String> labelValues, int hash) {
+    int mask = slots.length() - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      Entry<H> entry = slots.get(i);
+      if (entry == null) {
+        return null;
+      }
+      if (entry.hash == hash && entry.matches(labelValues)) {
+        return entry;
+      }
+    }
+  }
+
+  // Only called under the lock, when no other thread changes the table.
+  private int indexOf(AtomicReferenceArray<Entry<H>> slots, List<String> labelValues, int hash) {
+    int mask = slots.length() - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      Entry<H> entry = slots.get(i);
+      if (entry == null) {
+        return -1;
+      }
+      if (entry.hash == hash && entry.matches(labelValues)) {
+        return i;
+      }
+    }
+  }
+
+  private void insert(AtomicReferenceArray<Entry<H>> slots, Entry<H> entry) {
+    int mask = slots.length() - 1;
+    int i = entry.hash & mask;
+    while (slots.get(i) != null) {
+      i = (i + 1) & mask;
+    }
+    slots.set(i, entry);
+  }
+
+  private AtomicReferenceArray<Entry<H>> resize(AtomicReferenceArray<Entry<H>> slots) {
+    AtomicReferenceArray<Entry<H>> resized = new AtomicReferenceArray<>(2 * slots.length());
+    for (int i = 0; i < slots.length(); i++) {
+      Entry<H> entry = slots.get(i);
+      if (entry != null) {
+        insert(resized, entry);
+      }
+    }
+    return resized;
+  }
+
+  // Backward shift deletion: moves back the following entries of the cluster that can fill the
+  // hole, so that no tombstones are needed. An entry is written to its new slot before its old
+  // slot is cleared.
+  private void removeAt(AtomicReferenceArray<Entry<H>> slots, int index) {
+    int mask = slots.length() - 1;
+    int hole = index;
+    for (int i = (index + 1) & mask; ; i = (i + 1) & mask) {
+      Entry<H> entry = slots.get(i);
+      if (entry == null) {
+        break;
+      }
+      // The entry can move to the hole if the hole is between its home slot and its slot.
+      if (((i - (entry.hash & mask)) & mask) >= ((i - hole) & mask)) {
+        slots.set(hole, entry);
+        hole = i;
+      }
+    }
+    slots.set(hole, null);
+  }
+
+  // Doesn't use List.hashCode(), which allocates an iterator.
+  private static int hash(List<String> labelValues) {
+    int hash = 1;
+    for (int i = 0; i < labelValues.size(); i++) {
+      hash = 31 * hash + labelValues.get(i).hashCode();
+    }
+    // Spread the bits, the slot is selected by the low bits only.
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static final class Entry<T> {
+    private final String[] labelValues;
+    private final List<String> labelValuesList;
+    private final int hash;
+    private final T handle;
+    // Only accessed by the collection.
+    private int idleCycles;
+
+    private Entry(String[] labelValues, int hash, T handle) {
+      this.labelValues = labelValues;
+      this.labelValuesList = Collections.unmodifiableList(Arrays.asList(labelValues));
+      this.hash = hash;
+      this.handle = handle;
+    }
+
+    private boolean matches(List<String> otherLabelValues) {
+      if (labelValues.length != otherLabelValues.size()) {
+        return false;
+      }
+      for (int i = 0; i < labelValues.length; i++) {
+        if (!labelValues[i].equals(otherLabelValues.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Visits the handles of a {@link LabelSetTable} during a collection.
+   *
+   * @param <T> the handle.
+   */
+  interface Visitor<T> {
+    /**
+     * Visits the handle of the given label values.
+     *
+     * @param labelValues the label values of the handle.
+     * @param handle the handle.
+     * @return whether the handle recorded a value since the previous collection.
+     */
+    boolean visit(List<String> labelValues, T handle);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.distributedcontext.DistributedContext;
+import io.opentelemetry.distributedcontext.unsafe.ContextUtils;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.metrics.MeasureBatchRecorder;
+import io.opentelemetry.metrics.MeasureDouble;
+import io.opentelemetry.metrics.MeasureLong;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * SDK implementation of the {@link MeasureBatchRecorder}. The measurements are buffered in arrays
+ * and recorded in one pass by {@link #record()}, which reads the current {@link
+ * DistributedContext} once for the whole batch, see {@link AbstractMeasure}.
+ *
+ * <p>The {@link MeterSdk} returns a new recorder for every batch: a recorder stays reachable by the
+ * application after {@link #record()}, which records the whole batch again every time it is called,
+ * so it can't be handed out again. Putting measurements doesn't allocate once the arrays have grown
+ * to the size of the batch, and the calls are synchronized on the recorder, which is uncontended
+ * when a batch is built by a single thread.
+ */
+@ThreadSafe
+final class MeasureBatchRecorderSdk implements MeasureBatchRecorder {
+  private static final int INITIAL_CAPACITY = 16;
+
+  @GuardedBy("this")
+  private AbstractMeasure<?>[] measures = new AbstractMeasure<?>[INITIAL_CAPACITY];
+
+  @GuardedBy("this")
+  private double[] values = new double[INITIAL_CAPACITY];
+
+  @GuardedBy("this")
+  private int size;
+
+  // Reused for the label values of each measure.
+  @GuardedBy("this")
+  private final List<String> labelValues = new ArrayList<>();
+
+  @Override
+  public MeasureBatchRecorder put(MeasureLong measure, long value) {
+    Utils.checkArgument(value >= 0, "Unsupported negative values.");
+    put(toSdk(measure), value);
+    return this;
+  }
+
+  @Override
+  public MeasureBatchRecorder put(MeasureDouble measure, double value) {
+    Utils.checkArgument(value >= 0.0, "Unsupported negative values.");
+    put(toSdk(measure), value);
+    return this;
+  }
+
+  @Override
+  public synchronized void record() {
+    DistributedContext context = ContextUtils.getValue();
+    for (int i = 0; i < size; i++) {
+      measures[i].record(values[i], context, labelValues);
+    }
+  }
+
+  private synchronized void put(AbstractMeasure<?> measure, double value) {
+    // Batches are small, a linear search is faster than hashing.
+    for (int i = 0; i < size; i++) {
+      if (measures[i] == measure) {
+        values[i] = value;
+        return;
+      }
+    }
+    if (size == measures.length) {
+      measures = Arrays.copyOf(measures, 2 * size);
+      values = Arrays.copyOf(values, 2 * size);
+    }
+    measures[size] = measure;
+    values[size] = value;
+    size++;
+  }
+
+  private static AbstractMeasure<?> toSdk(Object measure) {
+    Utils.checkNotNull(measure, "measure");
+    Utils.checkArgument(
+        measure instanceof AbstractMeasure, "The measure was not created by the MeterSdk.");
+    return (AbstractMeasure<?>) measure;
+  }
+}
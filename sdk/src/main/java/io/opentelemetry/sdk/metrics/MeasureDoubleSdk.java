@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.metrics.MeasureDouble;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import io.opentelemetry.sdk.metrics.stats.BucketBoundaries;
+import javax.annotation.concurrent.ThreadSafe;
+
+/** SDK implementation of the {@link MeasureDouble}, see {@link AbstractMeasure}. */
+@ThreadSafe
+final class MeasureDoubleSdk extends AbstractMeasure<MeasureDoubleSdk.HandleSdk>
+    implements MeasureDouble {
+  private final BucketBoundaries bucketBoundaries;
+
+  private MeasureDoubleSdk(
+      MetricDescriptor descriptor,
+      BucketBoundaries bucketBoundaries,
+      long startEpochNanos,
+      int maxLabelSets) {
+    super(descriptor, new HandleSdk(bucketBoundaries), startEpochNanos, maxLabelSets);
+    this.bucketBoundaries = bucketBoundaries;
+  }
+
+  static MeasureDouble.Builder newBuilder(String name, MeterSharedState meterSharedState) {
+    return new BuilderSdk(name, meterSharedState);
+  }
+
+  @Override
+  HandleSdk newHandle() {
+    return new HandleSdk(bucketBoundaries);
+  }
+
+  @ThreadSafe
+  static final class HandleSdk extends MeasureHandle implements Handle {
+    private HandleSdk(BucketBoundaries bucketBoundaries) {
+      super(bucketBoundaries);
+    }
+
+    @Override
+    public void record(double value) {
+      Utils.checkArgument(value >= 0.0, "Unsupported negative values.");
+      recordValue(value);
+    }
+  }
+
+  private static final class BuilderSdk
+      extends AbstractMetricBuilder<MeasureDouble.Builder, MeasureDouble>
+      implements MeasureDouble.Builder {
+    private final MeterSharedState meterSharedState;
+
+    private BuilderSdk(String name, MeterSharedState meterSharedState) {
+      super(name);
+      this.meterSharedState = meterSharedState;
+    }
+
+    @Override
+    MeasureDouble.Builder getThis() {
+      return this;
+    }
+
+    @Override
+    public MeasureDouble build() {
+      return meterSharedState.register(
+          new MeasureDoubleSdk(
+              getMetricDescriptor(Type.DISTRIBUTION),
+              DistributionAggregator.DEFAULT_BUCKET_BOUNDARIES,
+              meterSharedState.getClock().now(),
+              meterSharedState.getMaxLabelSets(getName())));
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.metrics.MeasureLong;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import io.opentelemetry.sdk.metrics.stats.BucketBoundaries;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * SDK implementation of the {@link MeasureLong}, see {@link AbstractMeasure}. The measurements are
+ * aggregated as doubles, which are exact up to 2^53.
+ */
+@ThreadSafe
+final class MeasureLongSdk extends AbstractMeasure<MeasureLongSdk.HandleSdk>
+    implements MeasureLong {
+  private final BucketBoundaries bucketBoundaries;
+
+  private MeasureLongSdk(
+      MetricDescriptor descriptor,
+      BucketBoundaries bucketBoundaries,
+      long startEpochNanos,
+      int maxLabelSets) {
+    super(descriptor, new HandleSdk(bucketBoundaries), startEpochNanos, maxLabelSets);
+    this.bucketBoundaries = bucketBoundaries;
+  }
+
+  static MeasureLong.Builder newBuilder(String name, MeterSharedState meterSharedState) {
+    return new BuilderSdk(name, meterSharedState);
+  }
+
+  @Override
+  HandleSdk newHandle() {
+    return new HandleSdk(bucketBoundaries);
+  }
+
+  @ThreadSafe
+  static final class HandleSdk extends MeasureHandle implements Handle {
+    private HandleSdk(BucketBoundaries bucketBoundaries) {
+      super(bucketBoundaries);
+    }
+
+    @Override
+    public void record(long value) {
+      Utils.checkArgument(value >= 0, "Unsupported negative values.");
+      recordValue(value);
+    }
+  }
+
+  private static final class BuilderSdk
+      extends AbstractMetricBuilder<MeasureLong.Builder, MeasureLong>
+      implements MeasureLong.Builder {
+    private final MeterSharedState meterSharedState;
+
+    private BuilderSdk(String name, MeterSharedState meterSharedState) {
+      super(name);
+      this.meterSharedState = meterSharedState;
+    }
+
+    @Override
+    MeasureLong.Builder getThis() {
+      return this;
+    }
+
+    @Override
+    public MeasureLong build() {
+      return meterSharedState.register(
+          new MeasureLongSdk(
+              getMetricDescriptor(Type.DISTRIBUTION),
+              DistributionAggregator.DEFAULT_BUCKET_BOUNDARIES,
+              meterSharedState.getClock().now(),
+              meterSharedState.getMaxLabelSets(getName())));
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.opentelemetry.sdk.metrics;
 
+import io.opentelemetry.internal.Utils;
 import io.opentelemetry.metrics.CounterDouble;
 import io.opentelemetry.metrics.CounterLong;
 import io.opentelemetry.metrics.GaugeDouble;
@@ -26,52 +27,211 @@ import io.opentelemetry.metrics.MeasureLong;
 import io.opentelemetry.metrics.Meter;
 import io.opentelemetry.metrics.ObserverDouble;
 import io.opentelemetry.metrics.ObserverLong;
+import io.opentelemetry.sdk.common.Clock;
+import io.opentelemetry.sdk.internal.MillisClock;
+import io.opentelemetry.sdk.metrics.export.MetricProducer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
-/** {@link MeterSdk} is SDK implementation of {@link Meter}. */
+/**
+ * {@link MeterSdk} is SDK implementation of {@link Meter}.
+ *
+ * <p>The metrics built by a {@code MeterSdk} are collected by its {@link #getMetricProducer()}, for
+ * example with a {@link io.opentelemetry.sdk.metrics.export.PeriodicMetricReader}.
+ */
 public class MeterSdk implements Meter {
+  private final MeterSharedState meterSharedState;
+
+  /** Creates a {@code MeterSdk} with the default configuration, see {@link #newBuilder()}. */
+  public MeterSdk() {
+    this(newBuilder());
+  }
+
+  private MeterSdk(Builder builder) {
+    this.meterSharedState =
+        new MeterSharedState(
+            builder.clock,
+            builder.temporality,
+            builder.observerCallbackTimeoutMillis,
+            builder.observerCallbackThreads,
+            builder.maxLabelSets,
+            Collections.unmodifiableMap(new HashMap<>(builder.maxLabelSetsByMetric)));
+  }
+
+  /**
+   * Returns a new {@link Builder} for {@link MeterSdk}.
+   *
+   * @return a new {@link Builder} for {@link MeterSdk}.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
 
   @Override
   public GaugeLong.Builder gaugeLongBuilder(String name) {
-    throw new UnsupportedOperationException("to be implemented");
+    return GaugeLongSdk.newBuilder(name, meterSharedState);
   }
 
   @Override
   public GaugeDouble.Builder gaugeDoubleBuilder(String name) {
-    throw new UnsupportedOperationException("to be implemented");
+    return GaugeDoubleSdk.newBuilder(name, meterSharedState);
   }
 
   @Override
   public CounterDouble.Builder counterDoubleBuilder(String name) {
-    throw new UnsupportedOperationException("to be implemented");
+    return CounterDoubleSdk.newBuilder(name, meterSharedState);
   }
 
   @Override
   public CounterLong.Builder counterLongBuilder(String name) {
-    throw new UnsupportedOperationException("to be implemented");
+    return CounterLongSdk.newBuilder(name, meterSharedState);
   }
 
   @Override
   public MeasureDouble.Builder measureDoubleBuilder(String name) {
-    throw new UnsupportedOperationException("to be implemented");
+    return MeasureDoubleSdk.newBuilder(name, meterSharedState);
   }
 
   @Override
   public MeasureLong.Builder measureLongBuilder(String name) {
-    throw new UnsupportedOperationException("to be implemented");
+    return MeasureLongSdk.newBuilder(name, meterSharedState);
   }
 
   @Override
   public ObserverDouble.Builder observerDoubleBuilder(String name) {
-    throw new UnsupportedOperationException("to be implemented");
+    return ObserverDoubleSdk.newBuilder(name, meterSharedState);
   }
 
   @Override
   public ObserverLong.Builder observerLongBuilder(String name) {
-    throw new UnsupportedOperationException("to be implemented");
+    return ObserverLongSdk.newBuilder(name, meterSharedState);
   }
 
   @Override
   public MeasureBatchRecorder newMeasureBatchRecorder() {
-    throw new UnsupportedOperationException("to be implemented");
+    return new MeasureBatchRecorderSdk();
+  }
+
+  /**
+   * Returns the {@link MetricProducer} that collects all the metrics built by this {@code
+   * MeterSdk}.
+   *
+   * @return the {@code MetricProducer} of this {@code MeterSdk}.
+   */
+  public MetricProducer getMetricProducer() {
+    return meterSharedState;
+  }
+
+  /** Builder class for {@link MeterSdk}. */
+  public static final class Builder {
+    private static final Temporality DEFAULT_TEMPORALITY = Temporality.CUMULATIVE;
+    private static final long DEFAULT_OBSERVER_CALLBACK_TIMEOUT_MILLIS = 1000;
+    private static final int DEFAULT_OBSERVER_CALLBACK_THREADS = 2;
+    private static final int DEFAULT_MAX_LABEL_SETS = 2000;
+
+    private Clock clock = MillisClock.getInstance();
+    private Temporality temporality = DEFAULT_TEMPORALITY;
+    private long observerCallbackTimeoutMillis = DEFAULT_OBSERVER_CALLBACK_TIMEOUT_MILLIS;
+    private int observerCallbackThreads = DEFAULT_OBSERVER_CALLBACK_THREADS;
+    private int maxLabelSets = DEFAULT_MAX_LABEL_SETS;
+    private final Map<String, Integer> maxLabelSetsByMetric = new HashMap<>();
+
+    private Builder() {}
+
+    /**
+     * Sets the temporality of the collected values. The default value is {@link
+     * Temporality#CUMULATIVE}.
+     *
+     * @param temporality the temporality of the collected values.
+     * @return this.
+     * @throws NullPointerException if {@code temporality} is {@code null}.
+     */
+    public Builder setTemporality(Temporality temporality) {
+      this.temporality = Utils.checkNotNull(temporality, "temporality");
+      return this;
+    }
+
+    /**
+     * Sets how long each collection waits for the callbacks of the observers, from the time each
+     * callback starts running. A callback that takes longer is interrupted and counted by the
+     * {@code observer_scheduler.timed_out_callbacks} metric, and the values it puts are reported by
+     * the next collection. A callback that doesn't start within this time, because all the threads
+     * are busy, is not run and is counted by the {@code observer_scheduler.skipped_callbacks}
+     * metric. The default value is {@code 1000}.
+     *
+     * @param observerCallbackTimeoutMillis the callback timeout in milliseconds.
+     * @return this.
+     * @throws IllegalArgumentException if {@code observerCallbackTimeoutMillis} is not positive.
+     */
+    public Builder setObserverCallbackTimeoutMillis(long observerCallbackTimeoutMillis) {
+      Utils.checkArgument(
+          observerCallbackTimeoutMillis > 0, "observerCallbackTimeoutMillis must be positive.");
+      this.observerCallbackTimeoutMillis = observerCallbackTimeoutMillis;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of threads running the callbacks of the observers. The threads are
+     * only started when the first callback runs. The default value is {@code 2}.
+     *
+     * @param observerCallbackThreads the maximum number of threads running the callbacks.
+     * @return this.
+     * @throws IllegalArgumentException if {@code observerCallbackThreads} is not positive.
+     */
+    public Builder setObserverCallbackThreads(int observerCallbackThreads) {
+      Utils.checkArgument(observerCallbackThreads > 0, "observerCallbackThreads must be positive.");
+      this.observerCallbackThreads = observerCallbackThreads;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of label sets of each metric, the number of handles it keeps besides
+     * the default handle. Once a metric has that many, the values recorded with new label values
+     * are aggregated into a single overflow series, with {@code "__overflow__"} as every label
+     * value, and the rejected label values are counted by the {@code meter.rejected_label_sets}
+     * metric. The default value is {@code 2000}.
+     *
+     * @param maxLabelSets the maximum number of label sets of each metric.
+     * @return this.
+     * @throws IllegalArgumentException if {@code maxLabelSets} is not positive.
+     */
+    public Builder setMaxLabelSets(int maxLabelSets) {
+      Utils.checkArgument(maxLabelSets > 0, "maxLabelSets must be positive.");
+      this.maxLabelSets = maxLabelSets;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of label sets of the metrics with the given name, instead of the
+     * value of {@link #setMaxLabelSets(int)}.
+     *
+     * @param metricName the name of the metric.
+     * @param maxLabelSets the maximum number of label sets of the metric.
+     * @return this.
+     * @throws NullPointerException if {@code metricName} is {@code null}.
+     * @throws IllegalArgumentException if {@code maxLabelSets} is not positive.
+     */
+    public Builder setMaxLabelSets(String metricName, int maxLabelSets) {
+      Utils.checkNotNull(metricName, "metricName");
+      Utils.checkArgument(maxLabelSets > 0, "maxLabelSets must be positive.");
+      maxLabelSetsByMetric.put(metricName, maxLabelSets);
+      return this;
+    }
+
+    // Visible for testing.
+    Builder setClock(Clock clock) {
+      this.clock = Utils.checkNotNull(clock, "clock");
+      return this;
+    }
+
+    /**
+     * Returns a new {@link MeterSdk} with the configuration of this builder.
+     *
+     * @return a new {@link MeterSdk}.
+     */
+    public MeterSdk build() {
+      return new MeterSdk(this);
+    }
   }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.sdk.common.Clock;
+import io.opentelemetry.sdk.metrics.export.MetricProducer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+// Represents the shared state/config between all Metrics created by the same MeterSdk, and
+// collects them. The label values rejected by the metrics are reported by the
+// meter.rejected_label_sets metric, once a metric rejected some.
+@ThreadSafe
+final class MeterSharedState implements MetricProducer {
+  private static final MetricDescriptor REJECTED_LABEL_SETS_DESCRIPTOR =
+      MetricDescriptor.createInternal(
+          "meter.rejected_label_sets",
+          "Number of label values rejected because the metric had the maximum number of label"
+              + " sets.",
+          "1",
+          MetricDescriptor.Type.MONOTONIC_INT64,
+          Collections.singletonList("metric"),
+          Collections.<String, String>emptyMap());
+
+  private final Clock clock;
+  private final Temporality temporality;
+  private final int maxLabelSets;
+  private final Map<String, Integer> maxLabelSetsByMetric;
+  private final long startEpochNanos;
+  // Collections run one at a time, the metrics keep the state of the previous collection.
+  private final Object collectionLock = new Object();
+  private final List<AbstractMetric<?>> metrics = new CopyOnWriteArrayList<>();
+  private final ObserverScheduler observerScheduler;
+
+  @GuardedBy("collectionLock")
+  private long lastCollectionEpochNanos;
+
+  MeterSharedState(
+      Clock clock,
+      Temporality temporality,
+      long observerCallbackTimeoutMillis,
+      int observerCallbackThreads,
+      int maxLabelSets,
+      Map<String, Integer> maxLabelSetsByMetric) {
+    this.clock = clock;
+    this.temporality = temporality;
+    this.maxLabelSets = maxLabelSets;
+    this.maxLabelSetsByMetric = maxLabelSetsByMetric;
+    this.startEpochNanos = clock.now();
+    this.lastCollectionEpochNanos = startEpochNanos;
+    this.observerScheduler =
+        new ObserverScheduler(this, observerCallbackTimeoutMillis, observerCallbackThreads);
+  }
+
+  Clock getClock() {
+    return clock;
+  }
+
+  Temporality getTemporality() {
+    return temporality;
+  }
+
+  ObserverScheduler getObserverScheduler() {
+    return observerScheduler;
+  }
+
+  /**
+   * Returns the maximum number of label sets of the metric with the given name.
+   *
+   * @param metricName the name of the metric.
+   * @return the maximum number of label sets of the metric.
+   */
+  int getMaxLabelSets(String metricName) {
+    Integer max = maxLabelSetsByMetric.get(metricName);
+    return max != null ? max : maxLabelSets;
+  }
+
+  /**
+   * Registers the given metric, so that it is collected.
+   *
+   * @param metric the metric.
+   * @param <M> the type of the metric.
+   * @return the metric.
+   */
+  <M extends AbstractMetric<?>> M register(M metric) {
+    metrics.add(metric);
+    return metric;
+  }
+
+  /**
+   * Runs the callbacks of the observers, then collects all the registered metrics. Only one
+   * collection runs at a time, but collecting never blocks the threads recording values.
+   *
+   * @return the data of all the registered metrics.
+   */
+  @Override
+  public Collection<MetricData> getAllMetrics() {
+    synchronized (collectionLock) {
+      observerScheduler.runCallbacks();
+      long epochNanos = clock.now();
+      List<MetricData> result = new ArrayList<>(metrics.size());
+      for (AbstractMetric<?> metric : metrics) {
+        result.add(metric.collect(temporality, epochNanos));
+      }
+      MetricData rejectedLabelSets = collectRejectedLabelSets(epochNanos);
+      if (rejectedLabelSets != null) {
+        result.add(rejectedLabelSets);
+      }
+      lastCollectionEpochNanos = epochNanos;
+      return Collections.unmodifiableList(result);
+    }
+  }
+
+  @GuardedBy("collectionLock")
+  @Nullable
+  private MetricData collectRejectedLabelSets(long epochNanos) {
+    List<MetricData.Point> points = new ArrayList<>();
+    for (AbstractMetric<?> metric : metrics) {
+      long rejected =
+          temporality == Temporality.DELTA
+              ? metric.getRejectedLabelSets().sumThenReset()
+              : metric.getRejectedLabelSets().sum();
+      if (rejected != 0) {
+        points.add(
+            MetricData.LongPoint.createInternal(
+                Collections.singletonList(metric.getMetricDescriptor().getName()), rejected));
+      }
+    }
+    if (points.isEmpty()) {
+      return null;
+    }
+    return MetricData.createInternal(
+        REJECTED_LABEL_SETS_DESCRIPTOR,
+        temporality == Temporality.DELTA ? lastCollectionEpochNanos : startEpochNanos,
+        epochNanos,
+        Collections.unmodifiableList(points));
+  }
+}
@@ -17,6 +17,9 @@
 package io.opentelemetry.sdk.metrics;
 
 import com.google.auto.value.AutoValue;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+import java.util.List;
 import javax.annotation.concurrent.Immutable;
 
 /**
@@ -55,10 +58,211 @@ public abstract class MetricData {
    */
   public abstract long getEpochNanos();
 
-  // TODO: Add TimeSeries/Point
+  /**
+   * Returns the points of this metric, one per list of label values. Their type depends on the
+   * {@link MetricDescriptor.Type}: {@link LongPoint} for the int64 types, {@link DoublePoint} for
+   * the double types and {@link DistributionPoint} for {@link MetricDescriptor.Type#DISTRIBUTION}.
+   *
+   * @return the points of this metric.
+   * @since 0.2.0
+   */
+  public abstract List<Point> getPoints();
 
   static MetricData createInternal(
-      MetricDescriptor metricDescriptor, long startEpochNanos, long epochNanos) {
-    return new AutoValue_MetricData(metricDescriptor, startEpochNanos, epochNanos);
+      MetricDescriptor metricDescriptor,
+      long startEpochNanos,
+      long epochNanos,
+      List<Point> points) {
+    return new AutoValue_MetricData(metricDescriptor, startEpochNanos, epochNanos, points);
+  }
+
+  /**
+   * The value of a metric for one list of label values.
+   *
+   * @since 0.2.0
+   */
+  @Immutable
+  public abstract static class Point {
+    Point() {}
+
+    /**
+     * Returns the label values of this point, in the order of the label keys of the {@link
+     * MetricDescriptor}. The list is empty for the values recorded to the default handle.
+     *
+     * @return the label values of this point.
+     * @since 0.2.0
+     */
+    public abstract List<String> getLabelValues();
+  }
+
+  /**
+   * A {@link Point} with an int64 value.
+   *
+   * @since 0.2.0
+   */
+  @Immutable
+  @AutoValue
+  public abstract static class LongPoint extends Point {
+    LongPoint() {}
+
+    /**
+     * Returns the value of this point.
+     *
+     * @return the value of this point.
+     * @since 0.2.0
+     */
+    public abstract long getValue();
+
+    static LongPoint createInternal(List<String> labelValues, long value) {
+      return new AutoValue_MetricData_LongPoint(labelValues, value);
+    }
+  }
+
+  /**
+   * A {@link Point} with a double value.
+   *
+   * @since 0.2.0
+   */
+  @Immutable
+  @AutoValue
+  public abstract static class DoublePoint extends Point {
+    DoublePoint() {}
+
+    /**
+     * Returns the value of this point.
+     *
+     * @return the value of this point.
+     * @since 0.2.0
+     */
+    public abstract double getValue();
+
+    static DoublePoint createInternal(List<String> labelValues, double value) {
+      return new AutoValue_MetricData_DoublePoint(labelValues, value);
+    }
+  }
+
+  /**
+   * A {@link Point} with the distribution of the measurements.
+   *
+   * @since 0.2.0
+   */
+  @Immutable
+  @AutoValue
+  public abstract static class DistributionPoint extends Point {
+    DistributionPoint() {}
+
+    /**
+     * Returns the number of measurements.
+     *
+     * @return the number of measurements.
+     * @since 0.2.0
+     */
+    public abstract long getCount();
+
+    /**
+     * Returns the sum of the measurements.
+     *
+     * @return the sum of the measurements.
+     * @since 0.2.0
+     */
+    public abstract double getSum();
+
+    /**
+     * Returns the smallest measurement, {@code 0} if there are none.
+     *
+     * @return the smallest measurement.
+     * @since 0.2.0
+     */
+    public abstract double getMin();
+
+    /**
+     * Returns the largest measurement, {@code 0} if there are none.
+     *
+     * @return the largest measurement.
+     * @since 0.2.0
+     */
+    public abstract double getMax();
+
+    /**
+     * Returns the boundaries of the buckets, in increasing order.
+     *
+     * @return the boundaries of the buckets.
+     * @since 0.2.0
+     */
+    public abstract List<Double> getBucketBoundaries();
+
+    /**
+     * Returns the number of measurements in each bucket, one more than the number of bucket
+     * boundaries. The bucket {@code i} has the measurements in {@code [boundaries[i - 1],
+     * boundaries[i])}.
+     *
+     * @return the number of measurements in each bucket.
+     * @since 0.2.0
+     */
+    public abstract List<Long> getBucketCounts();
+
+    /**
+     * Returns the exemplars of the buckets, in increasing order of bucket index. A bucket has at
+     * most one exemplar, a measurement recorded in a sampled span during the last collection
+     * interval, or during an earlier one for the cumulative points. The buckets without such a
+     * measurement have none.
+     *
+     * @return the exemplars of the buckets.
+     * @since 0.2.0
+     */
+    public abstract List<Exemplar> getExemplars();
+
+    static DistributionPoint createInternal(
+        List<String> labelValues,
+        long count,
+        double sum,
+        double min,
+        double max,
+        List<Double> bucketBoundaries,
+        List<Long> bucketCounts,
+        List<Exemplar> exemplars) {
+      return new AutoValue_MetricData_DistributionPoint(
+          labelValues, count, sum, min, max, bucketBoundaries, bucketCounts, exemplars);
+    }
+  }
+
+  /**
+   * Links a bucket of a {@link DistributionPoint} to the span in which one of its measurements was
+   * recorded.
+   *
+   * @since 0.2.0
+   */
+  @Immutable
+  @AutoValue
+  public abstract static class Exemplar {
+    Exemplar() {}
+
+    /**
+     * Returns the index of the bucket, in the bucket counts of the {@link DistributionPoint}.
+     *
+     * @return the index of the bucket.
+     * @since 0.2.0
+     */
+    public abstract int getBucketIndex();
+
+    /**
+     * Returns the trace id of the span in which the measurement was recorded.
+     *
+     * @return the trace id of the span.
+     * @since 0.2.0
+     */
+    public abstract TraceId getTraceId();
+
+    /**
+     * Returns the span id of the span in which the measurement was recorded.
+     *
+     * @return the span id of the span.
+     * @since 0.2.0
+     */
+    public abstract SpanId getSpanId();
+
+    static Exemplar createInternal(int bucketIndex, TraceId traceId, SpanId spanId) {
+      return new AutoValue_MetricData_Exemplar(bucketIndex, traceId, spanId);
+    }
   }
 }
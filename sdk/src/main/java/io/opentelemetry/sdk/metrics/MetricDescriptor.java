@@ -65,6 +65,14 @@ public abstract class MetricDescriptor {
      * @since 0.1.0
      */
     MONOTONIC_DOUBLE,
+
+    /**
+     * A distribution of measurements, with their count, sum, minimum, maximum and the number of
+     * measurements in each bucket.
+     *
+     * @since 0.2.0
+     */
+    DISTRIBUTION,
   }
 
   /**
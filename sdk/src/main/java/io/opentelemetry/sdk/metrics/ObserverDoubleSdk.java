@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.metrics.ObserverDouble;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * SDK implementation of the {@link ObserverDouble}, see {@link AbstractObserver}. Putting a value
+ * is a volatile write to the handle.
+ */
+@ThreadSafe
+final class ObserverDoubleSdk
+    extends AbstractObserver<ObserverDoubleSdk.HandleSdk, ObserverDouble.Result>
+    implements ObserverDouble {
+  private static final Result RESULT =
+      new Result() {
+        @Override
+        public void put(Handle handle, double value) {
+          Utils.checkNotNull(handle, "handle");
+          Utils.checkArgument(
+              handle instanceof HandleSdk, "The handle was not created by the MeterSdk.");
+          ((HandleSdk) handle).set(value);
+        }
+      };
+
+  private ObserverDoubleSdk(
+      MetricDescriptor descriptor,
+      long startEpochNanos,
+      int maxLabelSets,
+      ObserverScheduler observerScheduler) {
+    super(descriptor, new HandleSdk(), startEpochNanos, maxLabelSets, observerScheduler, RESULT);
+  }
+
+  static ObserverDouble.Builder newBuilder(String name, MeterSharedState meterSharedState) {
+    return new BuilderSdk(name, meterSharedState);
+  }
+
+  @Override
+  HandleSdk newHandle() {
+    return new HandleSdk();
+  }
+
+  @ThreadSafe
+  static final class HandleSdk extends AbstractHandle implements Handle {
+    private volatile double value;
+
+    private HandleSdk() {}
+
+    private void set(double val) {
+      markUsed();
+      value = val;
+    }
+
+    double getValue() {
+      return value;
+    }
+
+    @Nullable
+    @Override
+    MetricData.Point collect(List<String> labelValues, boolean used, Temporality temporality) {
+      return hasPoint(used, temporality)
+          ? MetricData.DoublePoint.createInternal(labelValues, value)
+          : null;
+    }
+  }
+
+  private static final class BuilderSdk
+      extends AbstractObserverBuilder<ObserverDouble.Builder, ObserverDouble>
+      implements ObserverDouble.Builder {
+    private final MeterSharedState meterSharedState;
+
+    private BuilderSdk(String name, MeterSharedState meterSharedState) {
+      super(name);
+      this.meterSharedState = meterSharedState;
+    }
+
+    @Override
+    ObserverDouble.Builder getThis() {
+      return this;
+    }
+
+    @Override
+    public ObserverDouble build() {
+      return meterSharedState.register(
+          new ObserverDoubleSdk(
+              getMetricDescriptor(
+                  getMonotonic() ? Type.MONOTONIC_DOUBLE : Type.NON_MONOTONIC_DOUBLE),
+              meterSharedState.getClock().now(),
+              meterSharedState.getMaxLabelSets(getName()),
+              meterSharedState.getObserverScheduler()));
+    }
+  }
+}
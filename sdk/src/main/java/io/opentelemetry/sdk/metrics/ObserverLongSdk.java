@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.metrics.ObserverLong;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * SDK implementation of the {@link ObserverLong}, see {@link AbstractObserver}. Putting a value is
+ * a volatile write to the handle.
+ */
+@ThreadSafe
+final class ObserverLongSdk extends AbstractObserver<ObserverLongSdk.HandleSdk, ObserverLong.Result>
+    implements ObserverLong {
+  private static final Result RESULT =
+      new Result() {
+        @Override
+        public void put(Handle handle, long value) {
+          Utils.checkNotNull(handle, "handle");
+          Utils.checkArgument(
+              handle instanceof HandleSdk, "The handle was not created by the MeterSdk.");
+          ((HandleSdk) handle).set(value);
+        }
+      };
+
+  private ObserverLongSdk(
+      MetricDescriptor descriptor,
+      long startEpochNanos,
+      int maxLabelSets,
+      ObserverScheduler observerScheduler) {
+    super(descriptor, new HandleSdk(), startEpochNanos, maxLabelSets, observerScheduler, RESULT);
+  }
+
+  static ObserverLong.Builder newBuilder(String name, MeterSharedState meterSharedState) {
+    return new BuilderSdk(name, meterSharedState);
+  }
+
+  @Override
+  HandleSdk newHandle() {
+    return new HandleSdk();
+  }
+
+  @ThreadSafe
+  static final class HandleSdk extends AbstractHandle implements Handle {
+    private volatile long value;
+
+    private HandleSdk() {}
+
+    private void set(long val) {
+      markUsed();
+      value = val;
+    }
+
+    long getValue() {
+      return value;
+    }
+
+    @Nullable
+    @Override
+    MetricData.Point collect(List<String> labelValues, boolean used, Temporality temporality) {
+      return hasPoint(used, temporality)
+          ? MetricData.LongPoint.createInternal(labelValues, value)
+          : null;
+    }
+  }
+
+  private static final class BuilderSdk
+      extends AbstractObserverBuilder<ObserverLong.Builder, ObserverLong>
+      implements ObserverLong.Builder {
+    private final MeterSharedState meterSharedState;
+
+    private BuilderSdk(String name, MeterSharedState meterSharedState) {
+      super(name);
+      this.meterSharedState = meterSharedState;
+    }
+
+    @Override
+    ObserverLong.Builder getThis() {
+      return this;
+    }
+
+    @Override
+    public ObserverLong build() {
+      return meterSharedState.register(
+          new ObserverLongSdk(
+              getMetricDescriptor(getMonotonic() ? Type.MONOTONIC_INT64 : Type.NON_MONOTONIC_INT64),
+              meterSharedState.getClock().now(),
+              meterSharedState.getMaxLabelSets(getName()),
+              meterSharedState.getObserverScheduler()));
+    }
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.opentelemetry.metrics.CounterLong;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Runs the callbacks of the observers before each collection, on a small pool of daemon threads.
+ *
+ * <p>Each collection waits for each callback at most the callback timeout from the time the
+ * callback starts running, so that one slow callback, for example one reading JMX attributes, can't
+ * delay the whole collection. A callback that times out is interrupted; until it returns, it is
+ * skipped by the following collections, and the values it puts are reported by the next one. A
+ * callback that is still queued for a thread after the callback timeout is not run and counted as
+ * skipped, so a collection waits at most twice the callback timeout.
+ *
+ * <p>The skipped and the timed out callbacks are counted by the {@code
+ * observer_scheduler.skipped_callbacks} and {@code observer_scheduler.timed_out_callbacks} metrics
+ * of the same {@code MeterSdk}, with the name of the observer as label. They are only created with
+ * the first callback.
+ */
+@ThreadSafe
+final class ObserverScheduler {
+  private static final Logger logger = Logger.getLogger(ObserverScheduler.class.getName());
+  private static final String WORKER_THREAD_NAME =
+      ObserverScheduler.class.getSimpleName() + "_WorkerThread";
+  private static final String METRIC_PREFIX = "observer_scheduler.";
+  private static final List<String> LABEL_KEYS = Collections.singletonList("observer");
+  // The idle threads stop after this delay, shorter than most collection intervals.
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private final MeterSharedState meterSharedState;
+  private final long callbackTimeoutNanos;
+  private final ThreadPoolExecutor executor;
+  private final Object lock = new Object();
+  private final List<AbstractObserver<?, ?>> observers = new CopyOnWriteArrayList<>();
+
+  // Created under the lock, before the first observer is added.
+  @Nullable private volatile SelfMetrics selfMetrics;
+
+  ObserverScheduler(
+      MeterSharedState meterSharedState, long callbackTimeoutMillis, int callbackThreads) {
+    this.meterSharedState = meterSharedState;
+    this.callbackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(callbackTimeoutMillis);
+    this.executor =
+        new ThreadPoolExecutor(
+            callbackThreads,
+            callbackThreads,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new WorkerThreadFactory());
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Registers the given observer, its callback is run before each collection. Does nothing if it
+   * is already registered.
+   *
+   * @param observer the observer.
+   */
+  void register(AbstractObserver<?, ?> observer) {
+    synchronized (lock) {
+      if (selfMetrics == null) {
+        selfMetrics = new SelfMetrics(meterSharedState);
+      }
+      if (!observers.contains(observer)) {
+        observers.add(observer);
+      }
+    }
+  }
+
+  /**
+   * Runs the callbacks of all the registered observers and waits for them, at most the callback
+   * timeout. Called by the collection, before collecting the metrics.
+   */
+  void runCallbacks() {
+    if (observers.isEmpty()) {
+      return;
+    }
+    SelfMetrics currentSelfMetrics = selfMetrics;
+    long queueDeadlineNanos = System.nanoTime() + callbackTimeoutNanos;
+    List<CallbackTask> tasks = new ArrayList<>(observers.size());
+    List<FutureTask<Void>> futures = new ArrayList<>(observers.size());
+    for (AbstractObserver<?, ?> observer : observers) {
+      if (!observer.tryStartCallback()) {
+        currentSelfMetrics.skippedCallbacks.getHandle(labelValues(observer)).add(1);
+        continue;
+      }
+      CallbackTask task = new CallbackTask(observer);
+      // Executed as is, so that an abandoned task can be removed from the queue.
+      FutureTask<Void> future = new FutureTask<>(task, null);
+      executor.execute(future);
+      futures.add(future);
+      tasks.add(task);
+    }
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        waitFor(tasks.get(i), futures.get(i), queueDeadlineNanos, currentSelfMetrics);
+      } catch (ExecutionException e) {
+        logger.log(
+            Level.WARNING,
+            "Exception thrown by the callback of " + name(tasks.get(i).observer) + ".",
+            e.getCause());
+      } catch (InterruptedException e) {
+        // Preserve the interruption status as per guidance, the metrics are collected anyway.
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  // Waits until the callback returns, or is not run because it was still queued at the queue
+  // deadline, or times out after it started.
+  private void waitFor(
+      CallbackTask task, FutureTask<Void> future, long queueDeadlineNanos, SelfMetrics selfMetrics)
+      throws ExecutionException, InterruptedException {
+    while (true) {
+      long startNanos = task.startNanos;
+      long deadlineNanos = startNanos == 0 ? queueDeadlineNanos : startNanos + callbackTimeoutNanos;
+      try {
+        future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        return;
+      } catch (TimeoutException e) {
+        if (task.abandon()) {
+          // The task would not run the callback anymore, removes it from the queue so that the
+          // abandoned tasks don't pile up behind a stuck callback.
+          future.cancel(false);
+          executor.remove(future);
+          selfMetrics.skippedCallbacks.getHandle(labelValues(task.observer)).add(1);
+          return;
+        }
+        if (startNanos != 0) {
+          // The callback stays marked as running until it returns.
+          future.cancel(true);
+          selfMetrics.timedOutCallbacks.getHandle(labelValues(task.observer)).add(1);
+          return;
+        }
+        // Started after the queue deadline, waits for its own timeout.
+      }
+    }
+  }
+
+  private static List<String> labelValues(AbstractObserver<?, ?> observer) {
+    return Collections.singletonList(name(observer));
+  }
+
+  private static String name(AbstractObserver<?, ?> observer) {
+    return observer.getMetricDescriptor().getName();
+  }
+
+  // Runs the callback unless the collection abandoned it first.
+  private static final class CallbackTask implements Runnable {
+    private static final int QUEUED = 0;
+    private static final int STARTED = 1;
+    private static final int ABANDONED = 2;
+
+    private final AbstractObserver<?, ?> observer;
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+    // Set when a thread takes the task, 0 before.
+    private volatile long startNanos;
+
+    private CallbackTask(AbstractObserver<?, ?> observer) {
+      this.observer = observer;
+    }
+
+    @Override
+    public void run() {
+      // Set first, so that it is visible once the collection fails to abandon the callback. Never
+      // 0, so that it can't be mistaken for a callback that didn't start.
+      startNanos = System.nanoTime() | 1;
+      if (state.compareAndSet(QUEUED, STARTED)) {
+        observer.runCallback();
+      }
+    }
+
+    // Returns whether the callback was still queued, it won't be run.
+    private boolean abandon() {
+      if (!state.compareAndSet(QUEUED, ABANDONED)) {
+        return false;
+      }
+      observer.abandonCallback();
+      return true;
+    }
+  }
+
+  private static final class SelfMetrics {
+    private final CounterLong skippedCallbacks;
+    private final CounterLong timedOutCallbacks;
+
+    private SelfMetrics(MeterSharedState meterSharedState) {
+      skippedCallbacks =
+          CounterLongSdk.newBuilder(METRIC_PREFIX + "skipped_callbacks", meterSharedState)
+              .setDescription(
+                  "Number of observer callbacks not run because their previous run had not"
+                      + " finished, or because no thread was free before the callback timeout.")
+              .setLabelKeys(LABEL_KEYS)
+              .build();
+      timedOutCallbacks =
+          CounterLongSdk.newBuilder(METRIC_PREFIX + "timed_out_callbacks", meterSharedState)
+              .setDescription(
+                  "Number of observer callbacks that did not finish within the callback timeout"
+                      + " after they started.")
+              .setLabelKeys(LABEL_KEYS)
+              .build();
+    }
+  }
+
+  private static final class WorkerThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = MoreExecutors.platformThreadFactory().newThread(runnable);
+      try {
+        thread.setName(WORKER_THREAD_NAME);
+        // The pool must not keep the JVM alive.
+        thread.setDaemon(true);
+      } catch (SecurityException e) {
+        // OK if we can't set the name in this environment.
+      }
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+/**
+ * Whether the collected {@link MetricData} has the values recorded since the creation of the
+ * metric, or since the previous collection.
+ *
+ * @since 0.2.0
+ */
+public enum Temporality {
+  /**
+   * The counters and the distributions report the values recorded since the metric was created,
+   * the {@link MetricData#getStartEpochNanos()}. Every handle that ever recorded a value has a
+   * point.
+   *
+   * @since 0.2.0
+   */
+  CUMULATIVE,
+
+  /**
+   * The counters and the distributions report the values recorded since the previous collection,
+   * the {@link MetricData#getStartEpochNanos()}. Only the handles that recorded a value since the
+   * previous collection have a point.
+   *
+   * @since 0.2.0
+   */
+  DELTA,
+}
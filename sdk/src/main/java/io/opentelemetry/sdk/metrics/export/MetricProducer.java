@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics.export;
+
+import io.opentelemetry.sdk.metrics.MetricData;
+import java.util.Collection;
+
+/**
+ * {@code MetricProducer} is the interface that is used to make metric data available to the
+ * exporters, see {@link PeriodicMetricReader}. Implementations should be stateful: with {@link
+ * io.opentelemetry.sdk.metrics.Temporality#DELTA} every call returns the values recorded since the
+ * previous call.
+ */
+public interface MetricProducer {
+
+  /**
+   * Returns a collection of produced {@link MetricData}s to be exported, one per metric. It is a
+   * snapshot taken when the method is called.
+   *
+   * @return a collection of produced {@link MetricData}s to be exported.
+   */
+  Collection<MetricData> getAllMetrics();
+}
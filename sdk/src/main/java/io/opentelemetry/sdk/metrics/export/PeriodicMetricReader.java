@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics.export;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.metrics.MetricData;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the metrics of a {@link MetricProducer} at a fixed interval and passes them to a {@link
+ * MetricExporter}, from a dedicated worker thread.
+ *
+ * <p>Collecting doesn't block the threads recording values: the instruments are read and reset with
+ * atomic operations, so a value recorded during a collection is part of this collection or of the
+ * next one. With {@link io.opentelemetry.sdk.metrics.Temporality#DELTA} every export has the values
+ * recorded since the previous one.
+ */
+public final class PeriodicMetricReader {
+  private static final String WORKER_THREAD_NAME =
+      PeriodicMetricReader.class.getSimpleName() + "_WorkerThread";
+  private final Worker worker;
+  private final Thread workerThread;
+
+  private PeriodicMetricReader(
+      MetricProducer metricProducer, MetricExporter metricExporter, long exportIntervalMillis) {
+    this.worker = new Worker(metricProducer, metricExporter, exportIntervalMillis);
+    this.workerThread = newThread(worker);
+    this.workerThread.start();
+  }
+
+  /**
+   * Stops the periodic exports, then exports the metrics one last time and shuts down the {@code
+   * MetricExporter}. Waits for an export in progress to finish.
+   */
+  public void shutdown() {
+    workerThread.interrupt();
+    try {
+      workerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    worker.export();
+    worker.shutdown();
+  }
+
+  /**
+   * Returns a new Builder for {@link PeriodicMetricReader}.
+   *
+   * @param metricProducer the {@code MetricProducer} from where the metrics are collected.
+   * @param metricExporter the {@code MetricExporter} to where the metrics are pushed.
+   * @return a new {@link PeriodicMetricReader}.
+   * @throws NullPointerException if the {@code metricProducer} or the {@code metricExporter} is
+   *     {@code null}.
+   */
+  public static Builder newBuilder(MetricProducer metricProducer, MetricExporter metricExporter) {
+    return new Builder(metricProducer, metricExporter);
+  }
+
+  /** Builder class for {@link PeriodicMetricReader}. */
+  public static final class Builder {
+    private static final long EXPORT_INTERVAL_MILLIS = 60000;
+    private final MetricProducer metricProducer;
+    private final MetricExporter metricExporter;
+    private long exportIntervalMillis = EXPORT_INTERVAL_MILLIS;
+
+    private Builder(MetricProducer metricProducer, MetricExporter metricExporter) {
+      this.metricProducer = Utils.checkNotNull(metricProducer, "metricProducer");
+      this.metricExporter = Utils.checkNotNull(metricExporter, "metricExporter");
+    }
+
+    /**
+     * Sets the interval between two consecutive exports. The exports run at a fixed rate, an export
+     * that takes longer than the interval delays the next one.
+     *
+     * <p>Default value is {@code 60000}ms.
+     *
+     * @param exportIntervalMillis the interval between two consecutive exports.
+     * @return this.
+     * @throws IllegalArgumentException if {@code exportIntervalMillis} is not positive.
+     */
+    public Builder setExportIntervalMillis(long exportIntervalMillis) {
+      Utils.checkArgument(exportIntervalMillis > 0, "exportIntervalMillis must be positive.");
+      this.exportIntervalMillis = exportIntervalMillis;
+      return this;
+    }
+
+    /**
+     * Returns a new {@link PeriodicMetricReader} that starts collecting the metrics of the {@code
+     * metricProducer} and passing them to the {@code metricExporter}.
+     *
+     * @return a new {@link PeriodicMetricReader}.
+     */
+    public PeriodicMetricReader build() {
+      return new PeriodicMetricReader(metricProducer, metricExporter, exportIntervalMillis);
+    }
+  }
+
+  private static Thread newThread(Runnable runnable) {
+    Thread thread = MoreExecutors.platformThreadFactory().newThread(runnable);
+    try {
+      thread.setName(WORKER_THREAD_NAME);
+    } catch (SecurityException e) {
+      // OK if we can't set the name in this environment.
+    }
+    return thread;
+  }
+
+  // Worker is a thread that collects the metrics at a fixed rate and calls the registered
+  // MetricExporter to export them.
+  private static final class Worker implements Runnable {
+    private static final Logger logger = Logger.getLogger(Worker.class.getName());
+    private final MetricProducer metricProducer;
+    private final MetricExporter metricExporter;
+    private final long exportIntervalNanos;
+
+    private Worker(
+        MetricProducer metricProducer, MetricExporter metricExporter, long exportIntervalMillis) {
+      this.metricProducer = metricProducer;
+      this.metricExporter = metricExporter;
+      this.exportIntervalNanos = TimeUnit.MILLISECONDS.toNanos(exportIntervalMillis);
+    }
+
+    @Override
+    public void run() {
+      long nextExportNanos = System.nanoTime() + exportIntervalNanos;
+      while (!Thread.currentThread().isInterrupted()) {
+        long delayNanos = nextExportNanos - System.nanoTime();
+        if (delayNanos > 0) {
+          try {
+            TimeUnit.NANOSECONDS.sleep(delayNanos);
+          } catch (InterruptedException e) {
+            // Preserve the interruption status as per guidance and stop the worker.
+            Thread.currentThread().interrupt();
+            return;
+          }
+          continue;
+        }
+        export();
+        // Skips the exports missed while a slow export was running, instead of running them
+        // back to back.
+        nextExportNanos = Math.max(nextExportNanos, System.nanoTime()) + exportIntervalNanos;
+      }
+    }
+
+    private void export() {
+      try {
+        Collection<MetricData> metrics = metricProducer.getAllMetrics();
+        MetricExporter.ResultCode result = metricExporter.export(metrics);
+        if (result != MetricExporter.ResultCode.SUCCESS) {
+          logger.log(Level.FINE, "Exporter failed to export the metrics: " + result);
+        }
+      } catch (Throwable t) {
+        logger.log(Level.WARNING, "Exception thrown by the export.", t);
+      }
+    }
+
+    private void shutdown() {
+      metricExporter.shutdown();
+    }
+  }
+}
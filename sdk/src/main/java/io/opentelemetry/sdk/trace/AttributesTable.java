@@ -0,0 +1,413 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import io.opentelemetry.trace.AttributeValue;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * The attributes of a span, with a fixed capacity. When the table is full, putting a new key drops
+ * the eldest entry, where putting an existing key makes it the newest one.
+ *
+ * <p>Entries are stored in parallel arrays, primitive values unboxed, ordered from the eldest to
+ * the newest in a ring, and found through an open addressing index with linear probing. The
+ * primitive values are boxed into {@link AttributeValue}s once, when the table is frozen, so all
+ * the readers of an ended span share them.
+ */
+@NotThreadSafe
+final class AttributesTable {
+  private static final int INITIAL_LENGTH = 8;
+  // The types of the entries.
+  private static final byte TYPE_STRING = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_LONG = 2;
+  private static final byte TYPE_DOUBLE = 3;
+  // The AttributeValue given by the caller is stored as is.
+  private static final byte TYPE_ATTRIBUTE_VALUE = 4;
+
+  private final int capacity;
+  private int totalRecordedAttributes;
+  // Becomes true when the span is ended, the table doesn't change anymore.
+  private boolean frozen;
+  // The number of entries.
+  private int size;
+  // The slot of the eldest entry.
+  private int head;
+  // The arrays below are allocated on the first put, then grow until their length is the
+  // capacity.
+  @Nullable private String[] keys;
+  @Nullable private byte[] types;
+  // The long values, booleans as 0 or 1 and the raw bits of doubles.
+  @Nullable private long[] primitives;
+  // The String or AttributeValue values.
+  @Nullable private Object[] objects;
+  // Maps the buckets to the slot of the entry plus one, 0 for an empty bucket. Its length is a
+  // power of two at least twice the length of the entry arrays.
+  @Nullable private int[] index;
+  // Maps the slots to the bucket of their entry, so moving an entry rewrites its bucket without
+  // hashing the key again.
+  @Nullable private int[] bucketOf;
+
+  AttributesTable(int capacity) {
+    this.capacity = capacity;
+  }
+
+  private AttributesTable(AttributesTable other) {
+    this.capacity = other.capacity;
+    this.totalRecordedAttributes = other.totalRecordedAttributes;
+    this.frozen = true;
+    this.size = other.size;
+    this.head = other.head;
+    if (other.keys != null) {
+      this.keys = other.keys.clone();
+      this.types = other.types.clone();
+      this.primitives = other.primitives.clone();
+      this.objects = other.objects.clone();
+      this.index = other.index.clone();
+      this.bucketOf = other.bucketOf.clone();
+      boxValues();
+    }
+  }
+
+  void putString(String key, String value) {
+    put(key, TYPE_STRING, 0, value);
+  }
+
+  void putBoolean(String key, boolean value) {
+    put(key, TYPE_BOOLEAN, value ? 1 : 0, null);
+  }
+
+  void putLong(String key, long value) {
+    put(key, TYPE_LONG, value, null);
+  }
+
+  void putDouble(String key, double value) {
+    put(key, TYPE_DOUBLE, Double.doubleToRawLongBits(value), null);
+  }
+
+  void putAttributeValue(String key, AttributeValue value) {
+    put(key, TYPE_ATTRIBUTE_VALUE, 0, value);
+  }
+
+  void putAll(Map<String, AttributeValue> attributes) {
+    for (Map.Entry<String, AttributeValue> entry : attributes.entrySet()) {
+      putAttributeValue(entry.getKey(), entry.getValue());
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  int getNumberOfDroppedAttributes() {
+    return totalRecordedAttributes - size;
+  }
+
+  // Called when the span is ended, the table must not be changed anymore.
+  void freeze() {
+    if (frozen) {
+      return;
+    }
+    frozen = true;
+    if (keys != null) {
+      boxValues();
+    }
+  }
+
+  /**
+   * Returns a read-only live view of the attributes.
+   *
+   * @return a read-only live view of the attributes.
+   */
+  Map<String, AttributeValue> asMap() {
+    return new MapView(this);
+  }
+
+  /**
+   * Returns an immutable view of the current attributes. Once the table is frozen the view shares
+   * its arrays and its boxed values, before that it copies them.
+   *
+   * @return an immutable view of the current attributes.
+   */
+  Map<String, AttributeValue> snapshot() {
+    return new ImmutableMapView(frozen ? this : new AttributesTable(this));
+  }
+
+  private void put(String key, byte type, long primitive, @Nullable Object object) {
+    if (frozen) {
+      throw new IllegalStateException("The attributes are frozen.");
+    }
+    totalRecordedAttributes++;
+    if (capacity <= 0) {
+      return;
+    }
+    if (keys == null) {
+      allocate(Math.min(capacity, INITIAL_LENGTH));
+    }
+    int hash = hash(key);
+    int bucket = findBucket(key, hash);
+    int slot;
+    if (index[bucket] != 0) {
+      slot = moveToNewest(index[bucket] - 1);
+    } else if (size < capacity) {
+      if (size == keys.length) {
+        grow();
+        bucket = findBucket(key, hash);
+      }
+      slot = toSlot(size);
+      size++;
+      keys[slot] = key;
+      setBucket(bucket, slot);
+    } else {
+      // Drops the eldest entry, its slot becomes the one of the newest entry.
+      slot = head;
+      removeFromIndex(slot);
+      head = toSlot(1);
+      keys[slot] = key;
+      setBucket(findBucket(key, hash), slot);
+    }
+    types[slot] = type;
+    primitives[slot] = primitive;
+    objects[slot] = object;
+  }
+
+  private void allocate(int length) {
+    keys = new String[length];
+    types = new byte[length];
+    primitives = new long[length];
+    objects = new Object[length];
+    index = new int[indexLength(length)];
+    bucketOf = new int[length];
+  }
+
+  // Only called before any entry is dropped, so head is 0.
+  private void grow() {
+    int length = Math.min(capacity, keys.length * 2);
+    keys = Arrays.copyOf(keys, length);
+    types = Arrays.copyOf(types, length);
+    primitives = Arrays.copyOf(primitives, length);
+    objects = Arrays.copyOf(objects, length);
+    index = new int[indexLength(length)];
+    bucketOf = new int[length];
+    for (int slot = 0; slot < size; slot++) {
+      setBucket(findBucket(keys[slot], hash(keys[slot])), slot);
+    }
+  }
+
+  // Moves the entry in the given slot after the newest entry, and returns its new slot. Only the
+  // buckets of the shifted entries are rewritten, the keys are not hashed again.
+  private int moveToNewest(int slot) {
+    int position = (slot - head + keys.length) % keys.length;
+    if (position == size - 1) {
+      return slot;
+    }
+    String key = keys[slot];
+    int keyBucket = bucketOf[slot];
+    for (int i = position; i < size - 1; i++) {
+      int to = toSlot(i);
+      int from = toSlot(i + 1);
+      keys[to] = keys[from];
+      types[to] = types[from];
+      primitives[to] = primitives[from];
+      objects[to] = objects[from];
+      setBucket(bucketOf[from], to);
+    }
+    int newest = toSlot(size - 1);
+    keys[newest] = key;
+    setBucket(keyBucket, newest);
+    return newest;
+  }
+
+  private void setBucket(int bucket, int slot) {
+    index[bucket] = slot + 1;
+    bucketOf[slot] = bucket;
+  }
+
+  // Removes the entry in the given slot from the index, shifting back the following entries of its
+  // probe sequence.
+  private void removeFromIndex(int slot) {
+    int mask = index.length - 1;
+    int empty = bucketOf[slot];
+    index[empty] = 0;
+    int bucket = empty;
+    while (true) {
+      bucket = (bucket + 1) & mask;
+      if (index[bucket] == 0) {
+        return;
+      }
+      int desired = hash(keys[index[bucket] - 1]) & mask;
+      // The entry stays if its desired bucket is cyclically in (empty, bucket].
+      boolean stays =
+          empty <= bucket
+              ? empty < desired && desired <= bucket
+              : empty < desired || desired <= bucket;
+      if (!stays) {
+        setBucket(empty, index[bucket] - 1);
+        index[bucket] = 0;
+        empty = bucket;
+      }
+    }
+  }
+
+  // Returns the bucket of the key, or the empty bucket where it should be inserted.
+  private int findBucket(Object key, int hash) {
+    int mask = index.length - 1;
+    int bucket = hash & mask;
+    while (index[bucket] != 0 && !keys[index[bucket] - 1].equals(key)) {
+      bucket = (bucket + 1) & mask;
+    }
+    return bucket;
+  }
+
+  // Returns the slot of the key, or -1 if not found.
+  private int findSlot(@Nullable Object key) {
+    if (key == null || keys == null) {
+      return -1;
+    }
+    int bucket = findBucket(key, hash(key));
+    return index[bucket] - 1;
+  }
+
+  // Returns the slot of the entry at the given position, from 0 for the eldest.
+  private int toSlot(int position) {
+    int slot = head + position;
+    return slot < keys.length ? slot : slot - keys.length;
+  }
+
+  // Replaces the primitive values by their AttributeValue, only once the table is frozen.
+  private void boxValues() {
+    for (int i = 0; i < size; i++) {
+      int slot = toSlot(i);
+      if (types[slot] != TYPE_ATTRIBUTE_VALUE) {
+        objects[slot] = getValue(slot);
+        types[slot] = TYPE_ATTRIBUTE_VALUE;
+      }
+    }
+  }
+
+  private AttributeValue getValue(int slot) {
+    switch (types[slot]) {
+      case TYPE_STRING:
+        return AttributeValue.stringAttributeValue((String) objects[slot]);
+      case TYPE_BOOLEAN:
+        return AttributeValue.booleanAttributeValue(primitives[slot] != 0);
+      case TYPE_LONG:
+        return AttributeValue.longAttributeValue(primitives[slot]);
+      case TYPE_DOUBLE:
+        return AttributeValue.doubleAttributeValue(Double.longBitsToDouble(primitives[slot]));
+      default:
+        return (AttributeValue) objects[slot];
+    }
+  }
+
+  private static int hash(Object key) {
+    int hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int indexLength(int length) {
+    return Integer.highestOneBit(length * 2 - 1) << 1;
+  }
+
+  // A read-only view of a table.
+  private static class MapView extends AbstractMap<String, AttributeValue> {
+    private final AttributesTable table;
+
+    private MapView(AttributesTable table) {
+      this.table = table;
+    }
+
+    @Override
+    public int size() {
+      return table.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return table.findSlot(key) >= 0;
+    }
+
+    @Override
+    @Nullable
+    public AttributeValue get(Object key) {
+      int slot = table.findSlot(key);
+      return slot < 0 ? null : table.getValue(slot);
+    }
+
+    @Override
+    public Set<Entry<String, AttributeValue>> entrySet() {
+      return new AbstractSet<Entry<String, AttributeValue>>() {
+        @Override
+        public int size() {
+          return table.size;
+        }
+
+        @Override
+        public Iterator<Entry<String, AttributeValue>> iterator() {
+          return new EntryIterator(table);
+        }
+      };
+    }
+  }
+
+  /**
+   * An immutable view of a frozen table, that {@link SpanData} keeps without copying it. The
+   * values were boxed when the table was frozen, so reading them doesn't allocate.
+   */
+  static final class ImmutableMapView extends MapView {
+    private ImmutableMapView(AttributesTable table) {
+      super(table);
+    }
+  }
+
+  // Iterates the entries from the eldest to the newest.
+  private static final class EntryIterator implements Iterator<Map.Entry<String, AttributeValue>> {
+    private final AttributesTable table;
+    private int position;
+
+    private EntryIterator(AttributesTable table) {
+      this.table = table;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < table.size;
+    }
+
+    @Override
+    public Map.Entry<String, AttributeValue> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int slot = table.toSlot(position++);
+      return new AbstractMap.SimpleImmutableEntry<>(table.keys[slot], table.getValue(slot));
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+}
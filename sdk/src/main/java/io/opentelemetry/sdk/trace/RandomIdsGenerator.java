@@ -20,10 +20,10 @@ import io.opentelemetry.trace.SpanId;
 import io.opentelemetry.trace.TraceId;
 import java.util.Random;
 
+// Generates the ids with the given Random, shared by all the threads. See ThreadLocalIdsGenerator
+// for the default generator.
 final class RandomIdsGenerator implements IdsGenerator {
   private static final long INVALID_ID = 0;
-  // TODO change with ThreadLocal version
-  // https://github.com/open-telemetry/opentelemetry-java/issues/406
   private final Random random;
 
   RandomIdsGenerator(Random random) {
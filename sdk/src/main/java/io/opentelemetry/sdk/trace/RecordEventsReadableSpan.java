@@ -33,20 +33,36 @@ import io.opentelemetry.trace.Status;
 import io.opentelemetry.trace.Tracer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
-/** Implementation for the {@link Span} class that records trace events. */
+/**
+ * Implementation for the {@link Span} class that records trace events.
+ *
+ * <p>Spans are almost always recorded by a single thread and read by other threads only after
+ * they are ended, typically by a {@link SpanProcessor} or an exporter. The thread that starts the
+ * span owns it: it writes the mutable state with plain writes, without the lock, and the span is
+ * published as ended through a volatile write after its final state. Reads of an ended span, and
+ * the updates made by the child spans, don't take the lock either.
+ *
+ * <p>The first time another thread touches the active span, the span becomes shared: that thread
+ * waits for the write in progress of the owner, if any, and from then on every thread, the owner
+ * included, accesses the mutable state under the lock.
+ */
 @ThreadSafe
 final class RecordEventsReadableSpan implements ReadableSpan, Span {
 
   private static final Logger logger = Logger.getLogger(Tracer.class.getName());
+  private static final AtomicIntegerFieldUpdater<RecordEventsReadableSpan>
+      numberOfChildrenUpdater =
+          AtomicIntegerFieldUpdater.newUpdater(RecordEventsReadableSpan.class, "numberOfChildren");
+  private static final AtomicIntegerFieldUpdater<RecordEventsReadableSpan> ownerAccessUpdater =
+      AtomicIntegerFieldUpdater.newUpdater(RecordEventsReadableSpan.class, "ownerAccess");
 
   // Contains the identifiers associated with this Span.
   private final SpanContext context;
@@ -62,10 +78,20 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
   // Number of links recorded.
   private final int totalRecordedLinks;
 
-  // Lock used to internally guard the mutable state of this instance
+  // Lock used to internally guard the mutable state of this instance once it is shared, until it
+  // is ended. The state doesn't change once hasBeenEnded is true, so it can then be read without
+  // the lock.
   private final Object lock = new Object();
-
-  @GuardedBy("lock")
+  // The thread that started the span, which accesses it without the lock until it is shared.
+  private final Thread owner;
+  // True once a thread other than the owner accessed the active span. Never reset.
+  private volatile boolean shared;
+  // 1 while the owner accesses the state without the lock. With shared, this is a Dekker
+  // handshake: the owner sets ownerAccess then checks shared, the other threads set shared then
+  // wait for ownerAccess to be 0, so they never access the state at the same time.
+  private volatile int ownerAccess;
+
+  // Written by the owner or under the lock, read without the lock after the span is ended.
   private String name;
   // The kind of the span.
   private final Kind kind;
@@ -77,28 +103,23 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
   private final InstrumentationLibraryInfo instrumentationLibraryInfo;
   // The start time of the span.
   private final long startEpochNanos;
-  // Set of recorded attributes. DO NOT CALL any other method that changes the ordering of events.
-  @GuardedBy("lock")
-  private final AttributesWithCapacity attributes;
+  // The fields below are written by the owner or under the lock, and read without the lock after
+  // the span is ended.
+  // Set of recorded attributes.
+  private final AttributesTable attributes;
   // List of recorded events.
-  @GuardedBy("lock")
   private final EvictingQueue<TimedEvent> events;
   // Number of events recorded.
-  @GuardedBy("lock")
   private int totalRecordedEvents = 0;
-  // The number of children.
-  @GuardedBy("lock")
-  private int numberOfChildren;
   // The status of the span.
-  @GuardedBy("lock")
-  @Nullable
-  private Status status;
+  @Nullable private Status status;
   // The end time of the span.
-  @GuardedBy("lock")
   private long endEpochNanos;
-  // True if the span is ended.
-  @GuardedBy("lock")
-  private boolean hasBeenEnded;
+  // True if the span is ended. Written after the final state of the span, so a thread that reads
+  // true also sees that state.
+  private volatile boolean hasBeenEnded;
+  // The number of children, updated with numberOfChildrenUpdater.
+  private volatile int numberOfChildren;
 
   /**
    * Creates and starts a span with the given configuration.
@@ -158,31 +179,48 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
 
   @Override
   public SpanData toSpanData() {
+    if (hasBeenEnded) {
+      return toSpanDataInternal();
+    }
+    if (tryOwnerAccess()) {
+      try {
+        return toSpanDataInternal();
+      } finally {
+        endOwnerAccess();
+      }
+    }
+    synchronized (lock) {
+      return toSpanDataInternal();
+    }
+  }
+
+  // Must be called by the owner, under the lock, or after the span is ended.
+  private SpanData toSpanDataInternal() {
     SpanContext spanContext = getSpanContext();
     return SpanData.newBuilder()
-        .setName(getName())
+        .setName(name)
         .setInstrumentationLibraryInfo(instrumentationLibraryInfo)
         .setTraceId(spanContext.getTraceId())
         .setSpanId(spanContext.getSpanId())
         .setTraceFlags(spanContext.getTraceFlags())
         .setTracestate(spanContext.getTracestate())
-        .setAttributes(getAttributes())
+        .setAttributes(attributes.snapshot())
         .setStartEpochNanos(startEpochNanos)
-        .setEndEpochNanos(getEndEpochNanos())
+        .setEndEpochNanos(getEndNanoTimeInternal())
         .setKind(kind)
-        .setLinks(getLinks())
+        .setLinks(getLinksInternal())
         .setParentSpanId(parentSpanId)
         .setHasRemoteParent(hasRemoteParent)
         .setResource(resource)
-        .setStatus(getStatus())
+        .setStatus(getStatusWithDefault())
         .setTimedEvents(adaptTimedEvents())
         .build();
   }
 
+  // Must be called by the owner, under the lock, or after the span is ended.
   private List<SpanData.TimedEvent> adaptTimedEvents() {
-    List<io.opentelemetry.sdk.trace.TimedEvent> sourceEvents = getTimedEvents();
-    List<SpanData.TimedEvent> result = new ArrayList<>(sourceEvents.size());
-    for (io.opentelemetry.sdk.trace.TimedEvent sourceEvent : sourceEvents) {
+    List<SpanData.TimedEvent> result = new ArrayList<>(events.size());
+    for (io.opentelemetry.sdk.trace.TimedEvent sourceEvent : events) {
       result.add(
           SpanData.TimedEvent.create(
               sourceEvent.getEpochNanos(), sourceEvent.getName(), sourceEvent.getAttributes()));
@@ -202,6 +240,16 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
    */
   @Override
   public String getName() {
+    if (hasBeenEnded) {
+      return name;
+    }
+    if (tryOwnerAccess()) {
+      try {
+        return name;
+      } finally {
+        endOwnerAccess();
+      }
+    }
     synchronized (lock) {
       return name;
     }
@@ -219,18 +267,6 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
     return instrumentationLibraryInfo;
   }
 
-  /**
-   * Returns the end nano time (see {@link System#nanoTime()}). If the current {@code Span} is not
-   * ended then returns {@link Clock#nanoTime()}.
-   *
-   * @return the end nano time.
-   */
-  private long getEndEpochNanos() {
-    synchronized (lock) {
-      return getEndNanoTimeInternal();
-    }
-  }
-
   /**
    * Returns the status of the {@code Span}. If not set defaults to {@link Status#OK}.
    *
@@ -238,19 +274,18 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
    */
   @VisibleForTesting
   Status getStatus() {
-    synchronized (lock) {
+    if (hasBeenEnded) {
       return getStatusWithDefault();
     }
-  }
-
-  /**
-   * Returns a copy of the timed events for this span.
-   *
-   * @return The TimedEvents for this span.
-   */
-  private List<TimedEvent> getTimedEvents() {
+    if (tryOwnerAccess()) {
+      try {
+        return getStatusWithDefault();
+      } finally {
+        endOwnerAccess();
+      }
+    }
     synchronized (lock) {
-      return new ArrayList<>(events);
+      return getStatusWithDefault();
     }
   }
 
@@ -261,22 +296,25 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
    */
   @VisibleForTesting
   List<Link> getLinks() {
-    synchronized (lock) {
-      if (links == null) {
-        return Collections.emptyList();
-      }
-      List<Link> result = new ArrayList<>(links.size());
-      for (Link link : links) {
-        Link newLink = link;
-        if (!(link instanceof SpanData.Link)) {
-          // Make a copy because the given Link may not be immutable and we may reference a lot of
-          // memory.
-          newLink = SpanData.Link.create(link.getContext(), link.getAttributes());
-        }
-        result.add(newLink);
+    // The links are set during span creation and never change.
+    return getLinksInternal();
+  }
+
+  private List<Link> getLinksInternal() {
+    if (links == null) {
+      return Collections.emptyList();
+    }
+    List<Link> result = new ArrayList<>(links.size());
+    for (Link link : links) {
+      Link newLink = link;
+      if (!(link instanceof SpanData.Link)) {
+        // Make a copy because the given Link may not be immutable and we may reference a lot of
+        // memory.
+        newLink = SpanData.Link.create(link.getContext(), link.getAttributes());
       }
-      return Collections.unmodifiableList(result);
+      result.add(newLink);
     }
+    return Collections.unmodifiableList(result);
   }
 
   /**
@@ -286,9 +324,7 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
    */
   @VisibleForTesting
   Map<String, AttributeValue> getAttributes() {
-    synchronized (lock) {
-      return Collections.unmodifiableMap(attributes);
-    }
+    return attributes.asMap();
   }
 
   /**
@@ -298,13 +334,23 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
    * @return the latency of the {@code Span} in nanos.
    */
   long getLatencyNs() {
+    if (hasBeenEnded) {
+      return endEpochNanos - startEpochNanos;
+    }
+    if (tryOwnerAccess()) {
+      try {
+        return getEndNanoTimeInternal() - startEpochNanos;
+      } finally {
+        endOwnerAccess();
+      }
+    }
     synchronized (lock) {
       return getEndNanoTimeInternal() - startEpochNanos;
     }
   }
 
-  // Use getEndNanoTimeInternal to avoid over-locking.
-  @GuardedBy("lock")
+  // Use getEndNanoTimeInternal to avoid over-locking. Must be called by the owner, under the lock,
+  // or after the span is ended.
   private long getEndNanoTimeInternal() {
     return hasBeenEnded ? endEpochNanos : clock.now();
   }
@@ -338,36 +384,106 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
     return clock;
   }
 
+  // The primitive values are stored unboxed, without creating an AttributeValue.
   @Override
   public void setAttribute(String key, String value) {
-    setAttribute(key, AttributeValue.stringAttributeValue(value));
+    Preconditions.checkNotNull(key, "key");
+    Preconditions.checkNotNull(value, "value");
+    if (tryOwnerAccess()) {
+      try {
+        if (checkNotEnded("setAttribute")) {
+          attributes.putString(key, value);
+        }
+      } finally {
+        endOwnerAccess();
+      }
+      return;
+    }
+    synchronized (lock) {
+      if (checkNotEnded("setAttribute")) {
+        attributes.putString(key, value);
+      }
+    }
   }
 
   @Override
   public void setAttribute(String key, long value) {
-    setAttribute(key, AttributeValue.longAttributeValue(value));
+    Preconditions.checkNotNull(key, "key");
+    if (tryOwnerAccess()) {
+      try {
+        if (checkNotEnded("setAttribute")) {
+          attributes.putLong(key, value);
+        }
+      } finally {
+        endOwnerAccess();
+      }
+      return;
+    }
+    synchronized (lock) {
+      if (checkNotEnded("setAttribute")) {
+        attributes.putLong(key, value);
+      }
+    }
   }
 
   @Override
   public void setAttribute(String key, double value) {
-    setAttribute(key, AttributeValue.doubleAttributeValue(value));
+    Preconditions.checkNotNull(key, "key");
+    if (tryOwnerAccess()) {
+      try {
+        if (checkNotEnded("setAttribute")) {
+          attributes.putDouble(key, value);
+        }
+      } finally {
+        endOwnerAccess();
+      }
+      return;
+    }
+    synchronized (lock) {
+      if (checkNotEnded("setAttribute")) {
+        attributes.putDouble(key, value);
+      }
+    }
   }
 
   @Override
   public void setAttribute(String key, boolean value) {
-    setAttribute(key, AttributeValue.booleanAttributeValue(value));
+    Preconditions.checkNotNull(key, "key");
+    if (tryOwnerAccess()) {
+      try {
+        if (checkNotEnded("setAttribute")) {
+          attributes.putBoolean(key, value);
+        }
+      } finally {
+        endOwnerAccess();
+      }
+      return;
+    }
+    synchronized (lock) {
+      if (checkNotEnded("setAttribute")) {
+        attributes.putBoolean(key, value);
+      }
+    }
   }
 
   @Override
   public void setAttribute(String key, AttributeValue value) {
     Preconditions.checkNotNull(key, "key");
     Preconditions.checkNotNull(value, "value");
+    if (tryOwnerAccess()) {
+      try {
+        if (checkNotEnded("setAttribute")) {
+          attributes.putAttributeValue(key, value);
+        }
+      } finally {
+        endOwnerAccess();
+      }
+      return;
+    }
     synchronized (lock) {
-      if (hasBeenEnded) {
-        logger.log(Level.FINE, "Calling setAttribute() on an ended Span.");
-        return;
+      if (checkNotEnded("setAttribute")) {
+        attributes.putAttributeValue(key, value);
       }
-      attributes.putAttribute(key, value);
     }
   }
 
@@ -402,37 +518,62 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
   }
 
   private void addTimedEvent(TimedEvent timedEvent) {
+    if (tryOwnerAccess()) {
+      try {
+        if (checkNotEnded("addEvent")) {
+          events.add(timedEvent);
+          totalRecordedEvents++;
+        }
+      } finally {
+        endOwnerAccess();
+      }
+      return;
+    }
     synchronized (lock) {
-      if (hasBeenEnded) {
-        logger.log(Level.FINE, "Calling addEvent() on an ended Span.");
-        return;
+      if (checkNotEnded("addEvent")) {
+        events.add(timedEvent);
+        totalRecordedEvents++;
       }
-      events.add(timedEvent);
-      totalRecordedEvents++;
     }
   }
 
   @Override
   public void setStatus(Status status) {
     Preconditions.checkNotNull(status, "status");
+    if (tryOwnerAccess()) {
+      try {
+        if (checkNotEnded("setStatus")) {
+          this.status = status;
+        }
+      } finally {
+        endOwnerAccess();
+      }
+      return;
+    }
     synchronized (lock) {
-      if (hasBeenEnded) {
-        logger.log(Level.FINE, "Calling setStatus() on an ended Span.");
-        return;
+      if (checkNotEnded("setStatus")) {
+        this.status = status;
       }
-      this.status = status;
     }
   }
 
   @Override
   public void updateName(String name) {
     Preconditions.checkNotNull(name, "name");
+    if (tryOwnerAccess()) {
+      try {
+        if (checkNotEnded("updateName")) {
+          this.name = name;
+        }
+      } finally {
+        endOwnerAccess();
+      }
+      return;
+    }
     synchronized (lock) {
-      if (hasBeenEnded) {
-        logger.log(Level.FINE, "Calling updateName() on an ended Span.");
-        return;
+      if (checkNotEnded("updateName")) {
+        this.name = name;
       }
-      this.name = name;
     }
   }
 
@@ -448,79 +589,107 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
   }
 
   private void endInternal(long endEpochNanos) {
-    synchronized (lock) {
-      if (hasBeenEnded) {
-        logger.log(Level.FINE, "Calling end() on an ended Span.");
-        return;
+    boolean ended;
+    if (tryOwnerAccess()) {
+      try {
+        ended = endState(endEpochNanos);
+      } finally {
+        endOwnerAccess();
+      }
+    } else {
+      synchronized (lock) {
+        ended = endState(endEpochNanos);
       }
-      this.endEpochNanos = endEpochNanos;
-      hasBeenEnded = true;
     }
-    spanProcessor.onEnd(this);
+    if (ended) {
+      spanProcessor.onEnd(this);
+    }
   }
 
-  @Override
-  public SpanContext getContext() {
-    return context;
+  // Must be called by the owner or under the lock.
+  private boolean endState(long endEpochNanos) {
+    if (!checkNotEnded("end")) {
+      return false;
+    }
+    this.endEpochNanos = endEpochNanos;
+    attributes.freeze();
+    // Publishes the final state of the span to the threads reading it without the lock.
+    hasBeenEnded = true;
+    return true;
   }
 
-  @Override
-  public boolean isRecording() {
+  // Must be called by the owner or under the lock.
+  private boolean checkNotEnded(String method) {
+    if (hasBeenEnded) {
+      logger.log(Level.FINE, "Calling " + method + "() on an ended Span.");
+      return false;
+    }
     return true;
   }
 
-  void addChild() {
-    synchronized (lock) {
-      if (hasBeenEnded) {
-        logger.log(Level.FINE, "Calling end() on an ended Span.");
-        return;
+  /**
+   * Returns {@code true} if the calling thread is the owner of this span and may access its state
+   * without the lock, until it calls {@link #endOwnerAccess()}. Otherwise the caller must take the
+   * lock. When the calling thread is not the owner, the span becomes shared and this waits for the
+   * access in progress of the owner, if any, so the owner never accesses the state without the
+   * lock again.
+   */
+  private boolean tryOwnerAccess() {
+    if (Thread.currentThread() == owner) {
+      if (shared) {
+        return false;
+      }
+      ownerAccess = 1;
+      if (!shared) {
+        return true;
       }
-      numberOfChildren++;
+      ownerAccessUpdater.lazySet(this, 0);
+      return false;
     }
-  }
-
-  @GuardedBy("lock")
-  private Status getStatusWithDefault() {
-    synchronized (lock) {
-      return status == null ? Status.OK : status;
+    if (!shared) {
+      shared = true;
     }
+    while (ownerAccess != 0) {
+      // The owner only holds it for a single update of the span.
+      Thread.yield();
+    }
+    return false;
   }
 
-  // A map implementation with a fixed capacity that drops events when the map gets full. Eviction
-  // is based on the access order.
-  static final class AttributesWithCapacity extends LinkedHashMap<String, AttributeValue> {
+  // Publishes the writes of the owner to the thread that shares the span.
+  private void endOwnerAccess() {
+    ownerAccessUpdater.lazySet(this, 0);
+  }
 
-    private final long capacity;
-    private int totalRecordedAttributes = 0;
-    // Here because -Werror complains about this: [serial] serializable class AttributesWithCapacity
-    // has no definition of serialVersionUID. This class shouldn't be serialized.
-    private static final long serialVersionUID = 42L;
+  /** Makes every thread, the owner included, access the active span under the lock. */
+  @VisibleForTesting
+  void share() {
+    shared = true;
+  }
 
-    private AttributesWithCapacity(long capacity) {
-      // Capacity of the map is capacity + 1 to avoid resizing because removeEldestEntry is invoked
-      // by put and putAll after inserting a new entry into the map. The loadFactor is set to 1
-      // to avoid resizing because. The accessOrder is set to true.
-      super((int) capacity + 1, 1, /*accessOrder=*/ true);
-      this.capacity = capacity;
-    }
+  @Override
+  public SpanContext getContext() {
+    return context;
+  }
 
-    // Users must call this method instead of put to keep count of the total number of entries
-    // inserted.
-    private void putAttribute(String key, AttributeValue value) {
-      totalRecordedAttributes += 1;
-      put(key, value);
-    }
+  @Override
+  public boolean isRecording() {
+    return true;
+  }
 
-    int getNumberOfDroppedAttributes() {
-      return totalRecordedAttributes - size();
+  // Children are usually started by other threads than the one recording this span, so this
+  // doesn't take the lock. A child started concurrently with end() may still be counted.
+  void addChild() {
+    if (hasBeenEnded) {
+      logger.log(Level.FINE, "Calling end() on an ended Span.");
+      return;
     }
+    numberOfChildrenUpdater.incrementAndGet(this);
+  }
 
-    // It is called after each put or putAll call in order to determine if the eldest inserted
-    // entry should be removed or not.
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<String, AttributeValue> eldest) {
-      return size() > this.capacity;
-    }
+  // Must be called by the owner, under the lock, or after the span is ended.
+  private Status getStatusWithDefault() {
+    return status == null ? Status.OK : status;
   }
 
   private RecordEventsReadableSpan(
@@ -539,6 +708,7 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
       int totalRecordedLinks,
       long startEpochNanos) {
     this.context = context;
+    this.owner = Thread.currentThread();
     this.instrumentationLibraryInfo = instrumentationLibraryInfo;
     this.parentSpanId = parentSpanId;
     this.hasRemoteParent = hasRemoteParent;
@@ -548,11 +718,9 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
     this.kind = kind;
     this.spanProcessor = spanProcessor;
     this.resource = resource;
-    this.hasBeenEnded = false;
-    this.numberOfChildren = 0;
     this.clock = clock;
     this.startEpochNanos = startEpochNanos;
-    this.attributes = new AttributesWithCapacity(traceConfig.getMaxNumberOfAttributes());
+    this.attributes = new AttributesTable(traceConfig.getMaxNumberOfAttributes());
     this.attributes.putAll(attributes);
     this.events = EvictingQueue.create(traceConfig.getMaxNumberOfEvents());
   }
@@ -560,10 +728,9 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
   @SuppressWarnings("NoFinalizer")
   @Override
   protected void finalize() throws Throwable {
-    synchronized (lock) {
-      if (!hasBeenEnded) {
-        logger.log(Level.SEVERE, "Span " + name + " is GC'ed without being ended.");
-      }
+    // Doesn't take the lock, so the finalizer thread never contends with the recording thread.
+    if (!hasBeenEnded) {
+      logger.log(Level.SEVERE, "Span " + name + " is GC'ed without being ended.");
     }
     super.finalize();
   }
@@ -580,13 +747,21 @@ final class RecordEventsReadableSpan implements ReadableSpan, Span {
 
   @VisibleForTesting
   int getNumberOfChildren() {
-    synchronized (lock) {
-      return numberOfChildren;
-    }
+    return numberOfChildren;
   }
 
   @VisibleForTesting
   int getTotalRecordedEvents() {
+    if (hasBeenEnded) {
+      return totalRecordedEvents;
+    }
+    if (tryOwnerAccess()) {
+      try {
+        return totalRecordedEvents;
+      } finally {
+        endOwnerAccess();
+      }
+    }
     synchronized (lock) {
       return totalRecordedEvents;
     }
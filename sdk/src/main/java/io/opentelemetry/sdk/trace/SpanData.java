@@ -286,8 +286,11 @@ public abstract class SpanData {
      * @since 0.1.0
      */
     public SpanData build() {
-      // make unmodifiable copies of any collections
-      setAttributes(Collections.unmodifiableMap(new HashMap<>(getAttributes())));
+      // make unmodifiable copies of any collections, except the immutable attributes of the SDK
+      // spans.
+      if (!(getAttributes() instanceof AttributesTable.ImmutableMapView)) {
+        setAttributes(Collections.unmodifiableMap(new HashMap<>(getAttributes())));
+      }
       setTimedEvents(Collections.unmodifiableList(new ArrayList<>(getTimedEvents())));
       setLinks(Collections.unmodifiableList(new ArrayList<>(getLinks())));
       return autoBuild();
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+import java.util.Random;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link IdsGenerator} that generates the ids with a fast pseudo random generator per thread, so
+ * threads never contend. Each generator is seeded once from the given seed source, typically a
+ * {@link java.security.SecureRandom}, when the thread generates its first id.
+ *
+ * <p>{@code ThreadLocalRandom} and {@code SplittableRandom} are not available on Java 7 and
+ * Android, so this uses its own xorshift128+ generator.
+ */
+@ThreadSafe
+final class ThreadLocalIdsGenerator implements IdsGenerator {
+  private static final long INVALID_ID = 0;
+
+  private final ThreadLocal<XorShift128Plus> random;
+
+  ThreadLocalIdsGenerator(final Random seedSource) {
+    this.random =
+        new ThreadLocal<XorShift128Plus>() {
+          @Override
+          protected XorShift128Plus initialValue() {
+            // The seed source is only used once per thread.
+            return new XorShift128Plus(seedSource.nextLong(), seedSource.nextLong());
+          }
+        };
+  }
+
+  @Override
+  public SpanId generateSpanId() {
+    XorShift128Plus generator = random.get();
+    long id;
+    do {
+      id = generator.nextLong();
+    } while (id == INVALID_ID);
+    return new SpanId(id);
+  }
+
+  @Override
+  public TraceId generateTraceId() {
+    XorShift128Plus generator = random.get();
+    long idHi;
+    long idLo;
+    do {
+      idHi = generator.nextLong();
+      idLo = generator.nextLong();
+    } while (idHi == INVALID_ID && idLo == INVALID_ID);
+    return new TraceId(idHi, idLo);
+  }
+
+  /**
+   * The xorshift128+ generator of Sebastiano Vigna, with a period of 2^128 - 1. It is not
+   * cryptographically secure, like {@link Random}, but much faster.
+   */
+  @NotThreadSafe
+  static final class XorShift128Plus {
+    private long state0;
+    private long state1;
+
+    XorShift128Plus(long seed0, long seed1) {
+      // The state must not be all zeros. Mixes the seeds, so that similar seeds give unrelated
+      // sequences.
+      state0 = mix(seed0);
+      state1 = mix(seed1);
+      if (state0 == 0 && state1 == 0) {
+        state1 = 0x9E3779B97F4A7C15L;
+      }
+    }
+
+    long nextLong() {
+      long s1 = state0;
+      long s0 = state1;
+      state0 = s0;
+      s1 ^= s1 << 23;
+      state1 = s1 ^ s0 ^ (s1 >>> 17) ^ (s0 >>> 26);
+      return state1 + s0;
+    }
+
+    // The finalizer of the SplitMix64 generator.
+    private static long mix(long seed) {
+      long z = seed + 0x9E3779B97F4A7C15L;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+    }
+  }
+}
@@ -51,7 +51,7 @@ public class TracerSdkFactory implements TracerFactory {
   public static TracerSdkFactory create() {
     return new TracerSdkFactory(
         MillisClock.getInstance(),
-        new RandomIdsGenerator(new SecureRandom()),
+        new ThreadLocalIdsGenerator(new SecureRandom()),
         EnvVarResource.getResource());
   }
 
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import io.opentelemetry.sdk.trace.SpanData;
+import java.util.List;
+
+/**
+ * A {@link SpanExporter} that can also export spans without blocking the calling thread.
+ *
+ * <p>The {@link BatchSpansProcessor} uses {@link #exportAsync(List)} when the exporter implements
+ * this interface, which allows it to keep multiple exports in flight, see {@link
+ * BatchSpansProcessor.Builder#setMaxInFlightExports(int)}.
+ */
+public interface AsyncSpanExporter extends SpanExporter {
+
+  /**
+   * Called to export sampled {@code Span}s without blocking the calling thread. The returned
+   * {@code CompletableResultCode} must always be completed, even if the export fails or times out.
+   *
+   * @param spans the list of sampled Spans to be exported.
+   * @return the result of the export, completed when the export finishes.
+   */
+  CompletableResultCode exportAsync(List<SpanData> spans);
+}
@@ -16,32 +16,63 @@
 
 package io.opentelemetry.sdk.trace.export;
 
+import com.google.auto.value.AutoValue;
+import com.google.common.primitives.Doubles;
 import com.google.common.util.concurrent.MoreExecutors;
 import io.opentelemetry.internal.Utils;
+import io.opentelemetry.metrics.MeasureDouble;
+import io.opentelemetry.metrics.Meter;
+import io.opentelemetry.metrics.Observer;
+import io.opentelemetry.metrics.ObserverLong;
+import io.opentelemetry.sdk.internal.StripedLongAdder;
+import io.opentelemetry.sdk.metrics.stats.BucketBoundaries;
 import io.opentelemetry.sdk.trace.ReadableSpan;
 import io.opentelemetry.sdk.trace.SpanData;
 import io.opentelemetry.sdk.trace.SpanProcessor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
 
 /**
  * Implementation of the {@link SpanProcessor} that batches spans exported by the SDK then pushes
  * them to the exporter pipeline.
  *
- * <p>All spans reported by the SDK implementation are first added to a synchronized queue (with a
+ * <p>All spans reported by the SDK implementation are first added to a lock-free queue (with a
  * {@code maxQueueSize} maximum size, after the size is reached spans are dropped) and exported
  * every {@code scheduleDelayMillis} to the exporter pipeline in batches of {@code
  * maxExportBatchSize}.
  *
- * <p>If the queue gets half full a preemptive notification is sent to the worker thread that
- * exports the spans to wake up and start a new export cycle.
+ * <p>If the queue gets half full the worker thread that exports the spans is unparked to start a
+ * new export cycle.
  *
- * <p>This batch {@link SpanProcessor} can cause high contention in a very high traffic service.
- * TODO: Add a link to the SpanProcessor that uses Disruptor as alternative with low contention.
+ * <p>By default the worker thread converts the spans to {@link SpanData} before exporting them.
+ * At high throughput the conversion can be split across a pool of threads with {@link
+ * Builder#setConversionThreads(int)}, or done by the thread that ends the span, while its data is
+ * still in the CPU cache, with {@link Builder#setConvertOnEnd(boolean)}.
+ *
+ * <p>The number of enqueued, dropped and exported spans, the number of failed exports, the queue
+ * size and the export latency are available with {@link #getStatistics()}, and optionally reported
+ * through a {@link Meter} configured with {@link Builder#setMeter(Meter)}.
+ *
+ * <p>If the exporter is an {@link AsyncSpanExporter} the worker thread does not wait for an export
+ * to finish before starting the next one, up to {@link Builder#setMaxInFlightExports(int)} exports
+ * are in flight at the same time. When the limit is reached the worker thread waits for one of them
+ * to finish, which applies backpressure to the queue.
+ *
+ * <p>On {@link #shutdown()} the worker thread finishes its current export, then the remaining spans
+ * are exported and the exports in flight are awaited, for at most {@link
+ * Builder#setShutdownTimeoutMillis(long)}. The spans of an export that did not finish by then are
+ * abandoned, so an exporter that never returns cannot block the application forever.
  */
 public final class BatchSpansProcessor implements SpanProcessor {
   private static final String WORKER_THREAD_NAME =
@@ -55,8 +86,25 @@ public final class BatchSpansProcessor implements SpanProcessor {
       boolean sampled,
       long scheduleDelayMillis,
       int maxQueueSize,
-      int maxExportBatchSize) {
-    this.worker = new Worker(spanExporter, scheduleDelayMillis, maxQueueSize, maxExportBatchSize);
+      int maxExportBatchSize,
+      int conversionThreads,
+      boolean convertOnEnd,
+      int maxInFlightExports,
+      long shutdownTimeoutMillis,
+      @Nullable Meter meter) {
+    this.worker =
+        new Worker(
+            spanExporter,
+            scheduleDelayMillis,
+            maxQueueSize,
+            maxExportBatchSize,
+            SpanDataConverter.create(conversionThreads),
+            convertOnEnd,
+            maxInFlightExports,
+            shutdownTimeoutMillis);
+    if (meter != null) {
+      worker.registerMetrics(meter);
+    }
     this.workerThread = newThread(worker);
     this.workerThread.start();
     this.sampled = sampled;
@@ -75,8 +123,111 @@ public final class BatchSpansProcessor implements SpanProcessor {
 
   @Override
   public void shutdown() {
+    worker.startShutdown();
     workerThread.interrupt();
-    worker.flush();
+    // The worker finishes its current export first, flushing concurrently would reorder the spans
+    // and let the converter be shut down while the worker still uses it.
+    if (worker.joinWorkerThread(workerThread)) {
+      worker.flush();
+    }
+    worker.shutdown();
+  }
+
+  /**
+   * Returns a snapshot of the statistics of this {@code BatchSpansProcessor}.
+   *
+   * @return a snapshot of the statistics of this {@code BatchSpansProcessor}.
+   */
+  public Statistics getStatistics() {
+    return worker.getStatistics();
+  }
+
+  /**
+   * A snapshot of the statistics of a {@link BatchSpansProcessor}. All the counts are cumulative
+   * since the processor was created.
+   */
+  @Immutable
+  @AutoValue
+  public abstract static class Statistics {
+    Statistics() {}
+
+    /**
+     * Returns the number of spans added to the queue.
+     *
+     * @return the number of spans added to the queue.
+     */
+    public abstract long getEnqueuedSpans();
+
+    /**
+     * Returns the number of spans dropped because the queue was full.
+     *
+     * @return the number of spans dropped because the queue was full.
+     */
+    public abstract long getDroppedSpans();
+
+    /**
+     * Returns the number of spans successfully exported.
+     *
+     * @return the number of spans successfully exported.
+     */
+    public abstract long getExportedSpans();
+
+    /**
+     * Returns the number of spans passed to an export that failed or threw an exception.
+     *
+     * @return the number of spans passed to an export that failed or threw an exception.
+     */
+    public abstract long getFailedSpans();
+
+    /**
+     * Returns the number of exports that failed or threw an exception.
+     *
+     * @return the number of exports that failed or threw an exception.
+     */
+    public abstract long getFailedExports();
+
+    /**
+     * Returns the number of spans in the queue when the snapshot was taken.
+     *
+     * @return the number of spans in the queue.
+     */
+    public abstract int getQueueSize();
+
+    /**
+     * Returns the boundaries, in milliseconds, of the export latency histogram.
+     *
+     * @return the boundaries of the export latency histogram.
+     */
+    public abstract BucketBoundaries getExportLatencyBucketBoundaries();
+
+    /**
+     * Returns the number of exports in every bucket of the export latency histogram. The list has
+     * one more element than the bucket boundaries, the last bucket counts the exports slower than
+     * the last boundary.
+     *
+     * @return the number of exports in every bucket of the export latency histogram.
+     */
+    public abstract List<Long> getExportLatencyBucketCounts();
+
+    static Statistics create(
+        long enqueuedSpans,
+        long droppedSpans,
+        long exportedSpans,
+        long failedSpans,
+        long failedExports,
+        int queueSize,
+        BucketBoundaries exportLatencyBucketBoundaries,
+        List<Long> exportLatencyBucketCounts) {
+      return new AutoValue_BatchSpansProcessor_Statistics(
+          enqueuedSpans,
+          droppedSpans,
+          exportedSpans,
+          failedSpans,
+          failedExports,
+          queueSize,
+          exportLatencyBucketBoundaries,
+          Collections.unmodifiableList(new ArrayList<>(exportLatencyBucketCounts)));
+    }
   }
 
   /**
@@ -95,11 +246,18 @@ public final class BatchSpansProcessor implements SpanProcessor {
     private static final long SCHEDULE_DELAY_MILLIS = 5000;
     private static final int MAX_QUEUE_SIZE = 2048;
     private static final int MAX_EXPORT_BATCH_SIZE = 512;
+    private static final int MAX_IN_FLIGHT_EXPORTS = 1;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
     private final SpanExporter spanExporter;
     private long scheduleDelayMillis = SCHEDULE_DELAY_MILLIS;
     private int maxQueueSize = MAX_QUEUE_SIZE;
     private int maxExportBatchSize = MAX_EXPORT_BATCH_SIZE;
     private boolean sampled = true;
+    private int conversionThreads = 0;
+    private boolean convertOnEnd = false;
+    private int maxInFlightExports = MAX_IN_FLIGHT_EXPORTS;
+    private long shutdownTimeoutMillis = SHUTDOWN_TIMEOUT_MILLIS;
+    @Nullable private Meter meter;
 
     private Builder(SpanExporter spanExporter) {
       this.spanExporter = Utils.checkNotNull(spanExporter, "spanExporter");
@@ -145,6 +303,7 @@ public final class BatchSpansProcessor implements SpanProcessor {
      * @return this.
      */
     public Builder setMaxQueueSize(int maxQueueSize) {
+      Utils.checkArgument(maxQueueSize > 0, "maxQueueSize must be positive.");
       this.maxQueueSize = maxQueueSize;
       return this;
     }
@@ -164,6 +323,89 @@ public final class BatchSpansProcessor implements SpanProcessor {
       return this;
     }
 
+    /**
+     * Sets the number of threads that convert spans to {@link SpanData} in parallel with the worker
+     * thread. Batches are split in chunks of at least 64 spans, so small batches are always
+     * converted by the worker thread.
+     *
+     * <p>Default value is {@code 0}, the worker thread converts all the spans.
+     *
+     * @param conversionThreads the number of threads that convert spans in parallel with the
+     *     worker thread.
+     * @return this.
+     * @throws IllegalArgumentException if {@code conversionThreads} is negative.
+     */
+    public Builder setConversionThreads(int conversionThreads) {
+      Utils.checkArgument(conversionThreads >= 0, "conversionThreads must be non-negative.");
+      this.conversionThreads = conversionThreads;
+      return this;
+    }
+
+    /**
+     * Set whether spans are converted to {@link SpanData} by the thread that ends them, before
+     * being added to the queue. This moves the conversion cost off the worker thread to the
+     * application threads. Dropped spans are converted anyway.
+     *
+     * <p>Default value is {@code false}.
+     *
+     * @param convertOnEnd convert spans in the thread that ends them.
+     * @return this.
+     */
+    public Builder setConvertOnEnd(boolean convertOnEnd) {
+      this.convertOnEnd = convertOnEnd;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of exports in flight at the same time. Only used if the exporter is
+     * an {@link AsyncSpanExporter}, the exports of a synchronous {@link SpanExporter} are always
+     * executed one at a time by the worker thread.
+     *
+     * <p>Default value is {@code 1}.
+     *
+     * @param maxInFlightExports the maximum number of exports in flight at the same time.
+     * @return this.
+     * @throws IllegalArgumentException if {@code maxInFlightExports} is not positive.
+     */
+    public Builder setMaxInFlightExports(int maxInFlightExports) {
+      Utils.checkArgument(maxInFlightExports > 0, "maxInFlightExports must be positive.");
+      this.maxInFlightExports = maxInFlightExports;
+      return this;
+    }
+
+    /**
+     * Sets the maximum time {@link BatchSpansProcessor#shutdown()} waits for the current export of
+     * the worker thread, the export of the remaining spans and the exports in flight. The spans
+     * not exported by then are abandoned.
+     *
+     * <p>Default value is {@code 5000}ms.
+     *
+     * @param shutdownTimeoutMillis the maximum time to wait for the exports on shutdown.
+     * @return this.
+     * @throws IllegalArgumentException if {@code shutdownTimeoutMillis} is negative.
+     */
+    public Builder setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+      Utils.checkArgument(
+          shutdownTimeoutMillis >= 0, "shutdownTimeoutMillis must be non-negative.");
+      this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+      return this;
+    }
+
+    /**
+     * Sets the {@code Meter} used to report the statistics of the processor. The metric names are
+     * prefixed with {@code "batch_spans_processor."}, so only one processor can report to a given
+     * {@code Meter}.
+     *
+     * <p>By default statistics are only available with {@link BatchSpansProcessor#getStatistics()}.
+     *
+     * @param meter the {@code Meter} used to report the statistics of the processor.
+     * @return this.
+     */
+    public Builder setMeter(Meter meter) {
+      this.meter = Utils.checkNotNull(meter, "meter");
+      return this;
+    }
+
     /**
      * Returns a new {@link BatchSpansProcessor} that batches, then converts spans to proto and
      * forwards them to the given {@code spanExporter}.
@@ -173,7 +415,16 @@ public final class BatchSpansProcessor implements SpanProcessor {
      */
     public BatchSpansProcessor build() {
       return new BatchSpansProcessor(
-          spanExporter, sampled, scheduleDelayMillis, maxQueueSize, maxExportBatchSize);
+          spanExporter,
+          sampled,
+          scheduleDelayMillis,
+          maxQueueSize,
+          maxExportBatchSize,
+          conversionThreads,
+          convertOnEnd,
+          maxInFlightExports,
+          shutdownTimeoutMillis,
+          meter);
     }
   }
 
@@ -190,116 +441,360 @@ public final class BatchSpansProcessor implements SpanProcessor {
   // Worker is a thread that batches multiple spans and calls the registered SpanExporter to export
   // the data.
   //
-  // The list of batched data is protected by an explicit monitor object which ensures full
-  // concurrency.
+  // Producers add spans to a lock-free multi-producer single-consumer queue, so ending a span never
+  // blocks on a monitor. The worker thread parks between export cycles and is unparked by a
+  // producer when the queue gets half full.
   private static final class Worker implements Runnable {
     private static final Logger logger = Logger.getLogger(Worker.class.getName());
+    private static final String METRIC_PREFIX = "batch_spans_processor.";
+    private static final double[] EXPORT_LATENCY_BOUNDARIES_MILLIS = {
+      1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+    };
+    private static final BucketBoundaries EXPORT_LATENCY_BUCKET_BOUNDARIES =
+        BucketBoundaries.create(Doubles.asList(EXPORT_LATENCY_BOUNDARIES_MILLIS));
     private final SpanExporter spanExporter;
-    private final long scheduleDelayMillis;
+    @Nullable private final AsyncSpanExporter asyncSpanExporter;
+    private final long scheduleDelayNanos;
     private final int maxQueueSize;
     private final int maxExportBatchSize;
     private final int halfMaxQueueSize;
-    private final Object monitor = new Object();
-
-    @GuardedBy("monitor")
-    private final List<ReadableSpan> spansList;
+    private final SpanDataConverter spanDataConverter;
+    private final boolean convertOnEnd;
+    private final int maxInFlightExports;
+    // One permit per export that can be in flight, only used with an AsyncSpanExporter.
+    private final Semaphore inFlightExports;
+    private final long shutdownTimeoutNanos;
+    // Set by startShutdown(), the deadline is written before the flag.
+    private volatile long shutdownDeadlineNanos;
+    private volatile boolean shuttingDown;
+    // Contains ReadableSpans, or SpanData if converted when the span ended.
+    private final MpscArrayQueue<Object> queue;
+    // Guards the consumer side of the queue, which is drained by the worker thread and by flush().
+    private final Object drainLock = new Object();
+    // True while the worker thread is parked, or about to park, waiting for spans.
+    private final AtomicBoolean parked = new AtomicBoolean();
+    @Nullable private volatile Thread workerThread;
+    // Statistics, the enqueued and dropped counters are updated by all the producers.
+    private final StripedLongAdder enqueuedSpans = new StripedLongAdder();
+    private final StripedLongAdder droppedSpans = new StripedLongAdder();
+    private final StripedLongAdder exportedSpans = new StripedLongAdder();
+    private final StripedLongAdder failedSpans = new StripedLongAdder();
+    private final StripedLongAdder failedExports = new StripedLongAdder();
+    private final AtomicLongArray exportLatencyBucketCounts =
+        new AtomicLongArray(EXPORT_LATENCY_BOUNDARIES_MILLIS.length + 1);
+    @Nullable private volatile MeasureDouble.Handle exportLatencyHandle;
 
     private Worker(
         SpanExporter spanExporter,
         long scheduleDelayMillis,
         int maxQueueSize,
-        int maxExportBatchSize) {
+        int maxExportBatchSize,
+        SpanDataConverter spanDataConverter,
+        boolean convertOnEnd,
+        int maxInFlightExports,
+        long shutdownTimeoutMillis) {
       this.spanExporter = spanExporter;
-      this.scheduleDelayMillis = scheduleDelayMillis;
+      this.asyncSpanExporter =
+          spanExporter instanceof AsyncSpanExporter ? (AsyncSpanExporter) spanExporter : null;
+      this.scheduleDelayNanos = TimeUnit.MILLISECONDS.toNanos(scheduleDelayMillis);
       this.maxQueueSize = maxQueueSize;
-      this.halfMaxQueueSize = maxQueueSize >> 1;
+      this.halfMaxQueueSize = Math.max(maxQueueSize >> 1, 1);
       this.maxExportBatchSize = maxExportBatchSize;
-      this.spansList = new ArrayList<>(maxQueueSize);
+      this.spanDataConverter = spanDataConverter;
+      this.convertOnEnd = convertOnEnd;
+      this.maxInFlightExports = maxInFlightExports;
+      this.inFlightExports = new Semaphore(maxInFlightExports);
+      this.shutdownTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMillis);
+      this.queue = new MpscArrayQueue<>(maxQueueSize);
     }
 
     private void addSpan(ReadableSpan span) {
-      synchronized (monitor) {
-        if (spansList.size() == maxQueueSize) {
-          // TODO: Record a counter for dropped spans.
-          return;
-        }
-        // TODO: Record a gauge for referenced spans.
-        spansList.add(span);
-        // Notify the worker thread that at half of the queue is available. It will take
-        // time anyway for the thread to wake up.
-        if (spansList.size() >= halfMaxQueueSize) {
-          monitor.notifyAll();
-        }
+      if (!queue.offer(convertOnEnd ? span.toSpanData() : span)) {
+        droppedSpans.increment();
+        return;
+      }
+      enqueuedSpans.increment();
+      // Wake up the worker thread when half of the queue is used. It will take time anyway for the
+      // thread to wake up. Only the producer that flips the flag pays for the unpark.
+      if (queue.size() >= halfMaxQueueSize && parked.compareAndSet(true, false)) {
+        LockSupport.unpark(workerThread);
       }
     }
 
     @Override
     public void run() {
+      workerThread = Thread.currentThread();
       while (!Thread.currentThread().isInterrupted()) {
-        // Copy all the batched spans in a separate list to release the monitor lock asap to
-        // avoid blocking the producer thread.
-        ArrayList<ReadableSpan> spansCopy;
-        synchronized (monitor) {
-          // If still maxExportBatchSize elements in the queue better to execute an extra
-          if (spansList.size() < maxExportBatchSize) {
-            do {
-              // In the case of a spurious wakeup we export only if we have at least one span in
-              // the batch. It is acceptable because batching is a best effort mechanism here.
-              try {
-                monitor.wait(scheduleDelayMillis);
-              } catch (InterruptedException ie) {
-                // Preserve the interruption status as per guidance and stop doing any work.
-                Thread.currentThread().interrupt();
-                return;
-              }
-            } while (spansList.isEmpty());
-          }
-          spansCopy = new ArrayList<>(spansList);
-          spansList.clear();
+        // If still maxExportBatchSize elements in the queue better to execute an extra
+        if (queue.size() < maxExportBatchSize) {
+          do {
+            // In the case of a spurious wakeup we export only if we have at least one span in
+            // the batch. It is acceptable because batching is a best effort mechanism here.
+            waitForSpans();
+            if (Thread.currentThread().isInterrupted()) {
+              // Preserve the interruption status as per guidance and stop doing any work.
+              return;
+            }
+          } while (queue.isEmpty());
         }
-        // Execute the batch export outside the synchronized to not block all producers.
-        exportBatches(spansCopy);
+        // Execute the batch export after draining to not block the producers.
+        exportBatches(drain());
       }
     }
 
+    // Parks the worker thread until the queue gets half full, the schedule delay elapses or the
+    // thread is interrupted.
+    private void waitForSpans() {
+      parked.set(true);
+      // Re-check after announcing that the worker is about to park, a producer that filled the
+      // queue before the flag was set did not unpark this thread.
+      if (queue.size() < halfMaxQueueSize) {
+        if (scheduleDelayNanos > 0) {
+          LockSupport.parkNanos(this, scheduleDelayNanos);
+        } else {
+          LockSupport.park(this);
+        }
+      }
+      parked.set(false);
+    }
+
     private void flush() {
-      ArrayList<ReadableSpan> spansCopy;
-      synchronized (monitor) {
-        spansCopy = new ArrayList<>(spansList);
-        spansList.clear();
+      // Execute the batch export after draining to not block the producers.
+      exportBatches(drain());
+    }
+
+    // Called before the worker thread is interrupted, from then on every wait for an export ends at
+    // the shutdown deadline.
+    private void startShutdown() {
+      shutdownDeadlineNanos = System.nanoTime() + shutdownTimeoutNanos;
+      shuttingDown = true;
+    }
+
+    // Waits for the worker thread to finish its current export, at most until the shutdown
+    // deadline. Returns false if the thread is still exporting, its queued spans are abandoned.
+    private boolean joinWorkerThread(Thread thread) {
+      try {
+        TimeUnit.NANOSECONDS.timedJoin(thread, shutdownDeadlineNanos - System.nanoTime());
+      } catch (InterruptedException e) {
+        // Preserve the interruption status as per guidance.
+        Thread.currentThread().interrupt();
       }
-      // Execute the batch export outside the synchronized to not block all producers.
-      exportBatches(spansCopy);
+      if (thread.isAlive()) {
+        logger.log(
+            Level.WARNING,
+            "The worker thread did not finish its export before the shutdown timeout, {0} queued "
+                + "spans are not exported.",
+            queue.size());
+        return false;
+      }
+      return true;
     }
 
-    private void exportBatches(ArrayList<ReadableSpan> spanList) {
-      // TODO: Record a counter for pushed spans.
-      for (int i = 0; i < spanList.size(); ) {
-        int batchSizeLimit = Math.min(i + maxExportBatchSize, spanList.size());
-        onBatchExport(createSpanDataForExport(spanList, i, batchSizeLimit));
-        i = batchSizeLimit;
+    private void shutdown() {
+      // Wait for the in flight exports to finish, the spans would be lost otherwise.
+      if (acquireInFlightExports(maxInFlightExports)) {
+        inFlightExports.release(maxInFlightExports);
+      } else {
+        logger.log(
+            Level.WARNING,
+            "{0} exports did not finish before the shutdown timeout and are abandoned.",
+            maxInFlightExports - inFlightExports.availablePermits());
+      }
+      spanDataConverter.shutdown();
+    }
+
+    // Acquires in flight export permits, without a time limit until the shutdown starts and at most
+    // until the shutdown deadline after. Returns false if the permits were not acquired because the
+    // deadline passed or the calling thread was interrupted.
+    private boolean acquireInFlightExports(int permits) {
+      // The worker thread is interrupted by shutdown() but still finishes its current export, for
+      // it the interruption only bounds the wait.
+      boolean isWorkerThread = Thread.currentThread() == workerThread;
+      boolean interrupted = isWorkerThread && Thread.interrupted();
+      try {
+        while (true) {
+          try {
+            if (!shuttingDown) {
+              inFlightExports.acquire(permits);
+              return true;
+            }
+            return inFlightExports.tryAcquire(
+                permits, shutdownDeadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+          } catch (InterruptedException e) {
+            interrupted = true;
+            if (!isWorkerThread || !shuttingDown) {
+              return false;
+            }
+          }
+        }
+      } finally {
+        if (interrupted) {
+          // Preserve the interruption status as per guidance.
+          Thread.currentThread().interrupt();
+        }
       }
     }
 
-    private static List<SpanData> createSpanDataForExport(
-        List<ReadableSpan> spanList, int startIndex, int numberToTake) {
-      List<SpanData> spanDataBuffer = new ArrayList<>(numberToTake);
-      for (int i = startIndex; i < numberToTake; i++) {
-        spanDataBuffer.add(spanList.get(i).toSpanData());
-        // Remove the reference to the ReadableSpan to allow GC to free the memory.
-        spanList.set(i, null);
+    private ArrayList<Object> drain() {
+      ArrayList<Object> spansCopy = new ArrayList<>(queue.size());
+      synchronized (drainLock) {
+        queue.drain(spansCopy, maxQueueSize);
+      }
+      return spansCopy;
+    }
+
+    private void exportBatches(ArrayList<Object> spanList) {
+      for (int i = 0; i < spanList.size(); ) {
+        int batchSizeLimit = Math.min(i + maxExportBatchSize, spanList.size());
+        List<SpanData> spans = spanDataConverter.convert(spanList, i, batchSizeLimit);
+        // Remove the references to the ReadableSpans to allow GC to free the memory.
+        for (int j = i; j < batchSizeLimit; j++) {
+          spanList.set(j, null);
+        }
+        onBatchExport(spans);
+        i = batchSizeLimit;
       }
-      return Collections.unmodifiableList(spanDataBuffer);
     }
 
     // Exports the list of Span protos to all the ServiceHandlers.
     private void onBatchExport(List<SpanData> spans) {
+      if (asyncSpanExporter != null) {
+        onBatchExportAsync(asyncSpanExporter, spans);
+        return;
+      }
+      long startNanos = System.nanoTime();
+      SpanExporter.ResultCode resultCode = SpanExporter.ResultCode.FAILED_NOT_RETRYABLE;
       // In case of any exception thrown by the service handlers continue to run.
       try {
-        spanExporter.export(spans);
+        resultCode = spanExporter.export(spans);
       } catch (Throwable t) {
         logger.log(Level.WARNING, "Exception thrown by the export.", t);
       }
+      recordExport(spans.size(), resultCode, System.nanoTime() - startNanos);
+    }
+
+    // Starts the export without waiting for it to finish, the statistics are recorded by the thread
+    // that completes the export.
+    private void onBatchExportAsync(AsyncSpanExporter exporter, List<SpanData> spans) {
+      // Blocks the worker thread while maxInFlightExports exports are in flight.
+      if (!acquireInFlightExports(1)) {
+        logger.log(
+            Level.WARNING,
+            "Exports still in flight at the shutdown timeout, {0} spans are not exported.",
+            spans.size());
+        failedSpans.add(spans.size());
+        failedExports.increment();
+        return;
+      }
+      final int numberOfSpans = spans.size();
+      final long startNanos = System.nanoTime();
+      final CompletableResultCode result;
+      try {
+        result = exporter.exportAsync(spans);
+      } catch (Throwable t) {
+        logger.log(Level.WARNING, "Exception thrown by the export.", t);
+        recordExport(
+            numberOfSpans,
+            SpanExporter.ResultCode.FAILED_NOT_RETRYABLE,
+            System.nanoTime() - startNanos);
+        inFlightExports.release();
+        return;
+      }
+      result.whenComplete(
+          new Runnable() {
+            @Override
+            public void run() {
+              SpanExporter.ResultCode resultCode = result.getResultCode();
+              recordExport(
+                  numberOfSpans,
+                  resultCode != null ? resultCode : SpanExporter.ResultCode.FAILED_NOT_RETRYABLE,
+                  System.nanoTime() - startNanos);
+              // Released after recording, so the statistics are up to date once shutdown returns.
+              inFlightExports.release();
+            }
+          });
+    }
+
+    private void recordExport(int numberOfSpans, SpanExporter.ResultCode resultCode, long nanos) {
+      if (resultCode == SpanExporter.ResultCode.SUCCESS) {
+        exportedSpans.add(numberOfSpans);
+      } else {
+        failedSpans.add(numberOfSpans);
+        failedExports.increment();
+      }
+      double millis = nanos / 1e6;
+      int bucket = Arrays.binarySearch(EXPORT_LATENCY_BOUNDARIES_MILLIS, millis);
+      // A value equal to a boundary belongs to the bucket above it, like for any other value the
+      // insertion point is the index of the first boundary greater than the value.
+      exportLatencyBucketCounts.incrementAndGet(bucket >= 0 ? bucket + 1 : -bucket - 1);
+      MeasureDouble.Handle handle = exportLatencyHandle;
+      if (handle != null) {
+        handle.record(millis);
+      }
+    }
+
+    private Statistics getStatistics() {
+      List<Long> latencyCounts = new ArrayList<>(exportLatencyBucketCounts.length());
+      for (int i = 0; i < exportLatencyBucketCounts.length(); i++) {
+        latencyCounts.add(exportLatencyBucketCounts.get(i));
+      }
+      return Statistics.create(
+          enqueuedSpans.sum(),
+          droppedSpans.sum(),
+          exportedSpans.sum(),
+          failedSpans.sum(),
+          failedExports.sum(),
+          queue.size(),
+          EXPORT_LATENCY_BUCKET_BOUNDARIES,
+          latencyCounts);
+    }
+
+    // Reports the statistics through observers, the values are read only when the Meter collects.
+    private void registerMetrics(Meter meter) {
+      registerCounter(meter, "enqueued_spans", "Spans added to the queue.", enqueuedSpans);
+      registerCounter(
+          meter, "dropped_spans", "Spans dropped because the queue was full.", droppedSpans);
+      registerCounter(meter, "exported_spans", "Spans successfully exported.", exportedSpans);
+      registerCounter(meter, "failed_spans", "Spans in exports that failed.", failedSpans);
+      registerCounter(meter, "failed_exports", "Exports that failed.", failedExports);
+      final ObserverLong queueSize =
+          meter
+              .observerLongBuilder(METRIC_PREFIX + "queue_size")
+              .setDescription("Spans in the queue waiting to be exported.")
+              .setUnit("1")
+              .build();
+      queueSize.setCallback(
+          new Observer.Callback<ObserverLong.Result>() {
+            @Override
+            public void update(ObserverLong.Result result) {
+              result.put(queueSize.getDefaultHandle(), queue.size());
+            }
+          });
+      exportLatencyHandle =
+          meter
+              .measureDoubleBuilder(METRIC_PREFIX + "export_latency")
+              .setDescription("Latency of the exports.")
+              .setUnit("ms")
+              .build()
+              .getDefaultHandle();
+    }
+
+    private static void registerCounter(
+        Meter meter, String name, String description, final StripedLongAdder adder) {
+      final ObserverLong observer =
+          meter
+              .observerLongBuilder(METRIC_PREFIX + name)
+              .setDescription(description)
+              .setUnit("1")
+              .setMonotonic(true)
+              .build();
+      observer.setCallback(
+          new Observer.Callback<ObserverLong.Result>() {
+            @Override
+            public void update(ObserverLong.Result result) {
+              result.put(observer.getDefaultHandle(), adder.sum());
+            }
+          });
     }
   }
 }
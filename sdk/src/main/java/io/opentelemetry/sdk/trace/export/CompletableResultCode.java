@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The result of an asynchronous export, completed once with a {@link ResultCode} when the export
+ * finishes.
+ */
+@ThreadSafe
+public final class CompletableResultCode {
+  private static final Logger logger = Logger.getLogger(CompletableResultCode.class.getName());
+
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  @Nullable
+  private ResultCode resultCode;
+
+  @GuardedBy("lock")
+  private final List<Runnable> completionActions = new ArrayList<>();
+
+  /**
+   * Returns a {@code CompletableResultCode} already completed with the given {@code ResultCode}.
+   *
+   * @param resultCode the result of the export.
+   * @return a completed {@code CompletableResultCode}.
+   */
+  public static CompletableResultCode ofResultCode(ResultCode resultCode) {
+    CompletableResultCode result = new CompletableResultCode();
+    result.complete(resultCode);
+    return result;
+  }
+
+  /**
+   * Completes this {@code CompletableResultCode} with the given {@code ResultCode} and runs all the
+   * registered completion actions. Only the first call has an effect.
+   *
+   * @param resultCode the result of the export.
+   * @return {@code true} if this call completed the {@code CompletableResultCode}.
+   * @throws NullPointerException if {@code resultCode} is {@code null}.
+   */
+  public boolean complete(ResultCode resultCode) {
+    Utils.checkNotNull(resultCode, "resultCode");
+    List<Runnable> actions;
+    synchronized (lock) {
+      if (this.resultCode != null) {
+        return false;
+      }
+      this.resultCode = resultCode;
+      actions = new ArrayList<>(completionActions);
+      completionActions.clear();
+      lock.notifyAll();
+    }
+    // Run the actions outside the lock, they may call back into this object.
+    for (Runnable action : actions) {
+      runAction(action);
+    }
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if the export finished.
+   *
+   * @return {@code true} if the export finished.
+   */
+  public boolean isDone() {
+    synchronized (lock) {
+      return resultCode != null;
+    }
+  }
+
+  /**
+   * Returns the result of the export, or {@code null} if the export did not finish yet.
+   *
+   * @return the result of the export, or {@code null} if the export did not finish yet.
+   */
+  @Nullable
+  public ResultCode getResultCode() {
+    synchronized (lock) {
+      return resultCode;
+    }
+  }
+
+  /**
+   * Registers an action to run when the export finishes. The action runs in the thread that
+   * completes the export, or immediately in the calling thread if the export already finished.
+   *
+   * @param action the action to run when the export finishes.
+   * @return this.
+   * @throws NullPointerException if {@code action} is {@code null}.
+   */
+  public CompletableResultCode whenComplete(Runnable action) {
+    Utils.checkNotNull(action, "action");
+    synchronized (lock) {
+      if (resultCode == null) {
+        completionActions.add(action);
+        return this;
+      }
+    }
+    runAction(action);
+    return this;
+  }
+
+  /**
+   * Waits, uninterruptibly, for the export to finish and returns its result.
+   *
+   * @return the result of the export.
+   */
+  public ResultCode join() {
+    boolean interrupted = false;
+    try {
+      synchronized (lock) {
+        while (resultCode == null) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        return resultCode;
+      }
+    } finally {
+      if (interrupted) {
+        // Preserve the interruption status as per guidance.
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static void runAction(Runnable action) {
+    try {
+      action.run();
+    } catch (Throwable t) {
+      logger.log(Level.WARNING, "Exception thrown by an export completion action.", t);
+    }
+  }
+}
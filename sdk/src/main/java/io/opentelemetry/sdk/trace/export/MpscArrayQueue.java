@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import io.opentelemetry.internal.Utils;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded, lock-free, multi-producer single-consumer queue backed by an array.
+ *
+ * <p>Producers claim a slot by atomically incrementing the producer index, then publish the element
+ * in the claimed slot. The consumer reads the slots in order and frees them. A slot that was claimed
+ * but not yet published is seen as empty by the consumer, which stops draining and picks the
+ * element up during the next drain.
+ *
+ * <p>Any number of threads can call {@link #offer(Object)} concurrently, but only one thread at a
+ * time may call {@link #drain(Collection, int)}.
+ *
+ * @param <E> the type of the elements in the queue.
+ */
+@ThreadSafe
+final class MpscArrayQueue<E> {
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<E> buffer;
+  // Index of the next slot to be claimed by a producer.
+  private final AtomicLong producerIndex = new AtomicLong();
+  // Index of the next slot to be read by the consumer. Only written by the consumer.
+  private final AtomicLong consumerIndex = new AtomicLong();
+
+  /**
+   * Creates a new queue that holds at most {@code capacity} elements.
+   *
+   * @param capacity the maximum number of elements in the queue.
+   * @throws IllegalArgumentException if {@code capacity} is not positive.
+   */
+  MpscArrayQueue(int capacity) {
+    Utils.checkArgument(capacity > 0, "capacity must be positive.");
+    this.capacity = capacity;
+    // Round the buffer up to a power of two to map indexes to slots with a mask.
+    int bufferSize = Integer.highestOneBit(capacity);
+    if (bufferSize < capacity) {
+      bufferSize <<= 1;
+    }
+    this.mask = bufferSize - 1;
+    this.buffer = new AtomicReferenceArray<>(bufferSize);
+  }
+
+  /**
+   * Inserts the given element at the tail of the queue if there is space available.
+   *
+   * @param element the element to be added.
+   * @return {@code true} if the element was added, {@code false} if the queue is full.
+   * @throws NullPointerException if {@code element} is {@code null}.
+   */
+  boolean offer(E element) {
+    Utils.checkNotNull(element, "element");
+    long index;
+    do {
+      index = producerIndex.get();
+      if (index - consumerIndex.get() >= capacity) {
+        return false;
+      }
+    } while (!producerIndex.compareAndSet(index, index + 1));
+    buffer.lazySet(offset(index), element);
+    return true;
+  }
+
+  /**
+   * Moves up to {@code limit} elements from the head of the queue to the given {@code sink}. Must
+   * only be called by one thread at a time.
+   *
+   * @param sink the collection where the elements are added.
+   * @param limit the maximum number of elements to move.
+   * @return the number of elements moved.
+   */
+  int drain(Collection<? super E> sink, int limit) {
+    long index = consumerIndex.get();
+    int drained = 0;
+    while (drained < limit) {
+      int offset = offset(index);
+      E element = buffer.get(offset);
+      if (element == null) {
+        // Either the queue is empty or the producer did not publish the element yet.
+        break;
+      }
+      // Free the slot before making it available to producers.
+      buffer.lazySet(offset, null);
+      consumerIndex.lazySet(++index);
+      sink.add(element);
+      drained++;
+    }
+    return drained;
+  }
+
+  /**
+   * Returns an estimate of the number of elements in the queue, including elements whose slot was
+   * claimed but that are not yet published.
+   *
+   * @return an estimate of the number of elements in the queue.
+   */
+  int size() {
+    // Read the consumer index first, the producer index can only increase in the meantime.
+    long consumer = consumerIndex.get();
+    long producer = producerIndex.get();
+    long size = producer - consumer;
+    return size <= 0 ? 0 : (int) Math.min(size, capacity);
+  }
+
+  /**
+   * Returns {@code true} if the queue has no element.
+   *
+   * @return {@code true} if the queue has no element.
+   */
+  boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Returns the maximum number of elements in the queue.
+   *
+   * @return the maximum number of elements in the queue.
+   */
+  int capacity() {
+    return capacity;
+  }
+
+  private int offset(long index) {
+    return (int) index & mask;
+  }
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.trace.AttributeValue;
+import io.opentelemetry.trace.Link;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Implementation of the {@code SpanExporter} that retries the exports that fail with {@link
+ * ResultCode#FAILED_RETRYABLE}, for example while the backend is briefly unavailable.
+ *
+ * <p>A batch that fails with {@code FAILED_RETRYABLE} is added to a retry buffer and {@link
+ * #export(List)} returns {@link ResultCode#SUCCESS}, the exporter is then responsible for the
+ * delivery of the batch. A background thread retries the oldest buffered batch with a jittered
+ * exponential backoff until it succeeds or fails with {@link ResultCode#FAILED_NOT_RETRYABLE}.
+ * While batches are buffered new batches are appended to the buffer, so they are exported in order
+ * and a backend that is down is not called for every new batch.
+ *
+ * <p>The retry buffer is bounded by an estimate of the memory used by the buffered spans. When a
+ * new batch does not fit the oldest batches are dropped. The number of retries and of dropped
+ * spans and batches are available with {@link #getStatistics()}.
+ */
+@ThreadSafe
+public final class RetryingSpanExporter implements SpanExporter {
+  private static final Logger logger = Logger.getLogger(RetryingSpanExporter.class.getName());
+  private static final String RETRY_THREAD_NAME_FORMAT =
+      RetryingSpanExporter.class.getSimpleName() + "_RetryThread-%d";
+  // Rough sizes of the objects retained by a SpanData, only used to bound the retry buffer.
+  private static final long SPAN_OVERHEAD_BYTES = 256;
+  private static final long EVENT_OVERHEAD_BYTES = 48;
+  private static final long LINK_OVERHEAD_BYTES = 96;
+  private static final long ATTRIBUTE_OVERHEAD_BYTES = 48;
+  private static final long STRING_OVERHEAD_BYTES = 40;
+
+  private final SpanExporter spanExporter;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+  private final double backoffMultiplier;
+  private final double jitter;
+  private final long maxBufferedBytes;
+  private final ScheduledThreadPoolExecutor scheduler;
+  private final Runnable retryTask =
+      new Runnable() {
+        @Override
+        public void run() {
+          retryOldestBatch();
+        }
+      };
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private final ArrayDeque<PendingBatch> buffer = new ArrayDeque<>();
+
+  @GuardedBy("lock")
+  private final Random random = new Random();
+
+  @GuardedBy("lock")
+  private long bufferedBytes;
+
+  @GuardedBy("lock")
+  private long bufferedSpans;
+
+  @GuardedBy("lock")
+  private long backoffNanos;
+
+  @GuardedBy("lock")
+  private boolean retryScheduled;
+
+  // True while the retry thread exports the oldest batch.
+  @GuardedBy("lock")
+  private boolean retryInFlight;
+
+  @GuardedBy("lock")
+  private boolean isShutdown;
+
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong droppedSpans = new AtomicLong();
+  private final AtomicLong droppedBatches = new AtomicLong();
+
+  private RetryingSpanExporter(
+      SpanExporter spanExporter,
+      long initialBackoffMillis,
+      long maxBackoffMillis,
+      double backoffMultiplier,
+      double jitter,
+      long maxBufferedBytes) {
+    this.spanExporter = spanExporter;
+    this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+    this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+    this.backoffMultiplier = backoffMultiplier;
+    this.jitter = jitter;
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.backoffNanos = initialBackoffNanos;
+    this.scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            new ThreadFactoryBuilder()
+                .setThreadFactory(MoreExecutors.platformThreadFactory())
+                .setNameFormat(RETRY_THREAD_NAME_FORMAT)
+                .setDaemon(true)
+                .build());
+    // Pending retries are abandoned on shutdown, the buffer is flushed once by shutdown().
+    this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+  }
+
+  @Override
+  public ResultCode export(List<SpanData> spans) {
+    synchronized (lock) {
+      if (isShutdown) {
+        return ResultCode.FAILED_NOT_RETRYABLE;
+      }
+      // Keep the order of the batches, and don't call a backend that is known to be failing.
+      if (!buffer.isEmpty()) {
+        addToBufferLocked(spans);
+        return ResultCode.SUCCESS;
+      }
+    }
+    ResultCode resultCode = exportOnce(spans);
+    if (resultCode != ResultCode.FAILED_RETRYABLE) {
+      return resultCode;
+    }
+    synchronized (lock) {
+      if (isShutdown) {
+        return resultCode;
+      }
+      addToBufferLocked(spans);
+    }
+    return ResultCode.SUCCESS;
+  }
+
+  /**
+   * Stops retrying, tries to export the buffered batches one last time, then shuts down the
+   * wrapped {@code SpanExporter}. The batches left when an export fails are dropped.
+   *
+   * <p>A retry in flight is awaited for at most 5 seconds. If it is still in flight after that, or
+   * if the calling thread is interrupted, the buffered batches are dropped without being exported
+   * again, so that a batch is never exported twice.
+   */
+  @Override
+  public void shutdown() {
+    synchronized (lock) {
+      isShutdown = true;
+    }
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      // Preserve the interruption status as per guidance.
+      Thread.currentThread().interrupt();
+    }
+    synchronized (lock) {
+      // The retry thread still exports the oldest batch, exporting it again would deliver it twice
+      // and call the wrapped exporter from two threads.
+      if (retryInFlight) {
+        logger.log(
+            Level.WARNING,
+            "A retry is still in flight, {0} buffered spans in {1} batches are not exported.",
+            new Object[] {bufferedSpans, buffer.size()});
+        while (!buffer.isEmpty()) {
+          dropOldestLocked();
+        }
+      }
+    }
+    while (true) {
+      PendingBatch batch;
+      synchronized (lock) {
+        batch = buffer.peekFirst();
+        if (batch == null) {
+          break;
+        }
+      }
+      ResultCode resultCode = exportOnce(batch.spans);
+      synchronized (lock) {
+        if (resultCode == ResultCode.SUCCESS) {
+          removeLocked(batch);
+        } else {
+          while (!buffer.isEmpty()) {
+            dropOldestLocked();
+          }
+        }
+      }
+    }
+    spanExporter.shutdown();
+  }
+
+  /**
+   * Returns a snapshot of the statistics of this {@code RetryingSpanExporter}.
+   *
+   * @return a snapshot of the statistics of this {@code RetryingSpanExporter}.
+   */
+  public Statistics getStatistics() {
+    synchronized (lock) {
+      return Statistics.create(
+          retries.get(), droppedSpans.get(), droppedBatches.get(), bufferedSpans, bufferedBytes);
+    }
+  }
+
+  /**
+   * A snapshot of the statistics of a {@link RetryingSpanExporter}. All the counts are cumulative
+   * since the exporter was created.
+   */
+  @Immutable
+  @AutoValue
+  public abstract static class Statistics {
+    Statistics() {}
+
+    /**
+     * Returns the number of exports retried by the background thread.
+     *
+     * @return the number of exports retried by the background thread.
+     */
+    public abstract long getRetries();
+
+    /**
+     * Returns the number of spans dropped because the retry buffer was full or a retry failed with
+     * {@link ResultCode#FAILED_NOT_RETRYABLE}.
+     *
+     * @return the number of spans dropped.
+     */
+    public abstract long getDroppedSpans();
+
+    /**
+     * Returns the number of batches dropped because the retry buffer was full or a retry failed
+     * with {@link ResultCode#FAILED_NOT_RETRYABLE}.
+     *
+     * @return the number of batches dropped.
+     */
+    public abstract long getDroppedBatches();
+
+    /**
+     * Returns the number of spans in the retry buffer when the snapshot was taken.
+     *
+     * @return the number of spans in the retry buffer.
+     */
+    public abstract long getBufferedSpans();
+
+    /**
+     * Returns the estimated size, in bytes, of the spans in the retry buffer when the snapshot was
+     * taken.
+     *
+     * @return the estimated size of the spans in the retry buffer.
+     */
+    public abstract long getBufferedBytes();
+
+    static Statistics create(
+        long retries,
+        long droppedSpans,
+        long droppedBatches,
+        long bufferedSpans,
+        long bufferedBytes) {
+      return new AutoValue_RetryingSpanExporter_Statistics(
+          retries, droppedSpans, droppedBatches, bufferedSpans, bufferedBytes);
+    }
+  }
+
+  /**
+   * Returns a new Builder for {@link RetryingSpanExporter}.
+   *
+   * @param spanExporter the {@code SpanExporter} to which the spans are exported and retried.
+   * @return a new Builder for {@link RetryingSpanExporter}.
+   * @throws NullPointerException if the {@code spanExporter} is {@code null}.
+   */
+  public static Builder newBuilder(SpanExporter spanExporter) {
+    return new Builder(spanExporter);
+  }
+
+  /** Builder class for {@link RetryingSpanExporter}. */
+  public static final class Builder {
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+    private static final double BACKOFF_MULTIPLIER = 1.6;
+    private static final double JITTER = 0.2;
+    private static final long MAX_BUFFERED_BYTES = 16 * 1024 * 1024;
+    private final SpanExporter spanExporter;
+    private long initialBackoffMillis = INITIAL_BACKOFF_MILLIS;
+    private long maxBackoffMillis = MAX_BACKOFF_MILLIS;
+    private double backoffMultiplier = BACKOFF_MULTIPLIER;
+    private double jitter = JITTER;
+    private long maxBufferedBytes = MAX_BUFFERED_BYTES;
+
+    private Builder(SpanExporter spanExporter) {
+      this.spanExporter = Utils.checkNotNull(spanExporter, "spanExporter");
+    }
+
+    /**
+     * Sets the delay before the first retry of a batch.
+     *
+     * <p>Default value is {@code 1000}ms.
+     *
+     * @param initialBackoffMillis the delay before the first retry of a batch.
+     * @return this.
+     * @throws IllegalArgumentException if {@code initialBackoffMillis} is not positive.
+     */
+    public Builder setInitialBackoffMillis(long initialBackoffMillis) {
+      Utils.checkArgument(initialBackoffMillis > 0, "initialBackoffMillis must be positive.");
+      this.initialBackoffMillis = initialBackoffMillis;
+      return this;
+    }
+
+    /**
+     * Sets the maximum delay between two retries.
+     *
+     * <p>Default value is {@code 30000}ms.
+     *
+     * @param maxBackoffMillis the maximum delay between two retries.
+     * @return this.
+     * @throws IllegalArgumentException if {@code maxBackoffMillis} is not positive.
+     */
+    public Builder setMaxBackoffMillis(long maxBackoffMillis) {
+      Utils.checkArgument(maxBackoffMillis > 0, "maxBackoffMillis must be positive.");
+      this.maxBackoffMillis = maxBackoffMillis;
+      return this;
+    }
+
+    /**
+     * Sets the factor by which the delay grows after every failed retry.
+     *
+     * <p>Default value is {@code 1.6}.
+     *
+     * @param backoffMultiplier the factor by which the delay grows after every failed retry.
+     * @return this.
+     * @throws IllegalArgumentException if {@code backoffMultiplier} is less than {@code 1}.
+     */
+    public Builder setBackoffMultiplier(double backoffMultiplier) {
+      Utils.checkArgument(backoffMultiplier >= 1, "backoffMultiplier must be at least 1.");
+      this.backoffMultiplier = backoffMultiplier;
+      return this;
+    }
+
+    /**
+     * Sets the jitter applied to every delay, as a fraction of the delay. A delay {@code d} becomes
+     * a random value between {@code d * (1 - jitter)} and {@code d * (1 + jitter)}, so the
+     * instances that lost the backend at the same time don't retry at the same time.
+     *
+     * <p>Default value is {@code 0.2}.
+     *
+     * @param jitter the jitter applied to every delay, between {@code 0} and {@code 1}.
+     * @return this.
+     * @throws IllegalArgumentException if {@code jitter} is not between {@code 0} and {@code 1}.
+     */
+    public Builder setJitter(double jitter) {
+      Utils.checkArgument(jitter >= 0 && jitter <= 1, "jitter must be between 0 and 1.");
+      this.jitter = jitter;
+      return this;
+    }
+
+    /**
+     * Sets the maximum estimated size, in bytes, of the spans kept in the retry buffer. When a new
+     * batch does not fit the oldest batches are dropped.
+     *
+     * <p>Default value is {@code 16} MiB.
+     *
+     * @param maxBufferedBytes the maximum estimated size of the spans kept in the retry buffer.
+     * @return this.
+     * @throws IllegalArgumentException if {@code maxBufferedBytes} is not positive.
+     */
+    public Builder setMaxBufferedBytes(long maxBufferedBytes) {
+      Utils.checkArgument(maxBufferedBytes > 0, "maxBufferedBytes must be positive.");
+      this.maxBufferedBytes = maxBufferedBytes;
+      return this;
+    }
+
+    /**
+     * Returns a new {@link RetryingSpanExporter} that exports to the given {@code spanExporter}.
+     *
+     * @return a new {@link RetryingSpanExporter}.
+     * @throws IllegalArgumentException if {@code maxBackoffMillis} is less than {@code
+     *     initialBackoffMillis}.
+     */
+    public RetryingSpanExporter build() {
+      Utils.checkArgument(
+          maxBackoffMillis >= initialBackoffMillis,
+          "maxBackoffMillis must be greater than or equal to initialBackoffMillis.");
+      return new RetryingSpanExporter(
+          spanExporter,
+          initialBackoffMillis,
+          maxBackoffMillis,
+          backoffMultiplier,
+          jitter,
+          maxBufferedBytes);
+    }
+  }
+
+  // Runs in the retry thread.
+  private void retryOldestBatch() {
+    PendingBatch batch;
+    synchronized (lock) {
+      retryScheduled = false;
+      batch = buffer.peekFirst();
+      if (isShutdown || batch == null) {
+        return;
+      }
+      retryInFlight = true;
+    }
+    retries.incrementAndGet();
+    ResultCode resultCode = exportOnce(batch.spans);
+    synchronized (lock) {
+      retryInFlight = false;
+      if (resultCode == ResultCode.FAILED_RETRYABLE) {
+        // The batch may have been dropped meanwhile, the backend is failing anyway.
+        backoffNanos = Math.min((long) (backoffNanos * backoffMultiplier), maxBackoffNanos);
+        scheduleRetryLocked(jitteredLocked(backoffNanos));
+        return;
+      }
+      if (removeLocked(batch) && resultCode != ResultCode.SUCCESS) {
+        droppedBatches.incrementAndGet();
+        droppedSpans.addAndGet(batch.spans.size());
+      }
+      // The backend answered, export the rest of the buffer without waiting.
+      backoffNanos = initialBackoffNanos;
+      scheduleRetryLocked(0);
+    }
+  }
+
+  private ResultCode exportOnce(List<SpanData> spans) {
+    try {
+      return spanExporter.export(spans);
+    } catch (Throwable t) {
+      logger.log(Level.WARNING, "Exception thrown by the export.", t);
+      return ResultCode.FAILED_NOT_RETRYABLE;
+    }
+  }
+
+  @GuardedBy("lock")
+  private void addToBufferLocked(List<SpanData> spans) {
+    long sizeBytes = estimateSizeBytes(spans);
+    if (sizeBytes > maxBufferedBytes) {
+      droppedBatches.incrementAndGet();
+      droppedSpans.addAndGet(spans.size());
+      return;
+    }
+    while (bufferedBytes + sizeBytes > maxBufferedBytes) {
+      dropOldestLocked();
+    }
+    // Copy the list, the caller owns it once the export returns.
+    buffer.addLast(
+        new PendingBatch(Collections.unmodifiableList(new ArrayList<>(spans)), sizeBytes));
+    bufferedBytes += sizeBytes;
+    bufferedSpans += spans.size();
+    if (!retryScheduled) {
+      scheduleRetryLocked(jitteredLocked(backoffNanos));
+    }
+  }
+
+  @GuardedBy("lock")
+  private void dropOldestLocked() {
+    PendingBatch dropped = buffer.removeFirst();
+    bufferedBytes -= dropped.sizeBytes;
+    bufferedSpans -= dropped.spans.size();
+    droppedBatches.incrementAndGet();
+    droppedSpans.addAndGet(dropped.spans.size());
+  }
+
+  // Returns false if the batch was already dropped to make room for newer batches.
+  @GuardedBy("lock")
+  private boolean removeLocked(PendingBatch batch) {
+    if (buffer.peekFirst() != batch) {
+      return false;
+    }
+    buffer.removeFirst();
+    bufferedBytes -= batch.sizeBytes;
+    bufferedSpans -= batch.spans.size();
+    return true;
+  }
+
+  @GuardedBy("lock")
+  private void scheduleRetryLocked(long delayNanos) {
+    if (isShutdown || retryScheduled || buffer.isEmpty()) {
+      return;
+    }
+    retryScheduled = true;
+    scheduler.schedule(retryTask, delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @GuardedBy("lock")
+  private long jitteredLocked(long delayNanos) {
+    return (long) (delayNanos * (1 - jitter + 2 * jitter * random.nextDouble()));
+  }
+
+  // Estimates the memory retained by the spans, strings are counted as UTF-16.
+  static long estimateSizeBytes(List<SpanData> spans) {
+    long sizeBytes = 0;
+    for (SpanData span : spans) {
+      sizeBytes +=
+          SPAN_OVERHEAD_BYTES
+              + estimateSizeBytes(span.getName())
+              + estimateSizeBytes(span.getAttributes());
+      for (SpanData.TimedEvent event : span.getTimedEvents()) {
+        sizeBytes +=
+            EVENT_OVERHEAD_BYTES
+                + estimateSizeBytes(event.getName())
+                + estimateSizeBytes(event.getAttributes());
+      }
+      for (Link link : span.getLinks()) {
+        sizeBytes += LINK_OVERHEAD_BYTES + estimateSizeBytes(link.getAttributes());
+      }
+    }
+    return sizeBytes;
+  }
+
+  private static long estimateSizeBytes(Map<String, AttributeValue> attributes) {
+    long sizeBytes = 0;
+    for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+      sizeBytes += ATTRIBUTE_OVERHEAD_BYTES + estimateSizeBytes(attribute.getKey());
+      if (attribute.getValue().getType() == AttributeValue.Type.STRING) {
+        sizeBytes += estimateSizeBytes(attribute.getValue().getStringValue());
+      }
+    }
+    return sizeBytes;
+  }
+
+  private static long estimateSizeBytes(String string) {
+    return STRING_OVERHEAD_BYTES + 2L * string.length();
+  }
+
+  private static final class PendingBatch {
+    private final List<SpanData> spans;
+    private final long sizeBytes;
+
+    private PendingBatch(List<SpanData> spans, long sizeBytes) {
+      this.spans = spans;
+      this.sizeBytes = sizeBytes;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.opentelemetry.internal.Utils;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Converts batches of ended spans to {@link SpanData} for export.
+ *
+ * <p>The elements to convert are either {@link ReadableSpan}s, converted with {@link
+ * ReadableSpan#toSpanData()}, or {@link SpanData} already converted when the span ended.
+ *
+ * <p>When configured with conversion threads, large batches are split in chunks converted in
+ * parallel by a fixed pool of daemon threads, the calling thread converting one of the chunks.
+ */
+@ThreadSafe
+final class SpanDataConverter {
+  private static final String CONVERSION_THREAD_NAME_FORMAT =
+      BatchSpansProcessor.class.getSimpleName() + "_ConversionThread-%d";
+  // Splitting a batch costs a task submission and a context switch, not worth it for few spans.
+  private static final int MIN_SPANS_PER_CHUNK = 64;
+
+  @Nullable private final ExecutorService executor;
+  private final int conversionThreads;
+
+  private SpanDataConverter(@Nullable ExecutorService executor, int conversionThreads) {
+    this.executor = executor;
+    this.conversionThreads = conversionThreads;
+  }
+
+  /**
+   * Returns a new {@code SpanDataConverter}.
+   *
+   * @param conversionThreads the number of threads converting in parallel with the calling thread,
+   *     {@code 0} to convert only in the calling thread.
+   * @return a new {@code SpanDataConverter}.
+   * @throws IllegalArgumentException if {@code conversionThreads} is negative.
+   */
+  static SpanDataConverter create(int conversionThreads) {
+    Utils.checkArgument(conversionThreads >= 0, "conversionThreads must be non-negative.");
+    if (conversionThreads == 0) {
+      return new SpanDataConverter(null, 0);
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            conversionThreads,
+            new ThreadFactoryBuilder()
+                .setThreadFactory(MoreExecutors.platformThreadFactory())
+                .setNameFormat(CONVERSION_THREAD_NAME_FORMAT)
+                .setDaemon(true)
+                .build());
+    return new SpanDataConverter(executor, conversionThreads);
+  }
+
+  /**
+   * Converts the elements of {@code spans} between {@code startIndex} (inclusive) and {@code
+   * endIndex} (exclusive).
+   *
+   * @param spans the {@link ReadableSpan}s or {@link SpanData}s to convert.
+   * @param startIndex the index of the first element to convert.
+   * @param endIndex the index after the last element to convert.
+   * @return an unmodifiable list of {@code SpanData}, in the same order as {@code spans}.
+   */
+  List<SpanData> convert(final List<?> spans, int startIndex, int endIndex) {
+    int size = endIndex - startIndex;
+    int chunks = Math.min(conversionThreads + 1, size / MIN_SPANS_PER_CHUNK);
+    if (executor == null || chunks <= 1) {
+      List<SpanData> result = new ArrayList<>(size);
+      for (int i = startIndex; i < endIndex; i++) {
+        result.add(toSpanData(spans.get(i)));
+      }
+      return Collections.unmodifiableList(result);
+    }
+
+    final SpanData[] result = new SpanData[size];
+    final int offset = startIndex;
+    int chunkSize = (size + chunks - 1) / chunks;
+    List<Future<?>> futures = new ArrayList<>(chunks - 1);
+    // Submit all the chunks but the first one, the calling thread converts the first chunk.
+    for (int chunkStart = startIndex + chunkSize; chunkStart < endIndex; chunkStart += chunkSize) {
+      final int from = chunkStart;
+      final int to = Math.min(chunkStart + chunkSize, endIndex);
+      try {
+        futures.add(
+            executor.submit(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    convertInto(spans, from, to, result, offset);
+                  }
+                }));
+      } catch (RejectedExecutionException e) {
+        // The converter was shutdown while a batch was in flight, convert in the calling thread.
+        convertInto(spans, from, to, result, offset);
+      }
+    }
+    convertInto(spans, startIndex, startIndex + chunkSize, result, offset);
+    for (Future<?> future : futures) {
+      try {
+        // Finish the conversion even if interrupted, the spans would be lost otherwise.
+        Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Failed to convert spans.", e.getCause());
+      }
+    }
+    return Collections.unmodifiableList(Arrays.asList(result));
+  }
+
+  /** Stops the conversion threads, if any. */
+  void shutdown() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  private static void convertInto(
+      List<?> spans, int from, int to, SpanData[] result, int resultOffset) {
+    for (int i = from; i < to; i++) {
+      result[i - resultOffset] = toSpanData(spans.get(i));
+    }
+  }
+
+  private static SpanData toSpanData(Object span) {
+    if (span instanceof SpanData) {
+      return (SpanData) span;
+    }
+    return ((ReadableSpan) span).toSpanData();
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link StripedDoubleAdder}. */
+@RunWith(JUnit4.class)
+public class StripedDoubleAdderTest {
+
+  @Test
+  public void addAndSum() {
+    StripedDoubleAdder adder = new StripedDoubleAdder();
+    assertThat(adder.sum()).isEqualTo(0.0);
+    adder.add(5.5);
+    adder.add(1.25);
+    adder.add(-2);
+    assertThat(adder.sum()).isEqualTo(4.75);
+    assertThat(adder.toString()).isEqualTo("4.75");
+  }
+
+  @Test
+  public void sumThenReset() {
+    StripedDoubleAdder adder = new StripedDoubleAdder();
+    adder.add(10.5);
+    assertThat(adder.sumThenReset()).isEqualTo(10.5);
+    assertThat(adder.sum()).isEqualTo(0.0);
+    adder.add(3);
+    assertThat(adder.sumThenReset()).isEqualTo(3.0);
+  }
+
+  // Adds values exactly representable by a double, the sum doesn't depend on the order.
+  @Test(timeout = 10000L)
+  public void concurrentAdds() throws InterruptedException {
+    final StripedDoubleAdder adder = new StripedDoubleAdder();
+    final int numberOfThreads = 8;
+    final int addsPerThread = 100000;
+    List<Thread> threads = new ArrayList<>(numberOfThreads);
+    for (int i = 0; i < numberOfThreads; i++) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int j = 0; j < addsPerThread; j++) {
+                    adder.add(0.5);
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(adder.sum()).isEqualTo(0.5 * numberOfThreads * addsPerThread);
+  }
+}
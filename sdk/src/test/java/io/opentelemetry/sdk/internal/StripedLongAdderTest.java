@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link StripedLongAdder}. */
+@RunWith(JUnit4.class)
+public class StripedLongAdderTest {
+
+  @Test
+  public void addAndSum() {
+    StripedLongAdder adder = new StripedLongAdder();
+    assertThat(adder.sum()).isEqualTo(0L);
+    adder.add(5);
+    adder.increment();
+    adder.add(-2);
+    assertThat(adder.sum()).isEqualTo(4L);
+    assertThat(adder.toString()).isEqualTo("4");
+  }
+
+  @Test
+  public void sumThenReset() {
+    StripedLongAdder adder = new StripedLongAdder();
+    adder.add(10);
+    assertThat(adder.sumThenReset()).isEqualTo(10L);
+    assertThat(adder.sum()).isEqualTo(0L);
+    adder.add(3);
+    assertThat(adder.sumThenReset()).isEqualTo(3L);
+  }
+
+  @Test(timeout = 10000L)
+  public void concurrentAdds() throws InterruptedException {
+    final StripedLongAdder adder = new StripedLongAdder();
+    final int numberOfThreads = 8;
+    final int addsPerThread = 100000;
+    List<Thread> threads = new ArrayList<>(numberOfThreads);
+    for (int i = 0; i < numberOfThreads; i++) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int j = 0; j < addsPerThread; j++) {
+                    adder.increment();
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(adder.sum()).isEqualTo((long) numberOfThreads * addsPerThread);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ThreadStripes}. */
+@RunWith(JUnit4.class)
+public class ThreadStripesTest {
+
+  @Test
+  public void numberOfStripes_PowerOfTwo() {
+    int stripes = ThreadStripes.numberOfStripes();
+    assertThat(stripes).isAtLeast(2);
+    assertThat(stripes).isAtMost(64);
+    assertThat(Integer.bitCount(stripes)).isEqualTo(1);
+  }
+
+  @Test
+  public void currentStripe_StableAndInRange() throws InterruptedException {
+    int stripe = ThreadStripes.currentStripe();
+    assertThat(stripe).isAtLeast(0);
+    assertThat(stripe).isLessThan(ThreadStripes.numberOfStripes());
+    assertThat(ThreadStripes.currentStripe()).isEqualTo(stripe);
+    final AtomicInteger otherStripe = new AtomicInteger(-1);
+    Thread thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                otherStripe.set(ThreadStripes.currentStripe());
+              }
+            });
+    thread.start();
+    thread.join();
+    assertThat(otherStripe.get()).isAtLeast(0);
+    assertThat(otherStripe.get()).isLessThan(ThreadStripes.numberOfStripes());
+  }
+}
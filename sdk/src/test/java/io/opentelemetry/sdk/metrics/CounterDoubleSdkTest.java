@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CounterDoubleSdk}. */
+@RunWith(JUnit4.class)
+public class CounterDoubleSdkTest {
+  private static final String NAME = "name";
+
+  private final MeterSdk meter = new MeterSdk();
+
+  @Test
+  public void metricDescriptorType() {
+    assertThat(((CounterDoubleSdk) meter.counterDoubleBuilder(NAME).build()).getMetricDescriptor())
+        .isEqualTo(
+            MetricDescriptor.createInternal(
+                NAME,
+                "",
+                "1",
+                Type.MONOTONIC_DOUBLE,
+                Collections.<String>emptyList(),
+                Collections.<String, String>emptyMap()));
+    CounterDoubleSdk nonMonotonic =
+        (CounterDoubleSdk) meter.counterDoubleBuilder(NAME).setMonotonic(false).build();
+    assertThat(nonMonotonic.getMetricDescriptor().getType()).isEqualTo(Type.NON_MONOTONIC_DOUBLE);
+  }
+
+  @Test
+  public void add() {
+    CounterDoubleSdk counter = (CounterDoubleSdk) meter.counterDoubleBuilder(NAME).build();
+    CounterDoubleSdk.HandleSdk handle = counter.getDefaultHandle();
+    handle.add(1.5);
+    handle.add(2.25);
+    handle.add(-1);
+    assertThat(handle.getValue()).isEqualTo(3.75);
+  }
+
+  @Test
+  public void add_NonMonotonic() {
+    CounterDoubleSdk counter =
+        (CounterDoubleSdk) meter.counterDoubleBuilder(NAME).setMonotonic(false).build();
+    CounterDoubleSdk.HandleSdk handle = counter.getDefaultHandle();
+    handle.add(1.5);
+    handle.add(-2.25);
+    assertThat(handle.getValue()).isEqualTo(-0.75);
+  }
+}
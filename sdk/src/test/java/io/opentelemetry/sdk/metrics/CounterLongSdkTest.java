@@ -0,0 +1,251 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.metrics.CounterLong;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CounterLongSdk}. */
+@RunWith(JUnit4.class)
+public class CounterLongSdkTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  private static final String NAME = "name";
+  private static final List<String> LABEL_KEYS = Arrays.asList("key1", "key2");
+
+  private final MeterSdk meter = new MeterSdk();
+
+  @Test
+  public void metricDescriptor() {
+    CounterLongSdk counter =
+        (CounterLongSdk)
+            meter
+                .counterLongBuilder(NAME)
+                .setDescription("description")
+                .setUnit("ms")
+                .setLabelKeys(LABEL_KEYS)
+                .setConstantLabels(Collections.singletonMap("key", "value"))
+                .build();
+    assertThat(counter.getMetricDescriptor())
+        .isEqualTo(
+            MetricDescriptor.createInternal(
+                NAME,
+                "description",
+                "ms",
+                Type.MONOTONIC_INT64,
+                LABEL_KEYS,
+                Collections.singletonMap("key", "value")));
+  }
+
+  @Test
+  public void metricDescriptor_NonMonotonic() {
+    CounterLongSdk counter =
+        (CounterLongSdk) meter.counterLongBuilder(NAME).setMonotonic(false).build();
+    assertThat(counter.getMetricDescriptor().getType()).isEqualTo(Type.NON_MONOTONIC_INT64);
+  }
+
+  @Test
+  public void add() {
+    CounterLongSdk counter = (CounterLongSdk) meter.counterLongBuilder(NAME).build();
+    CounterLongSdk.HandleSdk handle = counter.getDefaultHandle();
+    handle.add(12);
+    handle.add(30);
+    assertThat(handle.getValue()).isEqualTo(42L);
+  }
+
+  @Test
+  public void add_MonotonicIgnoresNegativeDelta() {
+    CounterLongSdk counter = (CounterLongSdk) meter.counterLongBuilder(NAME).build();
+    CounterLongSdk.HandleSdk handle = counter.getDefaultHandle();
+    handle.add(12);
+    handle.add(-2);
+    assertThat(handle.getValue()).isEqualTo(12L);
+  }
+
+  @Test
+  public void add_NonMonotonic() {
+    CounterLongSdk counter =
+        (CounterLongSdk) meter.counterLongBuilder(NAME).setMonotonic(false).build();
+    CounterLongSdk.HandleSdk handle = counter.getDefaultHandle();
+    handle.add(12);
+    handle.add(-20);
+    assertThat(handle.getValue()).isEqualTo(-8L);
+  }
+
+  @Test
+  public void getHandle_SameLabelValuesSameHandle() {
+    CounterLong counter = meter.counterLongBuilder(NAME).setLabelKeys(LABEL_KEYS).build();
+    List<String> labelValues = new ArrayList<>(Arrays.asList("value1", "value2"));
+    CounterLong.Handle handle = counter.getHandle(labelValues);
+    // The handle must not depend on the list of the caller.
+    labelValues.set(1, "other");
+    assertThat(counter.getHandle(Arrays.asList("value1", "value2"))).isSameInstanceAs(handle);
+    assertThat(counter.getHandle(labelValues)).isNotSameInstanceAs(handle);
+    assertThat(counter.getDefaultHandle()).isNotSameInstanceAs(handle);
+  }
+
+  @Test
+  public void getHandle_OverflowAfterMaxLabelSets() {
+    MeterSdk limited = MeterSdk.newBuilder().setMaxLabelSets(NAME, 2).build();
+    CounterLongSdk counter =
+        (CounterLongSdk) limited.counterLongBuilder(NAME).setLabelKeys(LABEL_KEYS).build();
+    CounterLongSdk.HandleSdk handle = counter.getHandle(Arrays.asList("a", "1"));
+    counter.getHandle(Arrays.asList("b", "1"));
+    CounterLongSdk.HandleSdk overflow = counter.getHandle(Arrays.asList("c", "1"));
+    assertThat(counter.getHandle(Arrays.asList("d", "1"))).isSameInstanceAs(overflow);
+    assertThat(overflow).isNotSameInstanceAs(handle);
+    assertThat(counter.getHandle(Arrays.asList("a", "1"))).isSameInstanceAs(handle);
+    assertThat(counter.getRejectedLabelSets().sum()).isEqualTo(2L);
+
+    overflow.add(5);
+    MetricData metricData = counter.collect(Temporality.CUMULATIVE, 0);
+    List<String> overflowLabelValues =
+        Arrays.asList(AbstractMetric.OVERFLOW_LABEL_VALUE, AbstractMetric.OVERFLOW_LABEL_VALUE);
+    assertThat(metricData.getPoints())
+        .containsExactly(MetricData.LongPoint.createInternal(overflowLabelValues, 5));
+  }
+
+  @Test(timeout = 10000L)
+  public void getHandle_FullWithConcurrentRemovals() throws InterruptedException {
+    final int maxLabelSets = 64;
+    MeterSdk limited = MeterSdk.newBuilder().setMaxLabelSets(NAME, maxLabelSets).build();
+    final CounterLongSdk counter =
+        (CounterLongSdk) limited.counterLongBuilder(NAME).setLabelKeys(LABEL_KEYS).build();
+    List<CounterLongSdk.HandleSdk> handles = new ArrayList<>();
+    for (int i = 0; i < maxLabelSets; i++) {
+      handles.add(counter.getHandle(Arrays.asList("value" + i, "1")));
+    }
+    // Removes and adds back the first half of the label sets, which moves the entries of the
+    // other half in the table while it is full.
+    final AtomicBoolean done = new AtomicBoolean();
+    Thread thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                while (!done.get()) {
+                  for (int i = 0; i < maxLabelSets / 2; i++) {
+                    List<String> labelValues = Arrays.asList("value" + i, "1");
+                    counter.removeHandle(labelValues);
+                    counter.getHandle(labelValues);
+                  }
+                }
+              }
+            });
+    thread.start();
+    try {
+      for (int iteration = 0; iteration < 10000; iteration++) {
+        for (int i = maxLabelSets / 2; i < maxLabelSets; i++) {
+          assertThat(counter.getHandle(Arrays.asList("value" + i, "1")))
+              .isSameInstanceAs(handles.get(i));
+        }
+      }
+    } finally {
+      done.set(true);
+      thread.join();
+    }
+    assertThat(counter.getRejectedLabelSets().sum()).isEqualTo(0L);
+  }
+
+  @Test
+  public void removeHandle() {
+    CounterLong counter = meter.counterLongBuilder(NAME).setLabelKeys(LABEL_KEYS).build();
+    CounterLong.Handle handle = counter.getHandle(Arrays.asList("value1", "value2"));
+    counter.removeHandle(Arrays.asList("value1", "value2"));
+    assertThat(counter.getHandle(Arrays.asList("value1", "value2"))).isNotSameInstanceAs(handle);
+  }
+
+  @Test
+  public void collect_DeltaRemovesIdleHandles() {
+    CounterLongSdk counter =
+        (CounterLongSdk) meter.counterLongBuilder(NAME).setLabelKeys(LABEL_KEYS).build();
+    CounterLongSdk.HandleSdk used = counter.getHandle(Arrays.asList("value1", "value2"));
+    CounterLongSdk.HandleSdk idle = counter.getHandle(Arrays.asList("value1", "value3"));
+    for (int i = 0; i < AbstractMetric.MAX_IDLE_COLLECTION_CYCLES; i++) {
+      used.add(1);
+      counter.collect(Temporality.DELTA, i);
+    }
+    assertThat(counter.getHandle(Arrays.asList("value1", "value2"))).isSameInstanceAs(used);
+    assertThat(counter.getHandle(Arrays.asList("value1", "value3"))).isNotSameInstanceAs(idle);
+  }
+
+  @Test
+  public void collect_CumulativeKeepsIdleHandles() {
+    CounterLongSdk counter =
+        (CounterLongSdk) meter.counterLongBuilder(NAME).setLabelKeys(LABEL_KEYS).build();
+    CounterLongSdk.HandleSdk idle = counter.getHandle(Arrays.asList("value1", "value3"));
+    idle.add(1);
+    for (int i = 0; i < 2 * AbstractMetric.MAX_IDLE_COLLECTION_CYCLES; i++) {
+      counter.collect(Temporality.CUMULATIVE, i);
+    }
+    assertThat(counter.getHandle(Arrays.asList("value1", "value3"))).isSameInstanceAs(idle);
+  }
+
+  @Test
+  public void getHandle_WrongNumberOfLabelValues() {
+    CounterLong counter = meter.counterLongBuilder(NAME).setLabelKeys(LABEL_KEYS).build();
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Label Keys and Label Values don't have same size.");
+    counter.getHandle(Collections.singletonList("value1"));
+  }
+
+  @Test
+  public void getHandle_NullLabelValue() {
+    CounterLong counter = meter.counterLongBuilder(NAME).setLabelKeys(LABEL_KEYS).build();
+    thrown.expect(NullPointerException.class);
+    thrown.expectMessage("labelValue");
+    counter.getHandle(Arrays.asList("value1", null));
+  }
+
+  @Test(timeout = 10000L)
+  public void add_ConcurrentThreads() throws InterruptedException {
+    CounterLongSdk counter = (CounterLongSdk) meter.counterLongBuilder(NAME).build();
+    final CounterLongSdk.HandleSdk handle = counter.getDefaultHandle();
+    final int numberOfThreads = 8;
+    final int addsPerThread = 100000;
+    List<Thread> threads = new ArrayList<>(numberOfThreads);
+    for (int i = 0; i < numberOfThreads; i++) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int j = 0; j < addsPerThread; j++) {
+                    handle.add(1);
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(handle.getValue()).isEqualTo((long) numberOfThreads * addsPerThread);
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.Range;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.metrics.stats.BucketBoundaries;
+import io.opentelemetry.trace.DefaultSpan;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.Tracestate;
+import io.opentelemetry.trace.unsafe.ContextUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link DistributionAggregator}. */
+@RunWith(JUnit4.class)
+public class DistributionAggregatorTest {
+  private static final BucketBoundaries BUCKET_BOUNDARIES =
+      BucketBoundaries.create(Arrays.asList(1.0, 2.0, 5.0));
+  private static final SpanContext SAMPLED = newSpanContext(1, true);
+  private static final SpanContext OTHER_SAMPLED = newSpanContext(2, true);
+  private static final SpanContext NOT_SAMPLED = newSpanContext(3, false);
+
+  private final DistributionAggregator aggregator = new DistributionAggregator(BUCKET_BOUNDARIES);
+
+  @Test
+  public void bucketIndex() {
+    assertThat(aggregator.bucketIndex(0)).isEqualTo(0);
+    assertThat(aggregator.bucketIndex(0.999)).isEqualTo(0);
+    // The lower boundary of a bucket is inclusive.
+    assertThat(aggregator.bucketIndex(1)).isEqualTo(1);
+    assertThat(aggregator.bucketIndex(1.5)).isEqualTo(1);
+    assertThat(aggregator.bucketIndex(2)).isEqualTo(2);
+    assertThat(aggregator.bucketIndex(5)).isEqualTo(3);
+    assertThat(aggregator.bucketIndex(Double.MAX_VALUE)).isEqualTo(3);
+  }
+
+  @Test
+  public void bucketIndex_NoBoundaries() {
+    DistributionAggregator noBuckets =
+        new DistributionAggregator(BucketBoundaries.create(new ArrayList<Double>()));
+    assertThat(noBuckets.bucketIndex(0)).isEqualTo(0);
+    assertThat(noBuckets.bucketIndex(100)).isEqualTo(0);
+  }
+
+  @Test
+  public void getSnapshot_Empty() {
+    DistributionAggregator.Snapshot snapshot = aggregator.getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(0L);
+    assertThat(snapshot.getSum()).isEqualTo(0.0);
+    assertThat(snapshot.getMin()).isEqualTo(0.0);
+    assertThat(snapshot.getMax()).isEqualTo(0.0);
+    assertThat(snapshot.getBucketCounts()).containsExactly(0L, 0L, 0L, 0L).inOrder();
+  }
+
+  @Test
+  public void record() {
+    aggregator.record(1.5);
+    aggregator.record(0.5);
+    aggregator.record(7);
+    aggregator.record(1);
+    DistributionAggregator.Snapshot snapshot = aggregator.getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(4L);
+    assertThat(snapshot.getSum()).isEqualTo(10.0);
+    assertThat(snapshot.getMin()).isEqualTo(0.5);
+    assertThat(snapshot.getMax()).isEqualTo(7.0);
+    assertThat(snapshot.getBucketCounts()).containsExactly(1L, 2L, 0L, 1L).inOrder();
+  }
+
+  @Test
+  public void getSnapshotThenReset() {
+    aggregator.record(1.5);
+    aggregator.record(7);
+    DistributionAggregator.Snapshot snapshot = aggregator.getSnapshotThenReset();
+    assertThat(snapshot.getCount()).isEqualTo(2L);
+    assertThat(snapshot.getSum()).isEqualTo(8.5);
+    assertThat(snapshot.getMin()).isEqualTo(1.5);
+    assertThat(snapshot.getMax()).isEqualTo(7.0);
+    assertThat(snapshot.getBucketCounts()).containsExactly(0L, 1L, 0L, 1L).inOrder();
+    assertThat(aggregator.getSnapshotThenReset())
+        .isEqualTo(
+            DistributionAggregator.Snapshot.create(0, 0, 0, 0, Arrays.asList(0L, 0L, 0L, 0L)));
+    aggregator.record(3);
+    snapshot = aggregator.getSnapshotThenReset();
+    assertThat(snapshot.getCount()).isEqualTo(1L);
+    assertThat(snapshot.getMin()).isEqualTo(3.0);
+    assertThat(snapshot.getMax()).isEqualTo(3.0);
+  }
+
+  @Test
+  public void record_Exemplars() {
+    aggregator.record(1.5, NOT_SAMPLED);
+    aggregator.record(7, NOT_SAMPLED);
+    aggregator.record(7, SAMPLED);
+    // The first sampled span of a bucket is kept.
+    aggregator.record(7.5, OTHER_SAMPLED);
+    aggregator.record(0.5, OTHER_SAMPLED);
+    assertThat(aggregator.getSnapshot().getExemplars())
+        .containsExactly(newExemplar(0, OTHER_SAMPLED), newExemplar(3, SAMPLED))
+        .inOrder();
+  }
+
+  @Test
+  public void record_ExemplarOfCurrentSpan() {
+    aggregator.record(1.5);
+    Scope scope = ContextUtils.withSpan(DefaultSpan.create(SAMPLED));
+    try {
+      aggregator.record(1.5);
+    } finally {
+      scope.close();
+    }
+    assertThat(aggregator.getSnapshot().getExemplars()).containsExactly(newExemplar(1, SAMPLED));
+  }
+
+  @Test
+  public void getSnapshotThenReset_Exemplars() {
+    aggregator.record(1.5, SAMPLED);
+    assertThat(aggregator.getSnapshotThenReset().getExemplars())
+        .containsExactly(newExemplar(1, SAMPLED));
+    assertThat(aggregator.getSnapshotThenReset().getExemplars()).isEmpty();
+    // Each interval keeps the first sampled span of the bucket again.
+    aggregator.record(1.5, OTHER_SAMPLED);
+    aggregator.record(1.5, SAMPLED);
+    assertThat(aggregator.getSnapshotThenReset().getExemplars())
+        .containsExactly(newExemplar(1, OTHER_SAMPLED));
+  }
+
+  @Test
+  public void snapshotAdd_LaterExemplarsWin() {
+    List<Long> bucketCounts = Arrays.asList(1L, 1L, 0L, 1L);
+    DistributionAggregator.Snapshot earlier =
+        DistributionAggregator.Snapshot.create(
+            3,
+            8.5,
+            0.5,
+            7,
+            bucketCounts,
+            Arrays.asList(newExemplar(0, SAMPLED), newExemplar(1, SAMPLED)));
+    DistributionAggregator.Snapshot later =
+        DistributionAggregator.Snapshot.create(
+            3,
+            8.5,
+            0.5,
+            7,
+            bucketCounts,
+            Arrays.asList(newExemplar(1, OTHER_SAMPLED), newExemplar(3, OTHER_SAMPLED)));
+    assertThat(earlier.add(later).getExemplars())
+        .containsExactly(
+            newExemplar(0, SAMPLED), newExemplar(1, OTHER_SAMPLED), newExemplar(3, OTHER_SAMPLED))
+        .inOrder();
+    DistributionAggregator.Snapshot withoutExemplars =
+        DistributionAggregator.Snapshot.create(3, 8.5, 0.5, 7, bucketCounts);
+    assertThat(earlier.add(withoutExemplars).getExemplars()).isEqualTo(earlier.getExemplars());
+    assertThat(withoutExemplars.add(later).getExemplars()).isEqualTo(later.getExemplars());
+  }
+
+  @Test
+  public void snapshotAdd() {
+    DistributionAggregator.Snapshot empty =
+        DistributionAggregator.Snapshot.create(0, 0, 0, 0, Arrays.asList(0L, 0L, 0L, 0L));
+    DistributionAggregator.Snapshot snapshot1 =
+        DistributionAggregator.Snapshot.create(2, 3, 1, 2, Arrays.asList(0L, 1L, 1L, 0L));
+    DistributionAggregator.Snapshot snapshot2 =
+        DistributionAggregator.Snapshot.create(1, 7, 7, 7, Arrays.asList(0L, 0L, 0L, 1L));
+    DistributionAggregator.Snapshot sum = snapshot1.add(snapshot2);
+    assertThat(sum.getCount()).isEqualTo(3L);
+    assertThat(sum.getSum()).isEqualTo(10.0);
+    assertThat(sum.getMin()).isEqualTo(1.0);
+    assertThat(sum.getMax()).isEqualTo(7.0);
+    assertThat(sum.getBucketCounts()).containsExactly(0L, 1L, 1L, 1L).inOrder();
+    // The minimum and the maximum of an empty snapshot are ignored.
+    assertThat(empty.add(snapshot2)).isEqualTo(snapshot2);
+    assertThat(snapshot2.add(empty)).isEqualTo(snapshot2);
+  }
+
+  // The threads record values exactly representable by a double, the sum doesn't depend on the
+  // order.
+  @Test(timeout = 10000L)
+  public void record_ConcurrentThreads() throws InterruptedException {
+    final int numberOfThreads = 8;
+    final int recordsPerThread = 100000;
+    List<Thread> threads = new ArrayList<>(numberOfThreads);
+    for (int i = 0; i < numberOfThreads; i++) {
+      final double value = i;
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int j = 0; j < recordsPerThread; j++) {
+                    aggregator.record(value);
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    DistributionAggregator.Snapshot snapshot = aggregator.getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo((long) numberOfThreads * recordsPerThread);
+    // 0 + 1 + ... + 7 = 28.
+    assertThat(snapshot.getSum()).isEqualTo(28.0 * recordsPerThread);
+    assertThat(snapshot.getMin()).isEqualTo(0.0);
+    assertThat(snapshot.getMax()).isEqualTo(7.0);
+    assertThat(snapshot.getBucketCounts())
+        .containsExactly(
+            (long) recordsPerThread,
+            (long) recordsPerThread,
+            3L * recordsPerThread,
+            3L * recordsPerThread)
+        .inOrder();
+  }
+
+  // Snapshots taken while the threads are recording must not lose or double count measurements.
+  @Test(timeout = 10000L)
+  public void getSnapshotThenReset_ConcurrentThreads() throws InterruptedException {
+    final int numberOfThreads = 8;
+    final int recordsPerThread = 100000;
+    List<Thread> threads = new ArrayList<>(numberOfThreads);
+    for (int i = 0; i < numberOfThreads; i++) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int j = 0; j < recordsPerThread; j++) {
+                    aggregator.record(1.5);
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    DistributionAggregator.Snapshot total = aggregator.getSnapshotThenReset();
+    for (Thread thread : threads) {
+      while (thread.isAlive()) {
+        DistributionAggregator.Snapshot snapshot = aggregator.getSnapshotThenReset();
+        assertThat(snapshot.getBucketCounts().get(1)).isEqualTo(snapshot.getCount());
+        total = total.add(snapshot);
+      }
+    }
+    total = total.add(aggregator.getSnapshotThenReset());
+    assertThat(total.getCount()).isEqualTo((long) numberOfThreads * recordsPerThread);
+    assertThat(total.getSum()).isEqualTo(1.5 * numberOfThreads * recordsPerThread);
+    // The bounds of a snapshot may be approximated by the bounds of the bucket, [1, 2).
+    assertThat(total.getMin()).isIn(Range.closed(1.0, 1.5));
+    assertThat(total.getMax()).isIn(Range.closed(1.5, 2.0));
+  }
+
+  private static SpanContext newSpanContext(long id, boolean sampled) {
+    return SpanContext.create(
+        new TraceId(1, id),
+        new SpanId(id),
+        TraceFlags.builder().setIsSampled(sampled).build(),
+        Tracestate.builder().build());
+  }
+
+  private static MetricData.Exemplar newExemplar(int bucketIndex, SpanContext spanContext) {
+    return MetricData.Exemplar.createInternal(
+        bucketIndex, spanContext.getTraceId(), spanContext.getSpanId());
+  }
+}
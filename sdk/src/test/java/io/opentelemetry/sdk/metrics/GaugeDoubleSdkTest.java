@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.metrics.GaugeDouble;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link GaugeDoubleSdk}. */
+@RunWith(JUnit4.class)
+public class GaugeDoubleSdkTest {
+  private static final String NAME = "name";
+
+  private final MeterSdk meter = new MeterSdk();
+
+  @Test
+  public void metricDescriptorType() {
+    GaugeDoubleSdk gauge = (GaugeDoubleSdk) meter.gaugeDoubleBuilder(NAME).build();
+    assertThat(gauge.getMetricDescriptor().getType()).isEqualTo(Type.NON_MONOTONIC_DOUBLE);
+    GaugeDoubleSdk monotonic =
+        (GaugeDoubleSdk) meter.gaugeDoubleBuilder(NAME).setMonotonic(true).build();
+    assertThat(monotonic.getMetricDescriptor().getType()).isEqualTo(Type.MONOTONIC_DOUBLE);
+  }
+
+  @Test
+  public void set() {
+    GaugeDoubleSdk gauge =
+        (GaugeDoubleSdk)
+            meter.gaugeDoubleBuilder(NAME).setLabelKeys(Collections.singletonList("key")).build();
+    GaugeDoubleSdk.HandleSdk handle = gauge.getHandle(Collections.singletonList("value"));
+    assertThat(handle.getValue()).isEqualTo(0.0);
+    handle.set(4.2);
+    handle.set(-0.5);
+    assertThat(handle.getValue()).isEqualTo(-0.5);
+    assertThat(gauge.getDefaultHandle().getValue()).isEqualTo(0.0);
+    GaugeDouble.Handle sameHandle = gauge.getHandle(Collections.singletonList("value"));
+    assertThat(sameHandle).isSameInstanceAs(handle);
+  }
+}
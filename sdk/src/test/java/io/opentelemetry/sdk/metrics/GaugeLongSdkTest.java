@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.metrics.GaugeLong;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link GaugeLongSdk}. */
+@RunWith(JUnit4.class)
+public class GaugeLongSdkTest {
+  private static final String NAME = "name";
+
+  private final MeterSdk meter = new MeterSdk();
+
+  @Test
+  public void metricDescriptorType() {
+    GaugeLongSdk gauge = (GaugeLongSdk) meter.gaugeLongBuilder(NAME).build();
+    assertThat(gauge.getMetricDescriptor().getType()).isEqualTo(Type.NON_MONOTONIC_INT64);
+    GaugeLongSdk monotonic = (GaugeLongSdk) meter.gaugeLongBuilder(NAME).setMonotonic(true).build();
+    assertThat(monotonic.getMetricDescriptor().getType()).isEqualTo(Type.MONOTONIC_INT64);
+  }
+
+  @Test
+  public void set() {
+    GaugeLongSdk gauge =
+        (GaugeLongSdk)
+            meter.gaugeLongBuilder(NAME).setLabelKeys(Collections.singletonList("key")).build();
+    GaugeLongSdk.HandleSdk handle = gauge.getHandle(Collections.singletonList("value"));
+    assertThat(handle.getValue()).isEqualTo(0L);
+    handle.set(42);
+    handle.set(-7);
+    assertThat(handle.getValue()).isEqualTo(-7L);
+    assertThat(gauge.getDefaultHandle().getValue()).isEqualTo(0L);
+    GaugeLong.Handle sameHandle = gauge.getHandle(Collections.singletonList("value"));
+    assertThat(sameHandle).isSameInstanceAs(handle);
+  }
+}
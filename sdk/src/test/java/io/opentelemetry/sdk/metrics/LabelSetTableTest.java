@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link LabelSetTable}. */
+@RunWith(JUnit4.class)
+public class LabelSetTableTest {
+  private static final LabelSetTable.Visitor<TestHandle> CLEAR_USED =
+      new LabelSetTable.Visitor<TestHandle>() {
+        @Override
+        public boolean visit(List<String> labelValues, TestHandle handle) {
+          return handle.clearUsed();
+        }
+      };
+
+  private final LabelSetTable<TestHandle> table = new LabelSetTable<>(Integer.MAX_VALUE);
+
+  @Test
+  public void putIfAbsentAndGet() {
+    TestHandle handle = new TestHandle();
+    assertThat(table.get(Arrays.asList("a", "b"))).isNull();
+    assertThat(table.putIfAbsent(Arrays.asList("a", "b"), handle)).isSameInstanceAs(handle);
+    assertThat(table.putIfAbsent(Arrays.asList("a", "b"), new TestHandle()))
+        .isSameInstanceAs(handle);
+    assertThat(table.get(Arrays.asList("a", "b"))).isSameInstanceAs(handle);
+    assertThat(table.get(Arrays.asList("b", "a"))).isNull();
+    assertThat(table.get(Arrays.asList("a"))).isNull();
+    assertThat(table.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void putIfAbsent_CopiesLabelValues() {
+    TestHandle handle = new TestHandle();
+    List<String> labelValues = new ArrayList<>(Arrays.asList("a", "b"));
+    table.putIfAbsent(labelValues, handle);
+    labelValues.set(0, "c");
+    assertThat(table.get(Arrays.asList("a", "b"))).isSameInstanceAs(handle);
+    assertThat(table.get(labelValues)).isNull();
+  }
+
+  @Test
+  public void putIfAbsent_Full() {
+    LabelSetTable<TestHandle> small = new LabelSetTable<>(2);
+    TestHandle handle = new TestHandle();
+    small.putIfAbsent(Arrays.asList("a"), handle);
+    assertThat(small.isFull()).isFalse();
+    small.putIfAbsent(Arrays.asList("b"), new TestHandle());
+    assertThat(small.isFull()).isTrue();
+    assertThat(small.putIfAbsent(Arrays.asList("c"), new TestHandle())).isNull();
+    assertThat(small.get(Arrays.asList("c"))).isNull();
+    assertThat(small.getLocked(Arrays.asList("c"))).isNull();
+    assertThat(small.getLocked(Arrays.asList("a"))).isSameInstanceAs(handle);
+    // The existing handles are still returned.
+    assertThat(small.putIfAbsent(Arrays.asList("a"), new TestHandle())).isSameInstanceAs(handle);
+    small.remove(Arrays.asList("b"));
+    assertThat(small.isFull()).isFalse();
+    assertThat(small.putIfAbsent(Arrays.asList("c"), new TestHandle())).isNotNull();
+  }
+
+  @Test
+  public void remove() {
+    table.putIfAbsent(Arrays.asList("a"), new TestHandle());
+    table.remove(Arrays.asList("a"));
+    table.remove(Arrays.asList("b"));
+    assertThat(table.get(Arrays.asList("a"))).isNull();
+    assertThat(table.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void collect_VisitsAllHandles() {
+    TestHandle handle1 = new TestHandle();
+    TestHandle handle2 = new TestHandle();
+    table.putIfAbsent(Arrays.asList("value1"), handle1);
+    table.putIfAbsent(Arrays.asList("value2"), handle2);
+    final Map<List<String>, TestHandle> visited = new HashMap<>();
+    table.collect(
+        new LabelSetTable.Visitor<TestHandle>() {
+          @Override
+          public boolean visit(List<String> labelValues, TestHandle handle) {
+            visited.put(labelValues, handle);
+            return true;
+          }
+        },
+        3);
+    assertThat(visited)
+        .containsExactly(Arrays.asList("value1"), handle1, Arrays.asList("value2"), handle2);
+  }
+
+  @Test
+  public void collect_RemovesIdleHandles() {
+    TestHandle used = new TestHandle();
+    TestHandle unused = new TestHandle();
+    table.putIfAbsent(Arrays.asList("used"), used);
+    table.putIfAbsent(Arrays.asList("unused"), unused);
+    for (int i = 0; i < 2; i++) {
+      used.markUsed();
+      table.collect(CLEAR_USED, 3);
+    }
+    assertThat(table.size()).isEqualTo(2);
+    used.markUsed();
+    table.collect(CLEAR_USED, 3);
+    assertThat(table.get(Arrays.asList("used"))).isSameInstanceAs(used);
+    assertThat(table.get(Arrays.asList("unused"))).isNull();
+    // Recording resets the number of idle cycles.
+    table.collect(CLEAR_USED, 3);
+    table.collect(CLEAR_USED, 3);
+    used.markUsed();
+    table.collect(CLEAR_USED, 3);
+    table.collect(CLEAR_USED, 3);
+    assertThat(table.get(Arrays.asList("used"))).isSameInstanceAs(used);
+  }
+
+  @Test
+  public void collect_KeepsHandleAddedAgain() {
+    final TestHandle replacement = new TestHandle();
+    table.putIfAbsent(Arrays.asList("value"), new TestHandle());
+    // The handle is replaced while the collection visits it, the new handle must not be removed.
+    table.collect(
+        new LabelSetTable.Visitor<TestHandle>() {
+          @Override
+          public boolean visit(List<String> labelValues, TestHandle handle) {
+            table.remove(labelValues);
+            table.putIfAbsent(labelValues, replacement);
+            return false;
+          }
+        },
+        1);
+    assertThat(table.get(Arrays.asList("value"))).isSameInstanceAs(replacement);
+    assertThat(table.size()).isEqualTo(1);
+  }
+
+  // Compares the table with a HashMap, with enough keys to resize the table and to have clusters
+  // to fix when removing.
+  @Test
+  public void randomOperations() {
+    Random random = new Random(1234);
+    Map<List<String>, TestHandle> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      List<String> labelValues =
+          Arrays.asList("key" + random.nextInt(1000), "value" + random.nextInt(3));
+      int operation = random.nextInt(10);
+      if (operation < 5) {
+        TestHandle handle = new TestHandle();
+        TestHandle existing = expected.get(labelValues);
+        if (existing == null) {
+          expected.put(labelValues, handle);
+          existing = handle;
+        }
+        assertThat(table.putIfAbsent(labelValues, handle)).isSameInstanceAs(existing);
+      } else if (operation < 8) {
+        assertThat(table.get(labelValues)).isSameInstanceAs(expected.get(labelValues));
+      } else {
+        table.remove(labelValues);
+        expected.remove(labelValues);
+      }
+    }
+    assertThat(table.size()).isEqualTo(expected.size());
+    for (Map.Entry<List<String>, TestHandle> entry : expected.entrySet()) {
+      assertThat(table.get(entry.getKey())).isSameInstanceAs(entry.getValue());
+    }
+  }
+
+  @Test(timeout = 10000L)
+  public void putIfAbsent_ConcurrentThreads() throws InterruptedException {
+    final int numberOfThreads = 8;
+    final int labelSets = 1000;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<AtomicReferenceArray<TestHandle>> results = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>(numberOfThreads);
+    for (int i = 0; i < numberOfThreads; i++) {
+      final AtomicReferenceArray<TestHandle> handles = new AtomicReferenceArray<>(labelSets);
+      results.add(handles);
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    start.await();
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                  }
+                  for (int j = 0; j < labelSets; j++) {
+                    List<String> labelValues = Arrays.asList("value" + j);
+                    TestHandle handle = table.get(labelValues);
+                    if (handle == null) {
+                      handle = table.putIfAbsent(labelValues, new TestHandle());
+                    }
+                    handles.set(j, handle);
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(table.size()).isEqualTo(labelSets);
+    for (int j = 0; j < labelSets; j++) {
+      TestHandle handle = table.get(Arrays.asList("value" + j));
+      for (AtomicReferenceArray<TestHandle> handles : results) {
+        assertThat(handles.get(j)).isSameInstanceAs(handle);
+      }
+    }
+  }
+
+  private static final class TestHandle extends AbstractHandle {
+    @Nullable
+    @Override
+    MetricData.Point collect(List<String> labelValues, boolean used, Temporality temporality) {
+      return null;
+    }
+  }
+}
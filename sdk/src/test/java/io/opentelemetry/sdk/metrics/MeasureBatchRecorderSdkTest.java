@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.distributedcontext.DistributedContext;
+import io.opentelemetry.distributedcontext.DistributedContextManager;
+import io.opentelemetry.distributedcontext.EntryKey;
+import io.opentelemetry.distributedcontext.EntryMetadata;
+import io.opentelemetry.distributedcontext.EntryValue;
+import io.opentelemetry.metrics.DefaultMeter;
+import io.opentelemetry.metrics.MeasureBatchRecorder;
+import io.opentelemetry.sdk.distributedcontext.DistributedContextManagerSdk;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link MeasureBatchRecorderSdk}. */
+@RunWith(JUnit4.class)
+public class MeasureBatchRecorderSdkTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  private static final EntryMetadata METADATA =
+      EntryMetadata.create(EntryMetadata.EntryTtl.UNLIMITED_PROPAGATION);
+
+  private final MeterSdk meter = new MeterSdk();
+  private final DistributedContextManager contextManager = new DistributedContextManagerSdk();
+  private final MeasureLongSdk measureLong =
+      (MeasureLongSdk) meter.measureLongBuilder("long").build();
+  private final MeasureDoubleSdk measureDouble =
+      (MeasureDoubleSdk) meter.measureDoubleBuilder("double").build();
+
+  @Test
+  public void record() {
+    meter.newMeasureBatchRecorder().put(measureLong, 5).put(measureDouble, 1.5).record();
+    DistributionAggregator.Snapshot longSnapshot = measureLong.getDefaultHandle().getSnapshot();
+    assertThat(longSnapshot.getCount()).isEqualTo(1L);
+    assertThat(longSnapshot.getSum()).isEqualTo(5.0);
+    DistributionAggregator.Snapshot doubleSnapshot =
+        measureDouble.getDefaultHandle().getSnapshot();
+    assertThat(doubleSnapshot.getCount()).isEqualTo(1L);
+    assertThat(doubleSnapshot.getSum()).isEqualTo(1.5);
+  }
+
+  @Test
+  public void put_OverwritesPreviousValue() {
+    meter.newMeasureBatchRecorder().put(measureLong, 5).put(measureLong, 7).record();
+    DistributionAggregator.Snapshot snapshot = measureLong.getDefaultHandle().getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(1L);
+    assertThat(snapshot.getSum()).isEqualTo(7.0);
+  }
+
+  @Test
+  public void record_ManyMeasures() {
+    MeasureBatchRecorder recorder = meter.newMeasureBatchRecorder();
+    MeasureDoubleSdk[] measures = new MeasureDoubleSdk[40];
+    for (int i = 0; i < measures.length; i++) {
+      measures[i] = (MeasureDoubleSdk) meter.measureDoubleBuilder("measure" + i).build();
+      recorder.put(measures[i], i);
+    }
+    recorder.record();
+    for (int i = 0; i < measures.length; i++) {
+      assertThat(measures[i].getDefaultHandle().getSnapshot().getSum()).isEqualTo((double) i);
+    }
+  }
+
+  @Test
+  public void record_LabelValuesFromContext() {
+    MeasureDoubleSdk measure =
+        (MeasureDoubleSdk)
+            meter
+                .measureDoubleBuilder("measure")
+                .setLabelKeys(Arrays.asList("method", "status"))
+                .build();
+    DistributedContext context =
+        contextManager
+            .contextBuilder()
+            .put(EntryKey.create("method"), EntryValue.create("GET"), METADATA)
+            .build();
+    try (Scope scope = contextManager.withContext(context)) {
+      meter.newMeasureBatchRecorder().put(measure, 2.5).record();
+    }
+    // There is no entry for the status.
+    DistributionAggregator.Snapshot snapshot =
+        measure.getHandle(Arrays.asList("GET", "")).getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(1L);
+    assertThat(snapshot.getSum()).isEqualTo(2.5);
+  }
+
+  @Test
+  public void record_RecordsEveryTime() {
+    MeasureBatchRecorder recorder = meter.newMeasureBatchRecorder().put(measureLong, 5);
+    recorder.record();
+    recorder.record();
+    DistributionAggregator.Snapshot snapshot = measureLong.getDefaultHandle().getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(2L);
+    assertThat(snapshot.getSum()).isEqualTo(10.0);
+  }
+
+  @Test
+  public void newMeasureBatchRecorder_DoesNotReuseRecordedRecorder() {
+    MeasureBatchRecorder recorder = meter.newMeasureBatchRecorder();
+    recorder.put(measureLong, 5).record();
+    MeasureBatchRecorder other = meter.newMeasureBatchRecorder();
+    assertThat(other).isNotSameInstanceAs(recorder);
+    other.put(measureDouble, 1.0).record();
+    // The first recorder still holds its batch.
+    recorder.record();
+    assertThat(measureLong.getDefaultHandle().getSnapshot().getCount()).isEqualTo(2L);
+    assertThat(measureDouble.getDefaultHandle().getSnapshot().getCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void newMeasureBatchRecorder_NestedBatches() {
+    MeasureBatchRecorder outer = meter.newMeasureBatchRecorder().put(measureLong, 5);
+    MeasureBatchRecorder inner = meter.newMeasureBatchRecorder().put(measureLong, 7);
+    assertThat(inner).isNotSameInstanceAs(outer);
+    inner.record();
+    outer.record();
+    assertThat(measureLong.getDefaultHandle().getSnapshot().getSum()).isEqualTo(12.0);
+  }
+
+  @Test
+  public void put_NegativeValue() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Unsupported negative values.");
+    meter.newMeasureBatchRecorder().put(measureDouble, -1.0);
+  }
+
+  @Test
+  public void put_MeasureFromOtherMeter() {
+    thrown.expect(IllegalArgumentException.class);
+    meter
+        .newMeasureBatchRecorder()
+        .put(DefaultMeter.getInstance().measureLongBuilder("long").build(), 1);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.metrics.MeasureLong;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link MeasureLongSdk}. */
+@RunWith(JUnit4.class)
+public class MeasureLongSdkTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  private static final String NAME = "name";
+
+  private final MeterSdk meter = new MeterSdk();
+
+  @Test
+  public void metricDescriptorType() {
+    MeasureLongSdk measure = (MeasureLongSdk) meter.measureLongBuilder(NAME).build();
+    assertThat(measure.getMetricDescriptor().getType()).isEqualTo(Type.DISTRIBUTION);
+  }
+
+  @Test
+  public void record() {
+    MeasureLongSdk measure =
+        (MeasureLongSdk)
+            meter
+                .measureLongBuilder(NAME)
+                .setLabelKeys(Collections.singletonList("key"))
+                .build();
+    MeasureLongSdk.HandleSdk handle = measure.getHandle(Collections.singletonList("value"));
+    handle.record(7);
+    handle.record(30);
+    DistributionAggregator.Snapshot snapshot = handle.getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(2L);
+    assertThat(snapshot.getSum()).isEqualTo(37.0);
+    assertThat(snapshot.getMin()).isEqualTo(7.0);
+    assertThat(snapshot.getMax()).isEqualTo(30.0);
+    assertThat(snapshot.getBucketCounts())
+        .hasSize(DistributionAggregator.DEFAULT_BUCKET_BOUNDARIES.getBoundaries().size() + 1);
+    assertThat(measure.getDefaultHandle().getSnapshot().getCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void record_NegativeValue() {
+    MeasureLong measure = meter.measureLongBuilder(NAME).build();
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Unsupported negative values.");
+    measure.getDefaultHandle().record(-1);
+  }
+}
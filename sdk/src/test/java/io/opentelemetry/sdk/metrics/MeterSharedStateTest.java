@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.metrics.CounterLong;
+import io.opentelemetry.metrics.GaugeDouble;
+import io.opentelemetry.metrics.MeasureDouble;
+import io.opentelemetry.sdk.internal.TestClock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link MeterSharedState}. */
+@RunWith(JUnit4.class)
+public class MeterSharedStateTest {
+  private static final List<String> LABEL_KEYS = Collections.singletonList("key");
+  private static final List<String> LABEL_VALUES = Collections.singletonList("value");
+
+  private final TestClock clock = TestClock.create();
+
+  @Test
+  public void getAllMetrics_NoMetrics() {
+    MeterSdk meter = newMeter(Temporality.CUMULATIVE);
+    assertThat(meter.getMetricProducer().getAllMetrics()).isEmpty();
+  }
+
+  @Test
+  public void getAllMetrics_Cumulative() {
+    MeterSdk meter = newMeter(Temporality.CUMULATIVE);
+    long startEpochNanos = clock.now();
+    CounterLong counter = meter.counterLongBuilder("counter").setLabelKeys(LABEL_KEYS).build();
+    counter.getHandle(LABEL_VALUES).add(5);
+    counter.getDefaultHandle().add(1);
+    // Handles that never recorded a value have no point.
+    counter.getHandle(Collections.singletonList("unused"));
+    clock.advanceMillis(10);
+
+    MetricData metricData = getOnlyMetric(meter);
+    assertThat(metricData.getStartEpochNanos()).isEqualTo(startEpochNanos);
+    assertThat(metricData.getEpochNanos()).isEqualTo(clock.now());
+    assertThat(metricData.getPoints())
+        .containsExactly(
+            MetricData.LongPoint.createInternal(Collections.<String>emptyList(), 1),
+            MetricData.LongPoint.createInternal(LABEL_VALUES, 5));
+
+    counter.getHandle(LABEL_VALUES).add(2);
+    clock.advanceMillis(10);
+    metricData = getOnlyMetric(meter);
+    assertThat(metricData.getStartEpochNanos()).isEqualTo(startEpochNanos);
+    assertThat(metricData.getPoints())
+        .containsExactly(
+            MetricData.LongPoint.createInternal(Collections.<String>emptyList(), 1),
+            MetricData.LongPoint.createInternal(LABEL_VALUES, 7));
+  }
+
+  @Test
+  public void getAllMetrics_Delta() {
+    MeterSdk meter = newMeter(Temporality.DELTA);
+    long startEpochNanos = clock.now();
+    CounterLong counter = meter.counterLongBuilder("counter").setLabelKeys(LABEL_KEYS).build();
+    counter.getHandle(LABEL_VALUES).add(5);
+    counter.getDefaultHandle().add(1);
+    clock.advanceMillis(10);
+    long firstCollectionEpochNanos = clock.now();
+
+    MetricData metricData = getOnlyMetric(meter);
+    assertThat(metricData.getStartEpochNanos()).isEqualTo(startEpochNanos);
+    assertThat(metricData.getEpochNanos()).isEqualTo(firstCollectionEpochNanos);
+    assertThat(metricData.getPoints())
+        .containsExactly(
+            MetricData.LongPoint.createInternal(Collections.<String>emptyList(), 1),
+            MetricData.LongPoint.createInternal(LABEL_VALUES, 5));
+
+    // Only the handles that recorded a value since the previous collection have a point.
+    counter.getHandle(LABEL_VALUES).add(2);
+    clock.advanceMillis(10);
+    metricData = getOnlyMetric(meter);
+    assertThat(metricData.getStartEpochNanos()).isEqualTo(firstCollectionEpochNanos);
+    assertThat(metricData.getEpochNanos()).isEqualTo(clock.now());
+    assertThat(metricData.getPoints())
+        .containsExactly(MetricData.LongPoint.createInternal(LABEL_VALUES, 2));
+
+    assertThat(getOnlyMetric(meter).getPoints()).isEmpty();
+  }
+
+  @Test
+  public void getAllMetrics_Gauge() {
+    MeterSdk meter = newMeter(Temporality.DELTA);
+    GaugeDouble gauge = meter.gaugeDoubleBuilder("gauge").setLabelKeys(LABEL_KEYS).build();
+    gauge.getHandle(LABEL_VALUES).set(4.5);
+    gauge.getHandle(LABEL_VALUES).set(2.5);
+    assertThat(getOnlyMetric(meter).getPoints())
+        .containsExactly(MetricData.DoublePoint.createInternal(LABEL_VALUES, 2.5));
+    assertThat(getOnlyMetric(meter).getPoints()).isEmpty();
+  }
+
+  @Test
+  public void getAllMetrics_Measure() {
+    MeterSdk meter = newMeter(Temporality.CUMULATIVE);
+    MeasureDouble measure = meter.measureDoubleBuilder("measure").setLabelKeys(LABEL_KEYS).build();
+    measure.getHandle(LABEL_VALUES).record(7);
+    getOnlyMetric(meter);
+    measure.getHandle(LABEL_VALUES).record(30);
+
+    List<MetricData.Point> points = getOnlyMetric(meter).getPoints();
+    assertThat(points).hasSize(1);
+    MetricData.DistributionPoint point = (MetricData.DistributionPoint) points.get(0);
+    assertThat(point.getLabelValues()).isEqualTo(LABEL_VALUES);
+    assertThat(point.getCount()).isEqualTo(2L);
+    assertThat(point.getSum()).isEqualTo(37.0);
+    assertThat(point.getMin()).isEqualTo(7.0);
+    assertThat(point.getMax()).isEqualTo(30.0);
+    assertThat(point.getBucketBoundaries())
+        .isEqualTo(DistributionAggregator.DEFAULT_BUCKET_BOUNDARIES.getBoundaries());
+    // 7 is in [5, 10) and 30 in [25, 50).
+    Long[] bucketCounts = new Long[point.getBucketBoundaries().size() + 1];
+    Arrays.fill(bucketCounts, 0L);
+    bucketCounts[1] = 1L;
+    bucketCounts[3] = 1L;
+    assertThat(point.getBucketCounts()).containsExactlyElementsIn(bucketCounts).inOrder();
+  }
+
+  @Test
+  public void getAllMetrics_RejectedLabelSets() {
+    MeterSdk meter =
+        MeterSdk.newBuilder()
+            .setClock(clock)
+            .setTemporality(Temporality.DELTA)
+            .setMaxLabelSets(1)
+            .build();
+    long startEpochNanos = clock.now();
+    CounterLong counter = meter.counterLongBuilder("counter").setLabelKeys(LABEL_KEYS).build();
+    counter.getHandle(LABEL_VALUES);
+    counter.getHandle(Collections.singletonList("rejected"));
+    counter.getHandle(Collections.singletonList("rejected"));
+    // No metric rejected label values yet.
+    meter.gaugeLongBuilder("gauge").build();
+    clock.advanceMillis(10);
+
+    Collection<MetricData> metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(metrics).hasSize(3);
+    MetricData rejected = getMetric(metrics, "meter.rejected_label_sets");
+    assertThat(rejected.getStartEpochNanos()).isEqualTo(startEpochNanos);
+    assertThat(rejected.getEpochNanos()).isEqualTo(clock.now());
+    assertThat(rejected.getPoints())
+        .containsExactly(
+            MetricData.LongPoint.createInternal(Collections.singletonList("counter"), 2));
+    // Nothing rejected since the previous collection.
+    assertThat(meter.getMetricProducer().getAllMetrics()).hasSize(2);
+  }
+
+  @Test
+  public void getAllMetrics_AllMetrics() {
+    MeterSdk meter = newMeter(Temporality.CUMULATIVE);
+    meter.counterDoubleBuilder("counter").build();
+    meter.gaugeLongBuilder("gauge").build();
+    meter.measureLongBuilder("measure").build();
+    Collection<MetricData> metrics = meter.getMetricProducer().getAllMetrics();
+    List<String> names = new ArrayList<>();
+    for (MetricData metricData : metrics) {
+      names.add(metricData.getMetricDescriptor().getName());
+    }
+    assertThat(names).containsExactlyElementsIn(Arrays.asList("counter", "gauge", "measure"));
+  }
+
+  private MeterSdk newMeter(Temporality temporality) {
+    return MeterSdk.newBuilder().setClock(clock).setTemporality(temporality).build();
+  }
+
+  private static MetricData getMetric(Collection<MetricData> metrics, String name) {
+    for (MetricData metricData : metrics) {
+      if (metricData.getMetricDescriptor().getName().equals(name)) {
+        return metricData;
+      }
+    }
+    throw new AssertionError("No metric " + name);
+  }
+
+  private static MetricData getOnlyMetric(MeterSdk meter) {
+    Collection<MetricData> metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(metrics).hasSize(1);
+    return metrics.iterator().next();
+  }
+}
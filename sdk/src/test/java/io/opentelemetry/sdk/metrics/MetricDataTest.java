@@ -18,6 +18,9 @@ package io.opentelemetry.sdk.metrics;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
@@ -41,20 +44,73 @@ public class MetricDataTest {
           Collections.singletonMap("key_const", "value_const"));
   private static final long START_EPOCH_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
   private static final long EPOCH_NANOS = TimeUnit.MILLISECONDS.toNanos(2000);
+  private static final MetricData.LongPoint LONG_POINT =
+      MetricData.LongPoint.createInternal(Collections.singletonList("value"), 42);
+  private static final MetricData.Exemplar EXEMPLAR =
+      MetricData.Exemplar.createInternal(2, new TraceId(1, 2), new SpanId(3));
 
   @Test
   public void testGet() {
     MetricData metricData =
-        MetricData.createInternal(METRIC_DESCRIPTOR, START_EPOCH_NANOS, EPOCH_NANOS);
+        MetricData.createInternal(
+            METRIC_DESCRIPTOR,
+            START_EPOCH_NANOS,
+            EPOCH_NANOS,
+            Collections.<MetricData.Point>singletonList(LONG_POINT));
     assertThat(metricData.getMetricDescriptor()).isEqualTo(METRIC_DESCRIPTOR);
     assertThat(metricData.getStartEpochNanos()).isEqualTo(START_EPOCH_NANOS);
     assertThat(metricData.getEpochNanos()).isEqualTo(EPOCH_NANOS);
+    assertThat(metricData.getPoints()).containsExactly(LONG_POINT);
+  }
+
+  @Test
+  public void longPoint() {
+    assertThat(LONG_POINT.getLabelValues()).containsExactly("value");
+    assertThat(LONG_POINT.getValue()).isEqualTo(42L);
+  }
+
+  @Test
+  public void doublePoint() {
+    MetricData.DoublePoint point =
+        MetricData.DoublePoint.createInternal(Collections.singletonList("value"), 4.2);
+    assertThat(point.getLabelValues()).containsExactly("value");
+    assertThat(point.getValue()).isEqualTo(4.2);
+  }
+
+  @Test
+  public void distributionPoint() {
+    MetricData.DistributionPoint point =
+        MetricData.DistributionPoint.createInternal(
+            Collections.<String>emptyList(),
+            3,
+            12.5,
+            0.5,
+            10,
+            Arrays.asList(1.0, 5.0),
+            Arrays.asList(1L, 1L, 1L),
+            Collections.singletonList(EXEMPLAR));
+    assertThat(point.getLabelValues()).isEmpty();
+    assertThat(point.getCount()).isEqualTo(3L);
+    assertThat(point.getSum()).isEqualTo(12.5);
+    assertThat(point.getMin()).isEqualTo(0.5);
+    assertThat(point.getMax()).isEqualTo(10.0);
+    assertThat(point.getBucketBoundaries()).containsExactly(1.0, 5.0).inOrder();
+    assertThat(point.getBucketCounts()).containsExactly(1L, 1L, 1L).inOrder();
+    assertThat(point.getExemplars()).containsExactly(EXEMPLAR);
+  }
+
+  @Test
+  public void exemplar() {
+    assertThat(EXEMPLAR.getBucketIndex()).isEqualTo(2);
+    assertThat(EXEMPLAR.getTraceId()).isEqualTo(new TraceId(1, 2));
+    assertThat(EXEMPLAR.getSpanId()).isEqualTo(new SpanId(3));
   }
 
   @Test
   public void create_NullDescriptor() {
     thrown.expect(NullPointerException.class);
     thrown.expectMessage("metricDescriptor");
-    MetricData.createInternal(null, START_EPOCH_NANOS, EPOCH_NANOS);
+    MetricData.createInternal(
+        null, START_EPOCH_NANOS, EPOCH_NANOS, Collections.<MetricData.Point>emptyList());
   }
 }
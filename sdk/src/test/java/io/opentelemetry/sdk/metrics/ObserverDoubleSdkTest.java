@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.metrics.Observer;
+import io.opentelemetry.metrics.ObserverDouble;
+import io.opentelemetry.sdk.metrics.MetricDescriptor.Type;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ObserverDoubleSdk}. */
+@RunWith(JUnit4.class)
+public class ObserverDoubleSdkTest {
+  private static final String NAME = "name";
+  private static final List<String> LABEL_VALUES = Collections.singletonList("value");
+
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  private final MeterSdk meter = new MeterSdk();
+
+  @Test
+  public void metricDescriptorType() {
+    ObserverDoubleSdk observer = (ObserverDoubleSdk) meter.observerDoubleBuilder(NAME).build();
+    assertThat(observer.getMetricDescriptor().getType()).isEqualTo(Type.NON_MONOTONIC_DOUBLE);
+    ObserverDoubleSdk monotonic =
+        (ObserverDoubleSdk) meter.observerDoubleBuilder(NAME).setMonotonic(true).build();
+    assertThat(monotonic.getMetricDescriptor().getType()).isEqualTo(Type.MONOTONIC_DOUBLE);
+  }
+
+  @Test
+  public void callbackRunByCollection() {
+    final ObserverDoubleSdk observer =
+        (ObserverDoubleSdk)
+            meter
+                .observerDoubleBuilder(NAME)
+                .setLabelKeys(Collections.singletonList("key"))
+                .build();
+    observer.setCallback(
+        new Observer.Callback<ObserverDouble.Result>() {
+          @Override
+          public void update(ObserverDouble.Result result) {
+            result.put(observer.getHandle(LABEL_VALUES), 4.2);
+            result.put(observer.getDefaultHandle(), 0.7);
+          }
+        });
+    assertThat(observer.getHandle(LABEL_VALUES).getValue()).isEqualTo(0.0);
+    meter.getMetricProducer().getAllMetrics();
+    assertThat(observer.getHandle(LABEL_VALUES).getValue()).isEqualTo(4.2);
+    assertThat(observer.getDefaultHandle().getValue()).isEqualTo(0.7);
+  }
+
+  @Test
+  public void put_HandleFromOtherImplementation() {
+    ObserverDoubleSdk observer = (ObserverDoubleSdk) meter.observerDoubleBuilder(NAME).build();
+    final ObserverDouble.Result[] results = new ObserverDouble.Result[1];
+    observer.setCallback(
+        new Observer.Callback<ObserverDouble.Result>() {
+          @Override
+          public void update(ObserverDouble.Result result) {
+            results[0] = result;
+          }
+        });
+    meter.getMetricProducer().getAllMetrics();
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("The handle was not created by the MeterSdk.");
+    results[0].put(new ObserverDouble.Handle() {}, 4.2);
+  }
+
+  @Test
+  public void setCallback_NullCallback() {
+    ObserverDoubleSdk observer = (ObserverDoubleSdk) meter.observerDoubleBuilder(NAME).build();
+    thrown.expect(NullPointerException.class);
+    thrown.expectMessage("metricUpdater");
+    observer.setCallback(null);
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.opentelemetry.metrics.Observer;
+import io.opentelemetry.metrics.ObserverLong;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ObserverScheduler}. */
+@RunWith(JUnit4.class)
+public class ObserverSchedulerTest {
+  private static final long CALLBACK_TIMEOUT_MILLIS = 100;
+  private static final String SKIPPED = "observer_scheduler.skipped_callbacks";
+  private static final String TIMED_OUT = "observer_scheduler.timed_out_callbacks";
+
+  private final MeterSdk meter =
+      MeterSdk.newBuilder().setObserverCallbackTimeoutMillis(CALLBACK_TIMEOUT_MILLIS).build();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    release.countDown();
+  }
+
+  @Test
+  public void noObservers_NoSelfMetrics() {
+    meter.observerLongBuilder("observer").build();
+    Collection<MetricData> metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(metrics).hasSize(1);
+  }
+
+  @Test(timeout = 10000L)
+  public void slowCallback_TimesOutThenSkipped() throws InterruptedException {
+    final ObserverLongSdk slow = (ObserverLongSdk) meter.observerLongBuilder("slow").build();
+    final CountDownLatch started = new CountDownLatch(1);
+    slow.setCallback(
+        new Observer.Callback<ObserverLong.Result>() {
+          @Override
+          public void update(ObserverLong.Result result) {
+            started.countDown();
+            // Keeps running after it is interrupted.
+            Uninterruptibles.awaitUninterruptibly(release);
+            result.put(slow.getDefaultHandle(), 42);
+          }
+        });
+    final AtomicInteger fastCalls = new AtomicInteger();
+    final ObserverLongSdk fast = (ObserverLongSdk) meter.observerLongBuilder("fast").build();
+    fast.setCallback(
+        new Observer.Callback<ObserverLong.Result>() {
+          @Override
+          public void update(ObserverLong.Result result) {
+            result.put(fast.getDefaultHandle(), fastCalls.incrementAndGet());
+          }
+        });
+
+    // The collection waits for the slow callback at most the timeout.
+    long startNanos = System.nanoTime();
+    Collection<MetricData> metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+        .isAtLeast(CALLBACK_TIMEOUT_MILLIS);
+    assertThat(started.await(0, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(getCount(metrics, TIMED_OUT, "slow")).isEqualTo(1L);
+    assertThat(getCount(metrics, SKIPPED, "slow")).isEqualTo(0L);
+    assertThat(fast.getDefaultHandle().getValue()).isEqualTo(1L);
+
+    // The slow callback is still running, so it is skipped.
+    metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(getCount(metrics, TIMED_OUT, "slow")).isEqualTo(1L);
+    assertThat(getCount(metrics, SKIPPED, "slow")).isEqualTo(1L);
+    assertThat(fast.getDefaultHandle().getValue()).isEqualTo(2L);
+    assertThat(slow.getDefaultHandle().getValue()).isEqualTo(0L);
+
+    // Once it finished, the value it put is reported and the callback runs again.
+    release.countDown();
+    while (!slow.tryStartCallback()) {
+      Thread.sleep(1);
+    }
+    slow.runCallback();
+    assertThat(slow.getDefaultHandle().getValue()).isEqualTo(42L);
+    metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(getCount(metrics, TIMED_OUT, "slow")).isEqualTo(1L);
+    assertThat(getCount(metrics, SKIPPED, "slow")).isEqualTo(1L);
+  }
+
+  @Test(timeout = 10000L)
+  public void slowCallback_Interrupted() throws InterruptedException {
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    ObserverLong slow = meter.observerLongBuilder("slow").build();
+    slow.setCallback(
+        new Observer.Callback<ObserverLong.Result>() {
+          @Override
+          public void update(ObserverLong.Result result) {
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              interrupted.countDown();
+            }
+          }
+        });
+
+    Collection<MetricData> metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(getCount(metrics, TIMED_OUT, "slow")).isEqualTo(1L);
+    interrupted.await();
+  }
+
+  @Test(timeout = 10000L)
+  public void queuedCallback_SkippedThenRun() throws InterruptedException {
+    MeterSdk singleThreadMeter =
+        MeterSdk.newBuilder()
+            .setObserverCallbackTimeoutMillis(CALLBACK_TIMEOUT_MILLIS)
+            .setObserverCallbackThreads(1)
+            .build();
+    final ObserverLongSdk slow =
+        (ObserverLongSdk) singleThreadMeter.observerLongBuilder("slow").build();
+    slow.setCallback(
+        new Observer.Callback<ObserverLong.Result>() {
+          @Override
+          public void update(ObserverLong.Result result) {
+            Uninterruptibles.awaitUninterruptibly(release);
+          }
+        });
+    final AtomicInteger queuedCalls = new AtomicInteger();
+    final ObserverLongSdk queued =
+        (ObserverLongSdk) singleThreadMeter.observerLongBuilder("queued").build();
+    queued.setCallback(
+        new Observer.Callback<ObserverLong.Result>() {
+          @Override
+          public void update(ObserverLong.Result result) {
+            queuedCalls.incrementAndGet();
+          }
+        });
+
+    // The only thread runs the slow callback, the other one never starts.
+    Collection<MetricData> metrics = singleThreadMeter.getMetricProducer().getAllMetrics();
+    assertThat(getCount(metrics, TIMED_OUT, "slow")).isEqualTo(1L);
+    assertThat(getCount(metrics, SKIPPED, "queued")).isEqualTo(1L);
+    assertThat(getCount(metrics, TIMED_OUT, "queued")).isEqualTo(0L);
+    assertThat(queuedCalls.get()).isEqualTo(0);
+
+    // It is not marked as running anymore, so it runs once the thread is free.
+    release.countDown();
+    while (!slow.tryStartCallback()) {
+      Thread.sleep(1);
+    }
+    slow.abandonCallback();
+    singleThreadMeter.getMetricProducer().getAllMetrics();
+    assertThat(queuedCalls.get()).isEqualTo(1);
+  }
+
+  @Test(timeout = 10000L)
+  public void callbackThrows_OtherCallbacksRun() {
+    ObserverLong failing = meter.observerLongBuilder("failing").build();
+    failing.setCallback(
+        new Observer.Callback<ObserverLong.Result>() {
+          @Override
+          public void update(ObserverLong.Result result) {
+            throw new IllegalStateException("callback failed");
+          }
+        });
+    final ObserverLongSdk observer = (ObserverLongSdk) meter.observerLongBuilder("other").build();
+    observer.setCallback(
+        new Observer.Callback<ObserverLong.Result>() {
+          @Override
+          public void update(ObserverLong.Result result) {
+            result.put(observer.getDefaultHandle(), 7);
+          }
+        });
+    Collection<MetricData> metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(observer.getDefaultHandle().getValue()).isEqualTo(7L);
+    assertThat(getCount(metrics, TIMED_OUT, "failing")).isEqualTo(0L);
+    // The failed callback runs again at the next collection.
+    metrics = meter.getMetricProducer().getAllMetrics();
+    assertThat(getCount(metrics, SKIPPED, "failing")).isEqualTo(0L);
+  }
+
+  @Test
+  public void setCallbackTwice_RunOnce() {
+    final AtomicInteger calls = new AtomicInteger();
+    ObserverLong observer = meter.observerLongBuilder("observer").build();
+    Observer.Callback<ObserverLong.Result> callback =
+        new Observer.Callback<ObserverLong.Result>() {
+          @Override
+          public void update(ObserverLong.Result result) {
+            calls.incrementAndGet();
+          }
+        };
+    observer.setCallback(callback);
+    observer.setCallback(callback);
+    meter.getMetricProducer().getAllMetrics();
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
+  private static long getCount(Collection<MetricData> metrics, String name, String observer) {
+    for (MetricData metricData : metrics) {
+      if (!metricData.getMetricDescriptor().getName().equals(name)) {
+        continue;
+      }
+      for (MetricData.Point point : metricData.getPoints()) {
+        if (point.getLabelValues().equals(Collections.singletonList(observer))) {
+          return ((MetricData.LongPoint) point).getValue();
+        }
+      }
+      return 0;
+    }
+    throw new AssertionError("No metric " + name);
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.metrics.export;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.metrics.CounterLong;
+import io.opentelemetry.sdk.metrics.MeterSdk;
+import io.opentelemetry.sdk.metrics.MetricData;
+import io.opentelemetry.sdk.metrics.Temporality;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PeriodicMetricReader}. */
+@RunWith(JUnit4.class)
+public class PeriodicMetricReaderTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  private final MeterSdk meter = MeterSdk.newBuilder().setTemporality(Temporality.DELTA).build();
+  private final CounterLong counter = meter.counterLongBuilder("counter").build();
+  private final WaitingMetricExporter exporter = new WaitingMetricExporter();
+
+  @Test(timeout = 10000L)
+  public void exportsPeriodically() {
+    counter.getDefaultHandle().add(5);
+    PeriodicMetricReader reader =
+        PeriodicMetricReader.newBuilder(meter.getMetricProducer(), exporter)
+            .setExportIntervalMillis(10)
+            .build();
+    try {
+      List<Collection<MetricData>> exports = exporter.waitForExports(2);
+      assertThat(exports).isNotNull();
+      assertThat(getValue(exports.get(0))).isEqualTo(5L);
+      // Nothing was recorded since the first export.
+      assertThat(exports.get(1).iterator().next().getPoints()).isEmpty();
+    } finally {
+      reader.shutdown();
+    }
+  }
+
+  @Test(timeout = 10000L)
+  public void shutdown_ExportsAndShutsDownExporter() {
+    PeriodicMetricReader reader =
+        PeriodicMetricReader.newBuilder(meter.getMetricProducer(), exporter).build();
+    counter.getDefaultHandle().add(3);
+    reader.shutdown();
+    List<Collection<MetricData>> exports = exporter.waitForExports(1);
+    assertThat(exports).hasSize(1);
+    assertThat(getValue(exports.get(0))).isEqualTo(3L);
+    assertThat(exporter.isShutdown()).isTrue();
+  }
+
+  @Test(timeout = 10000L)
+  public void exporterThrows() {
+    exporter.throwOnFirstExport = true;
+    PeriodicMetricReader reader =
+        PeriodicMetricReader.newBuilder(meter.getMetricProducer(), exporter)
+            .setExportIntervalMillis(10)
+            .build();
+    try {
+      // The exports continue after the exception.
+      assertThat(exporter.waitForExports(1)).isNotNull();
+    } finally {
+      reader.shutdown();
+    }
+  }
+
+  @Test
+  public void setExportIntervalMillis_NotPositive() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("exportIntervalMillis must be positive.");
+    PeriodicMetricReader.newBuilder(meter.getMetricProducer(), exporter).setExportIntervalMillis(0);
+  }
+
+  @Test
+  public void newBuilder_NullExporter() {
+    thrown.expect(NullPointerException.class);
+    thrown.expectMessage("metricExporter");
+    PeriodicMetricReader.newBuilder(meter.getMetricProducer(), null);
+  }
+
+  private static long getValue(Collection<MetricData> metrics) {
+    assertThat(metrics).hasSize(1);
+    List<MetricData.Point> points = metrics.iterator().next().getPoints();
+    assertThat(points).hasSize(1);
+    return ((MetricData.LongPoint) points.get(0)).getValue();
+  }
+
+  private static final class WaitingMetricExporter implements MetricExporter {
+    private final Object monitor = new Object();
+
+    @GuardedBy("monitor")
+    private final List<Collection<MetricData>> exports = new ArrayList<>();
+
+    @GuardedBy("monitor")
+    private boolean shutdown;
+
+    private volatile boolean throwOnFirstExport;
+
+    /**
+     * Waits until the given number of exports, returns them or {@code null} if the current thread
+     * is interrupted.
+     */
+    @Nullable
+    List<Collection<MetricData>> waitForExports(int numberOfExports) {
+      synchronized (monitor) {
+        while (exports.size() < numberOfExports) {
+          try {
+            monitor.wait();
+          } catch (InterruptedException e) {
+            // Preserve the interruption status as per guidance.
+            Thread.currentThread().interrupt();
+            return null;
+          }
+        }
+        return new ArrayList<>(exports);
+      }
+    }
+
+    boolean isShutdown() {
+      synchronized (monitor) {
+        return shutdown;
+      }
+    }
+
+    @Override
+    public ResultCode export(Collection<MetricData> metrics) {
+      if (throwOnFirstExport) {
+        throwOnFirstExport = false;
+        throw new IllegalStateException("Export failed.");
+      }
+      synchronized (monitor) {
+        exports.add(metrics);
+        monitor.notifyAll();
+      }
+      return ResultCode.SUCCESS;
+    }
+
+    @Override
+    public void shutdown() {
+      synchronized (monitor) {
+        shutdown = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.trace.AttributeValue;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AttributesTable}. */
+@RunWith(JUnit4.class)
+public class AttributesTableTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void putAndGet() {
+    AttributesTable table = new AttributesTable(32);
+    table.putString("string", "value");
+    table.putBoolean("boolean", true);
+    table.putLong("long", 123L);
+    table.putDouble("double", 1.5);
+    table.putAttributeValue("attributeValue", AttributeValue.longAttributeValue(7L));
+
+    Map<String, AttributeValue> map = table.asMap();
+    assertThat(map).hasSize(5);
+    assertThat(map.get("string")).isEqualTo(AttributeValue.stringAttributeValue("value"));
+    assertThat(map.get("boolean")).isEqualTo(AttributeValue.booleanAttributeValue(true));
+    assertThat(map.get("long")).isEqualTo(AttributeValue.longAttributeValue(123L));
+    assertThat(map.get("double")).isEqualTo(AttributeValue.doubleAttributeValue(1.5));
+    assertThat(map.get("attributeValue")).isEqualTo(AttributeValue.longAttributeValue(7L));
+    assertThat(map.get("missing")).isNull();
+    assertThat(map.containsKey("long")).isTrue();
+    assertThat(map.containsKey("missing")).isFalse();
+    assertThat(map.keySet())
+        .containsExactly("string", "boolean", "long", "double", "attributeValue")
+        .inOrder();
+  }
+
+  @Test
+  public void empty() {
+    AttributesTable table = new AttributesTable(32);
+    assertThat(table.asMap()).isEmpty();
+    assertThat(table.asMap().get("key")).isNull();
+    assertThat(table.snapshot()).isEmpty();
+  }
+
+  @Test
+  public void putExistingKey_MakesItNewest() {
+    AttributesTable table = new AttributesTable(3);
+    table.putLong("a", 1L);
+    table.putLong("b", 2L);
+    table.putLong("c", 3L);
+    table.putLong("a", 4L);
+    assertThat(table.asMap().keySet()).containsExactly("b", "c", "a").inOrder();
+
+    // The eldest entry is now "b".
+    table.putLong("d", 5L);
+    Map<String, AttributeValue> expected = new LinkedHashMap<>();
+    expected.put("c", AttributeValue.longAttributeValue(3L));
+    expected.put("a", AttributeValue.longAttributeValue(4L));
+    expected.put("d", AttributeValue.longAttributeValue(5L));
+    assertThat(table.asMap()).containsExactlyEntriesIn(expected).inOrder();
+    // Overwrites are counted like in the previous LinkedHashMap based implementation.
+    assertThat(table.getNumberOfDroppedAttributes()).isEqualTo(2);
+  }
+
+  @Test
+  public void dropsEldest() {
+    AttributesTable table = new AttributesTable(8);
+    for (int i = 0; i < 20; i++) {
+      table.putLong("key" + i, i);
+    }
+    assertThat(table.size()).isEqualTo(8);
+    assertThat(table.getNumberOfDroppedAttributes()).isEqualTo(12);
+    List<String> expectedKeys = new ArrayList<>();
+    for (int i = 12; i < 20; i++) {
+      expectedKeys.add("key" + i);
+      assertThat(table.asMap().get("key" + i)).isEqualTo(AttributeValue.longAttributeValue(i));
+    }
+    assertThat(table.asMap().keySet()).containsExactlyElementsIn(expectedKeys).inOrder();
+    assertThat(table.asMap().get("key11")).isNull();
+  }
+
+  // Compares random operations with the behavior of an access ordered LinkedHashMap.
+  @Test
+  public void randomOperations_SameAsLinkedHashMap() {
+    Random random = new Random(1234);
+    for (final int capacity : new int[] {1, 3, 8, 13, 32}) {
+      Map<String, AttributeValue> expected =
+          new LinkedHashMap<String, AttributeValue>(capacity + 1, 1, /*accessOrder=*/ true) {
+            private static final long serialVersionUID = 42L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AttributeValue> eldest) {
+              return size() > capacity;
+            }
+          };
+      AttributesTable table = new AttributesTable(capacity);
+      for (int i = 0; i < 2000; i++) {
+        String key = "key" + random.nextInt(2 * capacity + 3);
+        long value = random.nextLong();
+        expected.put(key, AttributeValue.longAttributeValue(value));
+        table.putLong(key, value);
+        // Copied because reading an access ordered map changes its order.
+        assertThat(table.asMap()).containsExactlyEntriesIn(new LinkedHashMap<>(expected)).inOrder();
+      }
+    }
+  }
+
+  @Test
+  public void snapshot_CopiesActiveTable() {
+    AttributesTable table = new AttributesTable(8);
+    table.putLong("a", 1L);
+    Map<String, AttributeValue> snapshot = table.snapshot();
+    table.putLong("b", 2L);
+    assertThat(snapshot).containsExactly("a", AttributeValue.longAttributeValue(1L));
+    assertThat(snapshot).isInstanceOf(AttributesTable.ImmutableMapView.class);
+  }
+
+  @Test
+  public void freeze() {
+    AttributesTable table = new AttributesTable(8);
+    table.putLong("a", 1L);
+    table.freeze();
+    assertThat(table.snapshot()).containsExactly("a", AttributeValue.longAttributeValue(1L));
+    thrown.expect(IllegalStateException.class);
+    table.putLong("b", 2L);
+  }
+
+  @Test
+  public void freeze_BoxesValuesOnce() {
+    AttributesTable table = new AttributesTable(8);
+    table.putLong("a", 1L);
+    table.putBoolean("b", true);
+    table.freeze();
+    Map<String, AttributeValue> snapshot = table.snapshot();
+    assertThat(snapshot.get("a")).isSameInstanceAs(table.snapshot().get("a"));
+    assertThat(snapshot.entrySet().iterator().next().getValue())
+        .isSameInstanceAs(snapshot.get("a"));
+    assertThat(snapshot.get("b")).isEqualTo(AttributeValue.booleanAttributeValue(true));
+  }
+
+  @Test
+  public void putExistingKey_KeepsIndexOfShiftedEntries() {
+    AttributesTable table = new AttributesTable(4);
+    table.putLong("a", 1L);
+    table.putLong("b", 2L);
+    table.putLong("c", 3L);
+    table.putLong("a", 4L);
+    table.putLong("d", 5L);
+    // Drops b, the eldest after a moved.
+    table.putLong("e", 6L);
+    assertThat(table.asMap())
+        .containsExactly(
+            "c",
+            AttributeValue.longAttributeValue(3L),
+            "a",
+            AttributeValue.longAttributeValue(4L),
+            "d",
+            AttributeValue.longAttributeValue(5L),
+            "e",
+            AttributeValue.longAttributeValue(6L))
+        .inOrder();
+    assertThat(table.asMap()).doesNotContainKey("b");
+  }
+
+  @Test
+  public void view_IsReadOnly() {
+    AttributesTable table = new AttributesTable(8);
+    table.putLong("a", 1L);
+    thrown.expect(UnsupportedOperationException.class);
+    table.asMap().put("b", AttributeValue.longAttributeValue(2L));
+  }
+
+  @Test
+  public void view_EqualsHashMap() {
+    AttributesTable table = new AttributesTable(8);
+    table.putString("a", "value");
+    table.putDouble("b", 2.0);
+    Map<String, AttributeValue> expected = new LinkedHashMap<>();
+    expected.put("b", AttributeValue.doubleAttributeValue(2.0));
+    expected.put("a", AttributeValue.stringAttributeValue("value"));
+    assertThat(table.snapshot()).isEqualTo(expected);
+    assertThat(expected).isEqualTo(table.snapshot());
+    assertThat(table.snapshot().hashCode()).isEqualTo(expected.hashCode());
+  }
+}
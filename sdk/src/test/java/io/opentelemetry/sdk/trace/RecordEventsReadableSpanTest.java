@@ -33,6 +33,7 @@ import io.opentelemetry.trace.Status;
 import io.opentelemetry.trace.TraceFlags;
 import io.opentelemetry.trace.TraceId;
 import io.opentelemetry.trace.Tracestate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -40,6 +41,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
@@ -423,6 +426,148 @@ public class RecordEventsReadableSpanTest {
     }
   }
 
+  @Test(timeout = 10000L)
+  public void toSpanData_ConcurrentWithRecording() throws Exception {
+    final RecordEventsReadableSpan span = createTestSpan(Kind.INTERNAL);
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<Throwable> readerFailure = new AtomicReference<>();
+    Thread reader =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  while (!done.get()) {
+                    SpanData spanData = span.toSpanData();
+                    assertThat(spanData.getAttributes().size()).isAtMost(1000);
+                  }
+                } catch (Throwable t) {
+                  readerFailure.set(t);
+                }
+              }
+            });
+    reader.start();
+    for (int i = 0; i < 1000; i++) {
+      span.setAttribute("MyLongAttributeKey" + i, i);
+      span.addEvent("event" + i);
+    }
+    span.end();
+    done.set(true);
+    reader.join();
+    assertThat(readerFailure.get()).isNull();
+  }
+
+  @Test(timeout = 10000L)
+  public void toSpanData_EndedSpanFromOtherThread() throws Exception {
+    final RecordEventsReadableSpan span = createTestSpan(Kind.INTERNAL);
+    spanDoWork(span, Status.CANCELLED);
+    span.end();
+    final AtomicReference<SpanData> spanData = new AtomicReference<>();
+    Thread reader =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                spanData.set(span.toSpanData());
+              }
+            });
+    reader.start();
+    reader.join();
+    assertThat(spanData.get().getName()).isEqualTo(SPAN_NEW_NAME);
+    assertThat(spanData.get().getAttributes()).isEqualTo(expectedAttributes);
+    assertThat(spanData.get().getStatus()).isEqualTo(Status.CANCELLED);
+    assertThat(spanData.get().getEndEpochNanos()).isEqualTo(testClock.now());
+  }
+
+  @Test(timeout = 10000L)
+  public void addChild_ConcurrentThreads() throws Exception {
+    final RecordEventsReadableSpan span = createTestSpan(Kind.INTERNAL);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int j = 0; j < 1000; j++) {
+                    span.addChild();
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(span.getNumberOfChildren()).isEqualTo(4000);
+    span.end();
+  }
+
+  @Test(timeout = 10000L)
+  public void recordFromOwnerAndOtherThreads() throws Exception {
+    final RecordEventsReadableSpan span =
+        createTestSpan(TraceConfig.getDefault().toBuilder().setMaxNumberOfAttributes(4000).build());
+    span.setAttribute("owner_before", 1);
+    Thread other =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                for (int i = 0; i < 1000; i++) {
+                  span.setAttribute("other_" + i, i);
+                }
+              }
+            });
+    other.start();
+    for (int i = 0; i < 1000; i++) {
+      span.setAttribute("owner_" + i, i);
+    }
+    other.join();
+    span.updateName(SPAN_NEW_NAME);
+    span.end();
+    SpanData spanData = span.toSpanData();
+    assertThat(spanData.getName()).isEqualTo(SPAN_NEW_NAME);
+    assertThat(spanData.getAttributes()).hasSize(2001);
+    assertThat(spanData.getAttributes())
+        .containsEntry("other_999", AttributeValue.longAttributeValue(999));
+    assertThat(spanData.getAttributes())
+        .containsEntry("owner_999", AttributeValue.longAttributeValue(999));
+  }
+
+  @Test(timeout = 10000L)
+  public void endFromOtherThread() throws Exception {
+    final RecordEventsReadableSpan span = createTestSpan(Kind.INTERNAL);
+    spanDoWork(span, Status.CANCELLED);
+    Thread other =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                span.end();
+              }
+            });
+    other.start();
+    other.join();
+    // The owner now accesses the span under the lock, the span is already ended.
+    span.setAttribute("ignored", 1);
+    span.end();
+    Mockito.verify(spanProcessor, Mockito.times(1)).onEnd(span);
+    assertThat(span.toSpanData().getAttributes()).isEqualTo(expectedAttributes);
+    assertThat(span.getStatus()).isEqualTo(Status.CANCELLED);
+  }
+
+  @Test
+  public void recordShared() {
+    RecordEventsReadableSpan span = createTestSpan(Kind.INTERNAL);
+    span.share();
+    spanDoWork(span, Status.CANCELLED);
+    span.end();
+    assertThat(span.toSpanData().getAttributes()).isEqualTo(expectedAttributes);
+    assertThat(span.getName()).isEqualTo(SPAN_NEW_NAME);
+    assertThat(span.getStatus()).isEqualTo(Status.CANCELLED);
+  }
+
   private RecordEventsReadableSpan createTestSpanWithAttributes(
       Map<String, AttributeValue> attributes) {
     return createTestSpan(Kind.INTERNAL, TraceConfig.getDefault(), null, attributes);
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.Range;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ThreadLocalIdsGenerator}. */
+@RunWith(JUnit4.class)
+public class ThreadLocalIdsGeneratorTest {
+  private static final int IDS_PER_THREAD = 50_000;
+
+  private final ThreadLocalIdsGenerator idsGenerator =
+      new ThreadLocalIdsGenerator(new SecureRandom());
+
+  @Test
+  public void generateIds_Valid() {
+    for (int i = 0; i < 1000; i++) {
+      assertThat(idsGenerator.generateSpanId().isValid()).isTrue();
+      assertThat(idsGenerator.generateTraceId().isValid()).isTrue();
+    }
+  }
+
+  @Test(timeout = 10000L)
+  public void generateIds_UniqueAcrossThreads() throws InterruptedException {
+    final Set<SpanId> spanIds = Collections.newSetFromMap(new ConcurrentHashMap<SpanId, Boolean>());
+    final Set<TraceId> traceIds =
+        Collections.newSetFromMap(new ConcurrentHashMap<TraceId, Boolean>());
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int j = 0; j < IDS_PER_THREAD; j++) {
+                    spanIds.add(idsGenerator.generateSpanId());
+                    traceIds.add(idsGenerator.generateTraceId());
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(spanIds).hasSize(4 * IDS_PER_THREAD);
+    assertThat(traceIds).hasSize(4 * IDS_PER_THREAD);
+  }
+
+  @Test
+  public void threadsGetDifferentSequences() throws InterruptedException {
+    final List<SpanId> otherThreadIds = new ArrayList<>();
+    Thread thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                for (int i = 0; i < 100; i++) {
+                  otherThreadIds.add(idsGenerator.generateSpanId());
+                }
+              }
+            });
+    thread.start();
+    thread.join();
+    Set<SpanId> ids = new HashSet<>(otherThreadIds);
+    for (int i = 0; i < 100; i++) {
+      ids.add(idsGenerator.generateSpanId());
+    }
+    assertThat(ids).hasSize(200);
+  }
+
+  // Every bit of the generated values must be set about half of the time.
+  @Test
+  public void xorShift128Plus_BitsAreBalanced() {
+    ThreadLocalIdsGenerator.XorShift128Plus random =
+        new ThreadLocalIdsGenerator.XorShift128Plus(1, 2);
+    int samples = 100_000;
+    int[] setBits = new int[64];
+    for (int i = 0; i < samples; i++) {
+      long value = random.nextLong();
+      for (int bit = 0; bit < 64; bit++) {
+        if ((value & (1L << bit)) != 0) {
+          setBits[bit]++;
+        }
+      }
+    }
+    // About 7 standard deviations, the test doesn't fail by chance.
+    for (int bit = 0; bit < 64; bit++) {
+      assertThat(setBits[bit]).isIn(Range.closed(48_900, 51_100));
+    }
+  }
+
+  @Test
+  public void xorShift128Plus_ZeroSeeds() {
+    ThreadLocalIdsGenerator.XorShift128Plus random =
+        new ThreadLocalIdsGenerator.XorShift128Plus(0, 0);
+    Set<Long> values = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add(random.nextLong());
+    }
+    assertThat(values).hasSize(1000);
+  }
+
+  @Test
+  public void xorShift128Plus_SameSeedsSameSequence() {
+    ThreadLocalIdsGenerator.XorShift128Plus random1 =
+        new ThreadLocalIdsGenerator.XorShift128Plus(42, 43);
+    ThreadLocalIdsGenerator.XorShift128Plus random2 =
+        new ThreadLocalIdsGenerator.XorShift128Plus(42, 43);
+    for (int i = 0; i < 100; i++) {
+      assertThat(random1.nextLong()).isEqualTo(random2.nextLong());
+    }
+  }
+
+  @Test
+  public void seedSourceUsedOncePerThread() {
+    final int[] calls = new int[1];
+    ThreadLocalIdsGenerator generator =
+        new ThreadLocalIdsGenerator(
+            new Random(1234) {
+              private static final long serialVersionUID = 42L;
+
+              @Override
+              public long nextLong() {
+                calls[0]++;
+                return super.nextLong();
+              }
+            });
+    for (int i = 0; i < 100; i++) {
+      generator.generateSpanId();
+      generator.generateTraceId();
+    }
+    assertThat(calls[0]).isEqualTo(2);
+  }
+}
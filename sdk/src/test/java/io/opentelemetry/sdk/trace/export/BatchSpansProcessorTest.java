@@ -98,6 +98,37 @@ public class BatchSpansProcessorTest {
     assertThat(exported).containsExactly(span1.toSpanData(), span2.toSpanData());
   }
 
+  @Test
+  public void exportDifferentSampledSpans_ConvertOnEnd() {
+    tracerSdkFactory.addSpanProcessor(
+        BatchSpansProcessor.newBuilder(waitingSpanExporter)
+            .setScheduleDelayMillis(MAX_SCHEDULE_DELAY_MILLIS)
+            .setConvertOnEnd(true)
+            .build());
+
+    ReadableSpan span1 = createSampledEndedSpan(SPAN_NAME_1);
+    ReadableSpan span2 = createSampledEndedSpan(SPAN_NAME_2);
+    List<SpanData> exported = waitingSpanExporter.waitForExport(2);
+    assertThat(exported).containsExactly(span1.toSpanData(), span2.toSpanData());
+  }
+
+  @Test
+  public void exportMoreSpansThanTheBufferSize_ConversionThreads() {
+    final int numberOfSpans = 300;
+    tracerSdkFactory.addSpanProcessor(
+        BatchSpansProcessor.newBuilder(waitingSpanExporter)
+            .setScheduleDelayMillis(MAX_SCHEDULE_DELAY_MILLIS)
+            .setConversionThreads(2)
+            .build());
+
+    List<SpanData> spansToExport = new ArrayList<>(numberOfSpans);
+    for (int i = 0; i < numberOfSpans; i++) {
+      spansToExport.add(createSampledEndedSpan(SPAN_NAME_1 + i).toSpanData());
+    }
+    List<SpanData> exported = waitingSpanExporter.waitForExport(numberOfSpans);
+    assertThat(exported).containsExactlyElementsIn(spansToExport).inOrder();
+  }
+
   @Test
   public void exportMoreSpansThanTheBufferSize() {
     tracerSdkFactory.addSpanProcessor(
@@ -145,13 +176,14 @@ public class BatchSpansProcessorTest {
   @Test
   public void exportMoreSpansThanTheMaximumLimit() {
     final int maxQueuedSpans = 8;
-    tracerSdkFactory.addSpanProcessor(
+    BatchSpansProcessor batchSpansProcessor =
         BatchSpansProcessor.newBuilder(
                 MultiSpanExporter.create(Arrays.asList(blockingSpanExporter, waitingSpanExporter)))
             .setScheduleDelayMillis(MAX_SCHEDULE_DELAY_MILLIS)
             .setMaxQueueSize(maxQueuedSpans)
             .setMaxExportBatchSize(maxQueuedSpans / 2)
-            .build());
+            .build();
+    tracerSdkFactory.addSpanProcessor(batchSpansProcessor);
 
     List<SpanData> spansToExport = new ArrayList<>(maxQueuedSpans + 1);
     // Wait to block the worker thread in the BatchSampledSpansProcessor. This ensures that no items
@@ -165,15 +197,17 @@ public class BatchSpansProcessorTest {
       spansToExport.add(createSampledEndedSpan("span_1_" + i).toSpanData());
     }
 
-    // TODO: assertThat(spanExporter.getReferencedSpans()).isEqualTo(maxQueuedSpans);
+    assertThat(batchSpansProcessor.getStatistics().getQueueSize()).isEqualTo(maxQueuedSpans);
 
     // Now we should start dropping.
     for (int i = 0; i < 7; i++) {
       createSampledEndedSpan("span_2_" + i);
-      // TODO: assertThat(getDroppedSpans()).isEqualTo(i + 1);
+      assertThat(batchSpansProcessor.getStatistics().getDroppedSpans()).isEqualTo((long) i + 1);
     }
 
-    // TODO: assertThat(getReferencedSpans()).isEqualTo(maxQueuedSpans);
+    assertThat(batchSpansProcessor.getStatistics().getQueueSize()).isEqualTo(maxQueuedSpans);
+    assertThat(batchSpansProcessor.getStatistics().getEnqueuedSpans())
+        .isEqualTo((long) maxQueuedSpans + 1);
 
     // Release the blocking exporter
     blockingSpanExporter.unblock();
@@ -188,12 +222,13 @@ public class BatchSpansProcessorTest {
     // We cannot compare with maxReferencedSpans here because the worker thread may get
     // unscheduled immediately after exporting, but before updating the pushed spans, if that is
     // the case at most bufferSize spans will miss.
-    // TODO: assertThat(getPushedSpans()).isAtLeast((long) maxQueuedSpans - maxBatchSize);
+    assertThat(batchSpansProcessor.getStatistics().getExportedSpans())
+        .isAtLeast((long) maxQueuedSpans / 2);
 
     for (int i = 0; i < maxQueuedSpans; i++) {
       spansToExport.add(createSampledEndedSpan("span_3_" + i).toSpanData());
       // No more dropped spans.
-      // TODO: assertThat(getDroppedSpans()).isEqualTo(7);
+      assertThat(batchSpansProcessor.getStatistics().getDroppedSpans()).isEqualTo(7L);
     }
 
     exported = waitingSpanExporter.waitForExport(maxQueuedSpans);
@@ -222,6 +257,85 @@ public class BatchSpansProcessorTest {
     assertThat(exported).containsExactly(span2.toSpanData());
   }
 
+  @Test
+  public void statistics_FailedExports() {
+    doThrow(new IllegalArgumentException("No export for you."))
+        .when(mockServiceHandler)
+        .export(ArgumentMatchers.<SpanData>anyList());
+    BatchSpansProcessor batchSpansProcessor =
+        BatchSpansProcessor.newBuilder(mockServiceHandler).setScheduleDelayMillis(0).build();
+    tracerSdkFactory.addSpanProcessor(batchSpansProcessor);
+
+    createSampledEndedSpan(SPAN_NAME_1);
+    createSampledEndedSpan(SPAN_NAME_2);
+    // The worker thread waits until the queue is half full, shutdown flushes the queue in this
+    // thread so the statistics are updated when it returns.
+    tracerSdkFactory.shutdown();
+
+    BatchSpansProcessor.Statistics statistics = batchSpansProcessor.getStatistics();
+    assertThat(statistics.getEnqueuedSpans()).isEqualTo(2L);
+    assertThat(statistics.getDroppedSpans()).isEqualTo(0L);
+    assertThat(statistics.getExportedSpans()).isEqualTo(0L);
+    assertThat(statistics.getFailedSpans()).isEqualTo(2L);
+    assertThat(statistics.getFailedExports()).isEqualTo(1L);
+    assertThat(statistics.getQueueSize()).isEqualTo(0);
+    long latencyCount = 0;
+    for (long count : statistics.getExportLatencyBucketCounts()) {
+      latencyCount += count;
+    }
+    assertThat(latencyCount).isEqualTo(statistics.getFailedExports());
+    assertThat(statistics.getExportLatencyBucketCounts())
+        .hasSize(statistics.getExportLatencyBucketBoundaries().getBoundaries().size() + 1);
+  }
+
+  @Test
+  public void exportAsync_MaxInFlightExports() {
+    PendingSpanExporter pendingSpanExporter = new PendingSpanExporter();
+    BatchSpansProcessor batchSpansProcessor =
+        BatchSpansProcessor.newBuilder(pendingSpanExporter)
+            .setScheduleDelayMillis(MAX_SCHEDULE_DELAY_MILLIS)
+            .setMaxExportBatchSize(1)
+            .setMaxInFlightExports(2)
+            .build();
+    tracerSdkFactory.addSpanProcessor(batchSpansProcessor);
+
+    createSampledEndedSpan(SPAN_NAME_1);
+    createSampledEndedSpan(SPAN_NAME_1);
+    createSampledEndedSpan(SPAN_NAME_2);
+    List<CompletableResultCode> exports = pendingSpanExporter.waitForExports(2);
+    assertThat(exports.get(0).isDone()).isFalse();
+    assertThat(exports.get(1).isDone()).isFalse();
+    // The third export starts only after one of the in flight exports finishes.
+    exports.get(0).complete(SpanExporter.ResultCode.SUCCESS);
+    exports = pendingSpanExporter.waitForExports(3);
+    exports.get(1).complete(SpanExporter.ResultCode.SUCCESS);
+    exports.get(2).complete(SpanExporter.ResultCode.FAILED_RETRYABLE);
+    tracerSdkFactory.shutdown();
+
+    assertThat(pendingSpanExporter.getMaxInFlightExports()).isEqualTo(2);
+    BatchSpansProcessor.Statistics statistics = batchSpansProcessor.getStatistics();
+    assertThat(statistics.getExportedSpans()).isEqualTo(2L);
+    assertThat(statistics.getFailedSpans()).isEqualTo(1L);
+    assertThat(statistics.getFailedExports()).isEqualTo(1L);
+  }
+
+  @Test
+  public void exportAsync_ExporterThrowsException() {
+    PendingSpanExporter pendingSpanExporter = new PendingSpanExporter();
+    pendingSpanExporter.throwOnExport = true;
+    BatchSpansProcessor batchSpansProcessor =
+        BatchSpansProcessor.newBuilder(pendingSpanExporter).setScheduleDelayMillis(0).build();
+    tracerSdkFactory.addSpanProcessor(batchSpansProcessor);
+
+    createSampledEndedSpan(SPAN_NAME_1);
+    // Shutdown would wait forever if the permit of the failed export was not released.
+    tracerSdkFactory.shutdown();
+
+    BatchSpansProcessor.Statistics statistics = batchSpansProcessor.getStatistics();
+    assertThat(statistics.getFailedSpans()).isEqualTo(1L);
+    assertThat(statistics.getFailedExports()).isEqualTo(1L);
+  }
+
   @Test
   public void exportNotSampledSpans() {
     tracerSdkFactory.addSpanProcessor(
@@ -290,6 +404,85 @@ public class BatchSpansProcessorTest {
     assertThat(exported).containsExactly(span2.toSpanData());
   }
 
+  @Test(timeout = 10000L)
+  public void shutdownWaitsForWorkerExport() throws InterruptedException {
+    tracerSdkFactory.addSpanProcessor(
+        BatchSpansProcessor.newBuilder(
+                MultiSpanExporter.create(Arrays.asList(blockingSpanExporter, waitingSpanExporter)))
+            .setScheduleDelayMillis(0)
+            // Every span wakes up the worker thread.
+            .setMaxQueueSize(2)
+            .build());
+    ReadableSpan span1 = createSampledEndedSpan(SPAN_NAME_1);
+    blockingSpanExporter.waitUntilIsBlocked();
+    ReadableSpan span2 = createSampledEndedSpan(SPAN_NAME_2);
+
+    Thread shutdownThread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                tracerSdkFactory.shutdown();
+              }
+            });
+    shutdownThread.start();
+    // The worker is still exporting the first span.
+    shutdownThread.join(100);
+    assertThat(shutdownThread.isAlive()).isTrue();
+
+    blockingSpanExporter.unblock();
+    shutdownThread.join();
+    // The span queued during the worker's export is flushed after it, in order.
+    assertThat(waitingSpanExporter.waitForExport(2))
+        .containsExactly(span1.toSpanData(), span2.toSpanData())
+        .inOrder();
+  }
+
+  @Test(timeout = 10000L)
+  public void shutdown_ExportNeverReturns() {
+    BatchSpansProcessor batchSpansProcessor =
+        BatchSpansProcessor.newBuilder(blockingSpanExporter)
+            .setScheduleDelayMillis(0)
+            .setMaxQueueSize(2)
+            .setShutdownTimeoutMillis(100)
+            .build();
+    tracerSdkFactory.addSpanProcessor(batchSpansProcessor);
+    createSampledEndedSpan(SPAN_NAME_1);
+    blockingSpanExporter.waitUntilIsBlocked();
+    createSampledEndedSpan(SPAN_NAME_2);
+
+    try {
+      // Returns after the timeout while the worker thread is still exporting the first span.
+      tracerSdkFactory.shutdown();
+
+      BatchSpansProcessor.Statistics statistics = batchSpansProcessor.getStatistics();
+      assertThat(statistics.getExportedSpans()).isEqualTo(0L);
+      assertThat(statistics.getQueueSize()).isEqualTo(1);
+    } finally {
+      blockingSpanExporter.unblock();
+    }
+  }
+
+  @Test(timeout = 10000L)
+  public void shutdown_AsyncExportNeverCompletes() {
+    PendingSpanExporter pendingSpanExporter = new PendingSpanExporter();
+    BatchSpansProcessor batchSpansProcessor =
+        BatchSpansProcessor.newBuilder(pendingSpanExporter)
+            .setScheduleDelayMillis(0)
+            .setMaxQueueSize(2)
+            .setShutdownTimeoutMillis(100)
+            .build();
+    tracerSdkFactory.addSpanProcessor(batchSpansProcessor);
+    createSampledEndedSpan(SPAN_NAME_1);
+    List<CompletableResultCode> exports = pendingSpanExporter.waitForExports(1);
+
+    // Returns after the timeout while the export is still in flight.
+    tracerSdkFactory.shutdown();
+
+    assertThat(exports.get(0).isDone()).isFalse();
+    assertThat(batchSpansProcessor.getStatistics().getExportedSpans()).isEqualTo(0L);
+  }
+
   private static final class BlockingSpanExporter implements SpanExporter {
     final Object monitor = new Object();
 
@@ -344,6 +537,68 @@ public class BatchSpansProcessorTest {
     }
   }
 
+  // Records the asynchronous exports and lets the test complete them.
+  private static final class PendingSpanExporter implements AsyncSpanExporter {
+    private final Object monitor = new Object();
+
+    @GuardedBy("monitor")
+    private final List<CompletableResultCode> exports = new ArrayList<>();
+
+    @GuardedBy("monitor")
+    private int maxInFlightExports;
+
+    private volatile boolean throwOnExport;
+
+    @Override
+    public CompletableResultCode exportAsync(List<SpanData> spans) {
+      if (throwOnExport) {
+        throw new IllegalStateException("No export for you.");
+      }
+      CompletableResultCode result = new CompletableResultCode();
+      synchronized (monitor) {
+        exports.add(result);
+        int inFlightExports = 0;
+        for (CompletableResultCode export : exports) {
+          if (!export.isDone()) {
+            inFlightExports++;
+          }
+        }
+        maxInFlightExports = Math.max(maxInFlightExports, inFlightExports);
+        monitor.notifyAll();
+      }
+      return result;
+    }
+
+    @Override
+    public ResultCode export(List<SpanData> spans) {
+      return exportAsync(spans).join();
+    }
+
+    private List<CompletableResultCode> waitForExports(int numberOfExports) {
+      synchronized (monitor) {
+        while (exports.size() < numberOfExports) {
+          try {
+            monitor.wait();
+          } catch (InterruptedException e) {
+            // Do nothing
+          }
+        }
+        return new ArrayList<>(exports);
+      }
+    }
+
+    private int getMaxInFlightExports() {
+      synchronized (monitor) {
+        return maxInFlightExports;
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      // Do nothing;
+    }
+  }
+
   static final class WaitingSpanExporter implements SpanExporter {
     private final Object monitor = new Object();
 
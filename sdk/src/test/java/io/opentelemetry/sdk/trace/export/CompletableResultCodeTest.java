@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CompletableResultCode}. */
+@RunWith(JUnit4.class)
+public class CompletableResultCodeTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void complete() {
+    CompletableResultCode result = new CompletableResultCode();
+    assertThat(result.isDone()).isFalse();
+    assertThat(result.getResultCode()).isNull();
+    assertThat(result.complete(ResultCode.FAILED_RETRYABLE)).isTrue();
+    assertThat(result.isDone()).isTrue();
+    assertThat(result.getResultCode()).isEqualTo(ResultCode.FAILED_RETRYABLE);
+  }
+
+  @Test
+  public void complete_OnlyFirstCallHasEffect() {
+    CompletableResultCode result = new CompletableResultCode();
+    result.complete(ResultCode.SUCCESS);
+    assertThat(result.complete(ResultCode.FAILED_NOT_RETRYABLE)).isFalse();
+    assertThat(result.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+  }
+
+  @Test
+  public void complete_NullResultCode() {
+    thrown.expect(NullPointerException.class);
+    new CompletableResultCode().complete(null);
+  }
+
+  @Test
+  public void ofResultCode() {
+    CompletableResultCode result = CompletableResultCode.ofResultCode(ResultCode.SUCCESS);
+    assertThat(result.isDone()).isTrue();
+    assertThat(result.join()).isEqualTo(ResultCode.SUCCESS);
+  }
+
+  @Test
+  public void whenComplete() {
+    final AtomicInteger calls = new AtomicInteger();
+    Runnable action =
+        new Runnable() {
+          @Override
+          public void run() {
+            calls.incrementAndGet();
+          }
+        };
+    CompletableResultCode result = new CompletableResultCode();
+    result.whenComplete(action);
+    assertThat(calls.get()).isEqualTo(0);
+    result.complete(ResultCode.SUCCESS);
+    assertThat(calls.get()).isEqualTo(1);
+    // Already completed, runs immediately.
+    result.whenComplete(action);
+    assertThat(calls.get()).isEqualTo(2);
+    result.complete(ResultCode.SUCCESS);
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void whenComplete_ActionThrowsException() {
+    final AtomicInteger calls = new AtomicInteger();
+    CompletableResultCode result = new CompletableResultCode();
+    result.whenComplete(
+        new Runnable() {
+          @Override
+          public void run() {
+            throw new IllegalStateException("Action failed.");
+          }
+        });
+    result.whenComplete(
+        new Runnable() {
+          @Override
+          public void run() {
+            calls.incrementAndGet();
+          }
+        });
+    assertThat(result.complete(ResultCode.SUCCESS)).isTrue();
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
+  @Test(timeout = 10000L)
+  public void join_CompletedByAnotherThread() {
+    final CompletableResultCode result = new CompletableResultCode();
+    Thread thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                result.complete(ResultCode.FAILED_NOT_RETRYABLE);
+              }
+            });
+    thread.start();
+    assertThat(result.join()).isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+  }
+}
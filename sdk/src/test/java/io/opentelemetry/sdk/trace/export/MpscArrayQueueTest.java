@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link MpscArrayQueue}. */
+@RunWith(JUnit4.class)
+public class MpscArrayQueueTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void offerAndDrain_PreservesOrder() {
+    MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(4);
+    assertThat(queue.isEmpty()).isTrue();
+    assertThat(queue.offer(1)).isTrue();
+    assertThat(queue.offer(2)).isTrue();
+    assertThat(queue.offer(3)).isTrue();
+    assertThat(queue.size()).isEqualTo(3);
+    List<Integer> drained = new ArrayList<>();
+    assertThat(queue.drain(drained, 10)).isEqualTo(3);
+    assertThat(drained).containsExactly(1, 2, 3).inOrder();
+    assertThat(queue.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void offer_FullQueue() {
+    // Capacity is not a power of two, the queue must still be bounded to the exact capacity.
+    MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(3);
+    assertThat(queue.capacity()).isEqualTo(3);
+    assertThat(queue.offer(1)).isTrue();
+    assertThat(queue.offer(2)).isTrue();
+    assertThat(queue.offer(3)).isTrue();
+    assertThat(queue.offer(4)).isFalse();
+    assertThat(queue.size()).isEqualTo(3);
+    List<Integer> drained = new ArrayList<>();
+    assertThat(queue.drain(drained, 1)).isEqualTo(1);
+    assertThat(queue.offer(4)).isTrue();
+    assertThat(queue.drain(drained, 10)).isEqualTo(3);
+    assertThat(drained).containsExactly(1, 2, 3, 4).inOrder();
+  }
+
+  @Test
+  public void drain_RespectsLimit() {
+    MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(8);
+    for (int i = 0; i < 5; i++) {
+      queue.offer(i);
+    }
+    List<Integer> drained = new ArrayList<>();
+    assertThat(queue.drain(drained, 2)).isEqualTo(2);
+    assertThat(drained).containsExactly(0, 1).inOrder();
+    assertThat(queue.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void wrapsAround() {
+    MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(2);
+    List<Integer> drained = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      assertThat(queue.offer(i)).isTrue();
+      assertThat(queue.drain(drained, 1)).isEqualTo(1);
+    }
+    assertThat(drained).hasSize(100);
+    assertThat(drained.get(99)).isEqualTo(99);
+  }
+
+  @Test
+  public void offer_Null() {
+    MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(2);
+    thrown.expect(NullPointerException.class);
+    queue.offer(null);
+  }
+
+  @Test
+  public void create_NonPositiveCapacity() {
+    thrown.expect(IllegalArgumentException.class);
+    new MpscArrayQueue<Integer>(0);
+  }
+
+  @Test(timeout = 10000L)
+  public void concurrentProducers_AllElementsDrainedOnce() throws InterruptedException {
+    final int numberOfProducers = 4;
+    final int elementsPerProducer = 10000;
+    final MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(64);
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    List<Thread> producers = new ArrayList<>();
+    for (int p = 0; p < numberOfProducers; p++) {
+      final int base = p * elementsPerProducer;
+      Thread producer =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    startLatch.await();
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                  }
+                  for (int i = 0; i < elementsPerProducer; i++) {
+                    while (!queue.offer(base + i)) {
+                      Thread.yield();
+                    }
+                  }
+                }
+              });
+      producer.start();
+      producers.add(producer);
+    }
+    startLatch.countDown();
+    List<Integer> drained = new ArrayList<>();
+    while (drained.size() < numberOfProducers * elementsPerProducer) {
+      queue.drain(drained, 16);
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    Set<Integer> unique = new HashSet<>(drained);
+    assertThat(unique).hasSize(numberOfProducers * elementsPerProducer);
+    assertThat(queue.isEmpty()).isTrue();
+  }
+}
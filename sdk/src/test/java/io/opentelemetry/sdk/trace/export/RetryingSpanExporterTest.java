@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.TestUtils;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.GuardedBy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RetryingSpanExporter}. */
+@RunWith(JUnit4.class)
+public class RetryingSpanExporterTest {
+  // Long enough for the background thread to never retry during a test.
+  private static final long NEVER_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  private static List<SpanData> newBatch(int numberOfSpans) {
+    List<SpanData> batch = new ArrayList<>(numberOfSpans);
+    for (int i = 0; i < numberOfSpans; i++) {
+      batch.add(TestUtils.makeBasicSpan());
+    }
+    return Collections.unmodifiableList(batch);
+  }
+
+  @Test
+  public void export_Success() {
+    ScheduledSpanExporter fakeExporter = new ScheduledSpanExporter();
+    RetryingSpanExporter exporter = RetryingSpanExporter.newBuilder(fakeExporter).build();
+    List<SpanData> batch = newBatch(2);
+
+    assertThat(exporter.export(batch)).isEqualTo(ResultCode.SUCCESS);
+    assertThat(fakeExporter.getExportedBatches()).containsExactly(batch);
+    assertThat(exporter.getStatistics().getRetries()).isEqualTo(0L);
+    exporter.shutdown();
+  }
+
+  @Test
+  public void export_NotRetryable() {
+    ScheduledSpanExporter fakeExporter =
+        new ScheduledSpanExporter(ResultCode.FAILED_NOT_RETRYABLE);
+    RetryingSpanExporter exporter = RetryingSpanExporter.newBuilder(fakeExporter).build();
+
+    assertThat(exporter.export(newBatch(1))).isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+    assertThat(exporter.getStatistics().getBufferedSpans()).isEqualTo(0L);
+    exporter.shutdown();
+    assertThat(fakeExporter.getAttempts()).isEqualTo(1);
+  }
+
+  @Test(timeout = 10000L)
+  public void export_RetriesUntilSuccess() {
+    ScheduledSpanExporter fakeExporter =
+        new ScheduledSpanExporter(
+            ResultCode.FAILED_RETRYABLE, ResultCode.FAILED_RETRYABLE, ResultCode.FAILED_RETRYABLE);
+    RetryingSpanExporter exporter =
+        RetryingSpanExporter.newBuilder(fakeExporter).setInitialBackoffMillis(1).build();
+    List<SpanData> batch = newBatch(3);
+
+    assertThat(exporter.export(batch)).isEqualTo(ResultCode.SUCCESS);
+    assertThat(fakeExporter.waitForExportedBatches(1)).containsExactly(batch);
+    // Waits for the retry thread to update the buffer.
+    exporter.shutdown();
+    RetryingSpanExporter.Statistics statistics = exporter.getStatistics();
+    assertThat(statistics.getRetries()).isEqualTo(3L);
+    assertThat(statistics.getDroppedSpans()).isEqualTo(0L);
+    assertThat(statistics.getBufferedSpans()).isEqualTo(0L);
+    assertThat(statistics.getBufferedBytes()).isEqualTo(0L);
+    assertThat(fakeExporter.getExportedBatches()).hasSize(1);
+  }
+
+  @Test(timeout = 10000L)
+  public void export_KeepsOrderWhileRetrying() {
+    ScheduledSpanExporter fakeExporter =
+        new ScheduledSpanExporter(ResultCode.FAILED_RETRYABLE, ResultCode.FAILED_RETRYABLE);
+    RetryingSpanExporter exporter =
+        RetryingSpanExporter.newBuilder(fakeExporter).setInitialBackoffMillis(NEVER_MILLIS).build();
+    List<SpanData> batch1 = newBatch(1);
+    List<SpanData> batch2 = newBatch(2);
+
+    assertThat(exporter.export(batch1)).isEqualTo(ResultCode.SUCCESS);
+    // Buffered behind batch1 without calling the failing backend.
+    assertThat(exporter.export(batch2)).isEqualTo(ResultCode.SUCCESS);
+    assertThat(fakeExporter.getAttempts()).isEqualTo(1);
+    assertThat(exporter.getStatistics().getBufferedSpans()).isEqualTo(3L);
+    // Shutdown flushes the buffer, the first flush attempt fails and drops everything.
+    exporter.shutdown();
+    assertThat(fakeExporter.getExportedBatches()).isEmpty();
+    assertThat(exporter.getStatistics().getDroppedBatches()).isEqualTo(2L);
+    assertThat(exporter.getStatistics().getDroppedSpans()).isEqualTo(3L);
+  }
+
+  @Test(timeout = 10000L)
+  public void export_DropsOldestWhenBufferIsFull() {
+    ScheduledSpanExporter fakeExporter = new ScheduledSpanExporter(ResultCode.FAILED_RETRYABLE);
+    List<SpanData> batch1 = newBatch(2);
+    List<SpanData> batch2 = newBatch(1);
+    List<SpanData> batch3 = newBatch(1);
+    // Room for batch1 and batch2, or batch2 and batch3.
+    long spanSizeBytes = RetryingSpanExporter.estimateSizeBytes(batch2);
+    RetryingSpanExporter exporter =
+        RetryingSpanExporter.newBuilder(fakeExporter)
+            .setInitialBackoffMillis(NEVER_MILLIS)
+            .setMaxBufferedBytes(3 * spanSizeBytes)
+            .build();
+
+    exporter.export(batch1);
+    exporter.export(batch2);
+    exporter.export(batch3);
+    RetryingSpanExporter.Statistics statistics = exporter.getStatistics();
+    assertThat(statistics.getDroppedBatches()).isEqualTo(1L);
+    assertThat(statistics.getDroppedSpans()).isEqualTo(2L);
+    assertThat(statistics.getBufferedSpans()).isEqualTo(2L);
+    assertThat(statistics.getBufferedBytes()).isEqualTo(2 * spanSizeBytes);
+
+    // The fake exporter now succeeds, shutdown flushes the two newest batches.
+    exporter.shutdown();
+    assertThat(fakeExporter.getExportedBatches()).containsExactly(batch2, batch3).inOrder();
+  }
+
+  @Test
+  public void export_BatchLargerThanBuffer() {
+    ScheduledSpanExporter fakeExporter = new ScheduledSpanExporter(ResultCode.FAILED_RETRYABLE);
+    List<SpanData> batch = newBatch(10);
+    RetryingSpanExporter exporter =
+        RetryingSpanExporter.newBuilder(fakeExporter)
+            .setInitialBackoffMillis(NEVER_MILLIS)
+            .setMaxBufferedBytes(RetryingSpanExporter.estimateSizeBytes(batch) - 1)
+            .build();
+
+    exporter.export(batch);
+    RetryingSpanExporter.Statistics statistics = exporter.getStatistics();
+    assertThat(statistics.getDroppedBatches()).isEqualTo(1L);
+    assertThat(statistics.getDroppedSpans()).isEqualTo(10L);
+    assertThat(statistics.getBufferedSpans()).isEqualTo(0L);
+    exporter.shutdown();
+  }
+
+  @Test(timeout = 10000L)
+  public void export_ExponentialBackoff() {
+    ScheduledSpanExporter fakeExporter =
+        new ScheduledSpanExporter(
+            ResultCode.FAILED_RETRYABLE,
+            ResultCode.FAILED_RETRYABLE,
+            ResultCode.FAILED_RETRYABLE,
+            ResultCode.FAILED_RETRYABLE);
+    RetryingSpanExporter exporter =
+        RetryingSpanExporter.newBuilder(fakeExporter)
+            .setInitialBackoffMillis(20)
+            .setMaxBackoffMillis(80)
+            .setBackoffMultiplier(2)
+            .setJitter(0)
+            .build();
+
+    exporter.export(newBatch(1));
+    fakeExporter.waitForExportedBatches(1);
+    List<Long> attemptNanos = fakeExporter.getAttemptNanos();
+    assertThat(attemptNanos).hasSize(5);
+    // Delays of 20ms, 40ms, 80ms then capped at 80ms.
+    long[] minDelaysMillis = {20, 40, 80, 80};
+    for (int i = 0; i < minDelaysMillis.length; i++) {
+      assertThat(TimeUnit.NANOSECONDS.toMillis(attemptNanos.get(i + 1) - attemptNanos.get(i)))
+          .isAtLeast(minDelaysMillis[i]);
+    }
+    exporter.shutdown();
+  }
+
+  @Test(timeout = 10000L)
+  public void export_ExporterThrowsException() {
+    ScheduledSpanExporter fakeExporter = new ScheduledSpanExporter();
+    fakeExporter.throwOnExport = true;
+    RetryingSpanExporter exporter = RetryingSpanExporter.newBuilder(fakeExporter).build();
+
+    assertThat(exporter.export(newBatch(1))).isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+    exporter.shutdown();
+  }
+
+  @Test
+  public void export_AfterShutdown() {
+    ScheduledSpanExporter fakeExporter = new ScheduledSpanExporter();
+    RetryingSpanExporter exporter = RetryingSpanExporter.newBuilder(fakeExporter).build();
+    exporter.shutdown();
+
+    assertThat(exporter.export(newBatch(1))).isEqualTo(ResultCode.FAILED_NOT_RETRYABLE);
+    assertThat(fakeExporter.getAttempts()).isEqualTo(0);
+    assertThat(fakeExporter.isShutdown()).isTrue();
+  }
+
+  @Test(timeout = 10000L)
+  public void shutdown_RetryInFlight() throws InterruptedException {
+    ScheduledSpanExporter fakeExporter = new ScheduledSpanExporter(ResultCode.FAILED_RETRYABLE);
+    final RetryingSpanExporter exporter =
+        RetryingSpanExporter.newBuilder(fakeExporter).setInitialBackoffMillis(1).build();
+    List<SpanData> batch = newBatch(2);
+    fakeExporter.blockFromAttempt(2);
+
+    assertThat(exporter.export(batch)).isEqualTo(ResultCode.SUCCESS);
+    fakeExporter.waitForAttempts(2);
+    // Interrupted, shutdown doesn't wait for the retry that is blocked.
+    Thread shutdownThread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                Thread.currentThread().interrupt();
+                exporter.shutdown();
+              }
+            });
+    shutdownThread.start();
+    shutdownThread.join();
+
+    // The batch of the retry in flight is not exported again by shutdown.
+    assertThat(fakeExporter.getAttempts()).isEqualTo(2);
+    assertThat(exporter.getStatistics().getBufferedSpans()).isEqualTo(0L);
+    assertThat(exporter.getStatistics().getDroppedBatches()).isEqualTo(1L);
+    fakeExporter.unblock();
+    assertThat(fakeExporter.waitForExportedBatches(1)).containsExactly(batch);
+    assertThat(fakeExporter.getAttempts()).isEqualTo(2);
+  }
+
+  @Test
+  public void build_MaxBackoffLessThanInitialBackoff() {
+    thrown.expect(IllegalArgumentException.class);
+    RetryingSpanExporter.newBuilder(new ScheduledSpanExporter())
+        .setInitialBackoffMillis(100)
+        .setMaxBackoffMillis(10)
+        .build();
+  }
+
+  @Test
+  public void setJitter_OutOfRange() {
+    thrown.expect(IllegalArgumentException.class);
+    RetryingSpanExporter.newBuilder(new ScheduledSpanExporter()).setJitter(1.5);
+  }
+
+  @Test
+  public void setBackoffMultiplier_LessThanOne() {
+    thrown.expect(IllegalArgumentException.class);
+    RetryingSpanExporter.newBuilder(new ScheduledSpanExporter()).setBackoffMultiplier(0.5);
+  }
+
+  // Fails with the scheduled result codes, in order, then succeeds. The exports can be blocked to
+  // keep them in flight.
+  private static final class ScheduledSpanExporter implements SpanExporter {
+    private final Object monitor = new Object();
+
+    @GuardedBy("monitor")
+    private final Queue<ResultCode> schedule;
+
+    @GuardedBy("monitor")
+    private final List<List<SpanData>> exportedBatches = new ArrayList<>();
+
+    @GuardedBy("monitor")
+    private final List<Long> attemptNanos = new ArrayList<>();
+
+    @GuardedBy("monitor")
+    private boolean isShutdown;
+
+    @GuardedBy("monitor")
+    private int blockedFromAttempt = Integer.MAX_VALUE;
+
+    private volatile boolean throwOnExport;
+
+    private ScheduledSpanExporter(ResultCode... schedule) {
+      this.schedule = new ArrayDeque<>(Arrays.asList(schedule));
+    }
+
+    @Override
+    public ResultCode export(List<SpanData> spans) {
+      synchronized (monitor) {
+        attemptNanos.add(System.nanoTime());
+        monitor.notifyAll();
+        while (attemptNanos.size() >= blockedFromAttempt) {
+          try {
+            monitor.wait();
+          } catch (InterruptedException e) {
+            // Do nothing
+          }
+        }
+        if (throwOnExport) {
+          throw new IllegalStateException("No export for you.");
+        }
+        ResultCode resultCode = schedule.isEmpty() ? ResultCode.SUCCESS : schedule.remove();
+        if (resultCode == ResultCode.SUCCESS) {
+          exportedBatches.add(spans);
+          monitor.notifyAll();
+        }
+        return resultCode;
+      }
+    }
+
+    private List<List<SpanData>> waitForExportedBatches(int numberOfBatches) {
+      synchronized (monitor) {
+        while (exportedBatches.size() < numberOfBatches) {
+          try {
+            monitor.wait();
+          } catch (InterruptedException e) {
+            // Do nothing
+          }
+        }
+        return new ArrayList<>(exportedBatches);
+      }
+    }
+
+    private void blockFromAttempt(int attempt) {
+      synchronized (monitor) {
+        blockedFromAttempt = attempt;
+      }
+    }
+
+    private void unblock() {
+      synchronized (monitor) {
+        blockedFromAttempt = Integer.MAX_VALUE;
+        monitor.notifyAll();
+      }
+    }
+
+    private void waitForAttempts(int attempts) {
+      synchronized (monitor) {
+        while (attemptNanos.size() < attempts) {
+          try {
+            monitor.wait();
+          } catch (InterruptedException e) {
+            // Do nothing
+          }
+        }
+      }
+    }
+
+    private List<List<SpanData>> getExportedBatches() {
+      synchronized (monitor) {
+        return new ArrayList<>(exportedBatches);
+      }
+    }
+
+    private List<Long> getAttemptNanos() {
+      synchronized (monitor) {
+        return new ArrayList<>(attemptNanos);
+      }
+    }
+
+    private int getAttempts() {
+      synchronized (monitor) {
+        return attemptNanos.size();
+      }
+    }
+
+    private boolean isShutdown() {
+      synchronized (monitor) {
+        return isShutdown;
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      synchronized (monitor) {
+        isShutdown = true;
+      }
+    }
+  }
+}
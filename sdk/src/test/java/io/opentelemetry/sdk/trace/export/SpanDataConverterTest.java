@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.trace.export;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanData;
+import io.opentelemetry.sdk.trace.TestUtils;
+import io.opentelemetry.sdk.trace.TracerSdkFactory;
+import io.opentelemetry.trace.Tracer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link SpanDataConverter}. */
+@RunWith(JUnit4.class)
+public class SpanDataConverterTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private final Tracer tracer = tracerSdkFactory.get("SpanDataConverterTest");
+  private SpanDataConverter spanDataConverter = SpanDataConverter.create(0);
+
+  @After
+  public void cleanup() {
+    spanDataConverter.shutdown();
+    tracerSdkFactory.shutdown();
+  }
+
+  private List<Object> createEndedSpans(int numberOfSpans) {
+    List<Object> spans = new ArrayList<>(numberOfSpans);
+    for (int i = 0; i < numberOfSpans; i++) {
+      io.opentelemetry.trace.Span span = tracer.spanBuilder("span_" + i).startSpan();
+      span.end();
+      spans.add(span);
+    }
+    return spans;
+  }
+
+  private static List<SpanData> toSpanData(List<Object> spans, int startIndex, int endIndex) {
+    List<SpanData> result = new ArrayList<>(endIndex - startIndex);
+    for (int i = startIndex; i < endIndex; i++) {
+      result.add(((ReadableSpan) spans.get(i)).toSpanData());
+    }
+    return result;
+  }
+
+  @Test
+  public void convert_SingleThread() {
+    List<Object> spans = createEndedSpans(10);
+    assertThat(spanDataConverter.convert(spans, 2, 7))
+        .containsExactlyElementsIn(toSpanData(spans, 2, 7))
+        .inOrder();
+  }
+
+  @Test
+  public void convert_AlreadyConverted() {
+    SpanData spanData = TestUtils.makeBasicSpan();
+    List<Object> spans = new ArrayList<>();
+    spans.add(spanData);
+    assertThat(spanDataConverter.convert(spans, 0, 1)).containsExactly(spanData);
+  }
+
+  @Test
+  public void convert_MultipleThreads() {
+    spanDataConverter = SpanDataConverter.create(3);
+    // Not a multiple of the chunk size and with an offset, to check the chunk bounds.
+    List<Object> spans = createEndedSpans(1000);
+    assertThat(spanDataConverter.convert(spans, 13, 1000))
+        .containsExactlyElementsIn(toSpanData(spans, 13, 1000))
+        .inOrder();
+  }
+
+  @Test
+  public void convert_AfterShutdown() {
+    spanDataConverter = SpanDataConverter.create(2);
+    spanDataConverter.shutdown();
+    List<Object> spans = createEndedSpans(512);
+    assertThat(spanDataConverter.convert(spans, 0, 512))
+        .containsExactlyElementsIn(toSpanData(spans, 0, 512))
+        .inOrder();
+  }
+
+  @Test
+  public void create_NegativeConversionThreads() {
+    thrown.expect(IllegalArgumentException.class);
+    SpanDataConverter.create(-1);
+  }
+}
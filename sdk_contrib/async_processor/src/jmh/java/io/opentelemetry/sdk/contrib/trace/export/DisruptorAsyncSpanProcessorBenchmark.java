@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019, OpenTelemetry Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.sdk.contrib.trace.export;
+
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.TracerSdkFactory;
+import io.opentelemetry.trace.Span;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast application threads publish span events to the {@link
+ * DisruptorAsyncSpanProcessor}, with the consumer thread passing them to a processor that does
+ * nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DisruptorAsyncSpanProcessorBenchmark {
+  // When not blocking, the events are dropped when the ring buffer is full.
+  @Param({"true", "false"})
+  public boolean blocking;
+
+  private final TracerSdkFactory tracerSdkFactory = TracerSdkFactory.create();
+  private DisruptorAsyncSpanProcessor processor;
+  private ReadableSpan span;
+
+  @Setup(Level.Trial)
+  public final void setup() {
+    processor =
+        DisruptorAsyncSpanProcessor.newBuilder(new DiscardingSpanProcessor())
+            .setBlocking(blocking)
+            .build();
+    Span ended =
+        tracerSdkFactory
+            .get("DisruptorAsyncSpanProcessorBenchmark")
+            .spanBuilder("span")
+            .startSpan();
+    ended.end();
+    span = (ReadableSpan) ended;
+  }
+
+  @TearDown(Level.Trial)
+  public final void tearDown() {
+    processor.shutdown();
+    tracerSdkFactory.shutdown();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void onEnd_01Thread() {
+    processor.onEnd(span);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void onEnd_04Threads() {
+    processor.onEnd(span);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void onEnd_16Threads() {
+    processor.onEnd(span);
+  }
+
+  /** Publishes both the start and the end events of a span. */
+  @Benchmark
+  @Threads(4)
+  public void onStartAndEnd_04Threads() {
+    processor.onStart(span);
+    processor.onEnd(span);
+  }
+
+  private static final class DiscardingSpanProcessor implements SpanProcessor {
+    @Override
+    public void onStart(ReadableSpan span) {}
+
+    @Override
+    public void onEnd(ReadableSpan span) {}
+
+    @Override
+    public void shutdown() {}
+  }
+}